@@ -0,0 +1,75 @@
+package uk.gov.di.ipv.cri.experian;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import uk.gov.di.ipv.cri.experian.config.ExperianApiConfig;
+import uk.gov.di.ipv.cri.experian.domain.AddressType;
+import uk.gov.di.ipv.cri.experian.domain.PersonAddress;
+import uk.gov.di.ipv.cri.experian.domain.PersonIdentity;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public final class BenchmarkFixtures {
+    public static final String TENANT_ID = "benchmark-tenant-id";
+    public static final String HMAC_KEY = "experian-secret-key";
+    public static final String ENDPOINT_URI = "https://crosscore.stub/api";
+    public static final String PERSON_IDENTITY_JSON =
+            "{\"firstName\":\"JON\",\"middleNames\":\"JAMES\",\"surname\":\"DOE\","
+                + "\"dateOfBirth\":\"1970-01-01\",\"addresses\":["
+                + "{\"houseNameNumber\":\"70\",\"street\":\"WHITEHALL\",\"townCity\":\"LONDON\",\"postcode\":\"SW1A"
+                + " 2AS\",\"addressType\":\"CURRENT\"},{\"houseNameNumber\":\"10\",\"street\":\"DOWNING"
+                + " STREET\",\"townCity\":\"LONDON\",\"postcode\":\"SW1A"
+                + " 2AA\",\"addressType\":\"PREVIOUS\"}]}";
+
+    private BenchmarkFixtures() {}
+
+    public static ObjectMapper createObjectMapper() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        return objectMapper;
+    }
+
+    public static ExperianApiConfig createExperianApiConfig() {
+        return new ExperianApiConfig() {
+            @Override
+            public String getTenantId() {
+                return TENANT_ID;
+            }
+
+            @Override
+            public String getEndpointUri() {
+                return ENDPOINT_URI;
+            }
+
+            @Override
+            public String getHmacKey() {
+                return HMAC_KEY;
+            }
+        };
+    }
+
+    public static PersonIdentity createPersonIdentity() {
+        PersonIdentity personIdentity = new PersonIdentity();
+        personIdentity.setFirstName("JON");
+        personIdentity.setMiddleNames("JAMES");
+        personIdentity.setSurname("DOE");
+        personIdentity.setDateOfBirth(LocalDate.of(1970, 1, 1));
+        personIdentity.setAddresses(
+                List.of(
+                        createAddress("70", "WHITEHALL", "SW1A 2AS", AddressType.CURRENT),
+                        createAddress("10", "DOWNING STREET", "SW1A 2AA", AddressType.PREVIOUS)));
+        return personIdentity;
+    }
+
+    private static PersonAddress createAddress(
+            String houseNameNumber, String street, String postcode, AddressType addressType) {
+        PersonAddress address = new PersonAddress();
+        address.setHouseNameNumber(houseNameNumber);
+        address.setStreet(street);
+        address.setTownCity("LONDON");
+        address.setPostcode(postcode);
+        address.setAddressType(addressType);
+        return address;
+    }
+}
@@ -0,0 +1,90 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.di.ipv.cri.experian.BenchmarkFixtures;
+import uk.gov.di.ipv.cri.experian.domain.PersonIdentity;
+import uk.gov.di.ipv.cri.experian.gateway.dto.CrossCoreApiRequest;
+import uk.gov.di.ipv.cri.experian.metrics.StageRecorder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CrossCoreApiRequestSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private CrossCoreApiRequestWriter requestWriter;
+    private HmacGenerator hmacGenerator;
+    private CrossCoreApiRequest apiRequest;
+    private ExperianApiRequestMapper requestMapper;
+    private CrossCoreRequestTemplate requestTemplate;
+    private PersonIdentity personIdentity;
+
+    @Setup
+    public void setup() throws Exception {
+        objectMapper = BenchmarkFixtures.createObjectMapper();
+        requestWriter = new CrossCoreApiRequestWriter(objectMapper.getFactory());
+        hmacGenerator = new HmacGenerator(BenchmarkFixtures.HMAC_KEY);
+        requestMapper = new ExperianApiRequestMapper(BenchmarkFixtures.TENANT_ID);
+        requestTemplate = new CrossCoreRequestTemplate(BenchmarkFixtures.TENANT_ID, hmacGenerator);
+        personIdentity = BenchmarkFixtures.createPersonIdentity();
+        apiRequest = requestMapper.mapPersonIdentity(personIdentity);
+    }
+
+    @Benchmark
+    public String writeValueAsString() throws IOException {
+        return objectMapper.writeValueAsString(apiRequest);
+    }
+
+    @Benchmark
+    public byte[] writeValueAsBytes() throws IOException {
+        return objectMapper.writeValueAsBytes(apiRequest);
+    }
+
+    @Benchmark
+    public SignedPayload serializeAndSign() throws IOException {
+        return hmacGenerator.generateSignedPayload(
+                outputStream -> objectMapper.writeValue(outputStream, apiRequest));
+    }
+
+    @Benchmark
+    public byte[] requestWriter() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(1024);
+        requestWriter.write(outputStream, apiRequest);
+        return outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public SignedPayload requestWriterSerializeAndSign() throws IOException {
+        return hmacGenerator.generateSignedPayload(
+                outputStream -> requestWriter.write(outputStream, apiRequest));
+    }
+
+    @Benchmark
+    public SignedPayload mapSerializeAndSign() throws IOException {
+        CrossCoreApiRequest mappedRequest = requestMapper.mapPersonIdentity(personIdentity);
+        return hmacGenerator.generateSignedPayload(
+                outputStream -> requestWriter.write(outputStream, mappedRequest));
+    }
+
+    @Benchmark
+    public SignedPayload requestTemplate() throws IOException {
+        return requestTemplate.render(personIdentity, StageRecorder.NONE);
+    }
+}
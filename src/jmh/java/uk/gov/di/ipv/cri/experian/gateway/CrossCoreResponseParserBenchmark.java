@@ -0,0 +1,87 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.di.ipv.cri.experian.BenchmarkFixtures;
+import uk.gov.di.ipv.cri.experian.domain.IdentityCheckDecision;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the decision from a CrossCore response token by token, against building the whole
+ * document as a tree and picking the same values out of it. Run with {@code -prof gc} to compare
+ * allocation per response as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CrossCoreResponseParserBenchmark {
+
+    private ObjectMapper objectMapper;
+    private CrossCoreResponseParser responseParser;
+    private String responseBody;
+
+    @Setup
+    public void setup() {
+        objectMapper = BenchmarkFixtures.createObjectMapper();
+        responseParser = new CrossCoreResponseParser(objectMapper.getFactory());
+        StringBuilder rules = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            if (i > 0) {
+                rules.append(',');
+            }
+            rules.append("{\"ruleId\":\"U")
+                    .append(i)
+                    .append("\",\"ruleName\":\"Address Link Check\",\"ruleScore\":")
+                    .append(i)
+                    .append(",\"ruleText\":\"Address matched on the electoral roll\"}");
+        }
+        responseBody =
+                "{\"responseHeader\":{\"requestType\":\"Authenticateplus-Standalone\","
+                    + "\"clientReferenceId\":\"3a1c6b2e-8b8e-4a4a-9f6f-0f9c3b1d2e4f\","
+                    + "\"expRequestId\":\"RB000001\",\"messageTime\":\"2021-11-01T10:00:00Z\","
+                    + "\"overallResponse\":{\"decision\":\"CONTINUE\",\"decisionText\":\"Continue\",\"decisionReasons\":[\"Processing"
+                    + " completed\"],\"recommendedNextActions\":[],\"spareObjects\":[]},"
+                    + "\"responseCode\":\"R0201\",\"responseType\":\"INFO\",\"responseMessage\":\"Workflow"
+                    + " Complete.\",\"tenantID\":\"tenant\"},"
+                    + "\"clientResponsePayload\":{\"orchestrationDecisions\":[{\"sequenceId\":"
+                    + "\"1\",\"decisionSource\":\"uk-crpverify\",\"decision\":\"AUTHENTICATED\","
+                    + "\"score\":90,\"decisionTime\":\"2021-11-01T10:00:00Z\"}],"
+                    + "\"decisionElements\":[{\"serviceName\":\"uk-crpverify\","
+                    + "\"applicantId\":\"APPLICANT_1\",\"decision\":\"AU01\",\"score\":90,"
+                    + "\"decisionText\":\"Authenticated\",\"rules\":["
+                        + rules
+                        + "],\"matches\":[{\"name\":\"PMATCH\",\"value\":\"1\"},"
+                        + "{\"name\":\"AMATCH\",\"value\":\"1\"}]}]}}";
+    }
+
+    @Benchmark
+    public IdentityCheckDecision streamingParser() throws Exception {
+        return responseParser.parse(responseBody);
+    }
+
+    @Benchmark
+    public IdentityCheckDecision readTree() throws Exception {
+        JsonNode response = objectMapper.readTree(responseBody);
+        JsonNode decisionElement =
+                response.path("clientResponsePayload").path("decisionElements").path(0);
+        return new IdentityCheckDecision(
+                response.path("responseHeader").path("expRequestId").asText(),
+                response.path("responseHeader").path("overallResponse").path("decision").asText(),
+                decisionElement.path("score").asInt(),
+                null);
+    }
+}
@@ -0,0 +1,40 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.di.ipv.cri.experian.BenchmarkFixtures;
+import uk.gov.di.ipv.cri.experian.domain.PersonIdentity;
+import uk.gov.di.ipv.cri.experian.gateway.dto.CrossCoreApiRequest;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExperianApiRequestMapperBenchmark {
+
+    private ExperianApiRequestMapper requestMapper;
+    private PersonIdentity personIdentity;
+
+    @Setup
+    public void setup() {
+        requestMapper = new ExperianApiRequestMapper(BenchmarkFixtures.TENANT_ID);
+        personIdentity = BenchmarkFixtures.createPersonIdentity();
+    }
+
+    @Benchmark
+    public CrossCoreApiRequest mapPersonIdentity() {
+        return requestMapper.mapPersonIdentity(personIdentity);
+    }
+}
@@ -0,0 +1,56 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a single shared {@link HmacGenerator} as the number of signing threads grows. With
+ * per-thread {@code Mac} instances the max-threads score should scale with the available cores
+ * rather than flatten out at the single-thread score.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HmacGeneratorBenchmark {
+
+    private HmacGenerator hmacGenerator;
+    private byte[] requestBody;
+
+    @Setup
+    public void setup() throws Exception {
+        hmacGenerator = new HmacGenerator("experian-secret-key");
+        StringBuilder body = new StringBuilder();
+        while (body.length() < 1500) {
+            body.append(
+                    "{\"street\":\"WHITEHALL\",\"postTown\":\"LONDON\",\"postal\":\"SW1A 2AS\"}");
+        }
+        requestBody = body.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String signOneThread() {
+        return hmacGenerator.generateHmac(requestBody);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String signMaxThreads() {
+        return hmacGenerator.generateHmac(requestBody);
+    }
+}
@@ -0,0 +1,185 @@
+package uk.gov.di.ipv.cri.experian.resource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import spark.Request;
+import spark.Response;
+import uk.gov.di.ipv.cri.experian.BenchmarkFixtures;
+import uk.gov.di.ipv.cri.experian.StubHttpClient;
+import uk.gov.di.ipv.cri.experian.gateway.ExperianApiRequestMapper;
+import uk.gov.di.ipv.cri.experian.gateway.ExperianGateway;
+import uk.gov.di.ipv.cri.experian.gateway.HmacGenerator;
+import uk.gov.di.ipv.cri.experian.service.IdentityVerificationService;
+import uk.gov.di.ipv.cri.experian.validation.InputValidationExecutor;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Validation;
+import javax.validation.ValidatorFactory;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the whole {@code POST /identity-check} route in-process, from body parsing to the response
+ * body, with CrossCore replaced by a {@link StubHttpClient} that answers immediately.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdentityCheckResourceBenchmark {
+    private static final String CROSS_CORE_RESPONSE_BODY =
+            "{\"responseHeader\":{\"requestType\":\"Authenticateplus-Standalone\","
+                    + "\"responseCode\":\"R0201\",\"responseType\":\"INFO\","
+                    + "\"overallResponse\":{\"decision\":\"CONTINUE\",\"score\":90}}}";
+
+    private ValidatorFactory validatorFactory;
+    private IdentityCheckResource identityCheckResource;
+
+    @Setup
+    public void setup() throws Exception {
+        ObjectMapper objectMapper = BenchmarkFixtures.createObjectMapper();
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        ExperianGateway experianGateway =
+                new ExperianGateway(
+                        new StubHttpClient(CROSS_CORE_RESPONSE_BODY),
+                        new ExperianApiRequestMapper(BenchmarkFixtures.TENANT_ID),
+                        objectMapper,
+                        new HmacGenerator(BenchmarkFixtures.HMAC_KEY),
+                        BenchmarkFixtures.createExperianApiConfig());
+        identityCheckResource =
+                new IdentityCheckResource(
+                        new IdentityVerificationService(experianGateway),
+                        objectMapper,
+                        new InputValidationExecutor(validatorFactory.getValidator()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Object performIdentityCheckRoute() throws Exception {
+        return identityCheckResource.performIdentityCheckRoute.handle(
+                new BenchmarkRequest(BenchmarkFixtures.PERSON_IDENTITY_JSON),
+                new BenchmarkResponse());
+    }
+
+    /**
+     * Serves the body through a minimal {@link HttpServletRequest}, as the route streams it from
+     * {@link Request#raw()}.
+     */
+    private static class BenchmarkRequest extends Request {
+        private final byte[] body;
+        private final HttpServletRequest servletRequest;
+
+        private BenchmarkRequest(String body) {
+            this.body = body.getBytes(StandardCharsets.UTF_8);
+            this.servletRequest =
+                    (HttpServletRequest)
+                            Proxy.newProxyInstance(
+                                    HttpServletRequest.class.getClassLoader(),
+                                    new Class<?>[] {HttpServletRequest.class},
+                                    (proxy, method, args) -> {
+                                        switch (method.getName()) {
+                                            case "getInputStream":
+                                                return new BenchmarkInputStream(this.body);
+                                            case "getContentLengthLong":
+                                                return (long) this.body.length;
+                                            default:
+                                                throw new UnsupportedOperationException(
+                                                        method.getName());
+                                        }
+                                    });
+        }
+
+        @Override
+        public HttpServletRequest raw() {
+            return servletRequest;
+        }
+
+        @Override
+        public int contentLength() {
+            return body.length;
+        }
+
+        @Override
+        public String headers(String header) {
+            return null;
+        }
+    }
+
+    private static class BenchmarkInputStream extends ServletInputStream {
+        private final ByteArrayInputStream inputStream;
+
+        private BenchmarkInputStream(byte[] body) {
+            this.inputStream = new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public int read() {
+            return inputStream.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            return inputStream.read(b, off, len);
+        }
+
+        @Override
+        public boolean isFinished() {
+            return inputStream.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class BenchmarkResponse extends Response {
+        private String body;
+
+        @Override
+        public void status(int statusCode) {
+            // not recorded
+        }
+
+        @Override
+        public void header(String header, String value) {
+            // not recorded
+        }
+
+        @Override
+        public void body(String body) {
+            this.body = body;
+        }
+
+        @Override
+        public String body() {
+            return body;
+        }
+    }
+}
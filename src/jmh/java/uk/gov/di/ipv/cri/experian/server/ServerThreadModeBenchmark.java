@@ -0,0 +1,119 @@
+package uk.gov.di.ipv.cri.experian.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import spark.Service;
+import spark.embeddedserver.EmbeddedServers;
+import uk.gov.di.ipv.cri.experian.BenchmarkFixtures;
+import uk.gov.di.ipv.cri.experian.StubHttpClient;
+import uk.gov.di.ipv.cri.experian.gateway.ExperianApiRequestMapper;
+import uk.gov.di.ipv.cri.experian.gateway.ExperianGateway;
+import uk.gov.di.ipv.cri.experian.gateway.HmacGenerator;
+import uk.gov.di.ipv.cri.experian.resource.IdentityCheckResource;
+import uk.gov.di.ipv.cri.experian.service.IdentityVerificationService;
+import uk.gov.di.ipv.cri.experian.validation.InputValidationExecutor;
+
+import javax.validation.Validation;
+import javax.validation.ValidatorFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives {@code POST /identity-check} over HTTP against an embedded server in platform or virtual
+ * thread mode. CrossCore is a {@link StubHttpClient} that blocks for a fixed latency, so every
+ * request holds a server thread for at least that long. Sample time mode reports the latency
+ * percentiles, including p99; run with increasing {@code -PjmhThreads} to find the concurrency at
+ * which p99 starts to climb. The default of 400 client threads is twice the platform pool size.
+ * Virtual thread mode requires a Java 21 toolchain ({@code -PjavaToolchain=21}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(400)
+@Fork(1)
+public class ServerThreadModeBenchmark {
+    private static final String CROSS_CORE_RESPONSE_BODY =
+            "{\"responseHeader\":{\"responseCode\":\"R0201\",\"responseType\":\"INFO\"}}";
+
+    @Param({"platform", "virtual"})
+    public String threadMode;
+
+    @Param({"50"})
+    public long upstreamLatencyMillis;
+
+    private ValidatorFactory validatorFactory;
+    private Service service;
+    private HttpClient client;
+    private HttpRequest request;
+
+    @Setup
+    public void setup() throws Exception {
+        ObjectMapper objectMapper = BenchmarkFixtures.createObjectMapper();
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        ExperianGateway experianGateway =
+                new ExperianGateway(
+                        new StubHttpClient(
+                                CROSS_CORE_RESPONSE_BODY, Duration.ofMillis(upstreamLatencyMillis)),
+                        new ExperianApiRequestMapper(BenchmarkFixtures.TENANT_ID),
+                        objectMapper,
+                        new HmacGenerator(BenchmarkFixtures.HMAC_KEY),
+                        BenchmarkFixtures.createExperianApiConfig());
+        IdentityCheckResource identityCheckResource =
+                new IdentityCheckResource(
+                        new IdentityVerificationService(experianGateway),
+                        objectMapper,
+                        new InputValidationExecutor(validatorFactory.getValidator()));
+
+        EmbeddedServers.add(
+                EmbeddedServers.Identifiers.JETTY,
+                new AsyncJettyServerFactory("virtual".equals(threadMode)));
+        service = Service.ignite().port(0);
+        service.post("/identity-check", identityCheckResource.performIdentityCheckRoute);
+        service.awaitInitialization();
+
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        request =
+                HttpRequest.newBuilder(
+                                URI.create(
+                                        "http://localhost:" + service.port() + "/identity-check"))
+                        .POST(
+                                HttpRequest.BodyPublishers.ofString(
+                                        BenchmarkFixtures.PERSON_IDENTITY_JSON))
+                        .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.stop();
+        service.awaitStop();
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public int identityCheck() throws Exception {
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 201) {
+            throw new IllegalStateException("Unexpected status " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+}
@@ -0,0 +1,75 @@
+package uk.gov.di.ipv.cri.experian.validation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.di.ipv.cri.experian.BenchmarkFixtures;
+import uk.gov.di.ipv.cri.experian.domain.PersonIdentity;
+import uk.gov.di.ipv.cri.experian.domain.ValidationResult;
+
+import javax.validation.Validation;
+import javax.validation.ValidatorFactory;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InputValidationExecutorBenchmark {
+
+    private ValidatorFactory validatorFactory;
+    private InputValidationExecutor inputValidationExecutor;
+    private InputValidationExecutor precomputedInputValidationExecutor;
+    private PersonIdentity validPersonIdentity;
+    private PersonIdentity invalidPersonIdentity;
+
+    @Setup
+    public void setup() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        inputValidationExecutor = new InputValidationExecutor(validatorFactory.getValidator());
+        precomputedInputValidationExecutor =
+                new InputValidationExecutor(
+                        validatorFactory.getValidator(),
+                        new PrecomputedValidator(validatorFactory, PersonIdentity.class));
+        validPersonIdentity = BenchmarkFixtures.createPersonIdentity();
+        invalidPersonIdentity = BenchmarkFixtures.createPersonIdentity();
+        invalidPersonIdentity.setFirstName(null);
+        invalidPersonIdentity.getAddresses().get(0).setPostcode("");
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public ValidationResult validInput() {
+        return inputValidationExecutor.performInputValidation(validPersonIdentity);
+    }
+
+    @Benchmark
+    public ValidationResult invalidInput() {
+        return inputValidationExecutor.performInputValidation(invalidPersonIdentity);
+    }
+
+    @Benchmark
+    public ValidationResult precomputedValidInput() {
+        return precomputedInputValidationExecutor.performInputValidation(validPersonIdentity);
+    }
+
+    @Benchmark
+    public ValidationResult precomputedInvalidInput() {
+        return precomputedInputValidationExecutor.performInputValidation(invalidPersonIdentity);
+    }
+}
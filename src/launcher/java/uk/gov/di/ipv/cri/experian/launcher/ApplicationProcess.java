@@ -0,0 +1,104 @@
+package uk.gov.di.ipv.cri.experian.launcher;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** The API started as a separate process, which is ready once {@code /healthcheck} answers. */
+final class ApplicationProcess implements AutoCloseable {
+    static final URI API_URI = URI.create("http://localhost:5007");
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(60);
+
+    private final Process process;
+    private final long startupMillis;
+
+    private ApplicationProcess(Process process, long startupMillis) {
+        this.process = process;
+        this.startupMillis = startupMillis;
+    }
+
+    static ApplicationProcess start(List<String> command, HttpClient httpClient) throws Exception {
+        long startNanos = System.nanoTime();
+        Process process =
+                new ProcessBuilder(command)
+                        .redirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .start();
+        try {
+            while (!isHealthy(httpClient)) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(
+                            "The application exited with " + process.exitValue() + ": " + command);
+                }
+                if (System.nanoTime() - startNanos > STARTUP_TIMEOUT.toNanos()) {
+                    throw new IllegalStateException(
+                            "The application did not start within " + STARTUP_TIMEOUT);
+                }
+                Thread.sleep(5);
+            }
+        } catch (Exception e) {
+            stop(process);
+            throw e;
+        }
+        return new ApplicationProcess(
+                process, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    }
+
+    long getStartupMillis() {
+        return startupMillis;
+    }
+
+    /** Returns the resident set size as reported by /proc, or -1 where there is no /proc. */
+    long getResidentSetKilobytes() throws IOException {
+        Path status = Path.of("/proc", Long.toString(process.pid()), "status");
+        if (!Files.exists(status)) {
+            return -1;
+        }
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("[^0-9]", ""));
+            }
+        }
+        return -1;
+    }
+
+    /** Stops the process; if interrupted while waiting, kills it and keeps the interrupt. */
+    @Override
+    public void close() {
+        try {
+            stop(process);
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void stop(Process process) throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(10, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+
+    private static boolean isHealthy(HttpClient httpClient) throws InterruptedException {
+        try {
+            HttpResponse<Void> response =
+                    httpClient.send(
+                            HttpRequest.newBuilder(API_URI.resolve("/healthcheck"))
+                                    .timeout(Duration.ofSeconds(1))
+                                    .build(),
+                            HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() == 200;
+        } catch (IOException e) {
+            // not listening yet
+            return false;
+        }
+    }
+}
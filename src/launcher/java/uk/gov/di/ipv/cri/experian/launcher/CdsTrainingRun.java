@@ -0,0 +1,98 @@
+package uk.gov.di.ipv.cri.experian.launcher;
+
+import spark.Spark;
+import uk.gov.di.ipv.cri.experian.App;
+import uk.gov.di.ipv.cri.experian.simulator.CrossCoreSimulator;
+import uk.gov.di.ipv.cri.experian.simulator.CrossCoreSimulatorConfig;
+import uk.gov.di.ipv.cri.experian.simulator.LatencyDistribution;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * Starts the API the way {@link App} does and sends it a sample of identity checks, answered by the
+ * CrossCore simulator on the port of {@code EXPERIAN_API_ENDPOINT_URI}. Run with {@code
+ * -XX:DumpLoadedClassList} it lists the classes for the class data sharing archive.
+ */
+public final class CdsTrainingRun {
+    private static final String PERSON_IDENTITY_JSON =
+            "{\"firstName\":\"JON\",\"middleNames\":null,\"surname\":\"DOE\","
+                    + "\"dateOfBirth\":\"1970-01-01\",\"addresses\":[{\"houseNameNumber\":\"70\","
+                    + "\"street\":\"WHITEHALL\",\"townCity\":\"LONDON\",\"postcode\":\"SW1A 2AS\","
+                    + "\"addressType\":\"CURRENT\"}]}";
+    private static final String INVALID_PERSON_IDENTITY_JSON =
+            "{\"firstName\":\"JON\",\"dateOfBirth\":\"1970-01-01\",\"addresses\":[]}";
+
+    private CdsTrainingRun() {}
+
+    public static void main(String[] args) throws Exception {
+        URI endpointUri = URI.create(System.getenv("EXPERIAN_API_ENDPOINT_URI"));
+        CrossCoreSimulator simulator =
+                new CrossCoreSimulator(
+                        new CrossCoreSimulatorConfig(
+                                endpointUri.getPort(),
+                                System.getenv("EXPERIAN_API_HMAC_KEY"),
+                                LatencyDistribution.fixed(Duration.ZERO),
+                                0,
+                                0,
+                                0,
+                                1024,
+                                Duration.ZERO));
+        simulator.start();
+        try {
+            App.main(args);
+            Spark.awaitInitialization();
+            HttpClient httpClient = HttpClient.newHttpClient();
+            send(
+                    httpClient,
+                    HttpRequest.newBuilder(ApplicationProcess.API_URI.resolve("/healthcheck"))
+                            .GET(),
+                    200);
+            send(httpClient, post("/identity-check", PERSON_IDENTITY_JSON), 201);
+            send(httpClient, post("/identity-check", INVALID_PERSON_IDENTITY_JSON), 400);
+            send(httpClient, post("/identity-check", "{"), 400);
+            send(httpClient, post("/identity-check/async", PERSON_IDENTITY_JSON), 201);
+            send(
+                    httpClient,
+                    post(
+                            "/identity-check/batch",
+                            PERSON_IDENTITY_JSON + "\n" + INVALID_PERSON_IDENTITY_JSON + "\n"),
+                    200);
+            send(
+                    httpClient,
+                    HttpRequest.newBuilder(ApplicationProcess.API_URI.resolve("/metrics")).GET(),
+                    200);
+        } finally {
+            Spark.stop();
+            Spark.awaitStop();
+            simulator.close();
+        }
+        // the CrossCore client keeps non-daemon threads alive
+        System.exit(0);
+    }
+
+    private static HttpRequest.Builder post(String path, String body) {
+        return HttpRequest.newBuilder(ApplicationProcess.API_URI.resolve(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+    }
+
+    private static void send(HttpClient httpClient, HttpRequest.Builder request, int expectedStatus)
+            throws Exception {
+        HttpResponse<String> response =
+                httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != expectedStatus) {
+            throw new IllegalStateException(
+                    request.build().uri()
+                            + " answered "
+                            + response.statusCode()
+                            + " instead of "
+                            + expectedStatus
+                            + ": "
+                            + response.body());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package uk.gov.di.ipv.cri.experian.launcher;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Writes the native image configuration that a training run under the tracing agent cannot be
+ * relied on to record: every class in the {@code gateway.dto} and {@code domain} packages, which
+ * Jackson and the validators reach reflectively depending on the request, and the validation
+ * message bundles.
+ *
+ * <p>Arguments: the output directory and the main classes directory.
+ */
+public final class NativeImageConfigGenerator {
+    private static final List<String> REFLECTIVE_PACKAGES =
+            List.of("uk/gov/di/ipv/cri/experian/gateway/dto", "uk/gov/di/ipv/cri/experian/domain");
+    private static final List<String> RESOURCE_BUNDLES =
+            List.of("ValidationMessages", "org.hibernate.validator.ValidationMessages");
+    private static final List<String> RESOURCE_PATTERNS =
+            List.of(
+                    "\\QValidationMessages.properties\\E",
+                    "\\QMETA-INF/services/javax.validation.spi.ValidationProvider\\E",
+                    "\\QMETA-INF/services/javax.el.ExpressionFactory\\E");
+
+    private NativeImageConfigGenerator() {}
+
+    public static void main(String[] args) throws IOException {
+        Path outputDir = Path.of(args[0]);
+        Path classesDir = Path.of(args[1]);
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        Files.createDirectories(outputDir);
+
+        ArrayNode reflectConfig = objectMapper.createArrayNode();
+        for (String className : findClasses(classesDir)) {
+            reflectConfig
+                    .addObject()
+                    .put("name", className)
+                    .put("allDeclaredConstructors", true)
+                    .put("allDeclaredMethods", true)
+                    .put("allDeclaredFields", true);
+        }
+        objectMapper.writeValue(outputDir.resolve("reflect-config.json").toFile(), reflectConfig);
+
+        ObjectNode resourceConfig = objectMapper.createObjectNode();
+        ArrayNode includes = resourceConfig.putObject("resources").putArray("includes");
+        RESOURCE_PATTERNS.forEach(pattern -> includes.addObject().put("pattern", pattern));
+        ArrayNode bundles = resourceConfig.putArray("bundles");
+        RESOURCE_BUNDLES.forEach(bundle -> bundles.addObject().put("name", bundle));
+        objectMapper.writeValue(outputDir.resolve("resource-config.json").toFile(), resourceConfig);
+    }
+
+    private static List<String> findClasses(Path classesDir) throws IOException {
+        try (Stream<Path> files = Files.walk(classesDir)) {
+            return files.map(path -> classesDir.relativize(path).toString().replace('\\', '/'))
+                    .filter(NativeImageConfigGenerator::isReflectiveClass)
+                    .map(path -> path.substring(0, path.length() - ".class".length()))
+                    .map(path -> path.replace('/', '.'))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    // nested classes are included, classes in sub-packages are not
+    private static boolean isReflectiveClass(String path) {
+        if (!path.endsWith(".class")) {
+            return false;
+        }
+        int packageEnd = path.lastIndexOf('/');
+        return packageEnd > 0 && REFLECTIVE_PACKAGES.contains(path.substring(0, packageEnd));
+    }
+}
@@ -0,0 +1,132 @@
+package uk.gov.di.ipv.cri.experian.launcher;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import uk.gov.di.ipv.cri.experian.simulator.CrossCoreSimulator;
+import uk.gov.di.ipv.cri.experian.simulator.CrossCoreSimulatorConfig;
+import uk.gov.di.ipv.cri.experian.simulator.LatencyDistribution;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Starts the JVM launcher and the native image in turn against the CrossCore simulator, checks that
+ * both answer an identity check with a decision, and compares their startup time, resident set size
+ * after the first identity check and the latency of that first check.
+ *
+ * <p>Arguments: the report file, the number of starts, the JVM launcher script and the native image
+ * executable.
+ */
+public final class NativeImageSmokeTest {
+    private static final String PERSON_IDENTITY_JSON =
+            "{\"firstName\":\"JON\",\"surname\":\"DOE\",\"dateOfBirth\":\"1970-01-01\","
+                + "\"addresses\":[{\"houseNameNumber\":\"70\",\"street\":\"WHITEHALL\",\"townCity\":\"LONDON\",\"postcode\":\"SW1A"
+                + " 2AS\",\"addressType\":\"CURRENT\"}]}";
+
+    private NativeImageSmokeTest() {}
+
+    public static void main(String[] args) throws Exception {
+        Path reportFile = Path.of(args[0]);
+        int starts = Integer.parseInt(args[1]);
+        Map<String, String> builds = new LinkedHashMap<>();
+        builds.put("JVM launcher", args[2]);
+        builds.put("native image", args[3]);
+
+        URI endpointUri = URI.create(System.getenv("EXPERIAN_API_ENDPOINT_URI"));
+        HttpClient httpClient =
+                HttpClient.newBuilder().connectTimeout(Duration.ofMillis(100)).build();
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, List<long[]>> measurements = new LinkedHashMap<>();
+        try (CrossCoreSimulator simulator =
+                new CrossCoreSimulator(
+                        new CrossCoreSimulatorConfig(
+                                endpointUri.getPort(),
+                                System.getenv("EXPERIAN_API_HMAC_KEY"),
+                                LatencyDistribution.fixed(Duration.ZERO),
+                                0,
+                                0,
+                                0,
+                                1024,
+                                Duration.ZERO))) {
+            simulator.start();
+            for (int i = 0; i < starts; i++) {
+                for (Map.Entry<String, String> build : builds.entrySet()) {
+                    measurements
+                            .computeIfAbsent(build.getKey(), key -> new ArrayList<>())
+                            .add(measure(build.getValue(), httpClient, objectMapper));
+                }
+            }
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append(
+                String.format("Native image against the JVM launcher, over %d starts%n", starts));
+        report.append(
+                String.format(
+                        "  %-14s %12s %16s %16s%n", "", "startup", "first check", "RSS after it"));
+        for (Map.Entry<String, List<long[]>> result : measurements.entrySet()) {
+            report.append(
+                    String.format(
+                            "  %-14s %9d ms %13.1f ms %13d MB%n",
+                            result.getKey(),
+                            median(result.getValue(), 0),
+                            median(result.getValue(), 1) / 1000.0,
+                            median(result.getValue(), 2) / 1024));
+        }
+        Files.write(reportFile, report.toString().getBytes(StandardCharsets.UTF_8));
+        System.out.print(report);
+    }
+
+    // startup millis, first check micros and resident set kilobytes
+    private static long[] measure(
+            String executable, HttpClient httpClient, ObjectMapper objectMapper) throws Exception {
+        try (ApplicationProcess application =
+                ApplicationProcess.start(List.of(executable), httpClient)) {
+            long startNanos = System.nanoTime();
+            HttpResponse<String> response =
+                    httpClient.send(
+                            HttpRequest.newBuilder(
+                                            ApplicationProcess.API_URI.resolve("/identity-check"))
+                                    .header("Content-Type", "application/json")
+                                    .POST(HttpRequest.BodyPublishers.ofString(PERSON_IDENTITY_JSON))
+                                    .build(),
+                            HttpResponse.BodyHandlers.ofString());
+            long firstCheckMicros = (System.nanoTime() - startNanos) / 1000;
+            JsonNode decision =
+                    response.statusCode() == 201 ? objectMapper.readTree(response.body()) : null;
+            if (decision == null || !decision.hasNonNull("decision")) {
+                throw new IllegalStateException(
+                        executable
+                                + " answered the identity check with "
+                                + response.statusCode()
+                                + ": "
+                                + response.body());
+            }
+            return new long[] {
+                application.getStartupMillis(),
+                firstCheckMicros,
+                application.getResidentSetKilobytes()
+            };
+        }
+    }
+
+    private static long median(List<long[]> measurements, int index) {
+        List<Long> values = new ArrayList<>();
+        for (long[] measurement : measurements) {
+            values.add(measurement[index]);
+        }
+        Collections.sort(values);
+        return values.get(values.size() / 2);
+    }
+}
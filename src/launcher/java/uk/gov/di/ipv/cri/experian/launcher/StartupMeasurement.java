@@ -0,0 +1,89 @@
+package uk.gov.di.ipv.cri.experian.launcher;
+
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures how long the API takes from process start until {@code /healthcheck} answers, without
+ * class data sharing, with the runtime's default and with the application archive. A linked runtime
+ * has no archive of its own unless jlink was asked for one.
+ *
+ * <p>Arguments: the report file, the number of starts per mode, the {@code java} executable, the
+ * application archive and the class path. The application is started in the working directory, so a
+ * relative class path has to be given exactly as the archive was dumped with.
+ */
+public final class StartupMeasurement {
+    private static final String MAIN_CLASS = "uk.gov.di.ipv.cri.experian.App";
+
+    private StartupMeasurement() {}
+
+    public static void main(String[] args) throws Exception {
+        Path reportFile = Path.of(args[0]);
+        int starts = Integer.parseInt(args[1]);
+        String javaExecutable = args[2];
+        String archive = args[3];
+        String classPath = args[4];
+
+        Map<String, List<String>> modes = new LinkedHashMap<>();
+        modes.put("no class data sharing", List.of("-Xshare:off"));
+        modes.put("runtime default", List.of());
+        modes.put("application class data sharing", List.of("-XX:SharedArchiveFile=" + archive));
+
+        HttpClient httpClient =
+                HttpClient.newBuilder().connectTimeout(Duration.ofMillis(100)).build();
+        Map<String, List<Long>> startupMillis = new LinkedHashMap<>();
+        // the modes take turns, so that a busy machine slows all of them alike
+        for (int i = 0; i < starts; i++) {
+            for (Map.Entry<String, List<String>> mode : modes.entrySet()) {
+                List<String> command = new ArrayList<>();
+                command.add(javaExecutable);
+                command.addAll(mode.getValue());
+                command.add("-cp");
+                command.add(classPath);
+                command.add(MAIN_CLASS);
+                startupMillis
+                        .computeIfAbsent(mode.getKey(), key -> new ArrayList<>())
+                        .add(measure(command, httpClient));
+            }
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append(
+                String.format(
+                        "Time until /healthcheck answers, over %d starts (%s)%n",
+                        starts, javaExecutable));
+        for (Map.Entry<String, List<Long>> result : startupMillis.entrySet()) {
+            List<Long> millis = result.getValue();
+            Collections.sort(millis);
+            report.append(
+                    String.format(
+                            "  %-32s median %5d ms, min %5d ms, max %5d ms%n",
+                            result.getKey(),
+                            millis.get(millis.size() / 2),
+                            millis.get(0),
+                            millis.get(millis.size() - 1)));
+        }
+        Files.write(reportFile, report.toString().getBytes(StandardCharsets.UTF_8));
+        System.out.print(report);
+    }
+
+    private static long measure(List<String> command, HttpClient httpClient) throws Exception {
+        long millis;
+        try (ApplicationProcess application = ApplicationProcess.start(command, httpClient)) {
+            millis = application.getStartupMillis();
+        }
+        // closing keeps an interrupt instead of throwing it, stop before the next start
+        if (Thread.interrupted()) {
+            throw new InterruptedException("Interrupted while stopping the application");
+        }
+        return millis;
+    }
+}
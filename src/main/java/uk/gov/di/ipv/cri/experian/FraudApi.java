@@ -3,30 +3,73 @@ package uk.gov.di.ipv.cri.experian;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import spark.Spark;
+import spark.embeddedserver.EmbeddedServers;
+import uk.gov.di.ipv.cri.experian.concurrent.InstrumentedThreadPoolExecutor;
+import uk.gov.di.ipv.cri.experian.concurrent.VirtualThreads;
 import uk.gov.di.ipv.cri.experian.config.ExperianApiConfig;
+import uk.gov.di.ipv.cri.experian.domain.IdentityCheckResult;
+import uk.gov.di.ipv.cri.experian.domain.PersonIdentity;
+import uk.gov.di.ipv.cri.experian.gateway.AdaptiveConcurrencyLimiter;
+import uk.gov.di.ipv.cri.experian.gateway.CircuitBreaker;
+import uk.gov.di.ipv.cri.experian.gateway.CrossCoreApiRequestWriter;
+import uk.gov.di.ipv.cri.experian.gateway.CrossCoreRequestTemplate;
+import uk.gov.di.ipv.cri.experian.gateway.CrossCoreResponseParser;
 import uk.gov.di.ipv.cri.experian.gateway.ExperianApiRequestMapper;
 import uk.gov.di.ipv.cri.experian.gateway.ExperianGateway;
+import uk.gov.di.ipv.cri.experian.gateway.HedgingRequestSender;
 import uk.gov.di.ipv.cri.experian.gateway.HmacGenerator;
+import uk.gov.di.ipv.cri.experian.gateway.PooledHttpClient;
+import uk.gov.di.ipv.cri.experian.gateway.ReloadableSslContext;
+import uk.gov.di.ipv.cri.experian.gateway.RetryBudget;
+import uk.gov.di.ipv.cri.experian.metrics.IdentityCheckMetrics;
+import uk.gov.di.ipv.cri.experian.metrics.MetricsRegistry;
+import uk.gov.di.ipv.cri.experian.resource.BatchIdentityCheckResource;
 import uk.gov.di.ipv.cri.experian.resource.HealthCheckResource;
 import uk.gov.di.ipv.cri.experian.resource.IdentityCheckResource;
+import uk.gov.di.ipv.cri.experian.resource.MetricsResource;
+import uk.gov.di.ipv.cri.experian.resource.PersonIdentityReader;
+import uk.gov.di.ipv.cri.experian.server.AsyncJettyServerFactory;
+import uk.gov.di.ipv.cri.experian.service.IdempotencyStore;
+import uk.gov.di.ipv.cri.experian.service.IdentityCheckResultCache;
+import uk.gov.di.ipv.cri.experian.service.IdentityFingerprint;
 import uk.gov.di.ipv.cri.experian.service.IdentityVerificationService;
+import uk.gov.di.ipv.cri.experian.service.InFlightRequestCoalescer;
+import uk.gov.di.ipv.cri.experian.service.PersonIdentityFingerprinter;
+import uk.gov.di.ipv.cri.experian.service.UpstreamProber;
 import uk.gov.di.ipv.cri.experian.validation.InputValidationExecutor;
+import uk.gov.di.ipv.cri.experian.validation.PrecomputedValidator;
 
+import javax.net.ssl.SSLContext;
 import javax.validation.Validation;
 import javax.validation.Validator;
 import javax.validation.ValidatorFactory;
 
+import java.io.IOException;
+import java.net.URI;
 import java.net.http.HttpClient;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
 
 public class FraudApi {
     private final IdentityCheckResource identityCheckResource;
+    private final BatchIdentityCheckResource batchIdentityCheckResource;
     private final HealthCheckResource healthCheckResource;
+    private final MetricsResource metricsResource;
 
     public FraudApi() {
         try {
+            ExperianApiConfig experianApiConfig = new ExperianApiConfig();
+            EmbeddedServers.add(
+                    EmbeddedServers.Identifiers.JETTY,
+                    new AsyncJettyServerFactory(experianApiConfig.isVirtualThreadsEnabled()));
             Spark.port(5007);
 
             ObjectMapper objectMapper = new ObjectMapper();
@@ -35,14 +78,50 @@ public class FraudApi {
             ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
             Validator validator = factory.getValidator();
             InputValidationExecutor inputValidationExecutor =
-                    new InputValidationExecutor(validator);
+                    new InputValidationExecutor(
+                            validator,
+                            experianApiConfig.isPrecomputedValidationEnabled()
+                                    ? new PrecomputedValidator(factory, PersonIdentity.class)
+                                    : null);
 
+            MetricsRegistry metricsRegistry = new MetricsRegistry();
+            IdentityCheckMetrics identityCheckMetrics = new IdentityCheckMetrics();
+            metricsRegistry.register(identityCheckMetrics);
+
+            ExperianGateway experianGateway =
+                    createExperianGateway(
+                            experianApiConfig, objectMapper, identityCheckMetrics, metricsRegistry);
             IdentityVerificationService identityVerificationService =
-                    createIdentityVerificationService(objectMapper);
+                    createIdentityVerificationService(
+                            experianApiConfig, experianGateway, metricsRegistry);
             this.identityCheckResource =
-                    new IdentityCheckResource(
-                            identityVerificationService, objectMapper, inputValidationExecutor);
-            this.healthCheckResource = new HealthCheckResource();
+                    IdentityCheckResource.builder(
+                                    identityVerificationService,
+                                    objectMapper,
+                                    inputValidationExecutor)
+                            .metrics(identityCheckMetrics)
+                            .personIdentityReader(
+                                    new PersonIdentityReader(
+                                            objectMapper,
+                                            experianApiConfig.getMaxRequestBytes(),
+                                            experianApiConfig.getMaxAddresses(),
+                                            experianApiConfig.getMaxStringLength()))
+                            .idempotencyStore(
+                                    createIdempotencyStore(experianApiConfig, metricsRegistry))
+                            .asyncTimeout(experianApiConfig.getAsyncTimeout())
+                            .build();
+            this.batchIdentityCheckResource =
+                    new BatchIdentityCheckResource(
+                            identityVerificationService,
+                            objectMapper,
+                            inputValidationExecutor,
+                            experianApiConfig.getBatchMaxParallelism());
+            this.healthCheckResource =
+                    new HealthCheckResource(
+                            createUpstreamProber(
+                                    experianApiConfig, experianGateway, metricsRegistry),
+                            objectMapper);
+            this.metricsResource = new MetricsResource(metricsRegistry);
 
             mapRoutes();
         } catch (Exception e) {
@@ -53,27 +132,426 @@ public class FraudApi {
 
     private void mapRoutes() {
         Spark.get("/healthcheck", this.healthCheckResource.getCurrentHealth);
+        Spark.get("/healthcheck/ready", this.healthCheckResource.getReadiness);
+        Spark.get("/healthcheck/deep", this.healthCheckResource.getDeepHealth);
+        Spark.get("/metrics", this.metricsResource.getMetrics);
         Spark.post("/identity-check", this.identityCheckResource.performIdentityCheckRoute);
+        Spark.post(
+                "/identity-check/async", this.identityCheckResource.performIdentityCheckAsyncRoute);
+        Spark.post(
+                "/identity-check/batch",
+                this.batchIdentityCheckResource.performBatchIdentityCheckRoute);
+    }
+
+    private HttpClient createCrossCoreHttpClient(
+            ExperianApiConfig experianApiConfig, MetricsRegistry metricsRegistry)
+            throws IOException, GeneralSecurityException {
+        SSLContext sslContext = createSslContext(experianApiConfig, metricsRegistry);
+        Executor executor =
+                experianApiConfig.isVirtualThreadsEnabled()
+                        ? VirtualThreads.newThreadPerTaskExecutor("crosscore-client-")
+                        : createCrossCoreClientExecutor(experianApiConfig, metricsRegistry);
+        int poolSize = experianApiConfig.getConnectionPoolSize();
+        if (poolSize < 1) {
+            return createHttpClient(executor, sslContext);
+        }
+        List<HttpClient> clients = new ArrayList<>();
+        for (int i = 0; i < poolSize; i++) {
+            clients.add(createHttpClient(executor, sslContext));
+        }
+        PooledHttpClient pooledHttpClient =
+                new PooledHttpClient(
+                        clients,
+                        createWarmUpRequest(experianApiConfig),
+                        experianApiConfig.getConnectionKeepWarmInterval());
+        metricsRegistry.registerGauge(
+                "experian_api_connection_pool_size",
+                "Connections to CrossCore in the pool.",
+                pooledHttpClient::getSize);
+        metricsRegistry.registerGauge(
+                "experian_api_connection_pool_warm",
+                "Pooled connections that answered within the keep-warm interval.",
+                pooledHttpClient::getWarmConnections);
+        metricsRegistry.registerGauge(
+                "experian_api_connection_pool_streams_in_flight",
+                "Requests in flight over the pooled connections.",
+                pooledHttpClient::getStreamsInFlight);
+        metricsRegistry.registerGauge(
+                "experian_api_connection_pool_max_streams_per_connection",
+                "Requests in flight on the busiest pooled connection.",
+                pooledHttpClient::getMaxStreamsInFlightPerConnection);
+        metricsRegistry.registerCounter(
+                "experian_api_connection_pool_warm_ups_total",
+                "Warm-up requests sent on pooled connections.",
+                pooledHttpClient::getWarmUpCount);
+        metricsRegistry.registerCounter(
+                "experian_api_connection_pool_warm_up_failures_total",
+                "Warm-up requests that got no response.",
+                pooledHttpClient::getWarmUpFailureCount);
+        pooledHttpClient.start();
+        return pooledHttpClient;
+    }
+
+    private static HttpClient createHttpClient(Executor executor, SSLContext sslContext) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(20))
+                .executor(executor)
+                .sslContext(sslContext)
+                .build();
+    }
+
+    private static SSLContext createSslContext(
+            ExperianApiConfig experianApiConfig, MetricsRegistry metricsRegistry)
+            throws IOException, GeneralSecurityException {
+        String keystorePath = experianApiConfig.getKeystorePath();
+        boolean keystoreFile = keystorePath != null && !keystorePath.isBlank();
+        String keystore = experianApiConfig.getKeystore();
+        if (!keystoreFile) {
+            Objects.requireNonNull(keystore, "KEYSTORE or KEYSTORE_PATH must be set");
+        }
+        ReloadableSslContext reloadableSslContext =
+                new ReloadableSslContext(
+                        keystoreFile
+                                ? () -> Files.readAllBytes(Path.of(keystorePath))
+                                : () -> Base64.getDecoder().decode(keystore),
+                        experianApiConfig.getKeystorePassword(),
+                        experianApiConfig.getTlsSessionCacheSize(),
+                        experianApiConfig.getTlsSessionTimeout());
+        // the KEYSTORE variable cannot change while the process runs, a KEYSTORE_PATH file can
+        if (keystoreFile && !experianApiConfig.getKeystoreReloadInterval().isZero()) {
+            reloadableSslContext.startReloading(experianApiConfig.getKeystoreReloadInterval());
+        }
+        metricsRegistry.registerCounter(
+                "experian_api_tls_full_handshakes_total",
+                "TLS handshakes with CrossCore that were not resumed from a cached session.",
+                reloadableSslContext::getFullHandshakeCount);
+        metricsRegistry.registerGauge(
+                "experian_api_tls_cached_sessions",
+                "TLS sessions with CrossCore held for resumption.",
+                reloadableSslContext::getCachedSessionCount);
+        metricsRegistry.registerCounter(
+                "experian_api_keystore_reloads_total",
+                "Times a changed client key store was loaded.",
+                reloadableSslContext::getReloadCount);
+        metricsRegistry.registerCounter(
+                "experian_api_keystore_reload_failures_total",
+                "Key store reloads that failed and kept the current key store.",
+                reloadableSslContext::getReloadFailureCount);
+        return reloadableSslContext.getSslContext();
+    }
+
+    private static HttpRequest createWarmUpRequest(ExperianApiConfig experianApiConfig) {
+        HttpRequest.Builder requestBuilder =
+                HttpRequest.newBuilder(URI.create(experianApiConfig.getEndpointUri()))
+                        .method("HEAD", HttpRequest.BodyPublishers.noBody());
+        Duration requestTimeout = experianApiConfig.getRequestTimeout();
+        if (requestTimeout != null && !requestTimeout.isZero()) {
+            requestBuilder.timeout(requestTimeout);
+        }
+        return requestBuilder.build();
+    }
+
+    private static Executor createCrossCoreClientExecutor(
+            ExperianApiConfig experianApiConfig, MetricsRegistry metricsRegistry) {
+        InstrumentedThreadPoolExecutor executor =
+                new InstrumentedThreadPoolExecutor(
+                        "crosscore-client-", experianApiConfig.getClientExecutorThreads());
+        metricsRegistry.registerGauge(
+                "experian_api_client_executor_threads",
+                "Threads of the CrossCore client executor.",
+                executor::getPoolSize);
+        metricsRegistry.registerGauge(
+                "experian_api_client_executor_active_threads",
+                "CrossCore client executor threads running a task.",
+                executor::getActiveCount);
+        metricsRegistry.registerGauge(
+                "experian_api_client_executor_queue_depth",
+                "Tasks waiting for a CrossCore client executor thread.",
+                executor::getQueueDepth);
+        metricsRegistry.registerCounter(
+                "experian_api_client_executor_completed_tasks_total",
+                "Tasks run by the CrossCore client executor.",
+                executor::getCompletedTaskCount);
+        return executor;
+    }
+
+    private IdempotencyStore createIdempotencyStore(
+            ExperianApiConfig experianApiConfig, MetricsRegistry metricsRegistry)
+            throws GeneralSecurityException {
+        if (!experianApiConfig.isIdempotencyEnabled()) {
+            return null;
+        }
+        IdempotencyStore idempotencyStore =
+                new IdempotencyStore(
+                        new PersonIdentityFingerprinter(),
+                        experianApiConfig.getIdempotencyMaxSize(),
+                        experianApiConfig.getIdempotencyTtl());
+        metricsRegistry.registerGauge(
+                "experian_api_idempotency_keys",
+                "Idempotency keys held with an in-progress or stored result.",
+                idempotencyStore::getSize);
+        metricsRegistry.registerCounter(
+                "experian_api_idempotency_replays_total",
+                "Identity checks answered with the stored result for their idempotency key.",
+                idempotencyStore::getReplayCount);
+        metricsRegistry.registerCounter(
+                "experian_api_idempotency_joins_total",
+                "Identity checks that waited for an in-progress check with the same key.",
+                idempotencyStore::getJoinCount);
+        metricsRegistry.registerCounter(
+                "experian_api_idempotency_mismatches_total",
+                "Identity checks rejected for reusing an idempotency key with another body.",
+                idempotencyStore::getMismatchCount);
+        metricsRegistry.registerCounter(
+                "experian_api_idempotency_evictions_total",
+                "Stored idempotency results evicted from the store to make room.",
+                idempotencyStore::getEvictionCount);
+        metricsRegistry.registerCounter(
+                "experian_api_idempotency_expiries_total",
+                "Idempotency keys dropped because their time-to-live had passed.",
+                idempotencyStore::getExpiryCount);
+        metricsRegistry.registerCounter(
+                "experian_api_idempotency_rejections_total",
+                "New idempotency keys refused with a 503 as the store was full of checks in"
+                        + " flight.",
+                idempotencyStore::getRejectionCount);
+        return idempotencyStore;
+    }
+
+    private UpstreamProber createUpstreamProber(
+            ExperianApiConfig experianApiConfig,
+            ExperianGateway experianGateway,
+            MetricsRegistry metricsRegistry) {
+        if (!experianApiConfig.isProbeEnabled()) {
+            return null;
+        }
+        UpstreamProber upstreamProber =
+                new UpstreamProber(
+                        experianGateway,
+                        experianApiConfig.getProbeInterval(),
+                        experianApiConfig.getProbeTimeout(),
+                        experianApiConfig.getProbeFailureThreshold());
+        metricsRegistry.registerGauge(
+                "experian_api_upstream_up",
+                "1 while the last CrossCore probes succeeded, 0 otherwise.",
+                () -> upstreamProber.isUp() ? 1 : 0);
+        metricsRegistry.registerGauge(
+                "experian_api_upstream_probe_latency_seconds",
+                "Round trip time of the last CrossCore probe that got a response.",
+                () -> {
+                    Long latencyMillis = upstreamProber.getStatus().getLatencyMillis();
+                    return latencyMillis == null ? Double.NaN : latencyMillis / 1000.0;
+                });
+        metricsRegistry.registerCounter(
+                "experian_api_upstream_probes_total",
+                "CrossCore probes sent.",
+                upstreamProber::getProbeCount);
+        metricsRegistry.registerCounter(
+                "experian_api_upstream_probe_failures_total",
+                "CrossCore probes that failed or got a non-2xx response.",
+                upstreamProber::getProbeFailureCount);
+        upstreamProber.start();
+        return upstreamProber;
     }
 
-    private HttpClient createCrossCoreHttpClient() {
-        return java.net.http.HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(20)).build();
+    private AdaptiveConcurrencyLimiter createConcurrencyLimiter(
+            ExperianApiConfig experianApiConfig, MetricsRegistry metricsRegistry) {
+        if (!experianApiConfig.isConcurrencyLimitEnabled()) {
+            return null;
+        }
+        AdaptiveConcurrencyLimiter concurrencyLimiter =
+                new AdaptiveConcurrencyLimiter(
+                        experianApiConfig.getConcurrencyLimitInitial(),
+                        experianApiConfig.getConcurrencyLimitMin(),
+                        experianApiConfig.getConcurrencyLimitMax(),
+                        experianApiConfig.getConcurrencyQueueSize(),
+                        experianApiConfig.getConcurrencyQueueTimeout());
+        metricsRegistry.registerGauge(
+                "experian_api_concurrency_limit",
+                "Current limit on CrossCore calls in flight.",
+                concurrencyLimiter::getLimit);
+        metricsRegistry.registerGauge(
+                "experian_api_concurrency_in_flight",
+                "CrossCore calls holding a concurrency permit.",
+                concurrencyLimiter::getInFlight);
+        metricsRegistry.registerGauge(
+                "experian_api_concurrency_queue_depth",
+                "Checks waiting for a concurrency permit.",
+                concurrencyLimiter::getQueueDepth);
+        metricsRegistry.registerCounter(
+                "experian_api_concurrency_rejected_total",
+                "Checks rejected by the concurrency limiter.",
+                concurrencyLimiter::getRejectedCount);
+        return concurrencyLimiter;
+    }
+
+    private CircuitBreaker createCircuitBreaker(
+            ExperianApiConfig experianApiConfig, MetricsRegistry metricsRegistry) {
+        if (!experianApiConfig.isCircuitBreakerEnabled()) {
+            return null;
+        }
+        CircuitBreaker circuitBreaker =
+                new CircuitBreaker(
+                        experianApiConfig.getCircuitBreakerWindowSize(),
+                        experianApiConfig.getCircuitBreakerMinimumCalls(),
+                        experianApiConfig.getCircuitBreakerFailureRateThreshold(),
+                        experianApiConfig.getCircuitBreakerSlowCallThreshold(),
+                        experianApiConfig.getCircuitBreakerSlowCallRateThreshold(),
+                        experianApiConfig.getCircuitBreakerOpenDuration(),
+                        experianApiConfig.getCircuitBreakerHalfOpenCalls());
+        metricsRegistry.registerGauge(
+                "experian_api_circuit_breaker_state",
+                "Circuit breaker state: 0 closed, 1 open, 2 half open.",
+                () -> circuitBreaker.getState().ordinal());
+        metricsRegistry.registerCounter(
+                "experian_api_circuit_breaker_rejected_total",
+                "Checks rejected while the circuit breaker was open.",
+                circuitBreaker::getRejectedCount);
+        return circuitBreaker;
     }
 
-    private IdentityVerificationService createIdentityVerificationService(ObjectMapper objectMapper)
-            throws NoSuchAlgorithmException, InvalidKeyException {
-        ExperianApiConfig experianExperianApiConfig = new ExperianApiConfig();
-        HttpClient httpClient = createCrossCoreHttpClient();
+    private HedgingRequestSender createHedgingRequestSender(
+            ExperianApiConfig experianApiConfig, MetricsRegistry metricsRegistry) {
+        if (!experianApiConfig.isHedgingEnabled() && experianApiConfig.getMaxAttempts() <= 1) {
+            return null;
+        }
+        HedgingRequestSender hedgingRequestSender =
+                new HedgingRequestSender(
+                        experianApiConfig.isHedgingEnabled(),
+                        experianApiConfig.getHedgingPercentile(),
+                        experianApiConfig.getHedgingMinDelay(),
+                        experianApiConfig.getMaxAttempts(),
+                        experianApiConfig.getRetryBackoff(),
+                        new RetryBudget(
+                                experianApiConfig.getRetryBudgetRatio(),
+                                experianApiConfig.getRetryBudgetMaxTokens()));
+        metricsRegistry.registerCounter(
+                "experian_api_upstream_hedges_total",
+                "Hedged CrossCore attempts.",
+                hedgingRequestSender::getHedgeCount);
+        metricsRegistry.registerCounter(
+                "experian_api_upstream_retries_total",
+                "Retried CrossCore attempts.",
+                hedgingRequestSender::getRetryCount);
+        metricsRegistry.registerGauge(
+                "experian_api_retry_budget_tokens",
+                "Tokens left in the retry budget.",
+                hedgingRequestSender.getRetryBudget()::getBalance);
+        metricsRegistry.registerCounter(
+                "experian_api_retry_budget_exhausted_total",
+                "Hedges and retries skipped because the retry budget was spent.",
+                hedgingRequestSender.getRetryBudget()::getExhaustedCount);
+        return hedgingRequestSender;
+    }
+
+    private ExperianGateway createExperianGateway(
+            ExperianApiConfig experianExperianApiConfig,
+            ObjectMapper objectMapper,
+            IdentityCheckMetrics identityCheckMetrics,
+            MetricsRegistry metricsRegistry)
+            throws IOException, GeneralSecurityException {
+        HttpClient httpClient =
+                createCrossCoreHttpClient(experianExperianApiConfig, metricsRegistry);
         HmacGenerator hmacGenerator = new HmacGenerator(experianExperianApiConfig.getHmacKey());
         ExperianApiRequestMapper apiRequestMapper =
                 new ExperianApiRequestMapper(experianExperianApiConfig.getTenantId());
         ExperianGateway experianGateway =
-                new ExperianGateway(
-                        httpClient,
-                        apiRequestMapper,
-                        objectMapper,
-                        hmacGenerator,
-                        experianExperianApiConfig);
-        return new IdentityVerificationService(experianGateway);
+                ExperianGateway.builder(
+                                httpClient,
+                                apiRequestMapper,
+                                objectMapper,
+                                hmacGenerator,
+                                experianExperianApiConfig)
+                        .concurrencyLimiter(
+                                createConcurrencyLimiter(
+                                        experianExperianApiConfig, metricsRegistry))
+                        .circuitBreaker(
+                                createCircuitBreaker(experianExperianApiConfig, metricsRegistry))
+                        .hedgingRequestSender(
+                                createHedgingRequestSender(
+                                        experianExperianApiConfig, metricsRegistry))
+                        .metrics(identityCheckMetrics)
+                        .requestWriter(new CrossCoreApiRequestWriter(objectMapper.getFactory()))
+                        .requestTemplate(
+                                experianExperianApiConfig.isRequestTemplateEnabled()
+                                        ? new CrossCoreRequestTemplate(
+                                                experianExperianApiConfig.getTenantId(),
+                                                hmacGenerator)
+                                        : null)
+                        .responseParser(
+                                experianExperianApiConfig.isRawResponseEnabled()
+                                        ? null
+                                        : new CrossCoreResponseParser(objectMapper.getFactory()))
+                        .maxCallsInFlight(experianExperianApiConfig.getMaxCallsInFlight())
+                        .build();
+        metricsRegistry.registerGauge(
+                "experian_api_calls_in_flight",
+                "CrossCore calls admitted and not yet finished.",
+                experianGateway::getCallsInFlight);
+        metricsRegistry.registerCounter(
+                "experian_api_calls_rejected_total",
+                "Identity checks refused with a 503 because too many CrossCore calls were in"
+                        + " flight.",
+                experianGateway::getRejectedCallCount);
+        return experianGateway;
+    }
+
+    private IdentityVerificationService createIdentityVerificationService(
+            ExperianApiConfig experianExperianApiConfig,
+            ExperianGateway experianGateway,
+            MetricsRegistry metricsRegistry)
+            throws GeneralSecurityException {
+        IdentityCheckResultCache resultCache =
+                new IdentityCheckResultCache(
+                        experianExperianApiConfig.getResultCacheMaxSize(),
+                        experianExperianApiConfig.getResultCacheTtl(),
+                        IdentityCheckResult::isSuccessful);
+        InFlightRequestCoalescer<IdentityFingerprint, IdentityCheckResult> requestCoalescer =
+                experianExperianApiConfig.isRequestCoalescingEnabled()
+                        ? new InFlightRequestCoalescer<>()
+                        : null;
+        registerServiceMetrics(metricsRegistry, resultCache, requestCoalescer);
+        return IdentityVerificationService.builder(experianGateway)
+                .fingerprinter(new PersonIdentityFingerprinter())
+                .resultCache(resultCache)
+                .requestCoalescer(requestCoalescer)
+                .build();
+    }
+
+    private static void registerServiceMetrics(
+            MetricsRegistry metricsRegistry,
+            IdentityCheckResultCache resultCache,
+            InFlightRequestCoalescer<IdentityFingerprint, IdentityCheckResult> requestCoalescer) {
+        metricsRegistry.registerCounter(
+                "experian_api_result_cache_hits_total",
+                "Identity checks answered from the result cache.",
+                resultCache::getHitCount);
+        metricsRegistry.registerCounter(
+                "experian_api_result_cache_misses_total",
+                "Identity checks not found in the result cache.",
+                resultCache::getMissCount);
+        metricsRegistry.registerCounter(
+                "experian_api_result_cache_evictions_total",
+                "Results evicted from the result cache to make room.",
+                resultCache::getEvictionCount);
+        metricsRegistry.registerCounter(
+                "experian_api_result_cache_expiries_total",
+                "Results dropped from the result cache after their TTL.",
+                resultCache::getExpiryCount);
+        metricsRegistry.registerGauge(
+                "experian_api_result_cache_size",
+                "Results held in the result cache.",
+                resultCache::getSize);
+        if (requestCoalescer != null) {
+            metricsRegistry.registerCounter(
+                    "experian_api_coalesced_requests_total",
+                    "Identity checks that joined an identical call already in flight.",
+                    requestCoalescer::getCoalescedCount);
+            metricsRegistry.registerGauge(
+                    "experian_api_coalescer_in_flight",
+                    "Distinct identity checks in flight in the coalescer.",
+                    requestCoalescer::getInFlightCount);
+        }
     }
 }
@@ -0,0 +1,41 @@
+package uk.gov.di.ipv.cri.experian.concurrent;
+
+import java.util.Objects;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed number of daemon threads with an unbounded queue, so a task is never rejected. An {@link
+ * java.net.http.HttpClient} hands tasks to its executor from its selector thread, and a rejection
+ * there kills the selector and with it every exchange on the client. Bound the work before it
+ * reaches the client instead.
+ */
+public class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor {
+
+    public InstrumentedThreadPoolExecutor(String namePrefix, int threads) {
+        super(
+                threads,
+                threads,
+                0,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                createThreadFactory(namePrefix));
+    }
+
+    public int getQueueDepth() {
+        return getQueue().size();
+    }
+
+    private static ThreadFactory createThreadFactory(String namePrefix) {
+        Objects.requireNonNull(namePrefix, "namePrefix must not be null");
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
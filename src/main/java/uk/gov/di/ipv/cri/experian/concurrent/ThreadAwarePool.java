@@ -0,0 +1,51 @@
+package uk.gov.di.ipv.cri.experian.concurrent;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hands out reusable, non-thread-safe objects such as {@code Mac} instances. Platform threads keep
+ * one object each in a {@link ThreadLocal}, as they are long lived and pooled. Virtual threads are
+ * created per task, so a thread local would allocate a new object for every request; they borrow
+ * from a lock-free shared queue instead, which never pins the carrier thread.
+ */
+public final class ThreadAwarePool<T> {
+    private final Supplier<T> factory;
+    private final int maxPooled;
+    private final ThreadLocal<T> threadLocal;
+    private final Queue<T> pooled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledCount = new AtomicInteger();
+
+    public ThreadAwarePool(Supplier<T> factory, int maxPooled) {
+        this.factory = Objects.requireNonNull(factory, "factory must not be null");
+        this.maxPooled = maxPooled;
+        this.threadLocal = ThreadLocal.withInitial(factory);
+    }
+
+    /** Borrows an object, which must be passed to {@link #release} by the same thread. */
+    public T acquire() {
+        if (!VirtualThreads.isVirtual(Thread.currentThread())) {
+            return threadLocal.get();
+        }
+        T value = pooled.poll();
+        if (value == null) {
+            return factory.get();
+        }
+        pooledCount.decrementAndGet();
+        return value;
+    }
+
+    public void release(T value) {
+        if (!VirtualThreads.isVirtual(Thread.currentThread())) {
+            return;
+        }
+        if (pooledCount.incrementAndGet() <= maxPooled) {
+            pooled.offer(value);
+        } else {
+            pooledCount.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package uk.gov.di.ipv.cri.experian.concurrent;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to the Java 21 virtual thread API from code compiled for Java 11. The methods are looked
+ * up once; on an older runtime {@link #isSupported()} is false and {@link #isVirtual(Thread)} is
+ * always false.
+ */
+public final class VirtualThreads {
+    private static final MethodHandle IS_VIRTUAL;
+    private static final MethodHandle OF_VIRTUAL;
+    private static final MethodHandle NAME;
+    private static final MethodHandle FACTORY;
+    private static final MethodHandle NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        MethodHandle isVirtual = null;
+        MethodHandle ofVirtual = null;
+        MethodHandle name = null;
+        MethodHandle factory = null;
+        MethodHandle newThreadPerTaskExecutor = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Class<?> ofVirtualClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            isVirtual =
+                    lookup.findVirtual(
+                            Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+            ofVirtual =
+                    lookup.findStatic(
+                            Thread.class, "ofVirtual", MethodType.methodType(ofVirtualClass));
+            name =
+                    lookup.findVirtual(
+                            ofVirtualClass,
+                            "name",
+                            MethodType.methodType(ofVirtualClass, String.class, long.class));
+            factory =
+                    lookup.findVirtual(
+                            builderClass, "factory", MethodType.methodType(ThreadFactory.class));
+            newThreadPerTaskExecutor =
+                    lookup.findStatic(
+                            java.util.concurrent.Executors.class,
+                            "newThreadPerTaskExecutor",
+                            MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+        } catch (ReflectiveOperationException e) {
+            isVirtual = null;
+        }
+        IS_VIRTUAL = isVirtual;
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    private VirtualThreads() {}
+
+    public static boolean isSupported() {
+        return IS_VIRTUAL != null;
+    }
+
+    public static boolean isVirtual(Thread thread) {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (boolean) IS_VIRTUAL.invokeExact(thread);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Unable to call Thread.isVirtual", e);
+        }
+    }
+
+    /** Creates a factory for virtual threads named {@code namePrefix} followed by a counter. */
+    public static ThreadFactory newThreadFactory(String namePrefix) {
+        requireSupported();
+        try {
+            Object builder = OF_VIRTUAL.invoke();
+            builder = NAME.invoke(builder, namePrefix, 0L);
+            return (ThreadFactory) FACTORY.invoke(builder);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Unable to create a virtual thread factory", e);
+        }
+    }
+
+    /** Creates an executor that starts a new virtual thread for each task. */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        ThreadFactory threadFactory = newThreadFactory(namePrefix);
+        try {
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(threadFactory);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Unable to create a virtual thread executor", e);
+        }
+    }
+
+    private static void requireSupported() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException(
+                    "Virtual threads require Java 21 or later, running on "
+                            + System.getProperty("java.version"));
+        }
+    }
+}
@@ -1,14 +1,246 @@
 package uk.gov.di.ipv.cri.experian.config;
 
+import java.time.Duration;
+
 public class ExperianApiConfig {
+    private static final int DEFAULT_RESULT_CACHE_MAX_SIZE = 10000;
+    private static final long DEFAULT_RESULT_CACHE_TTL_SECONDS = 300;
+    private static final int DEFAULT_BATCH_MAX_PARALLELISM = 8;
+    private static final int DEFAULT_CONCURRENCY_LIMIT_INITIAL = 20;
+    private static final int DEFAULT_CONCURRENCY_LIMIT_MIN = 2;
+    private static final int DEFAULT_CONCURRENCY_LIMIT_MAX = 200;
+    private static final int DEFAULT_CONCURRENCY_QUEUE_SIZE = 50;
+    private static final long DEFAULT_CONCURRENCY_QUEUE_TIMEOUT_MILLIS = 100;
+    private static final int DEFAULT_CIRCUIT_BREAKER_WINDOW_SIZE = 50;
+    private static final int DEFAULT_CIRCUIT_BREAKER_MINIMUM_CALLS = 20;
+    private static final float DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD = 50;
+    private static final long DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_THRESHOLD_MILLIS = 5000;
+    private static final float DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_RATE_THRESHOLD = 80;
+    private static final long DEFAULT_CIRCUIT_BREAKER_OPEN_SECONDS = 30;
+    private static final int DEFAULT_CIRCUIT_BREAKER_HALF_OPEN_CALLS = 5;
+    private static final float DEFAULT_HEDGING_PERCENTILE = 95;
+    private static final long DEFAULT_HEDGING_MIN_DELAY_MILLIS = 50;
+    private static final int DEFAULT_MAX_ATTEMPTS = 2;
+    private static final long DEFAULT_RETRY_BACKOFF_MILLIS = 50;
+    private static final float DEFAULT_RETRY_BUDGET_RATIO = 0.1f;
+    private static final int DEFAULT_RETRY_BUDGET_MAX_TOKENS = 20;
+    private static final int DEFAULT_MAX_REQUEST_BYTES = 16 * 1024;
+    private static final int DEFAULT_MAX_ADDRESSES = 20;
+    private static final int DEFAULT_MAX_STRING_LENGTH = 256;
+    private static final int DEFAULT_CONNECTION_POOL_SIZE = 2;
+    private static final long DEFAULT_CONNECTION_KEEP_WARM_SECONDS = 30;
+    private static final int DEFAULT_CLIENT_EXECUTOR_THREADS = 8;
+    private static final int DEFAULT_MAX_CALLS_IN_FLIGHT = 1000;
+    private static final int DEFAULT_TLS_SESSION_CACHE_SIZE = 100;
+    private static final long DEFAULT_TLS_SESSION_TIMEOUT_SECONDS = 3600;
+    private static final long DEFAULT_KEYSTORE_RELOAD_SECONDS = 60;
+    private static final long DEFAULT_PROBE_INTERVAL_SECONDS = 15;
+    private static final long DEFAULT_PROBE_TIMEOUT_MILLIS = 5000;
+    private static final int DEFAULT_PROBE_FAILURE_THRESHOLD = 2;
+    private static final int DEFAULT_IDEMPOTENCY_MAX_SIZE = 10000;
+    private static final long DEFAULT_IDEMPOTENCY_TTL_SECONDS = 86400;
+    private static final long DEFAULT_REQUEST_TIMEOUT_MILLIS = 10000;
+    private static final long DEFAULT_ASYNC_TIMEOUT_MILLIS = 30000;
     private final String tenantId;
     private final String endpointUri;
     private final String hmacKey;
+    private final String keystore;
+    private final String keystorePath;
+    private final String keystorePassword;
+    private final int resultCacheMaxSize;
+    private final Duration resultCacheTtl;
+    private final boolean requestCoalescingEnabled;
+    private final boolean requestTemplateEnabled;
+    private final boolean rawResponseEnabled;
+    private final boolean precomputedValidationEnabled;
+    private final int batchMaxParallelism;
+    private final boolean virtualThreadsEnabled;
+    private final boolean concurrencyLimitEnabled;
+    private final int concurrencyLimitInitial;
+    private final int concurrencyLimitMin;
+    private final int concurrencyLimitMax;
+    private final int concurrencyQueueSize;
+    private final Duration concurrencyQueueTimeout;
+    private final boolean circuitBreakerEnabled;
+    private final int circuitBreakerWindowSize;
+    private final int circuitBreakerMinimumCalls;
+    private final float circuitBreakerFailureRateThreshold;
+    private final Duration circuitBreakerSlowCallThreshold;
+    private final float circuitBreakerSlowCallRateThreshold;
+    private final Duration circuitBreakerOpenDuration;
+    private final int circuitBreakerHalfOpenCalls;
+    private final boolean hedgingEnabled;
+    private final float hedgingPercentile;
+    private final Duration hedgingMinDelay;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final float retryBudgetRatio;
+    private final int retryBudgetMaxTokens;
+    private final int maxRequestBytes;
+    private final int maxAddresses;
+    private final int maxStringLength;
+    private final int connectionPoolSize;
+    private final Duration connectionKeepWarmInterval;
+    private final int clientExecutorThreads;
+    private final int maxCallsInFlight;
+    private final int tlsSessionCacheSize;
+    private final Duration tlsSessionTimeout;
+    private final Duration keystoreReloadInterval;
+    private final boolean probeEnabled;
+    private final Duration probeInterval;
+    private final Duration probeTimeout;
+    private final int probeFailureThreshold;
+    private final boolean idempotencyEnabled;
+    private final int idempotencyMaxSize;
+    private final Duration idempotencyTtl;
+    private final Duration requestTimeout;
+    private final Duration asyncTimeout;
 
     public ExperianApiConfig() {
         this.tenantId = System.getenv("EXPERIAN_API_TENANT_ID");
         this.endpointUri = System.getenv("EXPERIAN_API_ENDPOINT_URI");
         this.hmacKey = System.getenv("EXPERIAN_API_HMAC_KEY");
+        this.keystore = System.getenv("KEYSTORE");
+        this.keystorePath = System.getenv("KEYSTORE_PATH");
+        this.keystorePassword = System.getenv("KEYSTORE_PASSWORD");
+        this.resultCacheMaxSize =
+                getIntEnv("EXPERIAN_API_RESULT_CACHE_MAX_SIZE", DEFAULT_RESULT_CACHE_MAX_SIZE);
+        this.resultCacheTtl =
+                Duration.ofSeconds(
+                        getLongEnv(
+                                "EXPERIAN_API_RESULT_CACHE_TTL_SECONDS",
+                                DEFAULT_RESULT_CACHE_TTL_SECONDS));
+        this.requestCoalescingEnabled =
+                getBooleanEnv("EXPERIAN_API_REQUEST_COALESCING_ENABLED", true);
+        this.requestTemplateEnabled = getBooleanEnv("EXPERIAN_API_REQUEST_TEMPLATE_ENABLED", true);
+        this.rawResponseEnabled = getBooleanEnv("EXPERIAN_API_RAW_RESPONSE_ENABLED", false);
+        this.precomputedValidationEnabled =
+                getBooleanEnv("EXPERIAN_API_PRECOMPUTED_VALIDATION_ENABLED", true);
+        this.batchMaxParallelism =
+                getIntEnv("EXPERIAN_API_BATCH_MAX_PARALLELISM", DEFAULT_BATCH_MAX_PARALLELISM);
+        this.virtualThreadsEnabled = getBooleanEnv("EXPERIAN_API_VIRTUAL_THREADS_ENABLED", false);
+        this.concurrencyLimitEnabled =
+                getBooleanEnv("EXPERIAN_API_CONCURRENCY_LIMIT_ENABLED", true);
+        this.concurrencyLimitInitial =
+                getIntEnv(
+                        "EXPERIAN_API_CONCURRENCY_LIMIT_INITIAL",
+                        DEFAULT_CONCURRENCY_LIMIT_INITIAL);
+        this.concurrencyLimitMin =
+                getIntEnv("EXPERIAN_API_CONCURRENCY_LIMIT_MIN", DEFAULT_CONCURRENCY_LIMIT_MIN);
+        this.concurrencyLimitMax =
+                getIntEnv("EXPERIAN_API_CONCURRENCY_LIMIT_MAX", DEFAULT_CONCURRENCY_LIMIT_MAX);
+        this.concurrencyQueueSize =
+                getIntEnv("EXPERIAN_API_CONCURRENCY_QUEUE_SIZE", DEFAULT_CONCURRENCY_QUEUE_SIZE);
+        this.concurrencyQueueTimeout =
+                Duration.ofMillis(
+                        getLongEnv(
+                                "EXPERIAN_API_CONCURRENCY_QUEUE_TIMEOUT_MILLIS",
+                                DEFAULT_CONCURRENCY_QUEUE_TIMEOUT_MILLIS));
+        this.circuitBreakerEnabled = getBooleanEnv("EXPERIAN_API_CIRCUIT_BREAKER_ENABLED", true);
+        this.circuitBreakerWindowSize =
+                getIntEnv(
+                        "EXPERIAN_API_CIRCUIT_BREAKER_WINDOW_SIZE",
+                        DEFAULT_CIRCUIT_BREAKER_WINDOW_SIZE);
+        this.circuitBreakerMinimumCalls =
+                getIntEnv(
+                        "EXPERIAN_API_CIRCUIT_BREAKER_MINIMUM_CALLS",
+                        DEFAULT_CIRCUIT_BREAKER_MINIMUM_CALLS);
+        this.circuitBreakerFailureRateThreshold =
+                getFloatEnv(
+                        "EXPERIAN_API_CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD",
+                        DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD);
+        this.circuitBreakerSlowCallThreshold =
+                Duration.ofMillis(
+                        getLongEnv(
+                                "EXPERIAN_API_CIRCUIT_BREAKER_SLOW_CALL_THRESHOLD_MILLIS",
+                                DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_THRESHOLD_MILLIS));
+        this.circuitBreakerSlowCallRateThreshold =
+                getFloatEnv(
+                        "EXPERIAN_API_CIRCUIT_BREAKER_SLOW_CALL_RATE_THRESHOLD",
+                        DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_RATE_THRESHOLD);
+        this.circuitBreakerOpenDuration =
+                Duration.ofSeconds(
+                        getLongEnv(
+                                "EXPERIAN_API_CIRCUIT_BREAKER_OPEN_SECONDS",
+                                DEFAULT_CIRCUIT_BREAKER_OPEN_SECONDS));
+        this.circuitBreakerHalfOpenCalls =
+                getIntEnv(
+                        "EXPERIAN_API_CIRCUIT_BREAKER_HALF_OPEN_CALLS",
+                        DEFAULT_CIRCUIT_BREAKER_HALF_OPEN_CALLS);
+        this.hedgingEnabled = getBooleanEnv("EXPERIAN_API_HEDGING_ENABLED", false);
+        this.hedgingPercentile =
+                getFloatEnv("EXPERIAN_API_HEDGING_PERCENTILE", DEFAULT_HEDGING_PERCENTILE);
+        this.hedgingMinDelay =
+                Duration.ofMillis(
+                        getLongEnv(
+                                "EXPERIAN_API_HEDGING_MIN_DELAY_MILLIS",
+                                DEFAULT_HEDGING_MIN_DELAY_MILLIS));
+        this.maxAttempts = getIntEnv("EXPERIAN_API_MAX_ATTEMPTS", DEFAULT_MAX_ATTEMPTS);
+        this.retryBackoff =
+                Duration.ofMillis(
+                        getLongEnv(
+                                "EXPERIAN_API_RETRY_BACKOFF_MILLIS", DEFAULT_RETRY_BACKOFF_MILLIS));
+        this.retryBudgetRatio =
+                getFloatEnv("EXPERIAN_API_RETRY_BUDGET_RATIO", DEFAULT_RETRY_BUDGET_RATIO);
+        this.retryBudgetMaxTokens =
+                getIntEnv("EXPERIAN_API_RETRY_BUDGET_MAX_TOKENS", DEFAULT_RETRY_BUDGET_MAX_TOKENS);
+        this.maxRequestBytes =
+                getIntEnv("EXPERIAN_API_MAX_REQUEST_BYTES", DEFAULT_MAX_REQUEST_BYTES);
+        this.maxAddresses = getIntEnv("EXPERIAN_API_MAX_ADDRESSES", DEFAULT_MAX_ADDRESSES);
+        this.maxStringLength =
+                getIntEnv("EXPERIAN_API_MAX_STRING_LENGTH", DEFAULT_MAX_STRING_LENGTH);
+        this.connectionPoolSize =
+                getIntEnv("EXPERIAN_API_CONNECTION_POOL_SIZE", DEFAULT_CONNECTION_POOL_SIZE);
+        this.connectionKeepWarmInterval =
+                Duration.ofSeconds(
+                        getLongEnv(
+                                "EXPERIAN_API_CONNECTION_KEEP_WARM_SECONDS",
+                                DEFAULT_CONNECTION_KEEP_WARM_SECONDS));
+        this.clientExecutorThreads =
+                getIntEnv("EXPERIAN_API_CLIENT_EXECUTOR_THREADS", DEFAULT_CLIENT_EXECUTOR_THREADS);
+        this.maxCallsInFlight =
+                getIntEnv("EXPERIAN_API_MAX_CALLS_IN_FLIGHT", DEFAULT_MAX_CALLS_IN_FLIGHT);
+        this.tlsSessionCacheSize =
+                getIntEnv("EXPERIAN_API_TLS_SESSION_CACHE_SIZE", DEFAULT_TLS_SESSION_CACHE_SIZE);
+        this.tlsSessionTimeout =
+                Duration.ofSeconds(
+                        getLongEnv(
+                                "EXPERIAN_API_TLS_SESSION_TIMEOUT_SECONDS",
+                                DEFAULT_TLS_SESSION_TIMEOUT_SECONDS));
+        this.keystoreReloadInterval =
+                Duration.ofSeconds(
+                        getLongEnv(
+                                "EXPERIAN_API_KEYSTORE_RELOAD_SECONDS",
+                                DEFAULT_KEYSTORE_RELOAD_SECONDS));
+        this.probeEnabled = getBooleanEnv("EXPERIAN_API_PROBE_ENABLED", false);
+        this.probeInterval =
+                Duration.ofSeconds(
+                        getLongEnv(
+                                "EXPERIAN_API_PROBE_INTERVAL_SECONDS",
+                                DEFAULT_PROBE_INTERVAL_SECONDS));
+        this.probeTimeout =
+                Duration.ofMillis(
+                        getLongEnv(
+                                "EXPERIAN_API_PROBE_TIMEOUT_MILLIS", DEFAULT_PROBE_TIMEOUT_MILLIS));
+        this.probeFailureThreshold =
+                getIntEnv("EXPERIAN_API_PROBE_FAILURE_THRESHOLD", DEFAULT_PROBE_FAILURE_THRESHOLD);
+        this.idempotencyEnabled = getBooleanEnv("EXPERIAN_API_IDEMPOTENCY_ENABLED", true);
+        this.idempotencyMaxSize =
+                getIntEnv("EXPERIAN_API_IDEMPOTENCY_MAX_SIZE", DEFAULT_IDEMPOTENCY_MAX_SIZE);
+        this.idempotencyTtl =
+                Duration.ofSeconds(
+                        getLongEnv(
+                                "EXPERIAN_API_IDEMPOTENCY_TTL_SECONDS",
+                                DEFAULT_IDEMPOTENCY_TTL_SECONDS));
+        this.requestTimeout =
+                Duration.ofMillis(
+                        getLongEnv(
+                                "EXPERIAN_API_REQUEST_TIMEOUT_MILLIS",
+                                DEFAULT_REQUEST_TIMEOUT_MILLIS));
+        this.asyncTimeout =
+                Duration.ofMillis(
+                        getLongEnv(
+                                "EXPERIAN_API_ASYNC_TIMEOUT_MILLIS", DEFAULT_ASYNC_TIMEOUT_MILLIS));
     }
 
     public String getTenantId() {
@@ -22,4 +254,228 @@ public class ExperianApiConfig {
     public String getHmacKey() {
         return hmacKey;
     }
+
+    public String getKeystore() {
+        return keystore;
+    }
+
+    public String getKeystorePath() {
+        return keystorePath;
+    }
+
+    public String getKeystorePassword() {
+        return keystorePassword;
+    }
+
+    public int getResultCacheMaxSize() {
+        return resultCacheMaxSize;
+    }
+
+    public Duration getResultCacheTtl() {
+        return resultCacheTtl;
+    }
+
+    public boolean isRequestCoalescingEnabled() {
+        return requestCoalescingEnabled;
+    }
+
+    public boolean isRequestTemplateEnabled() {
+        return requestTemplateEnabled;
+    }
+
+    public boolean isRawResponseEnabled() {
+        return rawResponseEnabled;
+    }
+
+    public boolean isPrecomputedValidationEnabled() {
+        return precomputedValidationEnabled;
+    }
+
+    public int getBatchMaxParallelism() {
+        return batchMaxParallelism;
+    }
+
+    public boolean isVirtualThreadsEnabled() {
+        return virtualThreadsEnabled;
+    }
+
+    public boolean isConcurrencyLimitEnabled() {
+        return concurrencyLimitEnabled;
+    }
+
+    public int getConcurrencyLimitInitial() {
+        return concurrencyLimitInitial;
+    }
+
+    public int getConcurrencyLimitMin() {
+        return concurrencyLimitMin;
+    }
+
+    public int getConcurrencyLimitMax() {
+        return concurrencyLimitMax;
+    }
+
+    public int getConcurrencyQueueSize() {
+        return concurrencyQueueSize;
+    }
+
+    public Duration getConcurrencyQueueTimeout() {
+        return concurrencyQueueTimeout;
+    }
+
+    public boolean isCircuitBreakerEnabled() {
+        return circuitBreakerEnabled;
+    }
+
+    public int getCircuitBreakerWindowSize() {
+        return circuitBreakerWindowSize;
+    }
+
+    public int getCircuitBreakerMinimumCalls() {
+        return circuitBreakerMinimumCalls;
+    }
+
+    public float getCircuitBreakerFailureRateThreshold() {
+        return circuitBreakerFailureRateThreshold;
+    }
+
+    public Duration getCircuitBreakerSlowCallThreshold() {
+        return circuitBreakerSlowCallThreshold;
+    }
+
+    public float getCircuitBreakerSlowCallRateThreshold() {
+        return circuitBreakerSlowCallRateThreshold;
+    }
+
+    public Duration getCircuitBreakerOpenDuration() {
+        return circuitBreakerOpenDuration;
+    }
+
+    public int getCircuitBreakerHalfOpenCalls() {
+        return circuitBreakerHalfOpenCalls;
+    }
+
+    public boolean isHedgingEnabled() {
+        return hedgingEnabled;
+    }
+
+    public float getHedgingPercentile() {
+        return hedgingPercentile;
+    }
+
+    public Duration getHedgingMinDelay() {
+        return hedgingMinDelay;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public Duration getRetryBackoff() {
+        return retryBackoff;
+    }
+
+    public float getRetryBudgetRatio() {
+        return retryBudgetRatio;
+    }
+
+    public int getRetryBudgetMaxTokens() {
+        return retryBudgetMaxTokens;
+    }
+
+    public int getMaxRequestBytes() {
+        return maxRequestBytes;
+    }
+
+    public int getMaxAddresses() {
+        return maxAddresses;
+    }
+
+    public int getMaxStringLength() {
+        return maxStringLength;
+    }
+
+    public int getConnectionPoolSize() {
+        return connectionPoolSize;
+    }
+
+    public Duration getConnectionKeepWarmInterval() {
+        return connectionKeepWarmInterval;
+    }
+
+    public int getClientExecutorThreads() {
+        return clientExecutorThreads;
+    }
+
+    public int getMaxCallsInFlight() {
+        return maxCallsInFlight;
+    }
+
+    public int getTlsSessionCacheSize() {
+        return tlsSessionCacheSize;
+    }
+
+    public Duration getTlsSessionTimeout() {
+        return tlsSessionTimeout;
+    }
+
+    public Duration getKeystoreReloadInterval() {
+        return keystoreReloadInterval;
+    }
+
+    public boolean isProbeEnabled() {
+        return probeEnabled;
+    }
+
+    public Duration getProbeInterval() {
+        return probeInterval;
+    }
+
+    public Duration getProbeTimeout() {
+        return probeTimeout;
+    }
+
+    public int getProbeFailureThreshold() {
+        return probeFailureThreshold;
+    }
+
+    public boolean isIdempotencyEnabled() {
+        return idempotencyEnabled;
+    }
+
+    public int getIdempotencyMaxSize() {
+        return idempotencyMaxSize;
+    }
+
+    public Duration getIdempotencyTtl() {
+        return idempotencyTtl;
+    }
+
+    public Duration getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    public Duration getAsyncTimeout() {
+        return asyncTimeout;
+    }
+
+    private static int getIntEnv(String name, int defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static long getLongEnv(String name, long defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    private static float getFloatEnv(String name, float defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : Float.parseFloat(value.trim());
+    }
+
+    private static boolean getBooleanEnv(String name, boolean defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
 }
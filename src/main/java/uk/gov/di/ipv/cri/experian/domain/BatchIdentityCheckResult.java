@@ -0,0 +1,37 @@
+package uk.gov.di.ipv.cri.experian.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchIdentityCheckResult {
+    private final long line;
+    private final int status;
+    private final JsonNode result;
+    private final List<String> errors;
+
+    public BatchIdentityCheckResult(long line, int status, JsonNode result, List<String> errors) {
+        this.line = line;
+        this.status = status;
+        this.result = result;
+        this.errors = errors;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public JsonNode getResult() {
+        return result;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+}
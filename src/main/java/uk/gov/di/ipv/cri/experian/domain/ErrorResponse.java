@@ -0,0 +1,19 @@
+package uk.gov.di.ipv.cri.experian.domain;
+
+public class ErrorResponse {
+    private final String errorCode;
+    private final String message;
+
+    public ErrorResponse(String errorCode, String message) {
+        this.errorCode = errorCode;
+        this.message = message;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
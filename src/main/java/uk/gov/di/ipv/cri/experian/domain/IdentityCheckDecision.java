@@ -0,0 +1,38 @@
+package uk.gov.di.ipv.cri.experian.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Map;
+
+/** The parts of a CrossCore response that identity check callers act on. */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class IdentityCheckDecision {
+    private final String expRequestId;
+    private final String decision;
+    private final Integer score;
+    private final Map<String, String> matches;
+
+    public IdentityCheckDecision(
+            String expRequestId, String decision, Integer score, Map<String, String> matches) {
+        this.expRequestId = expRequestId;
+        this.decision = decision;
+        this.score = score;
+        this.matches = matches;
+    }
+
+    public String getExpRequestId() {
+        return expRequestId;
+    }
+
+    public String getDecision() {
+        return decision;
+    }
+
+    public Integer getScore() {
+        return score;
+    }
+
+    public Map<String, String> getMatches() {
+        return matches;
+    }
+}
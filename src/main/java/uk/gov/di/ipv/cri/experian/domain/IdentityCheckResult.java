@@ -0,0 +1,24 @@
+package uk.gov.di.ipv.cri.experian.domain;
+
+/** The body returned for an identity check, with the status code CrossCore answered it with. */
+public class IdentityCheckResult {
+    private final int statusCode;
+    private final String body;
+
+    public IdentityCheckResult(int statusCode, String body) {
+        this.statusCode = statusCode;
+        this.body = body;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public boolean isSuccessful() {
+        return statusCode >= 200 && statusCode < 300;
+    }
+}
@@ -0,0 +1,56 @@
+package uk.gov.di.ipv.cri.experian.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UpstreamStatus {
+    public static final String UP = "UP";
+    public static final String DOWN = "DOWN";
+    public static final String UNKNOWN = "UNKNOWN";
+
+    private final String status;
+    private final String checkedAt;
+    private final Integer statusCode;
+    private final Long latencyMillis;
+    private final String error;
+    private final int consecutiveFailures;
+
+    public UpstreamStatus(
+            String status,
+            String checkedAt,
+            Integer statusCode,
+            Long latencyMillis,
+            String error,
+            int consecutiveFailures) {
+        this.status = status;
+        this.checkedAt = checkedAt;
+        this.statusCode = statusCode;
+        this.latencyMillis = latencyMillis;
+        this.error = error;
+        this.consecutiveFailures = consecutiveFailures;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getCheckedAt() {
+        return checkedAt;
+    }
+
+    public Integer getStatusCode() {
+        return statusCode;
+    }
+
+    public Long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+}
@@ -0,0 +1,236 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the number of CrossCore calls in flight, adjusting the limit from the measured round trip
+ * time. A slowly moving average of the RTT is the baseline; while a sample stays within {@value
+ * #RTT_TOLERANCE} times the baseline the limit grows by roughly its square root, and when samples
+ * exceed it the limit shrinks in proportion, down to half per step. Failed calls back the limit off
+ * multiplicatively. Callers over the limit wait in a short, bounded queue and are rejected with
+ * {@link ConcurrencyLimitExceededException} when it is full or their wait times out, so a slow
+ * upstream turns into fast 503s instead of a growing backlog.
+ */
+public class AdaptiveConcurrencyLimiter {
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double BASELINE_RTT_WEIGHT = 1.0 / 600;
+    private static final double BASELINE_RECOVERY_RATIO = 2.0;
+    private static final double BASELINE_RECOVERY_FACTOR = 0.95;
+    private static final double DROP_BACKOFF_RATIO = 0.9;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueueSize;
+    private final long queueTimeoutNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final Queue<CompletableFuture<Permit>> waiters = new ConcurrentLinkedQueue<>();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final ReentrantLock estimatorLock = new ReentrantLock();
+    private double estimatedLimit;
+    private double baselineRttNanos;
+    private volatile int limit;
+
+    public AdaptiveConcurrencyLimiter(
+            int initialLimit, int minLimit, int maxLimit, int maxQueueSize, Duration queueTimeout) {
+        this(initialLimit, minLimit, maxLimit, maxQueueSize, queueTimeout, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(
+            int initialLimit,
+            int minLimit,
+            int maxLimit,
+            int maxQueueSize,
+            Duration queueTimeout,
+            LongSupplier nanoClock) {
+        Objects.requireNonNull(queueTimeout, "queueTimeout must not be null");
+        Objects.requireNonNull(nanoClock, "nanoClock must not be null");
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("limits must satisfy 1 <= minLimit <= maxLimit");
+        }
+        if (maxQueueSize < 0) {
+            throw new IllegalArgumentException("maxQueueSize must not be negative");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueueSize = maxQueueSize;
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+        this.nanoClock = nanoClock;
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.limit = (int) estimatedLimit;
+    }
+
+    /**
+     * Returns a permit that is already granted when the limit allows, or one that completes when a
+     * queued slot frees up. The future fails with {@link ConcurrencyLimitExceededException} if the
+     * queue is full or the wait times out.
+     */
+    public CompletableFuture<Permit> acquire() {
+        if (waiters.isEmpty() && tryAcquire()) {
+            return CompletableFuture.completedFuture(new Permit());
+        }
+        if (queueDepth.incrementAndGet() > maxQueueSize) {
+            queueDepth.decrementAndGet();
+            rejectedCount.increment();
+            return CompletableFuture.failedFuture(new ConcurrencyLimitExceededException());
+        }
+        CompletableFuture<Permit> waiter = new CompletableFuture<>();
+        waiter.whenComplete(
+                (permit, throwable) -> {
+                    queueDepth.decrementAndGet();
+                    if (throwable != null) {
+                        waiters.remove(waiter);
+                    }
+                });
+        waiters.add(waiter);
+        CompletableFuture.delayedExecutor(queueTimeoutNanos, TimeUnit.NANOSECONDS)
+                .execute(
+                        () -> {
+                            if (waiter.completeExceptionally(
+                                    new ConcurrencyLimitExceededException())) {
+                                rejectedCount.increment();
+                            }
+                        });
+        // a permit released before the waiter was queued must not be lost
+        grantQueuedPermits();
+        return waiter;
+    }
+
+    /** Waits for a permit on the calling thread. */
+    public Permit acquireBlocking() throws InterruptedException {
+        CompletableFuture<Permit> permit = acquire();
+        try {
+            return permit.get();
+        } catch (ExecutionException e) {
+            throw (RuntimeException) e.getCause();
+        } catch (InterruptedException e) {
+            if (!permit.cancel(false) && !permit.isCompletedExceptionally()) {
+                permit.join().onIgnore();
+            }
+            throw e;
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    private boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void grantQueuedPermits() {
+        while (!waiters.isEmpty() && tryAcquire()) {
+            CompletableFuture<Permit> waiter = waiters.poll();
+            if (waiter == null || !waiter.complete(new Permit())) {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private void release(Permit permit, boolean sample, boolean dropped) {
+        int inFlightAtRelease = inFlight.getAndDecrement();
+        if (sample) {
+            updateLimit(nanoClock.getAsLong() - permit.startNanos, inFlightAtRelease, dropped);
+        }
+        grantQueuedPermits();
+    }
+
+    private void updateLimit(long rttNanos, int inFlightAtRelease, boolean dropped) {
+        estimatorLock.lock();
+        try {
+            if (dropped) {
+                estimatedLimit *= DROP_BACKOFF_RATIO;
+            } else {
+                double rtt = Math.max(1, rttNanos);
+                if (baselineRttNanos == 0) {
+                    baselineRttNanos = rtt;
+                } else {
+                    baselineRttNanos += (rtt - baselineRttNanos) * BASELINE_RTT_WEIGHT;
+                    // let the baseline recover quickly once a slow period is over
+                    if (baselineRttNanos / rtt > BASELINE_RECOVERY_RATIO) {
+                        baselineRttNanos *= BASELINE_RECOVERY_FACTOR;
+                    }
+                }
+                // a lightly used limit says nothing about how far it could grow
+                if (inFlightAtRelease < estimatedLimit / 2) {
+                    return;
+                }
+                double gradient =
+                        Math.max(
+                                MIN_GRADIENT,
+                                Math.min(1.0, RTT_TOLERANCE * baselineRttNanos / rtt));
+                double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+                estimatedLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+            }
+            estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit));
+            limit = (int) estimatedLimit;
+        } finally {
+            estimatorLock.unlock();
+        }
+    }
+
+    /**
+     * One granted slot. Exactly one of the completion methods should be called when the call ends;
+     * later calls are ignored.
+     */
+    public final class Permit {
+        private final long startNanos = nanoClock.getAsLong();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit() {}
+
+        /** The call completed; its round trip time feeds the limit. */
+        public void onSuccess() {
+            if (released.compareAndSet(false, true)) {
+                release(this, true, false);
+            }
+        }
+
+        /** The call failed or timed out upstream, which backs the limit off. */
+        public void onDropped() {
+            if (released.compareAndSet(false, true)) {
+                release(this, true, true);
+            }
+        }
+
+        /** The call ended for a reason unrelated to upstream load. */
+        public void onIgnore() {
+            if (released.compareAndSet(false, true)) {
+                release(this, false, false);
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops calling CrossCore while it is failing. The outcomes of the last {@code windowSize} calls
+ * are kept in a ring buffer; once at least {@code minimumCalls} are recorded and either the failure
+ * rate or the rate of calls slower than {@code slowCallThreshold} reaches its threshold, the
+ * breaker opens and every call is rejected with a {@link CircuitBreakerOpenException} without
+ * touching the network. After {@code openDuration} it lets {@code halfOpenTrialCalls} calls
+ * through; if their failure and slow call rates are below the thresholds it closes again, otherwise
+ * it opens for another period. Outcomes of calls started before a state change are ignored.
+ */
+public class CircuitBreaker {
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+    private final int minimumCalls;
+    private final float failureRateThreshold;
+    private final float slowCallRateThreshold;
+    private final long slowCallThresholdNanos;
+    private final long openDurationNanos;
+    private final int halfOpenTrialCalls;
+    private final LongSupplier nanoClock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final byte[] outcomes;
+    private final LongAdder rejectedCount = new LongAdder();
+    private int outcomeIndex;
+    private int outcomeCount;
+    private int failureCount;
+    private int slowCount;
+    private int trialPermits;
+    private int trialOutcomes;
+    private int trialFailures;
+    private int trialSlowCalls;
+    private volatile State state = State.CLOSED;
+    private volatile long generation;
+    private volatile long openUntilNanos;
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    public CircuitBreaker(
+            int windowSize,
+            int minimumCalls,
+            float failureRateThreshold,
+            Duration slowCallThreshold,
+            float slowCallRateThreshold,
+            Duration openDuration,
+            int halfOpenTrialCalls) {
+        this(
+                windowSize,
+                minimumCalls,
+                failureRateThreshold,
+                slowCallThreshold,
+                slowCallRateThreshold,
+                openDuration,
+                halfOpenTrialCalls,
+                System::nanoTime);
+    }
+
+    CircuitBreaker(
+            int windowSize,
+            int minimumCalls,
+            float failureRateThreshold,
+            Duration slowCallThreshold,
+            float slowCallRateThreshold,
+            Duration openDuration,
+            int halfOpenTrialCalls,
+            LongSupplier nanoClock) {
+        Objects.requireNonNull(slowCallThreshold, "slowCallThreshold must not be null");
+        Objects.requireNonNull(openDuration, "openDuration must not be null");
+        Objects.requireNonNull(nanoClock, "nanoClock must not be null");
+        if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException(
+                    "window sizes must satisfy 1 <= minimumCalls <= windowSize");
+        }
+        if (halfOpenTrialCalls < 1) {
+            throw new IllegalArgumentException("halfOpenTrialCalls must be at least 1");
+        }
+        this.outcomes = new byte[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallThresholdNanos = slowCallThreshold.toNanos();
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenTrialCalls = halfOpenTrialCalls;
+        this.nanoClock = nanoClock;
+    }
+
+    /** Returns a permit for one call, or throws if the breaker does not allow it. */
+    public Permit acquirePermission() {
+        State current = state;
+        if (current == State.CLOSED) {
+            return new Permit(generation);
+        }
+        if (current == State.OPEN && nanoClock.getAsLong() - openUntilNanos < 0) {
+            rejectedCount.increment();
+            throw new CircuitBreakerOpenException();
+        }
+        lock.lock();
+        try {
+            if (state == State.OPEN) {
+                if (nanoClock.getAsLong() - openUntilNanos < 0) {
+                    rejectedCount.increment();
+                    throw new CircuitBreakerOpenException();
+                }
+                transitionTo(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (trialPermits >= halfOpenTrialCalls) {
+                    rejectedCount.increment();
+                    throw new CircuitBreakerOpenException();
+                }
+                trialPermits++;
+            }
+            return new Permit(generation);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    private void record(Permit permit, boolean failed, boolean ignored) {
+        long durationNanos = nanoClock.getAsLong() - permit.startNanos;
+        lock.lock();
+        try {
+            if (permit.generation != generation) {
+                return;
+            }
+            if (ignored) {
+                if (state == State.HALF_OPEN) {
+                    trialPermits--;
+                }
+                return;
+            }
+            boolean slow = durationNanos > slowCallThresholdNanos;
+            if (state == State.CLOSED) {
+                recordClosedOutcome(failed, slow);
+            } else if (state == State.HALF_OPEN) {
+                recordTrialOutcome(failed, slow);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordClosedOutcome(boolean failed, boolean slow) {
+        byte outcome = (byte) ((failed ? FAILED : 0) | (slow ? SLOW : 0));
+        if (outcomeCount == outcomes.length) {
+            byte evicted = outcomes[outcomeIndex];
+            failureCount -= evicted & FAILED;
+            slowCount -= (evicted & SLOW) >> 1;
+        } else {
+            outcomeCount++;
+        }
+        outcomes[outcomeIndex] = outcome;
+        outcomeIndex = (outcomeIndex + 1) % outcomes.length;
+        failureCount += failed ? 1 : 0;
+        slowCount += slow ? 1 : 0;
+        if (outcomeCount >= minimumCalls
+                && exceedsThresholds(failureCount, slowCount, outcomeCount)) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private void recordTrialOutcome(boolean failed, boolean slow) {
+        trialOutcomes++;
+        trialFailures += failed ? 1 : 0;
+        trialSlowCalls += slow ? 1 : 0;
+        if (trialOutcomes >= halfOpenTrialCalls) {
+            transitionTo(
+                    exceedsThresholds(trialFailures, trialSlowCalls, trialOutcomes)
+                            ? State.OPEN
+                            : State.CLOSED);
+        }
+    }
+
+    private boolean exceedsThresholds(int failures, int slowCalls, int calls) {
+        return failures * 100f >= failureRateThreshold * calls
+                || slowCalls * 100f >= slowCallRateThreshold * calls;
+    }
+
+    private void transitionTo(State newState) {
+        outcomeIndex = 0;
+        outcomeCount = 0;
+        failureCount = 0;
+        slowCount = 0;
+        trialPermits = 0;
+        trialOutcomes = 0;
+        trialFailures = 0;
+        trialSlowCalls = 0;
+        if (newState == State.OPEN) {
+            openUntilNanos = nanoClock.getAsLong() + openDurationNanos;
+        }
+        generation++;
+        state = newState;
+    }
+
+    /**
+     * Permission for one call. Exactly one of the completion methods should be called when the call
+     * ends; later calls are ignored.
+     */
+    public final class Permit {
+        private final long generation;
+        private final long startNanos = nanoClock.getAsLong();
+        private final AtomicBoolean recorded = new AtomicBoolean();
+
+        private Permit(long generation) {
+            this.generation = generation;
+        }
+
+        public void onSuccess() {
+            complete(false, false);
+        }
+
+        public void onFailure() {
+            complete(true, false);
+        }
+
+        /** The call ended for a reason that says nothing about the upstream's health. */
+        public void onIgnore() {
+            complete(false, true);
+        }
+
+        private void complete(boolean failed, boolean ignored) {
+            if (recorded.compareAndSet(false, true)) {
+                record(this, failed, ignored);
+            }
+        }
+    }
+}
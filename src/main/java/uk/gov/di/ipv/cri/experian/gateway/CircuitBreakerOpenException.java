@@ -0,0 +1,9 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+public class CircuitBreakerOpenException extends GatewayUnavailableException {
+    private static final long serialVersionUID = 1L;
+
+    public CircuitBreakerOpenException() {
+        super("circuit_open", "The upstream service is failing and calls are suspended");
+    }
+}
@@ -0,0 +1,11 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+public class ConcurrencyLimitExceededException extends GatewayUnavailableException {
+    private static final long serialVersionUID = 1L;
+
+    public ConcurrencyLimitExceededException() {
+        super(
+                "concurrency_limit_exceeded",
+                "Too many identity checks are waiting for the upstream service");
+    }
+}
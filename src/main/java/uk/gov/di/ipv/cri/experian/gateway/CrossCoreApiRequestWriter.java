@@ -0,0 +1,337 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import uk.gov.di.ipv.cri.experian.gateway.dto.Address;
+import uk.gov.di.ipv.cri.experian.gateway.dto.Applicant;
+import uk.gov.di.ipv.cri.experian.gateway.dto.Application;
+import uk.gov.di.ipv.cri.experian.gateway.dto.Contact;
+import uk.gov.di.ipv.cri.experian.gateway.dto.CrossCoreApiRequest;
+import uk.gov.di.ipv.cri.experian.gateway.dto.Header;
+import uk.gov.di.ipv.cri.experian.gateway.dto.Name;
+import uk.gov.di.ipv.cri.experian.gateway.dto.Options;
+import uk.gov.di.ipv.cri.experian.gateway.dto.Payload;
+import uk.gov.di.ipv.cri.experian.gateway.dto.Person;
+import uk.gov.di.ipv.cri.experian.gateway.dto.PersonDetails;
+import uk.gov.di.ipv.cri.experian.gateway.dto.ResidentFrom;
+import uk.gov.di.ipv.cri.experian.gateway.dto.ResidentTo;
+import uk.gov.di.ipv.cri.experian.gateway.dto.TimeAtAddress;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Writes a {@link CrossCoreApiRequest} straight to a {@link JsonGenerator}, producing the same
+ * bytes as {@code ObjectMapper.writeValue} without its reflective bean serializers. Field names are
+ * pre-encoded. Properties follow each dto's {@code @JsonPropertyOrder}, and nulls are left out
+ * wherever the dto is {@code @JsonInclude(NON_NULL)}, so a change to those annotations must be made
+ * here too; {@code CrossCoreApiRequestWriterTest} compares both outputs.
+ */
+public class CrossCoreApiRequestWriter {
+    private static final SerializableString HEADER = new SerializedString("header");
+    private static final SerializableString PAYLOAD = new SerializedString("payload");
+    private static final SerializableString TENANT_ID = new SerializedString("tenantId");
+    private static final SerializableString REQUEST_TYPE = new SerializedString("requestType");
+    private static final SerializableString CLIENT_REFERENCE_ID =
+            new SerializedString("clientReferenceId");
+    private static final SerializableString EXP_REQUEST_ID = new SerializedString("expRequestId");
+    private static final SerializableString MESSAGE_TIME = new SerializedString("messageTime");
+    private static final SerializableString OPTIONS = new SerializedString("options");
+    private static final SerializableString VERSION = new SerializedString("version");
+    private static final SerializableString CUSTOM_OPTION_1 = new SerializedString("customOption1");
+    private static final SerializableString CUSTOM_OPTION_2 = new SerializedString("customOption2");
+    private static final SerializableString CUSTOM_OPTION_3 = new SerializedString("customOption3");
+    private static final SerializableString CUSTOM_OPTION_4 = new SerializedString("customOption4");
+    private static final SerializableString CUSTOM_OPTION_5 = new SerializedString("customOption5");
+    private static final SerializableString CUSTOM_OPTION_6 = new SerializedString("customOption6");
+    private static final SerializableString CUSTOM_OPTION_7 = new SerializedString("customOption7");
+    private static final SerializableString CONTACTS = new SerializedString("contacts");
+    private static final SerializableString APPLICATION = new SerializedString("application");
+    private static final SerializableString APPLICANTS = new SerializedString("applicants");
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString CONTACT_ID = new SerializedString("contactId");
+    private static final SerializableString TYPE = new SerializedString("type");
+    private static final SerializableString APPLICANT_TYPE = new SerializedString("applicantType");
+    private static final SerializableString CONSENT = new SerializedString("consent");
+    private static final SerializableString PERSON = new SerializedString("person");
+    private static final SerializableString ADDRESSES = new SerializedString("addresses");
+    private static final SerializableString PERSON_IDENTIFIER =
+            new SerializedString("personIdentifier");
+    private static final SerializableString PERSON_DETAILS = new SerializedString("personDetails");
+    private static final SerializableString DATE_OF_BIRTH = new SerializedString("dateOfBirth");
+    private static final SerializableString NAMES = new SerializedString("names");
+    private static final SerializableString TITLE = new SerializedString("title");
+    private static final SerializableString FIRST_NAME = new SerializedString("firstName");
+    private static final SerializableString MIDDLE_NAMES = new SerializedString("middleNames");
+    private static final SerializableString SUR_NAME = new SerializedString("surName");
+    private static final SerializableString ADDRESS_IDENTIFIER =
+            new SerializedString("addressIdentifier");
+    private static final SerializableString ADDRESS_TYPE = new SerializedString("addressType");
+    private static final SerializableString SUB_BUILDING = new SerializedString("subBuilding");
+    private static final SerializableString BUILDING_NAME = new SerializedString("buildingName");
+    private static final SerializableString BUILDING_NUMBER =
+            new SerializedString("buildingNumber");
+    private static final SerializableString STREET = new SerializedString("street");
+    private static final SerializableString LOCALITY = new SerializedString("locality");
+    private static final SerializableString POST_TOWN = new SerializedString("postTown");
+    private static final SerializableString POSTAL = new SerializedString("postal");
+    private static final SerializableString RESIDENT_FROM = new SerializedString("residentFrom");
+    private static final SerializableString RESIDENT_TO = new SerializedString("residentTo");
+    private static final SerializableString TIME_AT_ADDRESS = new SerializedString("timeAtAddress");
+    private static final SerializableString FULL_DATE_FROM = new SerializedString("fullDateFrom");
+    private static final SerializableString YEAR_FROM = new SerializedString("yearFrom");
+    private static final SerializableString MONTH_FROM = new SerializedString("monthFrom");
+    private static final SerializableString DAY_FROM = new SerializedString("dayFrom");
+    private static final SerializableString FULL_DATE_TO = new SerializedString("fullDateTo");
+    private static final SerializableString YEAR_TO = new SerializedString("yearTo");
+    private static final SerializableString MONTH_TO = new SerializedString("monthTo");
+    private static final SerializableString DAY_TO = new SerializedString("dayTo");
+    private static final SerializableString VALUE = new SerializedString("value");
+    private static final SerializableString UNIT = new SerializedString("unit");
+    private final JsonFactory jsonFactory;
+
+    public CrossCoreApiRequestWriter(JsonFactory jsonFactory) {
+        Objects.requireNonNull(jsonFactory, "jsonFactory must not be null");
+        this.jsonFactory = jsonFactory;
+    }
+
+    /** Closes {@code outputStream} afterwards, as {@code ObjectMapper.writeValue} does. */
+    public void write(OutputStream outputStream, CrossCoreApiRequest apiRequest)
+            throws IOException {
+        Objects.requireNonNull(apiRequest, "apiRequest must not be null");
+        try (JsonGenerator generator =
+                jsonFactory.createGenerator(outputStream, JsonEncoding.UTF8)) {
+            writeRequest(generator, apiRequest);
+        }
+    }
+
+    private static void writeRequest(JsonGenerator generator, CrossCoreApiRequest apiRequest)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(HEADER);
+        if (apiRequest.getHeader() == null) {
+            generator.writeNull();
+        } else {
+            writeHeader(generator, apiRequest.getHeader());
+        }
+        generator.writeFieldName(PAYLOAD);
+        if (apiRequest.getPayload() == null) {
+            generator.writeNull();
+        } else {
+            writePayload(generator, apiRequest.getPayload());
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeHeader(JsonGenerator generator, Header header) throws IOException {
+        generator.writeStartObject();
+        writeIfNotNull(generator, TENANT_ID, header.getTenantId());
+        writeIfNotNull(generator, REQUEST_TYPE, header.getRequestType());
+        writeIfNotNull(generator, CLIENT_REFERENCE_ID, header.getClientReferenceId());
+        writeIfNotNull(generator, EXP_REQUEST_ID, header.getExpRequestId());
+        writeIfNotNull(generator, MESSAGE_TIME, header.getMessageTime());
+        Options options = header.getOptions();
+        if (options != null) {
+            generator.writeFieldName(OPTIONS);
+            writeOptions(generator, options);
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeOptions(JsonGenerator generator, Options options) throws IOException {
+        generator.writeStartObject();
+        writeIfNotNull(generator, VERSION, options.getVersion());
+        writeIfNotNull(generator, CUSTOM_OPTION_1, options.getCustomOption1());
+        writeIfNotNull(generator, CUSTOM_OPTION_2, options.getCustomOption2());
+        writeIfNotNull(generator, CUSTOM_OPTION_3, options.getCustomOption3());
+        writeIfNotNull(generator, CUSTOM_OPTION_4, options.getCustomOption4());
+        writeIfNotNull(generator, CUSTOM_OPTION_5, options.getCustomOption5());
+        writeIfNotNull(generator, CUSTOM_OPTION_6, options.getCustomOption6());
+        writeIfNotNull(generator, CUSTOM_OPTION_7, options.getCustomOption7());
+        generator.writeEndObject();
+    }
+
+    private static void writePayload(JsonGenerator generator, Payload payload) throws IOException {
+        generator.writeStartObject();
+        List<Contact> contacts = payload.getContacts();
+        if (contacts != null) {
+            generator.writeFieldName(CONTACTS);
+            generator.writeStartArray();
+            for (Contact contact : contacts) {
+                if (contact == null) {
+                    generator.writeNull();
+                } else {
+                    writeContact(generator, contact);
+                }
+            }
+            generator.writeEndArray();
+        }
+        Application application = payload.getApplication();
+        if (application != null) {
+            generator.writeFieldName(APPLICATION);
+            writeApplication(generator, application);
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeApplication(JsonGenerator generator, Application application)
+            throws IOException {
+        generator.writeStartObject();
+        List<Applicant> applicants = application.getApplicants();
+        if (applicants != null) {
+            generator.writeFieldName(APPLICANTS);
+            generator.writeStartArray();
+            for (Applicant applicant : applicants) {
+                if (applicant == null) {
+                    generator.writeNull();
+                } else {
+                    writeApplicant(generator, applicant);
+                }
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeApplicant(JsonGenerator generator, Applicant applicant)
+            throws IOException {
+        generator.writeStartObject();
+        writeIfNotNull(generator, ID, applicant.getId());
+        writeIfNotNull(generator, CONTACT_ID, applicant.getContactId());
+        writeIfNotNull(generator, TYPE, applicant.getType());
+        writeIfNotNull(generator, APPLICANT_TYPE, applicant.getApplicantType());
+        if (applicant.getConsent() != null) {
+            generator.writeFieldName(CONSENT);
+            generator.writeBoolean(applicant.getConsent());
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeContact(JsonGenerator generator, Contact contact) throws IOException {
+        generator.writeStartObject();
+        writeIfNotNull(generator, ID, contact.getId());
+        Person person = contact.getPerson();
+        if (person != null) {
+            generator.writeFieldName(PERSON);
+            writePerson(generator, person);
+        }
+        List<Address> addresses = contact.getAddresses();
+        if (addresses != null) {
+            generator.writeFieldName(ADDRESSES);
+            generator.writeStartArray();
+            for (Address address : addresses) {
+                if (address == null) {
+                    generator.writeNull();
+                } else {
+                    writeAddress(generator, address);
+                }
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writePerson(JsonGenerator generator, Person person) throws IOException {
+        generator.writeStartObject();
+        writeIfNotNull(generator, PERSON_IDENTIFIER, person.getPersonIdentifier());
+        PersonDetails personDetails = person.getPersonDetails();
+        if (personDetails != null) {
+            generator.writeFieldName(PERSON_DETAILS);
+            generator.writeStartObject();
+            writeIfNotNull(generator, DATE_OF_BIRTH, personDetails.getDateOfBirth());
+            generator.writeEndObject();
+        }
+        List<Name> names = person.getNames();
+        if (names != null) {
+            generator.writeFieldName(NAMES);
+            generator.writeStartArray();
+            for (Name name : names) {
+                if (name == null) {
+                    generator.writeNull();
+                } else {
+                    writeName(generator, name);
+                }
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+    }
+
+    // Name is the one dto without NON_NULL, so its nulls are written
+    private static void writeName(JsonGenerator generator, Name name) throws IOException {
+        generator.writeStartObject();
+        write(generator, ID, name.getId());
+        write(generator, TYPE, name.getType());
+        write(generator, TITLE, name.getTitle());
+        write(generator, FIRST_NAME, name.getFirstName());
+        write(generator, MIDDLE_NAMES, name.getMiddleNames());
+        write(generator, SUR_NAME, name.getSurName());
+        generator.writeEndObject();
+    }
+
+    private static void writeAddress(JsonGenerator generator, Address address) throws IOException {
+        generator.writeStartObject();
+        writeIfNotNull(generator, ID, address.getId());
+        writeIfNotNull(generator, ADDRESS_IDENTIFIER, address.getAddressIdentifier());
+        writeIfNotNull(generator, ADDRESS_TYPE, address.getAddressType());
+        writeIfNotNull(generator, SUB_BUILDING, address.getSubBuilding());
+        writeIfNotNull(generator, BUILDING_NAME, address.getBuildingName());
+        writeIfNotNull(generator, BUILDING_NUMBER, address.getBuildingNumber());
+        writeIfNotNull(generator, STREET, address.getStreet());
+        writeIfNotNull(generator, LOCALITY, address.getLocality());
+        writeIfNotNull(generator, POST_TOWN, address.getPostTown());
+        writeIfNotNull(generator, POSTAL, address.getPostal());
+        ResidentFrom residentFrom = address.getResidentFrom();
+        if (residentFrom != null) {
+            generator.writeFieldName(RESIDENT_FROM);
+            generator.writeStartObject();
+            writeIfNotNull(generator, FULL_DATE_FROM, residentFrom.getFullDateFrom());
+            writeIfNotNull(generator, YEAR_FROM, residentFrom.getYearFrom());
+            writeIfNotNull(generator, MONTH_FROM, residentFrom.getMonthFrom());
+            writeIfNotNull(generator, DAY_FROM, residentFrom.getDayFrom());
+            generator.writeEndObject();
+        }
+        ResidentTo residentTo = address.getResidentTo();
+        if (residentTo != null) {
+            generator.writeFieldName(RESIDENT_TO);
+            generator.writeStartObject();
+            writeIfNotNull(generator, FULL_DATE_TO, residentTo.getFullDateTo());
+            writeIfNotNull(generator, YEAR_TO, residentTo.getYearTo());
+            writeIfNotNull(generator, MONTH_TO, residentTo.getMonthTo());
+            writeIfNotNull(generator, DAY_TO, residentTo.getDayTo());
+            generator.writeEndObject();
+        }
+        TimeAtAddress timeAtAddress = address.getTimeAtAddress();
+        if (timeAtAddress != null) {
+            generator.writeFieldName(TIME_AT_ADDRESS);
+            generator.writeStartObject();
+            if (timeAtAddress.getValue() != null) {
+                generator.writeFieldName(VALUE);
+                generator.writeNumber(timeAtAddress.getValue());
+            }
+            writeIfNotNull(generator, UNIT, timeAtAddress.getUnit());
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeIfNotNull(
+            JsonGenerator generator, SerializableString fieldName, String value)
+            throws IOException {
+        if (value != null) {
+            write(generator, fieldName, value);
+        }
+    }
+
+    // writeString(null) writes a JSON null
+    private static void write(JsonGenerator generator, SerializableString fieldName, String value)
+            throws IOException {
+        generator.writeFieldName(fieldName);
+        generator.writeString(value);
+    }
+}
@@ -0,0 +1,191 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import uk.gov.di.ipv.cri.experian.domain.AddressType;
+import uk.gov.di.ipv.cri.experian.domain.PersonAddress;
+import uk.gov.di.ipv.cri.experian.domain.PersonIdentity;
+import uk.gov.di.ipv.cri.experian.metrics.StageRecorder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Renders the signed CrossCore request body for a {@link PersonIdentity} without building the dto
+ * tree. Everything {@link ExperianApiRequestMapper} sets to a constant is encoded once, and only
+ * the reference id, message time, names, date of birth and addresses are escaped per request. The
+ * bytes match mapping followed by {@link CrossCoreApiRequestWriter}, which {@code
+ * CrossCoreRequestTemplateTest} checks, so a change to the mapper or the dtos must be made here
+ * too.
+ */
+public class CrossCoreRequestTemplate {
+    private static final byte[] AFTER_CLIENT_REFERENCE_ID = encode("\",\"messageTime\":\"");
+    private static final byte[] AFTER_MESSAGE_TIME =
+            encode(
+                    "\",\"options\":{}},\"payload\":{\"contacts\":[{\"id\":\"MAINCONTACT_1\","
+                            + "\"person\":{\"personIdentifier\":\"MAINPERSON_1\","
+                            + "\"personDetails\":{\"dateOfBirth\":\"");
+    private static final byte[] AFTER_DATE_OF_BIRTH =
+            encode(
+                    "\"},\"names\":[{\"id\":\"MAINPERSONNAME_1\",\"type\":\"CURRENT\","
+                            + "\"title\":null,\"firstName\":");
+    private static final byte[] MIDDLE_NAMES = encode(",\"middleNames\":");
+    private static final byte[] SUR_NAME = encode(",\"surName\":");
+    private static final byte[] AFTER_NAMES = encode("}]},\"addresses\":[");
+    private static final byte[] ADDRESS_ID = encode("{\"id\":\"MAINAPPADDRESS_");
+    private static final byte[] ADDRESS_IDENTIFIER = encode("\",\"addressIdentifier\":\"ADDRESS_");
+    private static final byte[] CURRENT_ADDRESS_TYPE = encode("\",\"addressType\":\"CURRENT\"");
+    private static final byte[] PREVIOUS_ADDRESS_TYPE = encode("\",\"addressType\":\"PREVIOUS\"");
+    private static final byte[] BUILDING_NUMBER = encode(",\"buildingNumber\":");
+    private static final byte[] STREET = encode(",\"street\":");
+    private static final byte[] POST_TOWN = encode(",\"postTown\":");
+    private static final byte[] POSTAL = encode(",\"postal\":");
+    private static final byte[] SUFFIX =
+            encode(
+                    "]}],\"application\":{\"applicants\":[{\"id\":\"APPLICANT_1\","
+                            + "\"contactId\":\"MAINCONTACT_1\",\"type\":\"INDIVIDUAL\","
+                            + "\"applicantType\":\"MAIN_APPLICANT\",\"consent\":true}]}}}");
+    private static final byte[] NULL = encode("null");
+    private static final int QUOTE = '"';
+    private final HmacGenerator hmacGenerator;
+    private final HmacGenerator.PayloadPrefix prefix;
+
+    public CrossCoreRequestTemplate(String tenantId, HmacGenerator hmacGenerator) {
+        Objects.requireNonNull(hmacGenerator, "hmacGenerator must not be null");
+        this.hmacGenerator = hmacGenerator;
+        this.prefix = hmacGenerator.precomputePrefix(encodePrefix(tenantId));
+    }
+
+    public SignedPayload render(PersonIdentity personIdentity, StageRecorder stageRecorder)
+            throws IOException {
+        Objects.requireNonNull(personIdentity, "The personIdentity must not be null");
+        String clientReferenceId = UUID.randomUUID().toString();
+        String messageTime = Instant.now().truncatedTo(ChronoUnit.SECONDS).toString();
+        String dateOfBirth = DateTimeFormatter.ISO_DATE.format(personIdentity.getDateOfBirth());
+        return hmacGenerator.generateSignedPayload(
+                prefix,
+                outputStream -> {
+                    writeAscii(outputStream, clientReferenceId);
+                    outputStream.write(AFTER_CLIENT_REFERENCE_ID);
+                    writeAscii(outputStream, messageTime);
+                    outputStream.write(AFTER_MESSAGE_TIME);
+                    writeAscii(outputStream, dateOfBirth);
+                    outputStream.write(AFTER_DATE_OF_BIRTH);
+                    writeString(outputStream, personIdentity.getFirstName());
+                    outputStream.write(MIDDLE_NAMES);
+                    writeString(outputStream, personIdentity.getMiddleNames());
+                    outputStream.write(SUR_NAME);
+                    writeString(outputStream, personIdentity.getSurname());
+                    outputStream.write(AFTER_NAMES);
+                    writeAddresses(outputStream, personIdentity.getAddresses());
+                    outputStream.write(SUFFIX);
+                },
+                stageRecorder);
+    }
+
+    private static void writeAddresses(OutputStream outputStream, List<PersonAddress> addresses)
+            throws IOException {
+        int addressId = 0;
+        for (PersonAddress address : addresses) {
+            byte[] addressType = encodeAddressType(address.getAddressType());
+            if (addressId > 0) {
+                outputStream.write(',');
+            }
+            String id = Integer.toString(++addressId);
+            outputStream.write(ADDRESS_ID);
+            writeAscii(outputStream, id);
+            outputStream.write(ADDRESS_IDENTIFIER);
+            writeAscii(outputStream, id);
+            outputStream.write(addressType);
+            writeIfNotNull(outputStream, BUILDING_NUMBER, address.getHouseNameNumber());
+            writeIfNotNull(outputStream, STREET, address.getStreet());
+            writeIfNotNull(outputStream, POST_TOWN, address.getTownCity());
+            writeIfNotNull(outputStream, POSTAL, address.getPostcode());
+            outputStream.write('}');
+        }
+    }
+
+    private static byte[] encodeAddressType(AddressType addressType) {
+        switch (addressType) {
+            case CURRENT:
+                return CURRENT_ADDRESS_TYPE;
+            case PREVIOUS:
+                return PREVIOUS_ADDRESS_TYPE;
+            default:
+                throw new IllegalArgumentException(
+                        "Unexpected addressType encountered: " + addressType);
+        }
+    }
+
+    private static void writeIfNotNull(OutputStream outputStream, byte[] fieldName, String value)
+            throws IOException {
+        if (value != null) {
+            outputStream.write(fieldName);
+            writeString(outputStream, value);
+        }
+    }
+
+    private static void writeString(OutputStream outputStream, String value) throws IOException {
+        if (value == null) {
+            outputStream.write(NULL);
+            return;
+        }
+        outputStream.write(QUOTE);
+        outputStream.write(
+                hasSurrogates(value)
+                        ? quoteWithEscapedSurrogates(value)
+                        : JsonStringEncoder.getInstance().quoteAsUTF8(value));
+        outputStream.write(QUOTE);
+    }
+
+    private static boolean hasSurrogates(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.isSurrogate(value.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Jackson's UTF-8 generator escapes each half of a surrogate pair rather than encoding the
+    // code point, and the body must match it byte for byte
+    private static byte[] quoteWithEscapedSurrogates(String value) {
+        char[] quoted = JsonStringEncoder.getInstance().quoteAsString(value);
+        StringBuilder escaped = new StringBuilder(quoted.length + 12);
+        for (char c : quoted) {
+            if (Character.isSurrogate(c)) {
+                escaped.append(String.format("\\u%04X", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return encode(escaped.toString());
+    }
+
+    // for values made of digits, letters, '-' and ':' only, which need no escaping
+    private static void writeAscii(OutputStream outputStream, String value) throws IOException {
+        outputStream.write(value.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    // the tenant id is left out when it is null, as CrossCoreApiRequestWriter would
+    private static byte[] encodePrefix(String tenantId) {
+        StringBuilder prefix = new StringBuilder("{\"header\":{");
+        if (tenantId != null) {
+            prefix.append("\"tenantId\":\"");
+            JsonStringEncoder.getInstance().quoteAsString(tenantId, prefix);
+            prefix.append("\",");
+        }
+        prefix.append("\"requestType\":\"Authenticateplus-Standalone\",\"clientReferenceId\":\"");
+        return encode(prefix.toString());
+    }
+
+    private static byte[] encode(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,127 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import uk.gov.di.ipv.cri.experian.metrics.IdentityCheckMetrics;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Reads a successful CrossCore response into a serialised {@link
+ * uk.gov.di.ipv.cri.experian.domain.IdentityCheckDecision} chunk by chunk as it arrives, so the
+ * full response is never held in memory. Error responses are read as they are, so whatever
+ * CrossCore said about them is kept.
+ *
+ * <p>Parsing runs on the thread delivering the body and never blocks it. A response that cannot be
+ * parsed fails the exchange with the {@link com.fasterxml.jackson.core.JsonProcessingException}.
+ */
+class CrossCoreResponseBodyHandler implements HttpResponse.BodyHandler<String> {
+    private final CrossCoreResponseParser responseParser;
+    private final ObjectMapper objectMapper;
+    private final IdentityCheckMetrics metrics;
+
+    CrossCoreResponseBodyHandler(
+            CrossCoreResponseParser responseParser,
+            ObjectMapper objectMapper,
+            IdentityCheckMetrics metrics) {
+        Objects.requireNonNull(responseParser, "responseParser must not be null");
+        Objects.requireNonNull(objectMapper, "objectMapper must not be null");
+        Objects.requireNonNull(metrics, "metrics must not be null");
+        this.responseParser = responseParser;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+    }
+
+    static boolean isParsed(int statusCode) {
+        return statusCode >= 200 && statusCode < 300;
+    }
+
+    @Override
+    public HttpResponse.BodySubscriber<String> apply(HttpResponse.ResponseInfo responseInfo) {
+        if (!isParsed(responseInfo.statusCode())) {
+            return HttpResponse.BodyHandlers.ofString().apply(responseInfo);
+        }
+        return new DecisionSubscriber();
+    }
+
+    private final class DecisionSubscriber implements HttpResponse.BodySubscriber<String> {
+        private final CompletableFuture<String> body = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+        private CrossCoreResponseParser.DecisionReader reader;
+        private byte[] chunk = new byte[0];
+        private long length;
+
+        @Override
+        public CompletionStage<String> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            try {
+                reader = responseParser.newReader();
+            } catch (IOException e) {
+                subscription.cancel();
+                body.completeExceptionally(e);
+                return;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            if (body.isDone()) {
+                return;
+            }
+            try {
+                for (ByteBuffer buffer : buffers) {
+                    int remaining = buffer.remaining();
+                    if (chunk.length < remaining) {
+                        chunk = new byte[remaining];
+                    }
+                    buffer.get(chunk, 0, remaining);
+                    reader.feed(chunk, 0, remaining);
+                    length += remaining;
+                }
+            } catch (IOException e) {
+                subscription.cancel();
+                fail(e);
+                return;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            fail(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (body.isDone()) {
+                return;
+            }
+            metrics.recordUpstreamResponseBytes(length);
+            try {
+                body.complete(objectMapper.writeValueAsString(reader.finish()));
+            } catch (IOException e) {
+                body.completeExceptionally(e);
+            }
+        }
+
+        private void fail(Throwable throwable) {
+            if (body.isDone()) {
+                return;
+            }
+            metrics.recordUpstreamResponseBytes(length);
+            body.completeExceptionally(throwable);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import uk.gov.di.ipv.cri.experian.domain.IdentityCheckDecision;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Reads the decision, score, match flags and {@code expRequestId} from a CrossCore response token
+ * by token. Everything else in the response is skipped without being bound or kept.
+ *
+ * <p>The response can be fed in chunks as it arrives through a {@link DecisionReader}, which holds
+ * no more than the token being read, so a full CrossCore response is never buffered.
+ */
+public class CrossCoreResponseParser {
+    private final JsonFactory jsonFactory;
+
+    public CrossCoreResponseParser(JsonFactory jsonFactory) {
+        Objects.requireNonNull(jsonFactory, "jsonFactory must not be null");
+        this.jsonFactory = jsonFactory;
+    }
+
+    public IdentityCheckDecision parse(String responseBody) throws IOException {
+        DecisionReader reader = newReader();
+        byte[] bytes = responseBody.getBytes(StandardCharsets.UTF_8);
+        reader.feed(bytes, 0, bytes.length);
+        return reader.finish();
+    }
+
+    public DecisionReader newReader() throws IOException {
+        return new DecisionReader(jsonFactory.createNonBlockingByteArrayParser());
+    }
+
+    // where in the response the reader is, only the contexts holding a wanted field are told apart
+    private enum Context {
+        ROOT,
+        RESPONSE_HEADER,
+        OVERALL_RESPONSE,
+        CLIENT_RESPONSE_PAYLOAD,
+        DECISION_ELEMENTS,
+        DECISION_ELEMENT,
+        MATCHES,
+        MATCH,
+        SKIPPED
+    }
+
+    /** Reads one CrossCore response fed to it in chunks. */
+    public static final class DecisionReader {
+        private final JsonParser parser;
+        private final ByteArrayFeeder feeder;
+        private final Deque<Context> contexts = new ArrayDeque<>();
+        private final DecisionBuilder builder = new DecisionBuilder();
+        private boolean rootRead;
+        private String matchName;
+        private String matchValue;
+
+        private DecisionReader(JsonParser parser) {
+            this.parser = parser;
+            this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        }
+
+        /** Reads the next chunk, {@code bytes} can be reused once this returns. */
+        public void feed(byte[] bytes, int offset, int length) throws IOException {
+            feeder.feedInput(bytes, offset, offset + length);
+            readAvailableTokens();
+        }
+
+        public IdentityCheckDecision finish() throws IOException {
+            try {
+                feeder.endOfInput();
+                readAvailableTokens();
+                if (!rootRead) {
+                    throw new JsonParseException(parser, "CrossCore response is not a JSON object");
+                }
+                return builder.build();
+            } finally {
+                parser.close();
+            }
+        }
+
+        private void readAvailableTokens() throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                if (rootRead) {
+                    // anything after the response object is ignored
+                    continue;
+                }
+                if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                    contexts.push(enter(token));
+                } else if (token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY) {
+                    leave(contexts.pop());
+                } else if (token != JsonToken.FIELD_NAME) {
+                    readValue(token);
+                }
+            }
+        }
+
+        private Context enter(JsonToken token) throws IOException {
+            Context parent = contexts.peek();
+            boolean object = token == JsonToken.START_OBJECT;
+            String fieldName = parser.currentName();
+            if (parent == null) {
+                if (!object) {
+                    throw new JsonParseException(parser, "CrossCore response is not a JSON object");
+                }
+                return Context.ROOT;
+            }
+            switch (parent) {
+                case ROOT:
+                    if (object && "responseHeader".equals(fieldName)) {
+                        return Context.RESPONSE_HEADER;
+                    }
+                    return object && "clientResponsePayload".equals(fieldName)
+                            ? Context.CLIENT_RESPONSE_PAYLOAD
+                            : Context.SKIPPED;
+                case RESPONSE_HEADER:
+                    return object && "overallResponse".equals(fieldName)
+                            ? Context.OVERALL_RESPONSE
+                            : Context.SKIPPED;
+                case CLIENT_RESPONSE_PAYLOAD:
+                    return !object && "decisionElements".equals(fieldName)
+                            ? Context.DECISION_ELEMENTS
+                            : Context.SKIPPED;
+                case DECISION_ELEMENTS:
+                    return object ? Context.DECISION_ELEMENT : Context.SKIPPED;
+                case DECISION_ELEMENT:
+                    return !object && "matches".equals(fieldName)
+                            ? Context.MATCHES
+                            : Context.SKIPPED;
+                case MATCHES:
+                    if (object) {
+                        matchName = null;
+                        matchValue = null;
+                        return Context.MATCH;
+                    }
+                    return Context.SKIPPED;
+                default:
+                    return Context.SKIPPED;
+            }
+        }
+
+        private void leave(Context context) {
+            if (context == Context.ROOT) {
+                rootRead = true;
+            } else if (context == Context.MATCH && matchName != null) {
+                if (builder.matches == null) {
+                    builder.matches = new LinkedHashMap<>();
+                }
+                builder.matches.put(matchName, matchValue);
+            }
+        }
+
+        // the first decision element carrying a score provides it, match flags are merged
+        private void readValue(JsonToken token) throws IOException {
+            Context context = contexts.peek();
+            if (context == null) {
+                throw new JsonParseException(parser, "CrossCore response is not a JSON object");
+            }
+            String fieldName = parser.currentName();
+            switch (context) {
+                case RESPONSE_HEADER:
+                    if (token == JsonToken.VALUE_STRING && "expRequestId".equals(fieldName)) {
+                        builder.expRequestId = parser.getText();
+                    }
+                    break;
+                case OVERALL_RESPONSE:
+                    if (token == JsonToken.VALUE_STRING && "decision".equals(fieldName)) {
+                        builder.decision = parser.getText();
+                    }
+                    break;
+                case DECISION_ELEMENT:
+                    if (token == JsonToken.VALUE_NUMBER_INT
+                            && "score".equals(fieldName)
+                            && builder.score == null) {
+                        builder.score = parser.getIntValue();
+                    }
+                    break;
+                case MATCH:
+                    if ("name".equals(fieldName)) {
+                        matchName = parser.getValueAsString();
+                    } else if ("value".equals(fieldName)) {
+                        matchValue = parser.getValueAsString();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static final class DecisionBuilder {
+        private String expRequestId;
+        private String decision;
+        private Integer score;
+        private Map<String, String> matches;
+
+        private IdentityCheckDecision build() {
+            return new IdentityCheckDecision(expRequestId, decision, score, matches);
+        }
+    }
+}
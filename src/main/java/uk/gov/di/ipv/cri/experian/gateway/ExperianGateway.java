@@ -2,15 +2,27 @@ package uk.gov.di.ipv.cri.experian.gateway;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import uk.gov.di.ipv.cri.experian.config.ExperianApiConfig;
+import uk.gov.di.ipv.cri.experian.domain.IdentityCheckDecision;
+import uk.gov.di.ipv.cri.experian.domain.IdentityCheckResult;
 import uk.gov.di.ipv.cri.experian.domain.PersonIdentity;
 import uk.gov.di.ipv.cri.experian.gateway.dto.CrossCoreApiRequest;
+import uk.gov.di.ipv.cri.experian.metrics.IdentityCheckMetrics;
+import uk.gov.di.ipv.cri.experian.metrics.Stage;
+import uk.gov.di.ipv.cri.experian.metrics.StageRecorder;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
 
 public class ExperianGateway {
 
@@ -19,6 +31,16 @@ public class ExperianGateway {
     private final ObjectMapper objectMapper;
     private final HmacGenerator hmacGenerator;
     private final ExperianApiConfig experianApiConfig;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final HedgingRequestSender hedgingRequestSender;
+    private final IdentityCheckMetrics metrics;
+    private final CrossCoreApiRequestWriter requestWriter;
+    private final CrossCoreRequestTemplate requestTemplate;
+    private final HttpResponse.BodyHandler<String> responseBodyHandler;
+    private final int maxCallsInFlight;
+    private final Semaphore callPermits;
+    private final LongAdder rejectedCallCount = new LongAdder();
 
     public ExperianGateway(
             HttpClient httpClient,
@@ -26,36 +48,452 @@ public class ExperianGateway {
             ObjectMapper objectMapper,
             HmacGenerator hmacGenerator,
             ExperianApiConfig experianApiConfig) {
-        Objects.requireNonNull(httpClient, "httpClient must not be null");
-        Objects.requireNonNull(requestMapper, "requestMapper must not be null");
-        Objects.requireNonNull(objectMapper, "objectMapper must not be null");
-        Objects.requireNonNull(hmacGenerator, "hmacGenerator must not be null");
-        Objects.requireNonNull(experianApiConfig, "crossCoreApiConfig must not be null");
+        this(builder(httpClient, requestMapper, objectMapper, hmacGenerator, experianApiConfig));
+    }
+
+    private ExperianGateway(Builder builder) {
+        Objects.requireNonNull(builder.httpClient, "httpClient must not be null");
+        Objects.requireNonNull(builder.requestMapper, "requestMapper must not be null");
+        Objects.requireNonNull(builder.objectMapper, "objectMapper must not be null");
+        Objects.requireNonNull(builder.hmacGenerator, "hmacGenerator must not be null");
+        Objects.requireNonNull(builder.experianApiConfig, "crossCoreApiConfig must not be null");
+        Objects.requireNonNull(builder.metrics, "metrics must not be null");
+        if (builder.maxCallsInFlight < 0) {
+            throw new IllegalArgumentException("maxCallsInFlight must not be negative");
+        }
 
-        this.httpClient = httpClient;
-        this.requestMapper = requestMapper;
-        this.objectMapper = objectMapper;
-        this.hmacGenerator = hmacGenerator;
-        this.experianApiConfig = experianApiConfig;
+        this.httpClient = builder.httpClient;
+        this.requestMapper = builder.requestMapper;
+        this.objectMapper = builder.objectMapper;
+        this.hmacGenerator = builder.hmacGenerator;
+        this.experianApiConfig = builder.experianApiConfig;
+        this.concurrencyLimiter = builder.concurrencyLimiter;
+        this.circuitBreaker = builder.circuitBreaker;
+        this.hedgingRequestSender = builder.hedgingRequestSender;
+        this.metrics = builder.metrics;
+        this.requestWriter = builder.requestWriter;
+        this.requestTemplate = builder.requestTemplate;
+        this.responseBodyHandler =
+                builder.responseParser == null
+                        ? HttpResponse.BodyHandlers.ofString()
+                        : new CrossCoreResponseBodyHandler(
+                                builder.responseParser, builder.objectMapper, builder.metrics);
+        this.maxCallsInFlight = builder.maxCallsInFlight;
+        this.callPermits =
+                builder.maxCallsInFlight == 0 ? null : new Semaphore(builder.maxCallsInFlight);
+    }
+
+    /**
+     * Starts a gateway with the collaborators it always needs. Everything else is off until it is
+     * set on the builder.
+     */
+    public static Builder builder(
+            HttpClient httpClient,
+            ExperianApiRequestMapper requestMapper,
+            ObjectMapper objectMapper,
+            HmacGenerator hmacGenerator,
+            ExperianApiConfig experianApiConfig) {
+        return new Builder(
+                httpClient, requestMapper, objectMapper, hmacGenerator, experianApiConfig);
     }
 
     public String performIdentityCheck(PersonIdentity personIdentity)
             throws IOException, InterruptedException {
-        CrossCoreApiRequest apiRequest = requestMapper.mapPersonIdentity(personIdentity);
-        String requestBody = objectMapper.writeValueAsString(apiRequest);
-        String requestBodyHmac = hmacGenerator.generateHmac(requestBody);
-        HttpRequest request =
+        return performIdentityCheck(personIdentity, StageRecorder.NONE);
+    }
+
+    public String performIdentityCheck(PersonIdentity personIdentity, StageRecorder requestRecorder)
+            throws IOException, InterruptedException {
+        return checkIdentity(personIdentity, requestRecorder).getBody();
+    }
+
+    /**
+     * Like {@link #performIdentityCheck(PersonIdentity, StageRecorder)}, keeping the CrossCore
+     * status code with the body. Also reports the map, serialize, sign and upstream durations to
+     * {@code requestRecorder}.
+     */
+    public IdentityCheckResult checkIdentity(
+            PersonIdentity personIdentity, StageRecorder requestRecorder)
+            throws IOException, InterruptedException {
+        acquireCallPermit();
+        try {
+            return checkIdentityAdmitted(personIdentity, requestRecorder);
+        } finally {
+            releaseCallPermit();
+        }
+    }
+
+    private IdentityCheckResult checkIdentityAdmitted(
+            PersonIdentity personIdentity, StageRecorder requestRecorder)
+            throws IOException, InterruptedException {
+        StageRecorder stageRecorder = createStageRecorder(requestRecorder);
+        HttpRequest request = createRequest(personIdentity, stageRecorder);
+
+        CircuitBreaker.Permit breakerPermit = acquireCircuitBreakerPermit();
+        AdaptiveConcurrencyLimiter.Permit limiterPermit = null;
+        CallOutcome outcome = CallOutcome.IGNORED;
+        try {
+            if (concurrencyLimiter != null) {
+                limiterPermit = concurrencyLimiter.acquireBlocking();
+            }
+            long startNanos = System.nanoTime();
+            HttpResponse<String> response;
+            try {
+                // the body has been read, and parsed, by the time the response is returned
+                response = send(request);
+            } finally {
+                stageRecorder.recordStage(Stage.UPSTREAM, System.nanoTime() - startNanos);
+            }
+            recordUpstreamResponse(response);
+            outcome = CallOutcome.of(response);
+            return new IdentityCheckResult(response.statusCode(), response.body());
+        } catch (IOException e) {
+            metrics.recordUpstreamError();
+            outcome = CallOutcome.FAILED;
+            throw e;
+        } finally {
+            complete(breakerPermit, limiterPermit, outcome);
+        }
+    }
+
+    public CompletableFuture<String> performIdentityCheckAsync(PersonIdentity personIdentity)
+            throws IOException {
+        return performIdentityCheckAsync(personIdentity, StageRecorder.NONE);
+    }
+
+    public CompletableFuture<String> performIdentityCheckAsync(
+            PersonIdentity personIdentity, StageRecorder requestRecorder) throws IOException {
+        return checkIdentityAsync(personIdentity, requestRecorder)
+                .thenApply(IdentityCheckResult::getBody);
+    }
+
+    public CompletableFuture<IdentityCheckResult> checkIdentityAsync(
+            PersonIdentity personIdentity, StageRecorder requestRecorder) throws IOException {
+        try {
+            acquireCallPermit();
+        } catch (ConcurrencyLimitExceededException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<IdentityCheckResult> result;
+        try {
+            result = checkIdentityAsyncAdmitted(personIdentity, requestRecorder);
+        } catch (IOException | RuntimeException e) {
+            releaseCallPermit();
+            throw e;
+        }
+        // also runs when the caller cancels the result
+        result.whenComplete((value, throwable) -> releaseCallPermit());
+        return result;
+    }
+
+    /** Calls to CrossCore in flight, waiting for a concurrency limiter permit included. */
+    public int getCallsInFlight() {
+        return callPermits == null ? 0 : maxCallsInFlight - callPermits.availablePermits();
+    }
+
+    public long getRejectedCallCount() {
+        return rejectedCallCount.sum();
+    }
+
+    private CompletableFuture<IdentityCheckResult> checkIdentityAsyncAdmitted(
+            PersonIdentity personIdentity, StageRecorder requestRecorder) throws IOException {
+        StageRecorder stageRecorder = createStageRecorder(requestRecorder);
+        HttpRequest request = createRequest(personIdentity, stageRecorder);
+
+        CircuitBreaker.Permit breakerPermit;
+        try {
+            breakerPermit = acquireCircuitBreakerPermit();
+        } catch (CircuitBreakerOpenException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (concurrencyLimiter == null) {
+            return sendAsync(request, stageRecorder, breakerPermit, null);
+        }
+        return concurrencyLimiter
+                .acquire()
+                .whenComplete(
+                        (limiterPermit, throwable) -> {
+                            if (throwable != null) {
+                                complete(breakerPermit, null, CallOutcome.IGNORED);
+                            }
+                        })
+                .thenCompose(
+                        limiterPermit ->
+                                sendAsync(request, stageRecorder, breakerPermit, limiterPermit));
+    }
+
+    /**
+     * Sends a {@code HEAD} request to the CrossCore endpoint for health probes, the same one the
+     * connection pool keeps its connections warm with. It is neither signed nor an identity check,
+     * and it bypasses the circuit breaker, concurrency limiter and hedging, so a probe still
+     * reaches CrossCore while the breaker is open and is left out of the upstream metrics.
+     */
+    public CompletableFuture<HttpResponse<Void>> sendProbe() {
+        HttpRequest.Builder request =
+                HttpRequest.newBuilder(URI.create(experianApiConfig.getEndpointUri()))
+                        .method("HEAD", HttpRequest.BodyPublishers.noBody());
+        Duration requestTimeout = experianApiConfig.getRequestTimeout();
+        if (requestTimeout != null && !requestTimeout.isZero()) {
+            request.timeout(requestTimeout);
+        }
+        return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.discarding());
+    }
+
+    private HttpResponse<String> send(HttpRequest request)
+            throws IOException, InterruptedException {
+        if (hedgingRequestSender == null) {
+            return httpClient.send(request, responseBodyHandler);
+        }
+        CompletableFuture<HttpResponse<String>> response =
+                hedgingRequestSender.send(httpClient, request, responseBodyHandler);
+        try {
+            return response.get();
+        } catch (InterruptedException e) {
+            response.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    // the bound on calls in flight is what keeps the client executor's queue in check, the
+    // executor itself must never reject a task
+    private void acquireCallPermit() {
+        if (callPermits != null && !callPermits.tryAcquire()) {
+            rejectedCallCount.increment();
+            throw new ConcurrencyLimitExceededException();
+        }
+    }
+
+    private void releaseCallPermit() {
+        if (callPermits != null) {
+            callPermits.release();
+        }
+    }
+
+    private CircuitBreaker.Permit acquireCircuitBreakerPermit() {
+        return circuitBreaker == null ? null : circuitBreaker.acquirePermission();
+    }
+
+    private CompletableFuture<IdentityCheckResult> sendAsync(
+            HttpRequest request,
+            StageRecorder stageRecorder,
+            CircuitBreaker.Permit breakerPermit,
+            AdaptiveConcurrencyLimiter.Permit limiterPermit) {
+        CompletableFuture<HttpResponse<String>> response;
+        long startNanos = System.nanoTime();
+        try {
+            response =
+                    hedgingRequestSender == null
+                            ? httpClient.sendAsync(request, responseBodyHandler)
+                            : hedgingRequestSender.send(httpClient, request, responseBodyHandler);
+        } catch (RuntimeException e) {
+            complete(breakerPermit, limiterPermit, CallOutcome.IGNORED);
+            throw e;
+        }
+        // the response completes once its body has been read and parsed, so a body that cannot be
+        // parsed fails the call here just as it does on the synchronous path
+        return response.handle(
+                (httpResponse, throwable) -> {
+                    stageRecorder.recordStage(Stage.UPSTREAM, System.nanoTime() - startNanos);
+                    if (throwable != null) {
+                        metrics.recordUpstreamError();
+                        complete(breakerPermit, limiterPermit, CallOutcome.FAILED);
+                        throw throwable instanceof CompletionException
+                                ? (CompletionException) throwable
+                                : new CompletionException(throwable);
+                    }
+                    recordUpstreamResponse(httpResponse);
+                    complete(breakerPermit, limiterPermit, CallOutcome.of(httpResponse));
+                    return new IdentityCheckResult(httpResponse.statusCode(), httpResponse.body());
+                });
+    }
+
+    // a parsed body is counted by the body handler as it is read, its decision is not
+    private void recordUpstreamResponse(HttpResponse<String> response) {
+        int statusCode = response.statusCode();
+        boolean parsed =
+                responseBodyHandler instanceof CrossCoreResponseBodyHandler
+                        && CrossCoreResponseBodyHandler.isParsed(statusCode);
+        metrics.recordUpstreamResponse(statusCode, parsed ? null : response.body());
+    }
+
+    private static void complete(
+            CircuitBreaker.Permit breakerPermit,
+            AdaptiveConcurrencyLimiter.Permit limiterPermit,
+            CallOutcome outcome) {
+        if (breakerPermit != null) {
+            if (outcome == CallOutcome.SUCCEEDED) {
+                breakerPermit.onSuccess();
+            } else if (outcome == CallOutcome.FAILED) {
+                breakerPermit.onFailure();
+            } else {
+                breakerPermit.onIgnore();
+            }
+        }
+        if (limiterPermit != null) {
+            if (outcome == CallOutcome.SUCCEEDED) {
+                limiterPermit.onSuccess();
+            } else if (outcome == CallOutcome.FAILED) {
+                limiterPermit.onDropped();
+            } else {
+                limiterPermit.onIgnore();
+            }
+        }
+    }
+
+    // the metrics always see every stage, a caller's recorder only when it asked for one
+    private StageRecorder createStageRecorder(StageRecorder requestRecorder) {
+        Objects.requireNonNull(requestRecorder, "requestRecorder must not be null");
+        if (requestRecorder == StageRecorder.NONE) {
+            return metrics;
+        }
+        return (stage, nanos) -> {
+            metrics.recordStage(stage, nanos);
+            requestRecorder.recordStage(stage, nanos);
+        };
+    }
+
+    private HttpRequest createRequest(PersonIdentity personIdentity, StageRecorder stageRecorder)
+            throws IOException {
+        SignedPayload signedRequestBody;
+        if (requestTemplate == null) {
+            long startNanos = System.nanoTime();
+            CrossCoreApiRequest apiRequest = requestMapper.mapPersonIdentity(personIdentity);
+            stageRecorder.recordStage(Stage.MAP, System.nanoTime() - startNanos);
+            signedRequestBody =
+                    hmacGenerator.generateSignedPayload(
+                            outputStream -> serialize(outputStream, apiRequest), stageRecorder);
+        } else {
+            // rendering maps as it serialises, so there is no separate map stage
+            signedRequestBody = requestTemplate.render(personIdentity, stageRecorder);
+        }
+        metrics.recordUpstreamRequest(signedRequestBody.getBody().length);
+        HttpRequest.Builder requestBuilder =
                 HttpRequest.newBuilder()
                         .uri(URI.create(experianApiConfig.getEndpointUri()))
                         .setHeader("Accept", "application/json")
                         .setHeader("Content-Type", "application/json")
-                        .setHeader("hmac-signature", requestBodyHmac)
-                        .POST(HttpRequest.BodyPublishers.ofString(requestBody))
-                        .build();
+                        .setHeader("hmac-signature", signedRequestBody.getHmac())
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(signedRequestBody.getBody()));
+        // every attempt of a call resends this request, so each gets the full timeout
+        Duration requestTimeout = experianApiConfig.getRequestTimeout();
+        if (requestTimeout != null && !requestTimeout.isZero()) {
+            requestBuilder.timeout(requestTimeout);
+        }
+        return requestBuilder.build();
+    }
+
+    private void serialize(OutputStream outputStream, CrossCoreApiRequest apiRequest)
+            throws IOException {
+        if (requestWriter == null) {
+            objectMapper.writeValue(outputStream, apiRequest);
+        } else {
+            requestWriter.write(outputStream, apiRequest);
+        }
+    }
+
+    private enum CallOutcome {
+        SUCCEEDED,
+        FAILED,
+        IGNORED;
+
+        // a 5xx from CrossCore is a sign of upstream trouble, a 4xx is not
+        private static CallOutcome of(HttpResponse<?> response) {
+            return response.statusCode() >= 500 ? FAILED : SUCCEEDED;
+        }
+    }
+
+    public static final class Builder {
+        private final HttpClient httpClient;
+        private final ExperianApiRequestMapper requestMapper;
+        private final ObjectMapper objectMapper;
+        private final HmacGenerator hmacGenerator;
+        private final ExperianApiConfig experianApiConfig;
+        private AdaptiveConcurrencyLimiter concurrencyLimiter;
+        private CircuitBreaker circuitBreaker;
+        private HedgingRequestSender hedgingRequestSender;
+        private IdentityCheckMetrics metrics = new IdentityCheckMetrics();
+        private CrossCoreApiRequestWriter requestWriter;
+        private CrossCoreRequestTemplate requestTemplate;
+        private CrossCoreResponseParser responseParser;
+        private int maxCallsInFlight;
+
+        private Builder(
+                HttpClient httpClient,
+                ExperianApiRequestMapper requestMapper,
+                ObjectMapper objectMapper,
+                HmacGenerator hmacGenerator,
+                ExperianApiConfig experianApiConfig) {
+            this.httpClient = httpClient;
+            this.requestMapper = requestMapper;
+            this.objectMapper = objectMapper;
+            this.hmacGenerator = hmacGenerator;
+            this.experianApiConfig = experianApiConfig;
+        }
+
+        public Builder concurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+            this.concurrencyLimiter = concurrencyLimiter;
+            return this;
+        }
+
+        public Builder circuitBreaker(CircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+            return this;
+        }
+
+        public Builder hedgingRequestSender(HedgingRequestSender hedgingRequestSender) {
+            this.hedgingRequestSender = hedgingRequestSender;
+            return this;
+        }
+
+        public Builder metrics(IdentityCheckMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /** Without a {@code requestWriter} requests are serialised by {@code objectMapper}. */
+        public Builder requestWriter(CrossCoreApiRequestWriter requestWriter) {
+            this.requestWriter = requestWriter;
+            return this;
+        }
+
+        /**
+         * With a {@code requestTemplate} request bodies are rendered by it, and {@code
+         * requestMapper} and {@code requestWriter} are not used.
+         */
+        public Builder requestTemplate(CrossCoreRequestTemplate requestTemplate) {
+            this.requestTemplate = requestTemplate;
+            return this;
+        }
+
+        /**
+         * With a {@code responseParser} successful CrossCore responses are returned as a serialised
+         * {@link IdentityCheckDecision}, without one the response body is passed through as it is.
+         */
+        public Builder responseParser(CrossCoreResponseParser responseParser) {
+            this.responseParser = responseParser;
+            return this;
+        }
 
-        HttpResponse<String> response =
-                httpClient.send(request, java.net.http.HttpResponse.BodyHandlers.ofString());
+        /**
+         * Refuses a call with {@link ConcurrencyLimitExceededException} once this many are in
+         * flight, before it reaches the HTTP client. 0, the default, leaves calls unbounded.
+         */
+        public Builder maxCallsInFlight(int maxCallsInFlight) {
+            this.maxCallsInFlight = maxCallsInFlight;
+            return this;
+        }
 
-        return response.body();
+        public ExperianGateway build() {
+            return new ExperianGateway(this);
+        }
     }
 }
@@ -0,0 +1,21 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+/**
+ * Thrown when a CrossCore call is refused locally, before any request is sent, because the gateway
+ * is protecting itself or the upstream service. Callers should answer with a 503. The stack trace
+ * is not filled in, so rejecting a request stays cheap under load.
+ */
+public class GatewayUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final String errorCode;
+
+    public GatewayUnavailableException(String errorCode, String message) {
+        super(message, null, false, false);
+        this.errorCode = errorCode;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+}
@@ -0,0 +1,256 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends one CrossCore request with up to {@code maxAttempts} attempts. A hedge is sent when the
+ * first attempt has not answered within the tracked latency percentile, and a retry is sent after a
+ * transient failure when no other attempt is still in flight. Every extra attempt is paid for from
+ * the {@link RetryBudget}.
+ *
+ * <p>All attempts resend the same signed {@link HttpRequest}, so they share the {@code
+ * clientReferenceId}, {@code messageTime} and {@code hmac-signature} of the original request and
+ * CrossCore sees them as the same check.
+ */
+public class HedgingRequestSender {
+    private static final int LATENCY_WINDOW_SIZE = 1000;
+    private static final int LATENCY_MIN_SAMPLES = 100;
+    private static final int LATENCY_RECOMPUTE_INTERVAL = 50;
+    private final boolean hedgingEnabled;
+    private final long minHedgeDelayNanos;
+    private final int maxAttempts;
+    private final long retryBackoffNanos;
+    private final RetryBudget retryBudget;
+    private final LatencyPercentileTracker latencyTracker;
+    private final LongAdder hedgeCount = new LongAdder();
+    private final LongAdder retryCount = new LongAdder();
+
+    public HedgingRequestSender(
+            boolean hedgingEnabled,
+            double hedgePercentile,
+            Duration minHedgeDelay,
+            int maxAttempts,
+            Duration retryBackoff,
+            RetryBudget retryBudget) {
+        this(
+                hedgingEnabled,
+                minHedgeDelay,
+                maxAttempts,
+                retryBackoff,
+                retryBudget,
+                new LatencyPercentileTracker(
+                        hedgePercentile,
+                        LATENCY_WINDOW_SIZE,
+                        LATENCY_MIN_SAMPLES,
+                        LATENCY_RECOMPUTE_INTERVAL));
+    }
+
+    HedgingRequestSender(
+            boolean hedgingEnabled,
+            Duration minHedgeDelay,
+            int maxAttempts,
+            Duration retryBackoff,
+            RetryBudget retryBudget,
+            LatencyPercentileTracker latencyTracker) {
+        Objects.requireNonNull(minHedgeDelay, "minHedgeDelay must not be null");
+        Objects.requireNonNull(retryBackoff, "retryBackoff must not be null");
+        Objects.requireNonNull(retryBudget, "retryBudget must not be null");
+        Objects.requireNonNull(latencyTracker, "latencyTracker must not be null");
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this.hedgingEnabled = hedgingEnabled;
+        this.minHedgeDelayNanos = minHedgeDelay.toNanos();
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffNanos = retryBackoff.toNanos();
+        this.retryBudget = retryBudget;
+        this.latencyTracker = latencyTracker;
+    }
+
+    public CompletableFuture<HttpResponse<String>> send(
+            HttpClient httpClient, HttpRequest request) {
+        return send(httpClient, request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    public <T> CompletableFuture<HttpResponse<T>> send(
+            HttpClient httpClient, HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        Objects.requireNonNull(httpClient, "httpClient must not be null");
+        Objects.requireNonNull(request, "request must not be null");
+        Objects.requireNonNull(bodyHandler, "bodyHandler must not be null");
+        retryBudget.deposit();
+        Call<T> call = new Call<>(httpClient, request, bodyHandler);
+        call.startAttempt();
+        long hedgeDelayNanos = getHedgeDelayNanos();
+        if (hedgeDelayNanos > 0 && maxAttempts > 1) {
+            CompletableFuture.delayedExecutor(hedgeDelayNanos, TimeUnit.NANOSECONDS)
+                    .execute(call::hedge);
+        }
+        return call.result;
+    }
+
+    /** The current hedge delay, or 0 while hedging is disabled or the latency is not known yet. */
+    public long getHedgeDelayNanos() {
+        if (!hedgingEnabled) {
+            return 0;
+        }
+        long percentileNanos = latencyTracker.getPercentileNanos();
+        return percentileNanos < 0 ? 0 : Math.max(minHedgeDelayNanos, percentileNanos);
+    }
+
+    public long getHedgeCount() {
+        return hedgeCount.sum();
+    }
+
+    public long getRetryCount() {
+        return retryCount.sum();
+    }
+
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+
+    // connection failures and gateway errors are worth another attempt, anything else is final,
+    // including a response whose body could not be parsed
+    private static boolean isTransient(HttpResponse<?> response, Throwable throwable) {
+        if (throwable != null) {
+            Throwable cause = unwrap(throwable);
+            return cause instanceof IOException && !(cause instanceof JsonProcessingException);
+        }
+        int statusCode = response.statusCode();
+        return statusCode == 502 || statusCode == 503 || statusCode == 504;
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause()
+                : throwable;
+    }
+
+    private final class Call<T> {
+        private final HttpClient httpClient;
+        private final HttpRequest request;
+        private final HttpResponse.BodyHandler<T> bodyHandler;
+        private final CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        private final Queue<CompletableFuture<HttpResponse<T>>> attempts =
+                new ConcurrentLinkedQueue<>();
+        private final AtomicInteger startedAttempts = new AtomicInteger();
+        private final AtomicInteger pendingAttempts = new AtomicInteger();
+
+        private Call(
+                HttpClient httpClient,
+                HttpRequest request,
+                HttpResponse.BodyHandler<T> bodyHandler) {
+            this.httpClient = httpClient;
+            this.request = request;
+            this.bodyHandler = bodyHandler;
+            // the first usable response wins, the attempts still in flight are abandoned
+            this.result.whenComplete(
+                    (response, throwable) -> attempts.forEach(attempt -> attempt.cancel(true)));
+        }
+
+        private boolean tryReserveAttempt() {
+            int started;
+            do {
+                started = startedAttempts.get();
+                if (started >= maxAttempts) {
+                    return false;
+                }
+            } while (!startedAttempts.compareAndSet(started, started + 1));
+            return true;
+        }
+
+        private void startAttempt() {
+            startedAttempts.incrementAndGet();
+            send();
+        }
+
+        private void hedge() {
+            if (!result.isDone() && tryReserveAttempt()) {
+                if (retryBudget.tryWithdraw()) {
+                    hedgeCount.increment();
+                    send();
+                } else {
+                    startedAttempts.decrementAndGet();
+                }
+            }
+        }
+
+        private void send() {
+            pendingAttempts.incrementAndGet();
+            long startNanos = System.nanoTime();
+            CompletableFuture<HttpResponse<T>> attempt;
+            try {
+                attempt = httpClient.sendAsync(request, bodyHandler);
+            } catch (RuntimeException e) {
+                pendingAttempts.decrementAndGet();
+                result.completeExceptionally(e);
+                return;
+            }
+            attempts.add(attempt);
+            if (result.isDone()) {
+                attempt.cancel(true);
+            }
+            attempt.whenComplete(
+                    (response, throwable) -> onAttemptComplete(startNanos, response, throwable));
+        }
+
+        private void onAttemptComplete(
+                long startNanos, HttpResponse<T> response, Throwable throwable) {
+            boolean lastPending = pendingAttempts.decrementAndGet() == 0;
+            if (result.isDone()) {
+                return;
+            }
+            if (!isTransient(response, throwable)) {
+                // only a real response is a latency sample, any other failure fails the call
+                if (throwable == null) {
+                    latencyTracker.record(System.nanoTime() - startNanos);
+                    result.complete(response);
+                } else {
+                    result.completeExceptionally(unwrap(throwable));
+                }
+                return;
+            }
+            if (!lastPending) {
+                // a hedge is still in flight and may yet succeed
+                return;
+            }
+            if (tryReserveAttempt()) {
+                if (retryBudget.tryWithdraw()) {
+                    retryCount.increment();
+                    pendingAttempts.incrementAndGet();
+                    CompletableFuture.delayedExecutor(retryBackoffNanos, TimeUnit.NANOSECONDS)
+                            .execute(this::retry);
+                    return;
+                }
+                startedAttempts.decrementAndGet();
+            }
+            if (throwable == null) {
+                result.complete(response);
+            } else {
+                result.completeExceptionally(unwrap(throwable));
+            }
+        }
+
+        private void retry() {
+            // the retry was counted as pending when it was scheduled
+            pendingAttempts.decrementAndGet();
+            if (!result.isDone()) {
+                send();
+            }
+        }
+    }
+}
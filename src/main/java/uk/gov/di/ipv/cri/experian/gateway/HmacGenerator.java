@@ -1,26 +1,224 @@
 package uk.gov.di.ipv.cri.experian.gateway;
 
+import uk.gov.di.ipv.cri.experian.concurrent.ThreadAwarePool;
+import uk.gov.di.ipv.cri.experian.metrics.Stage;
+import uk.gov.di.ipv.cri.experian.metrics.StageRecorder;
+
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Objects;
 
 public class HmacGenerator {
 
     private static final String HMAC_ALGORITHM = "HmacSHA256";
-    private final Mac sha256Hmac;
+    private static final int INITIAL_PAYLOAD_BUFFER_SIZE = 4096;
+    private static final int MAX_RETAINED_PAYLOAD_BUFFER_SIZE = 64 * 1024;
+    private final SecretKeySpec secretKey;
+    private final Mac prototypeMac;
+    private static final int MAX_POOLED_INSTANCES = Runtime.getRuntime().availableProcessors() * 2;
+    private final ThreadAwarePool<Mac> macPool;
+    private final ThreadAwarePool<HmacOutputStream> outputStreamPool;
 
     public HmacGenerator(String hmacKey) throws NoSuchAlgorithmException, InvalidKeyException {
-        this.sha256Hmac = Mac.getInstance(HMAC_ALGORITHM);
-        SecretKeySpec secretKey = new SecretKeySpec(hmacKey.getBytes(), HMAC_ALGORITHM);
-        this.sha256Hmac.init(secretKey);
+        this.secretKey =
+                new SecretKeySpec(hmacKey.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        this.prototypeMac = Mac.getInstance(HMAC_ALGORITHM);
+        this.prototypeMac.init(secretKey);
+        this.macPool = new ThreadAwarePool<>(this::createMac, MAX_POOLED_INSTANCES);
+        this.outputStreamPool =
+                new ThreadAwarePool<>(
+                        () -> new HmacOutputStream(createMac()), MAX_POOLED_INSTANCES);
     }
 
     String generateHmac(String input) {
         Objects.requireNonNull(input, "The input must not be null");
-        return Base64.getEncoder().encodeToString(sha256Hmac.doFinal(input.getBytes()));
+        return generateHmac(input.getBytes(StandardCharsets.UTF_8));
+    }
+
+    String generateHmac(byte[] input) {
+        Objects.requireNonNull(input, "The input must not be null");
+        Mac mac = macPool.acquire();
+        try {
+            return encode(mac.doFinal(input));
+        } finally {
+            macPool.release(mac);
+        }
+    }
+
+    String generateHmac(ByteBuffer input) {
+        Objects.requireNonNull(input, "The input must not be null");
+        Mac mac = macPool.acquire();
+        try {
+            mac.update(input);
+            return encode(mac.doFinal());
+        } finally {
+            macPool.release(mac);
+        }
+    }
+
+    SignedPayload generateSignedPayload(PayloadWriter payloadWriter) throws IOException {
+        return generateSignedPayload(payloadWriter, StageRecorder.NONE);
+    }
+
+    /**
+     * Records the time spent writing the payload as {@link Stage#SERIALIZE}, which includes the
+     * digest updates made as it is written, and the time to finish the HMAC as {@link Stage#SIGN}.
+     */
+    SignedPayload generateSignedPayload(PayloadWriter payloadWriter, StageRecorder stageRecorder)
+            throws IOException {
+        return generateSignedPayload(null, payloadWriter, stageRecorder);
+    }
+
+    /**
+     * Digests a payload prefix that never changes once, so payloads starting with it can be signed
+     * without digesting it again.
+     */
+    PayloadPrefix precomputePrefix(byte[] prefix) {
+        Objects.requireNonNull(prefix, "The prefix must not be null");
+        Mac mac = createMac();
+        mac.update(prefix);
+        return new PayloadPrefix(prefix.clone(), mac);
+    }
+
+    /**
+     * Signs {@code prefix} followed by what {@code payloadWriter} writes, resuming the HMAC from
+     * the state after the prefix.
+     */
+    SignedPayload generateSignedPayload(
+            PayloadPrefix prefix, PayloadWriter payloadWriter, StageRecorder stageRecorder)
+            throws IOException {
+        Objects.requireNonNull(payloadWriter, "The payloadWriter must not be null");
+        HmacOutputStream outputStream = outputStreamPool.acquire();
+        try {
+            outputStream.reset(prefix);
+            long startNanos = System.nanoTime();
+            payloadWriter.writeTo(outputStream);
+            long writtenNanos = System.nanoTime();
+            stageRecorder.recordStage(Stage.SERIALIZE, writtenNanos - startNanos);
+            SignedPayload signedPayload =
+                    new SignedPayload(outputStream.toByteArray(), encode(outputStream.doFinal()));
+            stageRecorder.recordStage(Stage.SIGN, System.nanoTime() - writtenNanos);
+            return signedPayload;
+        } finally {
+            outputStreamPool.release(outputStream);
+        }
+    }
+
+    private static String encode(byte[] hmac) {
+        return Base64.getEncoder().encodeToString(hmac);
+    }
+
+    private Mac createMac() {
+        try {
+            return (Mac) prototypeMac.clone();
+        } catch (CloneNotSupportedException e) {
+            return initialiseMac();
+        }
+    }
+
+    private Mac initialiseMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(secretKey);
+            return mac;
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            // the same algorithm and key were accepted when the prototype was created
+            throw new IllegalStateException("Unable to initialise " + HMAC_ALGORITHM, e);
+        }
+    }
+
+    @FunctionalInterface
+    interface PayloadWriter {
+        void writeTo(OutputStream outputStream) throws IOException;
+    }
+
+    final class PayloadPrefix {
+        private final byte[] bytes;
+        private final Mac mac;
+
+        private PayloadPrefix(byte[] bytes, Mac mac) {
+            this.bytes = bytes;
+            this.mac = mac;
+        }
+
+        // the shared state is only read by clone, never updated
+        private Mac resumeMac() {
+            try {
+                return (Mac) mac.clone();
+            } catch (CloneNotSupportedException e) {
+                Mac resumed = initialiseMac();
+                resumed.update(bytes);
+                return resumed;
+            }
+        }
+    }
+
+    /**
+     * Buffers the payload and feeds every chunk to the {@link Mac} as it is written, so the bytes
+     * are only encoded once. Instances are reused through a {@link ThreadAwarePool}.
+     */
+    private static class HmacOutputStream extends OutputStream {
+        private Mac mac;
+        private byte[] buffer = new byte[INITIAL_PAYLOAD_BUFFER_SIZE];
+        private int count;
+
+        private HmacOutputStream(Mac mac) {
+            this.mac = mac;
+        }
+
+        // a resumed Mac still holds the key, so resetting it later starts a new HMAC as usual
+        private void reset(PayloadPrefix prefix) {
+            if (buffer.length > MAX_RETAINED_PAYLOAD_BUFFER_SIZE) {
+                buffer = new byte[INITIAL_PAYLOAD_BUFFER_SIZE];
+            }
+            if (prefix == null) {
+                count = 0;
+                mac.reset();
+                return;
+            }
+            ensureCapacity(prefix.bytes.length);
+            System.arraycopy(prefix.bytes, 0, buffer, 0, prefix.bytes.length);
+            count = prefix.bytes.length;
+            mac = prefix.resumeMac();
+        }
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(count + 1);
+            buffer[count++] = (byte) b;
+            mac.update((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            Objects.checkFromIndexSize(off, len, b.length);
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+            mac.update(b, off, len);
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, count);
+        }
+
+        private byte[] doFinal() {
+            return mac.doFinal();
+        }
+
+        private void ensureCapacity(int minCapacity) {
+            if (minCapacity > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, minCapacity));
+            }
+        }
     }
 }
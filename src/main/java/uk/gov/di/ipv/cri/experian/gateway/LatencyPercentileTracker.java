@@ -0,0 +1,55 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the most recent upstream latencies in a ring buffer and periodically recomputes one
+ * percentile of them, so reading the current value is a single volatile read.
+ */
+class LatencyPercentileTracker {
+    private static final long UNKNOWN = -1;
+    private final double percentile;
+    private final int minSamples;
+    private final int recomputeInterval;
+    private final long[] samples;
+    private final ReentrantLock lock = new ReentrantLock();
+    private int nextIndex;
+    private int sampleCount;
+    private int recordsSinceRecompute;
+    private volatile long percentileNanos = UNKNOWN;
+
+    LatencyPercentileTracker(
+            double percentile, int windowSize, int minSamples, int recomputeInterval) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be in (0, 100]");
+        }
+        this.percentile = percentile;
+        this.samples = new long[windowSize];
+        this.minSamples = minSamples;
+        this.recomputeInterval = recomputeInterval;
+    }
+
+    void record(long latencyNanos) {
+        lock.lock();
+        try {
+            samples[nextIndex] = latencyNanos;
+            nextIndex = (nextIndex + 1) % samples.length;
+            sampleCount = Math.min(samples.length, sampleCount + 1);
+            if (sampleCount >= minSamples && ++recordsSinceRecompute >= recomputeInterval) {
+                recordsSinceRecompute = 0;
+                long[] sorted = Arrays.copyOf(samples, sampleCount);
+                Arrays.sort(sorted);
+                int rank = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+                percentileNanos = sorted[Math.max(0, rank)];
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** The latest percentile, or -1 until enough samples have been recorded. */
+    long getPercentileNanos() {
+        return percentileNanos;
+    }
+}
@@ -0,0 +1,312 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+
+import java.io.IOException;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.ProxySelector;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Spreads CrossCore requests over several {@link HttpClient}s, each holding its own HTTP/2
+ * connection to CrossCore, and keeps those connections open. The JDK client multiplexes all
+ * requests to one origin over a single HTTP/2 connection, so a pool of clients is what gives more
+ * than one connection. Each request goes to the client with the fewest streams in flight.
+ *
+ * <p>{@link #start()} sends a warm-up request on every connection, so the first identity checks do
+ * not pay for the TCP and TLS handshakes, and then warms again every connection that has been idle
+ * for the keep-warm interval. Any response to a warm-up request counts, as only the connection
+ * matters.
+ */
+public class PooledHttpClient extends HttpClient implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PooledHttpClient.class);
+    private final List<Connection> connections = new ArrayList<>();
+    private final HttpRequest warmUpRequest;
+    private final long keepWarmIntervalNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger nextConnection = new AtomicInteger();
+    private final LongAdder warmUpCount = new LongAdder();
+    private final LongAdder warmUpFailureCount = new LongAdder();
+    private ScheduledExecutorService keepWarmScheduler;
+
+    public PooledHttpClient(
+            List<HttpClient> clients, HttpRequest warmUpRequest, Duration keepWarmInterval) {
+        this(clients, warmUpRequest, keepWarmInterval, System::nanoTime);
+    }
+
+    PooledHttpClient(
+            List<HttpClient> clients,
+            HttpRequest warmUpRequest,
+            Duration keepWarmInterval,
+            LongSupplier nanoClock) {
+        Objects.requireNonNull(clients, "clients must not be null");
+        Objects.requireNonNull(warmUpRequest, "warmUpRequest must not be null");
+        Objects.requireNonNull(keepWarmInterval, "keepWarmInterval must not be null");
+        Objects.requireNonNull(nanoClock, "nanoClock must not be null");
+        if (clients.isEmpty()) {
+            throw new IllegalArgumentException("clients must not be empty");
+        }
+        if (keepWarmInterval.isNegative() || keepWarmInterval.isZero()) {
+            throw new IllegalArgumentException("keepWarmInterval must be positive");
+        }
+        this.warmUpRequest = warmUpRequest;
+        this.keepWarmIntervalNanos = keepWarmInterval.toNanos();
+        this.nanoClock = nanoClock;
+        for (HttpClient client : clients) {
+            connections.add(new Connection(Objects.requireNonNull(client, "client")));
+        }
+    }
+
+    /** Warms every connection and schedules keeping them warm on a daemon thread. */
+    public synchronized void start() {
+        if (keepWarmScheduler != null) {
+            return;
+        }
+        keepWarmScheduler =
+                Executors.newSingleThreadScheduledExecutor(
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "crosscore-keep-warm");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        warmUp();
+        long checkIntervalNanos = Math.max(keepWarmIntervalNanos / 2, 1);
+        keepWarmScheduler.scheduleWithFixedDelay(
+                this::keepWarm, checkIntervalNanos, checkIntervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (keepWarmScheduler != null) {
+            keepWarmScheduler.shutdownNow();
+        }
+    }
+
+    /** Sends a warm-up request on every connection. */
+    public CompletableFuture<Void> warmUp() {
+        CompletableFuture<?>[] warmUps = new CompletableFuture<?>[connections.size()];
+        for (int i = 0; i < warmUps.length; i++) {
+            warmUps[i] = connections.get(i).warmUp();
+        }
+        return CompletableFuture.allOf(warmUps);
+    }
+
+    /** Sends a warm-up request on every connection idle for longer than the keep-warm interval. */
+    public void keepWarm() {
+        long now = nanoClock.getAsLong();
+        for (Connection connection : connections) {
+            if (connection.inFlight.get() == 0
+                    && now - connection.lastUsedNanos >= keepWarmIntervalNanos) {
+                connection.warmUp();
+            }
+        }
+    }
+
+    public int getSize() {
+        return connections.size();
+    }
+
+    /** Connections that answered a request or warm-up within the keep-warm interval. */
+    public int getWarmConnections() {
+        long now = nanoClock.getAsLong();
+        int warm = 0;
+        for (Connection connection : connections) {
+            if (connection.answered && now - connection.lastUsedNanos < keepWarmIntervalNanos) {
+                warm++;
+            }
+        }
+        return warm;
+    }
+
+    public int getStreamsInFlight() {
+        int inFlight = 0;
+        for (Connection connection : connections) {
+            inFlight += connection.inFlight.get();
+        }
+        return inFlight;
+    }
+
+    public int getMaxStreamsInFlightPerConnection() {
+        int max = 0;
+        for (Connection connection : connections) {
+            max = Math.max(max, connection.inFlight.get());
+        }
+        return max;
+    }
+
+    public long getWarmUpCount() {
+        return warmUpCount.sum();
+    }
+
+    public long getWarmUpFailureCount() {
+        return warmUpFailureCount.sum();
+    }
+
+    @Override
+    public <T> HttpResponse<T> send(
+            HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler)
+            throws IOException, InterruptedException {
+        Connection connection = acquire();
+        boolean answered = false;
+        try {
+            HttpResponse<T> response = connection.client.send(request, responseBodyHandler);
+            answered = true;
+            return response;
+        } finally {
+            connection.release(answered);
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(
+            HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) {
+        return sendAsync(request, responseBodyHandler, null);
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(
+            HttpRequest request,
+            HttpResponse.BodyHandler<T> responseBodyHandler,
+            HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+        Connection connection = acquire();
+        CompletableFuture<HttpResponse<T>> response;
+        try {
+            response =
+                    connection.client.sendAsync(request, responseBodyHandler, pushPromiseHandler);
+        } catch (RuntimeException e) {
+            connection.release(false);
+            throw e;
+        }
+        // the client's own future is returned, so cancelling it still reaches the client
+        response.whenComplete((result, throwable) -> connection.release(throwable == null));
+        return response;
+    }
+
+    // the connection with the fewest streams in flight, starting the search at a rotating index so
+    // that ties are spread evenly
+    private Connection acquire() {
+        int size = connections.size();
+        int start = Math.floorMod(nextConnection.getAndIncrement(), size);
+        Connection selected = connections.get(start);
+        for (int i = 1; i < size && selected.inFlight.get() > 0; i++) {
+            Connection candidate = connections.get((start + i) % size);
+            if (candidate.inFlight.get() < selected.inFlight.get()) {
+                selected = candidate;
+            }
+        }
+        selected.inFlight.incrementAndGet();
+        return selected;
+    }
+
+    @Override
+    public Optional<CookieHandler> cookieHandler() {
+        return firstClient().cookieHandler();
+    }
+
+    @Override
+    public Optional<Duration> connectTimeout() {
+        return firstClient().connectTimeout();
+    }
+
+    @Override
+    public Redirect followRedirects() {
+        return firstClient().followRedirects();
+    }
+
+    @Override
+    public Optional<ProxySelector> proxy() {
+        return firstClient().proxy();
+    }
+
+    @Override
+    public SSLContext sslContext() {
+        return firstClient().sslContext();
+    }
+
+    @Override
+    public SSLParameters sslParameters() {
+        return firstClient().sslParameters();
+    }
+
+    @Override
+    public Optional<Authenticator> authenticator() {
+        return firstClient().authenticator();
+    }
+
+    @Override
+    public Version version() {
+        return firstClient().version();
+    }
+
+    @Override
+    public Optional<Executor> executor() {
+        return firstClient().executor();
+    }
+
+    private HttpClient firstClient() {
+        return connections.get(0).client;
+    }
+
+    private class Connection {
+        private final HttpClient client;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile long lastUsedNanos = nanoClock.getAsLong();
+        private volatile boolean answered;
+
+        private Connection(HttpClient client) {
+            this.client = client;
+        }
+
+        private void release(boolean answered) {
+            if (answered) {
+                this.lastUsedNanos = nanoClock.getAsLong();
+                this.answered = true;
+            }
+            inFlight.decrementAndGet();
+        }
+
+        private CompletableFuture<?> warmUp() {
+            warmUpCount.increment();
+            inFlight.incrementAndGet();
+            CompletableFuture<HttpResponse<Void>> response;
+            try {
+                response = client.sendAsync(warmUpRequest, HttpResponse.BodyHandlers.discarding());
+            } catch (RuntimeException e) {
+                response = CompletableFuture.failedFuture(e);
+            }
+            return response.handle(
+                    (result, throwable) -> {
+                        if (throwable != null) {
+                            warmUpFailureCount.increment();
+                            this.answered = false;
+                            LOGGER.warn(
+                                    "Could not warm a connection to {}: {}",
+                                    warmUpRequest.uri(),
+                                    throwable.toString());
+                        }
+                        release(throwable == null);
+                        return null;
+                    });
+        }
+    }
+}
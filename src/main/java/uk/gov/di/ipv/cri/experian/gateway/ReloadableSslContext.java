@@ -0,0 +1,260 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedKeyManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A client {@link SSLContext} built in memory from a PKCS12 key store, with a bounded session cache
+ * so that new connections to CrossCore resume a cached session instead of a full handshake.
+ *
+ * <p>The context keeps one key manager, which delegates to the key managers of the current key
+ * store. {@link #reload()} reads the key store again and swaps them when it has changed, so a
+ * rotated client certificate is used without a restart or a new context. Cached sessions are
+ * dropped on a swap, as they were authenticated with the previous certificate.
+ *
+ * <p>The server only asks for the client certificate during a full handshake, so the handshakes
+ * that select a client certificate are counted as full handshakes, and resumed ones are not.
+ */
+public class ReloadableSslContext implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReloadableSslContext.class);
+    private final KeyStoreSource keyStoreSource;
+    private final char[] password;
+    private final SwitchingKeyManager keyManager;
+    private final SSLContext sslContext;
+    private final LongAdder reloadCount = new LongAdder();
+    private final LongAdder reloadFailureCount = new LongAdder();
+    private byte[] keyStoreBytes;
+    private ScheduledExecutorService reloadScheduler;
+
+    /** Reads the PKCS12 key store; called again on every reload. */
+    @FunctionalInterface
+    public interface KeyStoreSource {
+        byte[] read() throws IOException;
+    }
+
+    public ReloadableSslContext(
+            KeyStoreSource keyStoreSource,
+            String password,
+            int sessionCacheSize,
+            Duration sessionTimeout)
+            throws IOException, GeneralSecurityException {
+        this(keyStoreSource, password, sessionCacheSize, sessionTimeout, null);
+    }
+
+    ReloadableSslContext(
+            KeyStoreSource keyStoreSource,
+            String password,
+            int sessionCacheSize,
+            Duration sessionTimeout,
+            TrustManager[] trustManagers)
+            throws IOException, GeneralSecurityException {
+        Objects.requireNonNull(keyStoreSource, "keyStoreSource must not be null");
+        Objects.requireNonNull(password, "password must not be null");
+        Objects.requireNonNull(sessionTimeout, "sessionTimeout must not be null");
+        this.keyStoreSource = keyStoreSource;
+        this.password = password.toCharArray();
+        this.keyStoreBytes = keyStoreSource.read();
+        this.keyManager = new SwitchingKeyManager(createKeyManager(keyStoreBytes));
+        this.sslContext = SSLContext.getInstance("TLS");
+        this.sslContext.init(new KeyManager[] {keyManager}, trustManagers, null);
+        SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+        sessionContext.setSessionCacheSize(sessionCacheSize);
+        sessionContext.setSessionTimeout((int) sessionTimeout.toSeconds());
+    }
+
+    public SSLContext getSslContext() {
+        return sslContext;
+    }
+
+    /**
+     * Reads the key store again and switches to it if it has changed.
+     *
+     * @return whether the key store had changed
+     */
+    public synchronized boolean reload() throws IOException, GeneralSecurityException {
+        byte[] currentBytes = keyStoreSource.read();
+        if (Arrays.equals(currentBytes, keyStoreBytes)) {
+            return false;
+        }
+        keyManager.delegate = createKeyManager(currentBytes);
+        keyStoreBytes = currentBytes;
+        invalidateSessions();
+        reloadCount.increment();
+        return true;
+    }
+
+    /** Reloads the key store on a daemon thread at the given interval. */
+    public synchronized void startReloading(Duration interval) {
+        Objects.requireNonNull(interval, "interval must not be null");
+        if (reloadScheduler != null) {
+            return;
+        }
+        reloadScheduler =
+                Executors.newSingleThreadScheduledExecutor(
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "keystore-reload");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        reloadScheduler.scheduleWithFixedDelay(
+                this::reloadQuietly,
+                interval.toMillis(),
+                interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (reloadScheduler != null) {
+            reloadScheduler.shutdownNow();
+        }
+    }
+
+    public long getFullHandshakeCount() {
+        return keyManager.fullHandshakes.sum();
+    }
+
+    public int getCachedSessionCount() {
+        return Collections.list(sslContext.getClientSessionContext().getIds()).size();
+    }
+
+    public long getReloadCount() {
+        return reloadCount.sum();
+    }
+
+    public long getReloadFailureCount() {
+        return reloadFailureCount.sum();
+    }
+
+    private void reloadQuietly() {
+        try {
+            if (reload()) {
+                LOGGER.info("Reloaded the CrossCore client key store");
+            }
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            reloadFailureCount.increment();
+            LOGGER.warn(
+                    "Could not reload the CrossCore client key store, keeping the current one", e);
+        }
+    }
+
+    private void invalidateSessions() {
+        SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+        for (byte[] id : Collections.list(sessionContext.getIds())) {
+            SSLSession session = sessionContext.getSession(id);
+            if (session != null) {
+                session.invalidate();
+            }
+        }
+    }
+
+    private X509ExtendedKeyManager createKeyManager(byte[] bytes)
+            throws IOException, GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(new ByteArrayInputStream(bytes), password);
+        KeyManagerFactory keyManagerFactory =
+                KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, password);
+        for (KeyManager candidate : keyManagerFactory.getKeyManagers()) {
+            if (candidate instanceof X509ExtendedKeyManager) {
+                return (X509ExtendedKeyManager) candidate;
+            }
+        }
+        throw new GeneralSecurityException("No X509 key manager for the key store");
+    }
+
+    private static class SwitchingKeyManager extends X509ExtendedKeyManager {
+        private final LongAdder fullHandshakes = new LongAdder();
+        // the JDK may ask once per key type during one handshake
+        private final Map<SSLSession, Boolean> countedHandshakes =
+                Collections.synchronizedMap(new WeakHashMap<>());
+        private volatile X509ExtendedKeyManager delegate;
+
+        private SwitchingKeyManager(X509ExtendedKeyManager delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String[] getClientAliases(String keyType, Principal[] issuers) {
+            return delegate.getClientAliases(keyType, issuers);
+        }
+
+        @Override
+        public String chooseClientAlias(String[] keyType, Principal[] issuers, Socket socket) {
+            countHandshake(
+                    socket instanceof SSLSocket
+                            ? ((SSLSocket) socket).getHandshakeSession()
+                            : null);
+            return delegate.chooseClientAlias(keyType, issuers, socket);
+        }
+
+        @Override
+        public String chooseEngineClientAlias(
+                String[] keyType, Principal[] issuers, SSLEngine engine) {
+            countHandshake(engine == null ? null : engine.getHandshakeSession());
+            return delegate.chooseEngineClientAlias(keyType, issuers, engine);
+        }
+
+        private void countHandshake(SSLSession handshakeSession) {
+            if (handshakeSession == null
+                    || countedHandshakes.put(handshakeSession, Boolean.TRUE) == null) {
+                fullHandshakes.increment();
+            }
+        }
+
+        @Override
+        public String[] getServerAliases(String keyType, Principal[] issuers) {
+            return delegate.getServerAliases(keyType, issuers);
+        }
+
+        @Override
+        public String chooseServerAlias(String keyType, Principal[] issuers, Socket socket) {
+            return delegate.chooseServerAlias(keyType, issuers, socket);
+        }
+
+        @Override
+        public String chooseEngineServerAlias(
+                String keyType, Principal[] issuers, SSLEngine engine) {
+            return delegate.chooseEngineServerAlias(keyType, issuers, engine);
+        }
+
+        @Override
+        public X509Certificate[] getCertificateChain(String alias) {
+            return delegate.getCertificateChain(alias);
+        }
+
+        @Override
+        public PrivateKey getPrivateKey(String alias) {
+            return delegate.getPrivateKey(alias);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A token bucket that bounds extra attempts (retries and hedges) to a fraction of first attempts.
+ * Every first attempt deposits {@code ratio} of a token and every extra attempt withdraws a whole
+ * one, so during an outage the extra load is at most {@code ratio} of the incoming load plus the
+ * {@code maxTokens} saved up beforehand.
+ */
+public class RetryBudget {
+    private static final long MILLI_TOKENS_PER_TOKEN = 1000;
+    private final long depositMilliTokens;
+    private final long maxMilliTokens;
+    private final AtomicLong balanceMilliTokens;
+    private final LongAdder exhaustedCount = new LongAdder();
+
+    public RetryBudget(double ratio, int maxTokens) {
+        if (ratio < 0 || maxTokens < 0) {
+            throw new IllegalArgumentException("ratio and maxTokens must not be negative");
+        }
+        this.depositMilliTokens = Math.round(ratio * MILLI_TOKENS_PER_TOKEN);
+        this.maxMilliTokens = maxTokens * MILLI_TOKENS_PER_TOKEN;
+        this.balanceMilliTokens = new AtomicLong(maxMilliTokens);
+    }
+
+    public void deposit() {
+        long balance;
+        do {
+            balance = balanceMilliTokens.get();
+            if (balance >= maxMilliTokens) {
+                return;
+            }
+        } while (!balanceMilliTokens.compareAndSet(
+                balance, Math.min(maxMilliTokens, balance + depositMilliTokens)));
+    }
+
+    public boolean tryWithdraw() {
+        long balance;
+        do {
+            balance = balanceMilliTokens.get();
+            if (balance < MILLI_TOKENS_PER_TOKEN) {
+                exhaustedCount.increment();
+                return false;
+            }
+        } while (!balanceMilliTokens.compareAndSet(balance, balance - MILLI_TOKENS_PER_TOKEN));
+        return true;
+    }
+
+    public double getBalance() {
+        return (double) balanceMilliTokens.get() / MILLI_TOKENS_PER_TOKEN;
+    }
+
+    public long getExhaustedCount() {
+        return exhaustedCount.sum();
+    }
+}
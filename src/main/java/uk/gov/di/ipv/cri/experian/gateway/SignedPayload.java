@@ -0,0 +1,19 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+class SignedPayload {
+    private final byte[] body;
+    private final String hmac;
+
+    SignedPayload(byte[] body, String hmac) {
+        this.body = body;
+        this.hmac = hmac;
+    }
+
+    byte[] getBody() {
+        return body;
+    }
+
+    String getHmac() {
+        return hmac;
+    }
+}
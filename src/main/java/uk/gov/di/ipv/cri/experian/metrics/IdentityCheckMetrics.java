@@ -0,0 +1,166 @@
+package uk.gov.di.ipv.cri.experian.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The instruments recorded on the identity check path: a latency histogram per {@link Stage},
+ * upstream status code counts, byte counts and the number of requests in flight. Every record
+ * method only touches preallocated counters, so recording never allocates.
+ */
+public class IdentityCheckMetrics implements StageRecorder, MetricsSource {
+    private static final int STAGE_MIN_EXPONENT = 12;
+    private static final int STAGE_MAX_EXPONENT = 35;
+    private static final int STAGE_SUB_BUCKET_BITS = 2;
+    private static final double NANOS_TO_SECONDS = 1e-9;
+    private static final int MAX_STATUS_CODE = 599;
+    private static final Stage[] STAGES = Stage.values();
+    private final StripedHistogram[] stageHistograms = new StripedHistogram[STAGES.length];
+    private final AtomicLongArray upstreamStatusCodes = new AtomicLongArray(MAX_STATUS_CODE + 1);
+    private final LongAdder upstreamErrors = new LongAdder();
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+    private final LongAdder upstreamRequestBytes = new LongAdder();
+    private final LongAdder upstreamResponseBytes = new LongAdder();
+    private final LongAdder inFlightRequests = new LongAdder();
+
+    public IdentityCheckMetrics() {
+        for (Stage stage : STAGES) {
+            stageHistograms[stage.ordinal()] =
+                    new StripedHistogram(
+                            STAGE_MIN_EXPONENT, STAGE_MAX_EXPONENT, STAGE_SUB_BUCKET_BITS);
+        }
+    }
+
+    @Override
+    public void recordStage(Stage stage, long nanos) {
+        stageHistograms[stage.ordinal()].record(nanos);
+    }
+
+    public void requestStarted(long contentLength) {
+        inFlightRequests.increment();
+        if (contentLength > 0) {
+            requestBytes.add(contentLength);
+        }
+    }
+
+    public void requestFinished() {
+        inFlightRequests.decrement();
+    }
+
+    public void recordResponseBytes(long length) {
+        responseBytes.add(length);
+    }
+
+    public void recordResponseBody(CharSequence body) {
+        if (body != null) {
+            responseBytes.add(utf8Length(body));
+        }
+    }
+
+    public void recordUpstreamRequest(long length) {
+        upstreamRequestBytes.add(length);
+    }
+
+    public void recordUpstreamResponse(int statusCode, CharSequence body) {
+        upstreamStatusCodes.incrementAndGet(
+                statusCode < 0 || statusCode > MAX_STATUS_CODE ? 0 : statusCode);
+        if (body != null) {
+            upstreamResponseBytes.add(utf8Length(body));
+        }
+    }
+
+    public void recordUpstreamResponseBytes(long length) {
+        upstreamResponseBytes.add(length);
+    }
+
+    public void recordUpstreamError() {
+        upstreamErrors.increment();
+    }
+
+    StripedHistogram getStageHistogram(Stage stage) {
+        return stageHistograms[stage.ordinal()];
+    }
+
+    long getUpstreamStatusCount(int statusCode) {
+        return upstreamStatusCodes.get(statusCode);
+    }
+
+    long getInFlightRequests() {
+        return inFlightRequests.sum();
+    }
+
+    @Override
+    public void writeTo(PrometheusTextWriter writer) {
+        writer.family(
+                "experian_api_stage_duration_seconds",
+                "histogram",
+                "Time spent in each stage of an identity check.");
+        for (Stage stage : STAGES) {
+            writer.histogram(
+                    "experian_api_stage_duration_seconds",
+                    "stage",
+                    stage.getLabel(),
+                    stageHistograms[stage.ordinal()],
+                    NANOS_TO_SECONDS);
+        }
+        writer.family(
+                "experian_api_upstream_responses_total",
+                "counter",
+                "CrossCore responses by HTTP status code.");
+        for (int statusCode = 0; statusCode <= MAX_STATUS_CODE; statusCode++) {
+            long count = upstreamStatusCodes.get(statusCode);
+            if (count > 0) {
+                writer.sample(
+                        "experian_api_upstream_responses_total",
+                        "code",
+                        statusCode == 0 ? "unknown" : Integer.toString(statusCode),
+                        count);
+            }
+        }
+        writer.counter(
+                "experian_api_upstream_errors_total",
+                "CrossCore calls that failed without a response.",
+                upstreamErrors.sum());
+        writer.counter(
+                "experian_api_request_bytes_total",
+                "Bytes received in identity check requests.",
+                requestBytes.sum());
+        writer.counter(
+                "experian_api_response_bytes_total",
+                "Bytes written in identity check responses.",
+                responseBytes.sum());
+        writer.counter(
+                "experian_api_upstream_request_bytes_total",
+                "Bytes sent to CrossCore.",
+                upstreamRequestBytes.sum());
+        writer.counter(
+                "experian_api_upstream_response_bytes_total",
+                "Bytes received from CrossCore.",
+                upstreamResponseBytes.sum());
+        writer.gauge(
+                "experian_api_requests_in_flight",
+                "Identity check requests being processed.",
+                inFlightRequests.sum());
+    }
+
+    static long utf8Length(CharSequence value) {
+        long length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)
+                    && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
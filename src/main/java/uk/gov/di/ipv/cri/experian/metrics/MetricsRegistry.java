@@ -0,0 +1,38 @@
+package uk.gov.di.ipv.cri.experian.metrics;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Collects the {@link MetricsSource}s exposed on {@code /metrics}. Sources are read only when the
+ * endpoint is scraped, so components keep their own counters and gauges and pay nothing extra.
+ */
+public class MetricsRegistry {
+    private final List<MetricsSource> sources = new CopyOnWriteArrayList<>();
+
+    public void register(MetricsSource source) {
+        Objects.requireNonNull(source, "source must not be null");
+        sources.add(source);
+    }
+
+    public void registerCounter(String name, String help, LongSupplier value) {
+        Objects.requireNonNull(value, "value must not be null");
+        register(writer -> writer.counter(name, help, value.getAsLong()));
+    }
+
+    public void registerGauge(String name, String help, DoubleSupplier value) {
+        Objects.requireNonNull(value, "value must not be null");
+        register(writer -> writer.gauge(name, help, value.getAsDouble()));
+    }
+
+    public String scrape() {
+        PrometheusTextWriter writer = new PrometheusTextWriter();
+        for (MetricsSource source : sources) {
+            source.writeTo(writer);
+        }
+        return writer.toString();
+    }
+}
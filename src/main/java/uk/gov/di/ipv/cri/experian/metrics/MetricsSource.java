@@ -0,0 +1,6 @@
+package uk.gov.di.ipv.cri.experian.metrics;
+
+@FunctionalInterface
+public interface MetricsSource {
+    void writeTo(PrometheusTextWriter writer);
+}
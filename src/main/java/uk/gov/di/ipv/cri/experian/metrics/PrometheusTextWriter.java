@@ -0,0 +1,103 @@
+package uk.gov.di.ipv.cri.experian.metrics;
+
+/**
+ * Renders samples in the Prometheus text exposition format, version 0.0.4. Only used while
+ * scraping, so it is free to allocate.
+ */
+public final class PrometheusTextWriter {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private final StringBuilder output = new StringBuilder(16 * 1024);
+
+    public void counter(String name, String help, long value) {
+        family(name, "counter", help);
+        sample(name, null, null, value);
+    }
+
+    public void gauge(String name, String help, double value) {
+        family(name, "gauge", help);
+        sample(name, null, null, value);
+    }
+
+    public void family(String name, String type, String help) {
+        output.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        output.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    public void sample(String name, String labelName, String labelValue, double value) {
+        output.append(name);
+        if (labelName != null) {
+            output.append('{');
+            appendLabel(labelName, labelValue);
+            output.append('}');
+        }
+        output.append(' ');
+        appendValue(value);
+        output.append('\n');
+    }
+
+    /**
+     * Writes the cumulative buckets, sum and count of one histogram series. Values are multiplied
+     * by {@code scale}, e.g. {@code 1e-9} to expose nanoseconds as seconds.
+     */
+    public void histogram(
+            String name,
+            String labelName,
+            String labelValue,
+            StripedHistogram histogram,
+            double scale) {
+        StripedHistogram.Snapshot snapshot = histogram.snapshot();
+        long cumulativeCount = 0;
+        for (int i = 0; i < histogram.getBucketCount(); i++) {
+            cumulativeCount += snapshot.getCount(i);
+            appendBucket(
+                    name,
+                    labelName,
+                    labelValue,
+                    Double.toString(histogram.getBucketUpperBound(i) * scale),
+                    cumulativeCount);
+        }
+        long totalCount = snapshot.getTotalCount();
+        appendBucket(name, labelName, labelValue, "+Inf", totalCount);
+        sample(name + "_sum", labelName, labelValue, snapshot.getSum() * scale);
+        sample(name + "_count", labelName, labelValue, totalCount);
+    }
+
+    @Override
+    public String toString() {
+        return output.toString();
+    }
+
+    private void appendBucket(
+            String name, String labelName, String labelValue, String upperBound, long count) {
+        output.append(name).append("_bucket{");
+        if (labelName != null) {
+            appendLabel(labelName, labelValue);
+            output.append(',');
+        }
+        appendLabel("le", upperBound);
+        output.append("} ").append(count).append('\n');
+    }
+
+    private void appendLabel(String labelName, String labelValue) {
+        output.append(labelName).append("=\"");
+        for (int i = 0; i < labelValue.length(); i++) {
+            char c = labelValue.charAt(i);
+            if (c == '\\' || c == '"') {
+                output.append('\\').append(c);
+            } else if (c == '\n') {
+                output.append("\\n");
+            } else {
+                output.append(c);
+            }
+        }
+        output.append('"');
+    }
+
+    private void appendValue(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            output.append((long) value);
+        } else {
+            output.append(value);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package uk.gov.di.ipv.cri.experian.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects the stage durations of one request for a {@code Server-Timing} response header. It is
+ * only created for requests that send {@value #REQUEST_HEADER}, so other requests pay nothing.
+ * Stages may be recorded on the http client's threads, hence the atomic storage.
+ */
+public final class ServerTimings implements StageRecorder {
+    public static final String REQUEST_HEADER = "X-Server-Timing";
+    public static final String RESPONSE_HEADER = "Server-Timing";
+    private static final Stage[] STAGES = Stage.values();
+    private final AtomicLongArray stageNanos = new AtomicLongArray(STAGES.length);
+    private final AtomicLongArray stageCounts = new AtomicLongArray(STAGES.length);
+
+    public static boolean isRequested(String requestHeaderValue) {
+        return requestHeaderValue != null
+                && ("true".equalsIgnoreCase(requestHeaderValue.trim())
+                        || "1".equals(requestHeaderValue.trim()));
+    }
+
+    @Override
+    public void recordStage(Stage stage, long nanos) {
+        stageNanos.addAndGet(stage.ordinal(), nanos);
+        stageCounts.incrementAndGet(stage.ordinal());
+    }
+
+    /** Renders the recorded stages in stage order, e.g. {@code parse;dur=0.214, map;dur=0.031}. */
+    public String toHeaderValue() {
+        StringBuilder headerValue = new StringBuilder(128);
+        for (Stage stage : STAGES) {
+            if (stageCounts.get(stage.ordinal()) == 0) {
+                continue;
+            }
+            if (headerValue.length() > 0) {
+                headerValue.append(", ");
+            }
+            long micros = stageNanos.get(stage.ordinal()) / 1000;
+            long fraction = micros % 1000;
+            headerValue
+                    .append(stage.getLabel())
+                    .append(";dur=")
+                    .append(micros / 1000)
+                    .append('.')
+                    .append(fraction < 100 ? (fraction < 10 ? "00" : "0") : "")
+                    .append(fraction);
+        }
+        return headerValue.toString();
+    }
+}
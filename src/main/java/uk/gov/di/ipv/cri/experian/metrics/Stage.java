@@ -0,0 +1,22 @@
+package uk.gov.di.ipv.cri.experian.metrics;
+
+/** The steps of an identity check that are timed separately. */
+public enum Stage {
+    PARSE("parse"),
+    VALIDATE("validate"),
+    MAP("map"),
+    SERIALIZE("serialize"),
+    SIGN("sign"),
+    UPSTREAM("upstream"),
+    WRITE("write");
+
+    private final String label;
+
+    Stage(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,9 @@
+package uk.gov.di.ipv.cri.experian.metrics;
+
+/** Receives the {@link System#nanoTime()} duration of each {@link Stage} of an identity check. */
+@FunctionalInterface
+public interface StageRecorder {
+    StageRecorder NONE = (stage, nanos) -> {};
+
+    void recordStage(Stage stage, long nanos);
+}
@@ -0,0 +1,114 @@
+package uk.gov.di.ipv.cri.experian.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-layout histogram of non-negative values with HDR-style log-linear buckets: every power of
+ * two between {@code 2^minExponent} and {@code 2^maxExponent} is split into {@code 2^subBucketBits}
+ * equal buckets. Recording picks a stripe by thread id and increments two slots of a preallocated
+ * {@link AtomicLongArray}, so it never allocates and threads on different stripes do not contend.
+ */
+public class StripedHistogram {
+    private static final int MAX_STRIPES = 64;
+    private final int minExponent;
+    private final int subBucketBits;
+    private final int bucketCount;
+    private final int overflowIndex;
+    private final int sumIndex;
+    private final long minValue;
+    private final AtomicLongArray[] stripes;
+    private final int stripeMask;
+
+    public StripedHistogram(int minExponent, int maxExponent, int subBucketBits) {
+        if (minExponent < subBucketBits || maxExponent <= minExponent || maxExponent > 62) {
+            throw new IllegalArgumentException("invalid histogram range");
+        }
+        this.minExponent = minExponent;
+        this.subBucketBits = subBucketBits;
+        this.bucketCount = (maxExponent - minExponent) << subBucketBits;
+        this.overflowIndex = bucketCount;
+        this.sumIndex = bucketCount + 1;
+        this.minValue = 1L << minExponent;
+        int stripeCount =
+                Math.min(
+                        MAX_STRIPES,
+                        Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1)
+                                << 1);
+        this.stripes = new AtomicLongArray[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new AtomicLongArray(bucketCount + 2);
+        }
+        this.stripeMask = stripeCount - 1;
+    }
+
+    public void record(long value) {
+        long clamped = Math.max(0, value);
+        AtomicLongArray stripe = stripes[(int) Thread.currentThread().getId() & stripeMask];
+        stripe.incrementAndGet(bucketIndex(clamped));
+        stripe.addAndGet(sumIndex, clamped);
+    }
+
+    public int getBucketCount() {
+        return bucketCount;
+    }
+
+    /** The exclusive upper bound of a bucket; the last bucket is followed by an overflow one. */
+    public long getBucketUpperBound(int index) {
+        int exponent = minExponent + (index >> subBucketBits);
+        int subBucket = index & ((1 << subBucketBits) - 1);
+        int shift = exponent - subBucketBits;
+        return ((1L << subBucketBits) + subBucket + 1) << shift;
+    }
+
+    /** Sums the stripes into {@code bucketCount + 1} counts, the overflow bucket last. */
+    public Snapshot snapshot() {
+        long[] counts = new long[bucketCount + 1];
+        long sum = 0;
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i <= overflowIndex; i++) {
+                counts[i] += stripe.get(i);
+            }
+            sum += stripe.get(sumIndex);
+        }
+        return new Snapshot(counts, sum);
+    }
+
+    int bucketIndex(long value) {
+        if (value < minValue) {
+            return 0;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int index =
+                ((exponent - minExponent) << subBucketBits)
+                        + (int)
+                                ((value >>> (exponent - subBucketBits))
+                                        & ((1 << subBucketBits) - 1));
+        return Math.min(index, overflowIndex);
+    }
+
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long sum;
+
+        private Snapshot(long[] counts, long sum) {
+            this.counts = counts;
+            this.sum = sum;
+        }
+
+        public long getCount(int index) {
+            return counts[index];
+        }
+
+        public long getTotalCount() {
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            return total;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package uk.gov.di.ipv.cri.experian.resource;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+import uk.gov.di.ipv.cri.experian.domain.BatchIdentityCheckResult;
+import uk.gov.di.ipv.cri.experian.domain.PersonIdentity;
+import uk.gov.di.ipv.cri.experian.domain.ValidationResult;
+import uk.gov.di.ipv.cri.experian.gateway.GatewayUnavailableException;
+import uk.gov.di.ipv.cri.experian.service.IdentityVerificationService;
+import uk.gov.di.ipv.cri.experian.validation.InputValidationExecutor;
+
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams newline-delimited {@link PersonIdentity} records through the identity check. At most
+ * {@code maxParallelism} checks are in flight; each result is written as an NDJSON line tagged with
+ * its input line number as soon as it completes, so results arrive in completion order and memory
+ * use does not grow with the size of the batch.
+ */
+public class BatchIdentityCheckResource {
+    private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+    private static final int MAX_LINE_BYTES = 64 * 1024;
+    private static final long COMPLETION_POLL_MILLIS = 10;
+    private final IdentityVerificationService identityVerificationService;
+    private final ObjectMapper objectMapper;
+    private final InputValidationExecutor inputValidationExecutor;
+    private final int maxParallelism;
+
+    public BatchIdentityCheckResource(
+            IdentityVerificationService identityVerificationService,
+            ObjectMapper objectMapper,
+            InputValidationExecutor inputValidationExecutor,
+            int maxParallelism) {
+        if (maxParallelism < 1) {
+            throw new IllegalArgumentException("maxParallelism must be at least 1");
+        }
+        this.identityVerificationService = identityVerificationService;
+        this.objectMapper = objectMapper;
+        this.inputValidationExecutor = inputValidationExecutor;
+        this.maxParallelism = maxParallelism;
+    }
+
+    public final Route performBatchIdentityCheckRoute =
+            (Request request, Response response) -> {
+                HttpServletResponse servletResponse = response.raw();
+                servletResponse.setStatus(HttpServletResponse.SC_OK);
+                servletResponse.setContentType(NDJSON_CONTENT_TYPE);
+                // writing straight to the servlet stream commits the response, so Spark does
+                // not write the route's return value after it
+                try (InputStream inputStream = RequestBodyStreams.open(request)) {
+                    new Batch(inputStream, servletResponse.getOutputStream()).run();
+                }
+                return "";
+            };
+
+    /** State for one batch request. Only the request thread reads input or writes output. */
+    private final class Batch {
+        private final BoundedLineReader lineReader;
+        private final OutputStream outputStream;
+        private final Semaphore permits = new Semaphore(maxParallelism);
+        private final BlockingQueue<BatchIdentityCheckResult> completedResults =
+                new LinkedBlockingQueue<>();
+        private int pendingResults;
+        private boolean unflushed;
+
+        private Batch(InputStream inputStream, OutputStream outputStream) {
+            this.lineReader = new BoundedLineReader(inputStream, MAX_LINE_BYTES);
+            this.outputStream = outputStream;
+        }
+
+        private void run() throws IOException, InterruptedException {
+            long lineNumber = 0;
+            while (lineReader.nextLine()) {
+                lineNumber++;
+                if (!lineReader.isBlank()) {
+                    submit(lineNumber);
+                }
+                writeCompletedResults();
+                flush();
+            }
+            while (pendingResults > 0) {
+                writeResult(completedResults.take());
+                pendingResults--;
+                writeCompletedResults();
+                flush();
+            }
+        }
+
+        private void submit(long lineNumber) throws IOException, InterruptedException {
+            if (lineReader.isOversized()) {
+                writeResult(
+                        rejected(
+                                lineNumber,
+                                HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+                                "line exceeds " + MAX_LINE_BYTES + " bytes"));
+                return;
+            }
+            PersonIdentity personIdentity;
+            try {
+                personIdentity =
+                        objectMapper.readValue(
+                                lineReader.getLine(),
+                                0,
+                                lineReader.getLineLength(),
+                                PersonIdentity.class);
+            } catch (JsonProcessingException e) {
+                writeResult(
+                        rejected(
+                                lineNumber,
+                                HttpServletResponse.SC_BAD_REQUEST,
+                                "line is not a valid PersonIdentity"));
+                return;
+            }
+            ValidationResult validationResult =
+                    inputValidationExecutor.performInputValidation(personIdentity);
+            if (!validationResult.isValid()) {
+                writeResult(
+                        new BatchIdentityCheckResult(
+                                lineNumber,
+                                HttpServletResponse.SC_BAD_REQUEST,
+                                null,
+                                validationResult.getErrors()));
+                return;
+            }
+            while (!permits.tryAcquire(COMPLETION_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                writeCompletedResults();
+                flush();
+            }
+            pendingResults++;
+            identityVerificationService
+                    .verifyIdentityAsync(personIdentity)
+                    .whenComplete(
+                            (responseBody, throwable) -> {
+                                completedResults.add(
+                                        throwable == null
+                                                ? toResult(lineNumber, responseBody)
+                                                : toErrorResult(lineNumber, throwable));
+                                permits.release();
+                            });
+        }
+
+        private void writeCompletedResults() throws IOException {
+            BatchIdentityCheckResult result;
+            while ((result = completedResults.poll()) != null) {
+                writeResult(result);
+                pendingResults--;
+            }
+        }
+
+        private void writeResult(BatchIdentityCheckResult result) throws IOException {
+            outputStream.write(objectMapper.writeValueAsBytes(result));
+            outputStream.write('\n');
+            unflushed = true;
+        }
+
+        private void flush() throws IOException {
+            if (unflushed) {
+                outputStream.flush();
+                unflushed = false;
+            }
+        }
+    }
+
+    private BatchIdentityCheckResult toResult(long lineNumber, String responseBody) {
+        if (responseBody == null) {
+            return rejected(
+                    lineNumber, HttpServletResponse.SC_BAD_GATEWAY, "identity check failed");
+        }
+        JsonNode result;
+        try {
+            // re-encoded so a pretty-printed upstream body cannot split the NDJSON line
+            result = objectMapper.readTree(responseBody);
+        } catch (JsonProcessingException e) {
+            result = TextNode.valueOf(responseBody);
+        }
+        return new BatchIdentityCheckResult(
+                lineNumber, HttpServletResponse.SC_CREATED, result, null);
+    }
+
+    private static BatchIdentityCheckResult toErrorResult(long lineNumber, Throwable throwable) {
+        Throwable cause =
+                throwable instanceof CompletionException && throwable.getCause() != null
+                        ? throwable.getCause()
+                        : throwable;
+        if (cause instanceof GatewayUnavailableException) {
+            return rejected(
+                    lineNumber, HttpServletResponse.SC_SERVICE_UNAVAILABLE, cause.getMessage());
+        }
+        return rejected(lineNumber, HttpServletResponse.SC_BAD_GATEWAY, "identity check failed");
+    }
+
+    private static BatchIdentityCheckResult rejected(long lineNumber, int status, String error) {
+        return new BatchIdentityCheckResult(lineNumber, status, null, List.of(error));
+    }
+}
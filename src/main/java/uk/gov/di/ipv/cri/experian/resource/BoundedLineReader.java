@@ -0,0 +1,89 @@
+package uk.gov.di.ipv.cri.experian.resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads newline-delimited records from a stream into a reused buffer. Lines longer than the limit
+ * are skipped up to the next newline and reported as oversized, so a single huge record cannot grow
+ * the buffer without bound.
+ */
+class BoundedLineReader {
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private static final int READ_BUFFER_SIZE = 8192;
+    private final InputStream inputStream;
+    private final int maxLineLength;
+    private final byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+    private int readPosition;
+    private int readLimit;
+    private byte[] line = new byte[INITIAL_BUFFER_SIZE];
+    private int lineLength;
+    private boolean oversized;
+
+    BoundedLineReader(InputStream inputStream, int maxLineLength) {
+        this.inputStream = inputStream;
+        this.maxLineLength = maxLineLength;
+    }
+
+    /** Reads the next line, excluding the terminator. Returns false at the end of the stream. */
+    boolean nextLine() throws IOException {
+        lineLength = 0;
+        oversized = false;
+        boolean readAnything = false;
+        while (true) {
+            if (readPosition == readLimit) {
+                readLimit = inputStream.read(readBuffer);
+                readPosition = 0;
+                if (readLimit <= 0) {
+                    readLimit = 0;
+                    return readAnything;
+                }
+            }
+            readAnything = true;
+            byte b = readBuffer[readPosition++];
+            if (b == '\n') {
+                if (!oversized && lineLength > 0 && line[lineLength - 1] == '\r') {
+                    lineLength--;
+                }
+                return true;
+            }
+            if (oversized) {
+                continue;
+            }
+            if (lineLength == maxLineLength) {
+                oversized = true;
+                lineLength = 0;
+                continue;
+            }
+            if (lineLength == line.length) {
+                line = Arrays.copyOf(line, Math.min(maxLineLength, line.length << 1));
+            }
+            line[lineLength++] = b;
+        }
+    }
+
+    byte[] getLine() {
+        return line;
+    }
+
+    int getLineLength() {
+        return lineLength;
+    }
+
+    boolean isOversized() {
+        return oversized;
+    }
+
+    boolean isBlank() {
+        if (oversized) {
+            return false;
+        }
+        for (int i = 0; i < lineLength; i++) {
+            if (!Character.isWhitespace(line[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
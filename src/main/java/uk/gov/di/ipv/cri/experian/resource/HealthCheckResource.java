@@ -1,12 +1,39 @@
 package uk.gov.di.ipv.cri.experian.resource;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import spark.Request;
 import spark.Response;
 import spark.Route;
+import uk.gov.di.ipv.cri.experian.domain.UpstreamStatus;
+import uk.gov.di.ipv.cri.experian.service.UpstreamProber;
 
 import javax.servlet.http.HttpServletResponse;
 
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * {@code getCurrentHealth} only says that the API is running. {@code getReadiness} and {@code
+ * getDeepHealth} answer from the last result of the {@link UpstreamProber}, with a 503 unless
+ * CrossCore is up, and never call CrossCore themselves. Without a prober they report {@code
+ * DISABLED} with a 200.
+ */
 public class HealthCheckResource {
+    private static final String DISABLED_BODY = "{\"status\":\"DISABLED\"}";
+    private final UpstreamProber upstreamProber;
+    private final ObjectMapper objectMapper;
+    private volatile CachedStatus cachedStatus;
+
+    public HealthCheckResource() {
+        this(null, new ObjectMapper());
+    }
+
+    public HealthCheckResource(UpstreamProber upstreamProber, ObjectMapper objectMapper) {
+        Objects.requireNonNull(objectMapper, "objectMapper must not be null");
+        this.upstreamProber = upstreamProber;
+        this.objectMapper = objectMapper;
+    }
+
     public final Route getCurrentHealth =
             (Request request, Response response) -> {
                 response.status(HttpServletResponse.SC_OK);
@@ -14,4 +41,62 @@ public class HealthCheckResource {
                 response.body("{\"experian=api\": \"ok\"}");
                 return response.body();
             };
+
+    public final Route getReadiness =
+            (Request request, Response response) -> {
+                CachedStatus status = getCachedStatus();
+                return respond(
+                        response,
+                        status == null ? DISABLED_BODY : status.readinessBody,
+                        status == null || status.up);
+            };
+
+    public final Route getDeepHealth =
+            (Request request, Response response) -> {
+                CachedStatus status = getCachedStatus();
+                return respond(
+                        response,
+                        status == null ? DISABLED_BODY : status.deepHealthBody,
+                        status == null || status.up);
+            };
+
+    private static String respond(Response response, String body, boolean up) {
+        response.status(
+                up ? HttpServletResponse.SC_OK : HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.type("application/json;charset=UTF-8");
+        response.body(body);
+        return response.body();
+    }
+
+    // the bodies are written once per probe result, not per health check
+    private CachedStatus getCachedStatus() throws IOException {
+        if (upstreamProber == null) {
+            return null;
+        }
+        UpstreamStatus status = upstreamProber.getStatus();
+        CachedStatus cached = cachedStatus;
+        if (cached == null || cached.status != status) {
+            cached =
+                    new CachedStatus(
+                            status,
+                            "{\"status\":\"" + status.getStatus() + "\"}",
+                            objectMapper.writeValueAsString(status));
+            cachedStatus = cached;
+        }
+        return cached;
+    }
+
+    private static class CachedStatus {
+        private final UpstreamStatus status;
+        private final boolean up;
+        private final String readinessBody;
+        private final String deepHealthBody;
+
+        private CachedStatus(UpstreamStatus status, String readinessBody, String deepHealthBody) {
+            this.status = status;
+            this.up = UpstreamStatus.UP.equals(status.getStatus());
+            this.readinessBody = readinessBody;
+            this.deepHealthBody = deepHealthBody;
+        }
+    }
 }
@@ -1,52 +1,554 @@
 package uk.gov.di.ipv.cri.experian.resource;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import spark.Request;
 import spark.Response;
 import spark.Route;
+import uk.gov.di.ipv.cri.experian.domain.ErrorResponse;
+import uk.gov.di.ipv.cri.experian.domain.IdentityCheckResult;
 import uk.gov.di.ipv.cri.experian.domain.PersonIdentity;
 import uk.gov.di.ipv.cri.experian.domain.ValidationResult;
+import uk.gov.di.ipv.cri.experian.gateway.GatewayUnavailableException;
+import uk.gov.di.ipv.cri.experian.metrics.IdentityCheckMetrics;
+import uk.gov.di.ipv.cri.experian.metrics.ServerTimings;
+import uk.gov.di.ipv.cri.experian.metrics.Stage;
+import uk.gov.di.ipv.cri.experian.metrics.StageRecorder;
+import uk.gov.di.ipv.cri.experian.service.IdempotencyKeyMismatchException;
+import uk.gov.di.ipv.cri.experian.service.IdempotencyStore;
+import uk.gov.di.ipv.cri.experian.service.IdempotencyStoreFullException;
+import uk.gov.di.ipv.cri.experian.service.IdempotencyStore.IdempotentCall;
 import uk.gov.di.ipv.cri.experian.service.IdentityVerificationService;
 import uk.gov.di.ipv.cri.experian.validation.InputValidationExecutor;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.http.HttpServletResponse;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
 public class IdentityCheckResource {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdentityCheckResource.class);
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int SC_UNPROCESSABLE_ENTITY = 422;
+    private static final Duration DEFAULT_ASYNC_TIMEOUT = Duration.ofSeconds(30);
     private ObjectMapper objectMapper;
     private IdentityVerificationService identityVerificationService;
     private InputValidationExecutor inputValidationExecutor;
+    private IdentityCheckMetrics metrics;
+    private PersonIdentityReader personIdentityReader;
+    private IdempotencyStore idempotencyStore;
+    private Duration asyncTimeout;
 
     public IdentityCheckResource(
             IdentityVerificationService identityVerificationService,
             ObjectMapper objectMapper,
             InputValidationExecutor inputValidationExecutor) {
-        this.identityVerificationService = identityVerificationService;
-        this.objectMapper = objectMapper;
-        this.inputValidationExecutor = inputValidationExecutor;
+        this(builder(identityVerificationService, objectMapper, inputValidationExecutor));
+    }
+
+    private IdentityCheckResource(Builder builder) {
+        Objects.requireNonNull(builder.metrics, "metrics must not be null");
+        this.identityVerificationService = builder.identityVerificationService;
+        this.objectMapper = builder.objectMapper;
+        this.inputValidationExecutor = builder.inputValidationExecutor;
+        this.metrics = builder.metrics;
+        this.personIdentityReader =
+                builder.personIdentityReader == null
+                        ? new PersonIdentityReader(builder.objectMapper)
+                        : builder.personIdentityReader;
+        this.idempotencyStore = builder.idempotencyStore;
+        this.asyncTimeout = builder.asyncTimeout;
+    }
+
+    /**
+     * Starts a resource that reads request bodies with the default limits, and does not support
+     * {@code Idempotency-Key}.
+     */
+    public static Builder builder(
+            IdentityVerificationService identityVerificationService,
+            ObjectMapper objectMapper,
+            InputValidationExecutor inputValidationExecutor) {
+        return new Builder(identityVerificationService, objectMapper, inputValidationExecutor);
     }
 
     public final Route performIdentityCheckRoute =
             (Request request, Response response) -> {
-                PersonIdentity personIdentity =
-                        objectMapper.readValue(request.body(), PersonIdentity.class);
+                this.metrics.requestStarted(request.contentLength());
+                ServerTimings serverTimings = createServerTimings(request);
+                try {
+                    String idempotencyKey = readIdempotencyKey(request);
+                    if (idempotencyKey != null && !IdempotencyStore.isValidKey(idempotencyKey)) {
+                        return rejectIdempotencyKey(response, serverTimings);
+                    }
+
+                    PersonIdentity personIdentity;
+                    try {
+                        personIdentity = parse(request, serverTimings);
+                    } catch (IOException e) {
+                        return rejectBody(response, e, serverTimings);
+                    }
+
+                    ValidationResult validationResult = validate(personIdentity, serverTimings);
 
-                ValidationResult validationResult =
-                        this.inputValidationExecutor.performInputValidation(personIdentity);
+                    String responseBody;
+                    int responseStatusCode;
 
-                String responseBody;
-                int responseStatusCode;
+                    if (validationResult.isValid()) {
+                        try {
+                            responseBody =
+                                    verifyIdentity(
+                                            response,
+                                            idempotencyKey,
+                                            personIdentity,
+                                            serverTimings);
+                            responseStatusCode = HttpServletResponse.SC_CREATED;
+                        } catch (GatewayUnavailableException e) {
+                            responseStatusCode = HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+                            responseBody = createErrorResponseBody(e);
+                        } catch (IdempotencyKeyMismatchException e) {
+                            responseStatusCode = SC_UNPROCESSABLE_ENTITY;
+                            responseBody = createErrorResponseBody(e);
+                        } catch (IdempotencyStoreFullException e) {
+                            responseStatusCode = HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+                            responseBody = createErrorResponseBody(e);
+                        } catch (TimeoutException e) {
+                            responseStatusCode = HttpServletResponse.SC_GATEWAY_TIMEOUT;
+                            responseBody = createTimeoutResponseBody();
+                        }
+                    } else {
+                        responseStatusCode = HttpServletResponse.SC_BAD_REQUEST;
+                        responseBody = objectMapper.writeValueAsString(validationResult);
+                    }
 
-                if (validationResult.isValid()) {
-                    responseStatusCode = HttpServletResponse.SC_CREATED;
-                    responseBody = this.identityVerificationService.verifyIdentity(personIdentity);
-                } else {
-                    responseStatusCode = HttpServletResponse.SC_BAD_REQUEST;
-                    responseBody = objectMapper.writeValueAsString(validationResult);
+                    response.header("Content-Type", "application/json");
+                    if (serverTimings != null) {
+                        response.header(
+                                ServerTimings.RESPONSE_HEADER, serverTimings.toHeaderValue());
+                    }
+                    response.status(responseStatusCode);
+                    response.body(responseBody);
+                    this.metrics.recordResponseBody(responseBody);
+                    return response.body();
+                } finally {
+                    this.metrics.requestFinished();
                 }
+            };
+
+    public final Route performIdentityCheckAsyncRoute =
+            (Request request, Response response) -> {
+                this.metrics.requestStarted(request.contentLength());
+                ServerTimings serverTimings = createServerTimings(request);
+                boolean suspended = false;
+                try {
+                    String idempotencyKey = readIdempotencyKey(request);
+                    if (idempotencyKey != null && !IdempotencyStore.isValidKey(idempotencyKey)) {
+                        return rejectIdempotencyKey(response, serverTimings);
+                    }
+
+                    PersonIdentity personIdentity;
+                    try {
+                        personIdentity = parse(request, serverTimings);
+                    } catch (IOException e) {
+                        return rejectBody(response, e, serverTimings);
+                    }
+
+                    ValidationResult validationResult = validate(personIdentity, serverTimings);
 
-                response.header("Content-Type", "application/json");
-                response.status(responseStatusCode);
-                response.body(responseBody);
-                return response.body();
+                    if (!validationResult.isValid()) {
+                        response.header("Content-Type", "application/json");
+                        if (serverTimings != null) {
+                            response.header(
+                                    ServerTimings.RESPONSE_HEADER, serverTimings.toHeaderValue());
+                        }
+                        response.status(HttpServletResponse.SC_BAD_REQUEST);
+                        response.body(objectMapper.writeValueAsString(validationResult));
+                        this.metrics.recordResponseBody(response.body());
+                        return response.body();
+                    }
+
+                    IdempotentCall idempotentCall;
+                    try {
+                        idempotentCall = beginIdempotentCall(idempotencyKey, personIdentity);
+                    } catch (IdempotencyKeyMismatchException e) {
+                        return respondWithError(
+                                response,
+                                SC_UNPROCESSABLE_ENTITY,
+                                createErrorResponse(e),
+                                serverTimings);
+                    } catch (IdempotencyStoreFullException e) {
+                        return respondWithError(
+                                response,
+                                HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                                createErrorResponse(e),
+                                serverTimings);
+                    }
+
+                    CompletableFuture<String> result;
+                    // what the async timeout cancels, the check itself rather than its body
+                    CompletableFuture<?> pending;
+                    if (idempotentCall == null) {
+                        result =
+                                serverTimings == null
+                                        ? this.identityVerificationService.verifyIdentityAsync(
+                                                personIdentity)
+                                        : this.identityVerificationService.verifyIdentityAsync(
+                                                personIdentity, serverTimings);
+                        pending = result;
+                    } else if (!idempotentCall.isOwner()) {
+                        response.header(IDEMPOTENT_REPLAYED_HEADER, "true");
+                        CompletableFuture<IdentityCheckResult> storedResult =
+                                idempotentCall.getResult();
+                        result = storedResult.thenApply(IdentityCheckResource::getBody);
+                        pending = storedResult;
+                    } else {
+                        CompletableFuture<IdentityCheckResult> checkResult;
+                        try {
+                            checkResult =
+                                    this.identityVerificationService.checkIdentityAsync(
+                                            personIdentity, stageRecorder(serverTimings));
+                        } catch (RuntimeException e) {
+                            idempotentCall.fail(e);
+                            throw e;
+                        }
+                        idempotentCall.completeWith(checkResult);
+                        result = checkResult.thenApply(IdentityCheckResource::getBody);
+                        pending = checkResult;
+                    }
+
+                    AsyncContext asyncContext = request.raw().startAsync();
+                    // each CrossCore request has its own timeout, this only catches a check that
+                    // outlives all of its attempts, cancelling it answers the client with a 504
+                    asyncContext.setTimeout(asyncTimeout.toMillis());
+                    asyncContext.addListener(new CancelOnTimeout(pending));
+                    // the result completes on a CrossCore client thread, which must not block on
+                    // the servlet output stream, so the response is written on a container thread
+                    result.whenComplete(
+                            (responseBody, throwable) ->
+                                    asyncContext.start(
+                                            () -> {
+                                                if (throwable == null) {
+                                                    completeAsyncResponse(
+                                                            asyncContext,
+                                                            HttpServletResponse.SC_CREATED,
+                                                            responseBody,
+                                                            serverTimings);
+                                                } else {
+                                                    completeAsyncErrorResponse(
+                                                            asyncContext, throwable, serverTimings);
+                                                }
+                                            }));
+                    // from here on the completion callback ends the request
+                    suspended = true;
+                    return "";
+                } finally {
+                    if (!suspended) {
+                        this.metrics.requestFinished();
+                    }
+                }
             };
+
+    private static ServerTimings createServerTimings(Request request) {
+        return ServerTimings.isRequested(request.headers(ServerTimings.REQUEST_HEADER))
+                ? new ServerTimings()
+                : null;
+    }
+
+    private String readIdempotencyKey(Request request) {
+        return idempotencyStore == null ? null : request.headers(IDEMPOTENCY_KEY_HEADER);
+    }
+
+    private IdempotentCall beginIdempotentCall(
+            String idempotencyKey, PersonIdentity personIdentity) {
+        return idempotencyKey == null
+                ? null
+                : idempotencyStore.begin(idempotencyKey, personIdentity);
+    }
+
+    // a request repeating an idempotency key replays the stored result, or waits up to the async
+    // timeout for the request that is still calling the upstream service, instead of calling it
+    // again
+    private String verifyIdentity(
+            Response response,
+            String idempotencyKey,
+            PersonIdentity personIdentity,
+            ServerTimings serverTimings)
+            throws InterruptedException, TimeoutException {
+        IdempotentCall idempotentCall = beginIdempotentCall(idempotencyKey, personIdentity);
+        if (idempotentCall == null) {
+            return serverTimings == null
+                    ? this.identityVerificationService.verifyIdentity(personIdentity)
+                    : this.identityVerificationService.verifyIdentity(
+                            personIdentity, serverTimings);
+        }
+        if (!idempotentCall.isOwner()) {
+            response.header(IDEMPOTENT_REPLAYED_HEADER, "true");
+            return getBody(idempotentCall.await(asyncTimeout));
+        }
+        try {
+            IdentityCheckResult result =
+                    this.identityVerificationService.checkIdentity(
+                            personIdentity, stageRecorder(serverTimings));
+            idempotentCall.complete(result);
+            return getBody(result);
+        } catch (RuntimeException e) {
+            idempotentCall.fail(e);
+            throw e;
+        }
+    }
+
+    private static StageRecorder stageRecorder(ServerTimings serverTimings) {
+        return serverTimings == null ? StageRecorder.NONE : serverTimings;
+    }
+
+    private static String getBody(IdentityCheckResult result) {
+        return result == null ? null : result.getBody();
+    }
+
+    private PersonIdentity parse(Request request, ServerTimings serverTimings) throws IOException {
+        long startNanos = System.nanoTime();
+        PersonIdentity personIdentity = personIdentityReader.read(request);
+        recordStage(Stage.PARSE, System.nanoTime() - startNanos, serverTimings);
+        return personIdentity;
+    }
+
+    // a body that is too large gets a 413 and one that is not a PersonIdentity a 400, anything
+    // else failing while the body is read is left to Spark
+    private String rejectBody(Response response, IOException e, ServerTimings serverTimings)
+            throws IOException {
+        int responseStatusCode;
+        ErrorResponse errorResponse;
+        if (e instanceof RequestBodyTooLargeException) {
+            responseStatusCode = HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE;
+            errorResponse = new ErrorResponse("request_too_large", e.getMessage());
+        } else if (e instanceof JsonProcessingException) {
+            responseStatusCode = HttpServletResponse.SC_BAD_REQUEST;
+            errorResponse =
+                    new ErrorResponse(
+                            "invalid_request_body", "request body is not a valid PersonIdentity");
+        } else {
+            throw e;
+        }
+        return respondWithError(response, responseStatusCode, errorResponse, serverTimings);
+    }
+
+    private String rejectIdempotencyKey(Response response, ServerTimings serverTimings)
+            throws IOException {
+        return respondWithError(
+                response,
+                HttpServletResponse.SC_BAD_REQUEST,
+                new ErrorResponse(
+                        "invalid_idempotency_key",
+                        "Idempotency-Key must be 1 to "
+                                + IdempotencyStore.MAX_KEY_LENGTH
+                                + " printable ASCII characters"),
+                serverTimings);
+    }
+
+    private String respondWithError(
+            Response response,
+            int responseStatusCode,
+            ErrorResponse errorResponse,
+            ServerTimings serverTimings)
+            throws IOException {
+        response.header("Content-Type", "application/json");
+        if (serverTimings != null) {
+            response.header(ServerTimings.RESPONSE_HEADER, serverTimings.toHeaderValue());
+        }
+        response.status(responseStatusCode);
+        response.body(objectMapper.writeValueAsString(errorResponse));
+        this.metrics.recordResponseBody(response.body());
+        return response.body();
+    }
+
+    private ValidationResult validate(PersonIdentity personIdentity, ServerTimings serverTimings) {
+        long startNanos = System.nanoTime();
+        ValidationResult validationResult =
+                this.inputValidationExecutor.performInputValidation(personIdentity);
+        recordStage(Stage.VALIDATE, System.nanoTime() - startNanos, serverTimings);
+        return validationResult;
+    }
+
+    private void recordStage(Stage stage, long nanos, ServerTimings serverTimings) {
+        metrics.recordStage(stage, nanos);
+        if (serverTimings != null) {
+            serverTimings.recordStage(stage, nanos);
+        }
+    }
+
+    private void completeAsyncErrorResponse(
+            AsyncContext asyncContext, Throwable throwable, ServerTimings serverTimings) {
+        Throwable cause =
+                throwable instanceof CompletionException && throwable.getCause() != null
+                        ? throwable.getCause()
+                        : throwable;
+        if (cause instanceof GatewayUnavailableException) {
+            String responseBody;
+            try {
+                responseBody = createErrorResponseBody((GatewayUnavailableException) cause);
+            } catch (IOException e) {
+                responseBody = null;
+            }
+            completeAsyncResponse(
+                    asyncContext,
+                    HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    responseBody,
+                    serverTimings);
+        } else if (cause instanceof CancellationException) {
+            LOGGER.warn("Identity check did not complete within {}", asyncTimeout);
+            String responseBody;
+            try {
+                responseBody = createTimeoutResponseBody();
+            } catch (IOException e) {
+                responseBody = null;
+            }
+            completeAsyncResponse(
+                    asyncContext,
+                    HttpServletResponse.SC_GATEWAY_TIMEOUT,
+                    responseBody,
+                    serverTimings);
+        } else {
+            LOGGER.error("Error occurred when performing the identity check", cause);
+            completeAsyncResponse(
+                    asyncContext,
+                    HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                    null,
+                    serverTimings);
+        }
+    }
+
+    private String createErrorResponseBody(GatewayUnavailableException e) throws IOException {
+        return objectMapper.writeValueAsString(new ErrorResponse(e.getErrorCode(), e.getMessage()));
+    }
+
+    private String createErrorResponseBody(IdempotencyKeyMismatchException e) throws IOException {
+        return objectMapper.writeValueAsString(createErrorResponse(e));
+    }
+
+    private String createErrorResponseBody(IdempotencyStoreFullException e) throws IOException {
+        return objectMapper.writeValueAsString(createErrorResponse(e));
+    }
+
+    private String createTimeoutResponseBody() throws IOException {
+        return objectMapper.writeValueAsString(
+                new ErrorResponse(
+                        "identity_check_timeout", "The identity check did not complete in time"));
+    }
+
+    private static ErrorResponse createErrorResponse(IdempotencyKeyMismatchException e) {
+        return new ErrorResponse("idempotency_key_mismatch", e.getMessage());
+    }
+
+    private static ErrorResponse createErrorResponse(IdempotencyStoreFullException e) {
+        return new ErrorResponse("idempotency_store_full", e.getMessage());
+    }
+
+    private void completeAsyncResponse(
+            AsyncContext asyncContext,
+            int responseStatusCode,
+            String responseBody,
+            ServerTimings serverTimings) {
+        try {
+            HttpServletResponse servletResponse = (HttpServletResponse) asyncContext.getResponse();
+            servletResponse.setHeader("Content-Type", "application/json");
+            if (serverTimings != null) {
+                servletResponse.setHeader(
+                        ServerTimings.RESPONSE_HEADER, serverTimings.toHeaderValue());
+            }
+            servletResponse.setStatus(responseStatusCode);
+            if (responseBody != null) {
+                long startNanos = System.nanoTime();
+                byte[] responseBytes = responseBody.getBytes(StandardCharsets.UTF_8);
+                servletResponse.getOutputStream().write(responseBytes);
+                metrics.recordStage(Stage.WRITE, System.nanoTime() - startNanos);
+                metrics.recordResponseBytes(responseBytes.length);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Error occurred when writing the identity check response", e);
+        } finally {
+            asyncContext.complete();
+            this.metrics.requestFinished();
+        }
+    }
+
+    private static final class CancelOnTimeout implements AsyncListener {
+        private final CompletableFuture<?> result;
+
+        private CancelOnTimeout(CompletableFuture<?> result) {
+            this.result = result;
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            result.cancel(true);
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {}
+
+        @Override
+        public void onError(AsyncEvent event) {}
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {}
+    }
+
+    public static final class Builder {
+        private final IdentityVerificationService identityVerificationService;
+        private final ObjectMapper objectMapper;
+        private final InputValidationExecutor inputValidationExecutor;
+        private IdentityCheckMetrics metrics = new IdentityCheckMetrics();
+        private PersonIdentityReader personIdentityReader;
+        private IdempotencyStore idempotencyStore;
+        private Duration asyncTimeout = DEFAULT_ASYNC_TIMEOUT;
+
+        private Builder(
+                IdentityVerificationService identityVerificationService,
+                ObjectMapper objectMapper,
+                InputValidationExecutor inputValidationExecutor) {
+            this.identityVerificationService = identityVerificationService;
+            this.objectMapper = objectMapper;
+            this.inputValidationExecutor = inputValidationExecutor;
+        }
+
+        public Builder metrics(IdentityCheckMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public Builder personIdentityReader(PersonIdentityReader personIdentityReader) {
+            this.personIdentityReader = personIdentityReader;
+            return this;
+        }
+
+        public Builder idempotencyStore(IdempotencyStore idempotencyStore) {
+            this.idempotencyStore = idempotencyStore;
+            return this;
+        }
+
+        /** How long an async identity check may keep its request suspended. */
+        public Builder asyncTimeout(Duration asyncTimeout) {
+            Objects.requireNonNull(asyncTimeout, "asyncTimeout must not be null");
+            if (asyncTimeout.isNegative() || asyncTimeout.isZero()) {
+                throw new IllegalArgumentException("asyncTimeout must be positive");
+            }
+            this.asyncTimeout = asyncTimeout;
+            return this;
+        }
+
+        public IdentityCheckResource build() {
+            return new IdentityCheckResource(this);
+        }
+    }
 }
@@ -0,0 +1,28 @@
+package uk.gov.di.ipv.cri.experian.resource;
+
+import spark.Request;
+import spark.Response;
+import spark.Route;
+import uk.gov.di.ipv.cri.experian.metrics.MetricsRegistry;
+import uk.gov.di.ipv.cri.experian.metrics.PrometheusTextWriter;
+
+import javax.servlet.http.HttpServletResponse;
+
+import java.util.Objects;
+
+public class MetricsResource {
+    private MetricsRegistry metricsRegistry;
+
+    public MetricsResource(MetricsRegistry metricsRegistry) {
+        Objects.requireNonNull(metricsRegistry, "metricsRegistry must not be null");
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    public final Route getMetrics =
+            (Request request, Response response) -> {
+                response.status(HttpServletResponse.SC_OK);
+                response.type(PrometheusTextWriter.CONTENT_TYPE);
+                response.body(this.metricsRegistry.scrape());
+                return response.body();
+            };
+}
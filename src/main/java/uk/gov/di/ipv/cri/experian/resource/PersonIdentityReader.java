@@ -0,0 +1,161 @@
+package uk.gov.di.ipv.cri.experian.resource;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import spark.Request;
+import uk.gov.di.ipv.cri.experian.domain.PersonIdentity;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
+/**
+ * Parses a {@link PersonIdentity} straight from the servlet input stream, so the body is never held
+ * as a String. The body size, the number of addresses and the length of every string are checked as
+ * the body is read, and a {@link RequestBodyTooLargeException} is thrown as soon as one is
+ * exceeded, without reading the rest. A body declaring a larger Content-Length is not read at all.
+ * Malformed JSON surfaces as a Jackson {@code JsonProcessingException}.
+ */
+public class PersonIdentityReader {
+    private static final String ADDRESSES_FIELD = "addresses";
+    private static final int DEFAULT_MAX_BODY_BYTES = 16 * 1024;
+    private static final int DEFAULT_MAX_ADDRESSES = 20;
+    private static final int DEFAULT_MAX_STRING_LENGTH = 256;
+    private final ObjectMapper objectMapper;
+    private final int maxBodyBytes;
+    private final int maxAddresses;
+    private final int maxStringLength;
+
+    public PersonIdentityReader(ObjectMapper objectMapper) {
+        this(
+                objectMapper,
+                DEFAULT_MAX_BODY_BYTES,
+                DEFAULT_MAX_ADDRESSES,
+                DEFAULT_MAX_STRING_LENGTH);
+    }
+
+    public PersonIdentityReader(
+            ObjectMapper objectMapper, int maxBodyBytes, int maxAddresses, int maxStringLength) {
+        Objects.requireNonNull(objectMapper, "objectMapper must not be null");
+        if (maxBodyBytes < 1 || maxAddresses < 1 || maxStringLength < 1) {
+            throw new IllegalArgumentException("limits must be at least 1");
+        }
+        this.objectMapper = objectMapper;
+        this.maxBodyBytes = maxBodyBytes;
+        this.maxAddresses = maxAddresses;
+        this.maxStringLength = maxStringLength;
+    }
+
+    public PersonIdentity read(Request request) throws IOException {
+        if (request.raw().getContentLengthLong() > maxBodyBytes) {
+            throw new RequestBodyTooLargeException(
+                    "request body exceeds " + maxBodyBytes + " bytes");
+        }
+        try (JsonParser parser =
+                new LimitingParser(
+                        objectMapper
+                                .getFactory()
+                                .createParser(
+                                        new LimitingInputStream(
+                                                RequestBodyStreams.open(request))))) {
+            PersonIdentity personIdentity = objectMapper.readValue(parser, PersonIdentity.class);
+            if (personIdentity == null) {
+                throw MismatchedInputException.from(
+                        parser, PersonIdentity.class, "request body must be a JSON object");
+            }
+            return personIdentity;
+        }
+    }
+
+    private final class LimitingInputStream extends FilterInputStream {
+        private long remaining = maxBodyBytes;
+
+        private LimitingInputStream(InputStream inputStream) {
+            super(inputStream);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                consumed(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            // reading one byte past the limit is enough to tell that it was exceeded
+            int read = super.read(b, off, (int) Math.min(len, remaining + 1));
+            if (read > 0) {
+                consumed(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining + 1));
+            consumed(skipped);
+            return skipped;
+        }
+
+        private void consumed(long bytes) throws RequestBodyTooLargeException {
+            remaining -= bytes;
+            if (remaining < 0) {
+                throw new RequestBodyTooLargeException(
+                        "request body exceeds " + maxBodyBytes + " bytes");
+            }
+        }
+    }
+
+    /**
+     * Databind reads through {@link #nextToken()}, directly or via the default {@code next...}
+     * methods, so every string and address passes the checks here.
+     */
+    private final class LimitingParser extends JsonParserDelegate {
+
+        private LimitingParser(JsonParser parser) {
+            super(parser);
+        }
+
+        @Override
+        public JsonToken nextToken() throws IOException {
+            JsonToken token = super.nextToken();
+            if (token == JsonToken.VALUE_STRING || token == JsonToken.FIELD_NAME) {
+                if (getTextLength() > maxStringLength) {
+                    throw new RequestBodyTooLargeException(
+                            "string exceeds " + maxStringLength + " characters");
+                }
+            } else if (token == JsonToken.START_OBJECT && isAddressBeyondLimit()) {
+                throw new RequestBodyTooLargeException("more than " + maxAddresses + " addresses");
+            }
+            return token;
+        }
+
+        @Override
+        public JsonToken nextValue() throws IOException {
+            JsonToken token = nextToken();
+            return token == JsonToken.FIELD_NAME ? nextToken() : token;
+        }
+
+        // an object in the "addresses" array of the top-level object
+        private boolean isAddressBeyondLimit() {
+            JsonStreamContext array = getParsingContext().getParent();
+            if (array == null || !array.inArray()) {
+                return false;
+            }
+            JsonStreamContext person = array.getParent();
+            return person != null
+                    && person.getParent() != null
+                    && person.getParent().inRoot()
+                    && ADDRESSES_FIELD.equals(person.getCurrentName())
+                    && array.getCurrentIndex() >= maxAddresses;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package uk.gov.di.ipv.cri.experian.resource;
+
+import spark.Request;
+import spark.embeddedserver.jetty.HttpRequestWrapper;
+
+import javax.servlet.ServletRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+final class RequestBodyStreams {
+
+    private RequestBodyStreams() {}
+
+    /**
+     * Opens the request body without Spark's {@link HttpRequestWrapper}, which otherwise reads the
+     * whole body into a byte array before the first byte is returned.
+     */
+    static InputStream open(Request request) throws IOException {
+        ServletRequest servletRequest = request.raw();
+        if (servletRequest instanceof HttpRequestWrapper) {
+            servletRequest = ((HttpRequestWrapper) servletRequest).getRequest();
+        }
+        return servletRequest.getInputStream();
+    }
+}
@@ -0,0 +1,21 @@
+package uk.gov.di.ipv.cri.experian.resource;
+
+import java.io.IOException;
+
+/**
+ * Thrown while a request body is read once it is larger than allowed. Callers should answer with a
+ * 413. It is an {@link IOException} rather than a Jackson exception, so databind passes it through
+ * unwrapped, and its stack trace is not filled in.
+ */
+final class RequestBodyTooLargeException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    RequestBodyTooLargeException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
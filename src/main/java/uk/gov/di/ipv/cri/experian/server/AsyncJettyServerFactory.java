@@ -0,0 +1,73 @@
+package uk.gov.di.ipv.cri.experian.server;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import spark.ExceptionMapper;
+import spark.embeddedserver.EmbeddedServer;
+import spark.embeddedserver.EmbeddedServerFactory;
+import spark.embeddedserver.jetty.EmbeddedJettyServer;
+import spark.embeddedserver.jetty.JettyHandler;
+import spark.embeddedserver.jetty.JettyServerFactory;
+import spark.http.matching.MatcherFilter;
+import spark.route.Routes;
+import spark.staticfiles.StaticFilesConfiguration;
+
+/**
+ * Builds the same embedded Jetty server as Spark's default factory, with the Spark handler wrapped
+ * in an {@link AsyncResponseHandler} so that routes may suspend the request with {@code
+ * startAsync()} and complete it from another thread. In virtual thread mode Jetty runs every task
+ * on a {@link VirtualThreadPool} instead of a bounded {@link QueuedThreadPool}.
+ */
+public class AsyncJettyServerFactory implements EmbeddedServerFactory, JettyServerFactory {
+    private static final int DEFAULT_MAX_THREADS = 200;
+    private static final int DEFAULT_MIN_THREADS = 8;
+    private static final int DEFAULT_IDLE_TIMEOUT_MILLIS = 60000;
+    private final boolean virtualThreads;
+
+    public AsyncJettyServerFactory() {
+        this(false);
+    }
+
+    public AsyncJettyServerFactory(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    @Override
+    public EmbeddedServer create(
+            Routes routeMatcher,
+            StaticFilesConfiguration staticFilesConfiguration,
+            ExceptionMapper exceptionMapper,
+            boolean hasMultipleHandler) {
+        MatcherFilter matcherFilter =
+                new MatcherFilter(
+                        routeMatcher,
+                        staticFilesConfiguration,
+                        exceptionMapper,
+                        false,
+                        hasMultipleHandler);
+        matcherFilter.init(null);
+        JettyHandler jettyHandler = new JettyHandler(matcherFilter);
+        jettyHandler.getSessionCookieConfig().setHttpOnly(true);
+        return new EmbeddedJettyServer(this, new AsyncResponseHandler(jettyHandler));
+    }
+
+    @Override
+    public Server create(int maxThreads, int minThreads, int threadTimeoutMillis) {
+        if (virtualThreads) {
+            return create(new VirtualThreadPool("jetty-virtual-"));
+        }
+        return create(
+                new QueuedThreadPool(
+                        maxThreads > 0 ? maxThreads : DEFAULT_MAX_THREADS,
+                        minThreads > 0 ? minThreads : DEFAULT_MIN_THREADS,
+                        threadTimeoutMillis > 0
+                                ? threadTimeoutMillis
+                                : DEFAULT_IDLE_TIMEOUT_MILLIS));
+    }
+
+    @Override
+    public Server create(ThreadPool threadPool) {
+        return threadPool != null ? new Server(threadPool) : new Server();
+    }
+}
@@ -0,0 +1,91 @@
+package uk.gov.di.ipv.cri.experian.server;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+/**
+ * Spark always serialises the value returned by a route and closes the servlet output stream, which
+ * would commit the response before an asynchronous route has produced its result. Once a route has
+ * called {@code startAsync()}, this handler discards that final write so the response can be
+ * completed later through the {@link javax.servlet.AsyncContext}.
+ */
+class AsyncResponseHandler extends HandlerWrapper {
+
+    AsyncResponseHandler(Handler handler) {
+        setHandler(handler);
+    }
+
+    @Override
+    public void handle(
+            String target,
+            Request baseRequest,
+            HttpServletRequest request,
+            HttpServletResponse response)
+            throws IOException, ServletException {
+        super.handle(target, baseRequest, request, new AsyncAwareResponse(request, response));
+    }
+
+    private static class AsyncAwareResponse extends HttpServletResponseWrapper {
+        private final HttpServletRequest request;
+
+        private AsyncAwareResponse(HttpServletRequest request, HttpServletResponse response) {
+            super(response);
+            this.request = request;
+        }
+
+        @Override
+        public void setContentType(String type) {
+            if (!request.isAsyncStarted()) {
+                super.setContentType(type);
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            return request.isAsyncStarted()
+                    ? new DiscardingOutputStream()
+                    : super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            return request.isAsyncStarted()
+                    ? new PrintWriter(Writer.nullWriter())
+                    : super.getWriter();
+        }
+    }
+
+    private static class DiscardingOutputStream extends ServletOutputStream {
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            // writes complete immediately, so there is nothing to notify
+        }
+
+        @Override
+        public void write(int b) {
+            // discard
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            // discard
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package uk.gov.di.ipv.cri.experian.server;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.eclipse.jetty.util.thread.TryExecutor;
+import uk.gov.di.ipv.cri.experian.concurrent.VirtualThreads;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A Jetty {@link ThreadPool} that runs every task, including request handling, on a new virtual
+ * thread. There is no maximum thread count to exhaust, so a route blocked on an upstream call only
+ * parks its virtual thread and the carrier thread is free to serve other requests.
+ */
+class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool, TryExecutor {
+    private static final long STOP_TIMEOUT_MILLIS = 5000;
+    private final String namePrefix;
+    private final AtomicInteger threads = new AtomicInteger();
+    private volatile ExecutorService executorService;
+
+    VirtualThreadPool(String namePrefix) {
+        this.namePrefix = namePrefix;
+        this.executorService = VirtualThreads.newThreadPerTaskExecutor(namePrefix);
+    }
+
+    @Override
+    protected void doStart() {
+        if (executorService.isShutdown()) {
+            executorService = VirtualThreads.newThreadPerTaskExecutor(namePrefix);
+        }
+    }
+
+    @Override
+    protected void doStop() throws InterruptedException {
+        executorService.shutdown();
+        if (!executorService.awaitTermination(STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (!tryExecute(task)) {
+            throw new RejectedExecutionException("Thread pool is stopped");
+        }
+    }
+
+    @Override
+    public boolean tryExecute(Runnable task) {
+        try {
+            executorService.execute(
+                    () -> {
+                        threads.incrementAndGet();
+                        try {
+                            task.run();
+                        } finally {
+                            threads.decrementAndGet();
+                        }
+                    });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        while (!executorService.awaitTermination(1, TimeUnit.DAYS)) {
+            // wait until the pool is stopped
+        }
+    }
+
+    @Override
+    public int getThreads() {
+        return threads.get();
+    }
+
+    @Override
+    public int getIdleThreads() {
+        return 0;
+    }
+
+    @Override
+    public boolean isLowOnThreads() {
+        return false;
+    }
+}
@@ -0,0 +1,9 @@
+package uk.gov.di.ipv.cri.experian.service;
+
+public class IdempotencyKeyMismatchException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public IdempotencyKeyMismatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,258 @@
+package uk.gov.di.ipv.cri.experian.service;
+
+import uk.gov.di.ipv.cri.experian.domain.IdentityCheckResult;
+import uk.gov.di.ipv.cri.experian.domain.PersonIdentity;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A bounded, in-process store of identity check results keyed by a client supplied idempotency key.
+ * The first request for a key owns the upstream call, later requests with the same key and payload
+ * replay its result, or wait for it while it is still in progress. Only results CrossCore answered
+ * with a 2xx are kept, so a retry after a failure or an error response calls it again.
+ *
+ * <p>Keys whose call is still in progress are never evicted, a full store evicts the least recently
+ * used stored result instead and refuses new keys when it has none.
+ */
+public class IdempotencyStore {
+    public static final int MAX_KEY_LENGTH = 255;
+    private final PersonIdentityFingerprinter fingerprinter;
+    private final SegmentedLruMap<String, Entry> entries;
+    private final long timeToLiveNanos;
+    private final LongSupplier nanoClock;
+    private final LongAdder replayCount = new LongAdder();
+    private final LongAdder joinCount = new LongAdder();
+    private final LongAdder mismatchCount = new LongAdder();
+    private final LongAdder expiryCount = new LongAdder();
+    private final LongAdder rejectionCount = new LongAdder();
+
+    public IdempotencyStore(
+            PersonIdentityFingerprinter fingerprinter, int maximumSize, Duration timeToLive) {
+        this(fingerprinter, maximumSize, timeToLive, System::nanoTime);
+    }
+
+    IdempotencyStore(
+            PersonIdentityFingerprinter fingerprinter,
+            int maximumSize,
+            Duration timeToLive,
+            LongSupplier nanoClock) {
+        Objects.requireNonNull(fingerprinter, "fingerprinter must not be null");
+        Objects.requireNonNull(timeToLive, "timeToLive must not be null");
+        Objects.requireNonNull(nanoClock, "nanoClock must not be null");
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+        if (timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("timeToLive must be positive");
+        }
+        this.entries = new SegmentedLruMap<>(maximumSize, entry -> entry.result.isDone());
+        this.fingerprinter = fingerprinter;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    public static boolean isValidKey(String key) {
+        if (key == null || key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < 0x21 || c > 0x7e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Claims the key for this request, or joins the request that already holds it. The owner of the
+     * returned call must complete or fail it, everyone else waits on its result.
+     *
+     * @throws IdempotencyKeyMismatchException if the key is held for a different payload
+     * @throws IdempotencyStoreFullException if there is no room for a new key, as every key that
+     *     could hold it belongs to a call still in progress
+     */
+    public IdempotentCall begin(String key, PersonIdentity personIdentity) {
+        if (!isValidKey(key)) {
+            throw new IllegalArgumentException("key is not a valid idempotency key");
+        }
+        IdentityFingerprint fingerprint = fingerprinter.fingerprint(personIdentity);
+        Entry entry = new Entry(fingerprint, nanoClock.getAsLong() + timeToLiveNanos);
+        Entry existing =
+                entries.withSegment(
+                        key,
+                        segment -> {
+                            Entry held = segment.get(key);
+                            // the time-to-live only runs from completion, a call in progress is
+                            // never expired however long it takes
+                            if (held != null
+                                    && held.result.isDone()
+                                    && nanoClock.getAsLong() - held.expiresAtNanos >= 0) {
+                                segment.remove(key);
+                                expiryCount.increment();
+                                held = null;
+                            }
+                            if (held != null) {
+                                return held;
+                            }
+                            if (!segment.put(key, entry)) {
+                                rejectionCount.increment();
+                                throw new IdempotencyStoreFullException(
+                                        "Too many identity checks with an Idempotency-Key are in"
+                                                + " progress");
+                            }
+                            return entry;
+                        });
+        if (existing != entry) {
+            if (!existing.fingerprint.equals(fingerprint)) {
+                mismatchCount.increment();
+                throw new IdempotencyKeyMismatchException(
+                        "Idempotency-Key was already used for a different request body");
+            }
+            (existing.result.isDone() ? replayCount : joinCount).increment();
+            return new IdempotentCall(existing, false);
+        }
+        entry.result.whenComplete(
+                (result, throwable) ->
+                        finish(
+                                key,
+                                entry,
+                                throwable == null && result != null && result.isSuccessful()));
+        return new IdempotentCall(entry, true);
+    }
+
+    public long getReplayCount() {
+        return replayCount.sum();
+    }
+
+    public long getJoinCount() {
+        return joinCount.sum();
+    }
+
+    public long getMismatchCount() {
+        return mismatchCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return entries.getEvictionCount();
+    }
+
+    public long getExpiryCount() {
+        return expiryCount.sum();
+    }
+
+    public long getRejectionCount() {
+        return rejectionCount.sum();
+    }
+
+    public int getSize() {
+        return entries.getSize();
+    }
+
+    // a stored result lives for the full time-to-live from when it completed, a failed one or an
+    // error response is dropped so that the client can retry it
+    private void finish(String key, Entry entry, boolean succeeded) {
+        entries.withSegment(
+                key,
+                segment -> {
+                    if (succeeded) {
+                        entry.expiresAtNanos = nanoClock.getAsLong() + timeToLiveNanos;
+                    } else {
+                        segment.remove(key, entry);
+                    }
+                    return null;
+                });
+    }
+
+    public static final class IdempotentCall {
+        private final Entry entry;
+        private final boolean owner;
+
+        private IdempotentCall(Entry entry, boolean owner) {
+            this.entry = entry;
+            this.owner = owner;
+        }
+
+        public boolean isOwner() {
+            return owner;
+        }
+
+        public void complete(IdentityCheckResult result) {
+            checkOwner();
+            entry.result.complete(result);
+        }
+
+        public void fail(Throwable throwable) {
+            checkOwner();
+            entry.result.completeExceptionally(throwable);
+        }
+
+        public void completeWith(CompletableFuture<IdentityCheckResult> result) {
+            checkOwner();
+            result.whenComplete(
+                    (value, throwable) -> {
+                        if (throwable == null) {
+                            entry.result.complete(value);
+                        } else {
+                            entry.result.completeExceptionally(unwrap(throwable));
+                        }
+                    });
+        }
+
+        public CompletableFuture<IdentityCheckResult> getResult() {
+            return entry.result.copy();
+        }
+
+        /**
+         * Waits up to {@code timeout} for the owner's result.
+         *
+         * @throws TimeoutException if the owner has not finished within the timeout
+         */
+        public IdentityCheckResult await(Duration timeout)
+                throws InterruptedException, TimeoutException {
+            try {
+                return entry.result.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new CompletionException(cause);
+            }
+        }
+
+        private void checkOwner() {
+            if (!owner) {
+                throw new IllegalStateException("Only the owner can complete an idempotent call");
+            }
+        }
+
+        private static Throwable unwrap(Throwable throwable) {
+            return throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause()
+                    : throwable;
+        }
+    }
+
+    private static class Entry {
+        private final IdentityFingerprint fingerprint;
+        private final CompletableFuture<IdentityCheckResult> result = new CompletableFuture<>();
+        private long expiresAtNanos;
+
+        private Entry(IdentityFingerprint fingerprint, long expiresAtNanos) {
+            this.fingerprint = fingerprint;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package uk.gov.di.ipv.cri.experian.service;
+
+public class IdempotencyStoreFullException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public IdempotencyStoreFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,124 @@
+package uk.gov.di.ipv.cri.experian.service;
+
+import uk.gov.di.ipv.cri.experian.domain.IdentityCheckResult;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * A bounded, in-process cache of identity check results with a fixed time-to-live. Entries are
+ * split across independently locked segments, so lookups for different identities rarely contend
+ * with each other. Eviction is least-recently-used within each segment.
+ */
+public class IdentityCheckResultCache {
+    private final SegmentedLruMap<IdentityFingerprint, CachedResult> entries;
+    private final boolean enabled;
+    private final long timeToLiveNanos;
+    private final Predicate<IdentityCheckResult> cacheableResult;
+    private final LongSupplier nanoClock;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder expiryCount = new LongAdder();
+
+    public IdentityCheckResultCache(
+            int maximumSize, Duration timeToLive, Predicate<IdentityCheckResult> cacheableResult) {
+        this(maximumSize, timeToLive, cacheableResult, System::nanoTime);
+    }
+
+    IdentityCheckResultCache(
+            int maximumSize,
+            Duration timeToLive,
+            Predicate<IdentityCheckResult> cacheableResult,
+            LongSupplier nanoClock) {
+        Objects.requireNonNull(timeToLive, "timeToLive must not be null");
+        Objects.requireNonNull(cacheableResult, "cacheableResult must not be null");
+        Objects.requireNonNull(nanoClock, "nanoClock must not be null");
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize must not be negative");
+        }
+        this.entries = new SegmentedLruMap<>(maximumSize, cachedResult -> true);
+        this.enabled = maximumSize > 0 && timeToLive.toNanos() > 0;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.cacheableResult = cacheableResult;
+        this.nanoClock = nanoClock;
+    }
+
+    public static IdentityCheckResultCache disabled() {
+        return new IdentityCheckResultCache(0, Duration.ZERO, result -> false);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Optional<IdentityCheckResult> get(IdentityFingerprint fingerprint) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        IdentityCheckResult result =
+                entries.withSegment(
+                        fingerprint,
+                        segment -> {
+                            CachedResult cachedResult = segment.get(fingerprint);
+                            if (cachedResult == null) {
+                                return null;
+                            }
+                            if (nanoClock.getAsLong() - cachedResult.expiresAtNanos < 0) {
+                                return cachedResult.result;
+                            }
+                            segment.remove(fingerprint);
+                            expiryCount.increment();
+                            return null;
+                        });
+        (result == null ? missCount : hitCount).increment();
+        return Optional.ofNullable(result);
+    }
+
+    /** A null result, for a check that failed, is never cached. */
+    public void put(IdentityFingerprint fingerprint, IdentityCheckResult result) {
+        if (!isEnabled() || result == null || !cacheableResult.test(result)) {
+            return;
+        }
+        CachedResult cachedResult =
+                new CachedResult(result, nanoClock.getAsLong() + timeToLiveNanos);
+        entries.withSegment(fingerprint, segment -> segment.put(fingerprint, cachedResult));
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return entries.getEvictionCount();
+    }
+
+    public long getExpiryCount() {
+        return expiryCount.sum();
+    }
+
+    public int getSize() {
+        return entries.getSize();
+    }
+
+    private static class CachedResult {
+        private final IdentityCheckResult result;
+        private final long expiresAtNanos;
+
+        private CachedResult(IdentityCheckResult result, long expiresAtNanos) {
+            this.result = result;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+}
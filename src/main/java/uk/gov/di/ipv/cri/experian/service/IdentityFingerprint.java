@@ -0,0 +1,34 @@
+package uk.gov.di.ipv.cri.experian.service;
+
+import java.util.Arrays;
+
+/**
+ * A keyed hash of the identity details in a {@link
+ * uk.gov.di.ipv.cri.experian.domain.PersonIdentity}, used as a lookup key so that raw personal data
+ * is never held as a map key.
+ */
+public final class IdentityFingerprint {
+    private final byte[] hash;
+    private final int hashCode;
+
+    IdentityFingerprint(byte[] hash) {
+        this.hash = hash;
+        this.hashCode = Arrays.hashCode(hash);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return Arrays.equals(hash, ((IdentityFingerprint) o).hash);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
@@ -2,27 +2,238 @@ package uk.gov.di.ipv.cri.experian.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.di.ipv.cri.experian.domain.IdentityCheckResult;
 import uk.gov.di.ipv.cri.experian.domain.PersonIdentity;
 import uk.gov.di.ipv.cri.experian.gateway.ExperianGateway;
+import uk.gov.di.ipv.cri.experian.gateway.GatewayUnavailableException;
+import uk.gov.di.ipv.cri.experian.metrics.StageRecorder;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 public class IdentityVerificationService {
     private final ExperianGateway experianGateway;
+    private final PersonIdentityFingerprinter fingerprinter;
+    private final IdentityCheckResultCache resultCache;
+    private final InFlightRequestCoalescer<IdentityFingerprint, IdentityCheckResult>
+            requestCoalescer;
     private static final Logger LOGGER = LoggerFactory.getLogger(IdentityVerificationService.class);
 
     public IdentityVerificationService(ExperianGateway experianGateway) {
-        this.experianGateway = experianGateway;
+        this(builder(experianGateway));
+    }
+
+    private IdentityVerificationService(Builder builder) {
+        Objects.requireNonNull(builder.resultCache, "resultCache must not be null");
+        if (builder.resultCache.isEnabled() || builder.requestCoalescer != null) {
+            Objects.requireNonNull(builder.fingerprinter, "fingerprinter must not be null");
+        }
+        this.experianGateway = builder.experianGateway;
+        this.fingerprinter = builder.fingerprinter;
+        this.resultCache = builder.resultCache;
+        this.requestCoalescer = builder.requestCoalescer;
+    }
+
+    /** Starts a service without a result cache or request coalescing. */
+    public static Builder builder(ExperianGateway experianGateway) {
+        return new Builder(experianGateway);
     }
 
     public String verifyIdentity(PersonIdentity personIdentity) {
+        return verifyIdentity(personIdentity, StageRecorder.NONE);
+    }
+
+    public String verifyIdentity(PersonIdentity personIdentity, StageRecorder stageRecorder) {
+        return getBody(checkIdentity(personIdentity, stageRecorder));
+    }
+
+    /**
+     * Like {@link #verifyIdentity(PersonIdentity, StageRecorder)}, keeping the CrossCore status
+     * code with the body, or null when the check failed. Reports the gateway stages to {@code
+     * stageRecorder} when this call reaches CrossCore itself; cache hits and checks that join a
+     * coalesced call report nothing.
+     */
+    public IdentityCheckResult checkIdentity(
+            PersonIdentity personIdentity, StageRecorder stageRecorder) {
+        if (!resultCache.isEnabled() && requestCoalescer == null) {
+            return invokeGateway(personIdentity, stageRecorder);
+        }
+        IdentityFingerprint fingerprint = fingerprinter.fingerprint(personIdentity);
+        Optional<IdentityCheckResult> cachedResult = resultCache.get(fingerprint);
+        if (cachedResult.isPresent()) {
+            return cachedResult.get();
+        }
+        IdentityCheckResult result =
+                requestCoalescer == null
+                        ? invokeGateway(personIdentity, stageRecorder)
+                        : invokeGatewayCoalesced(personIdentity, fingerprint, stageRecorder);
+        resultCache.put(fingerprint, result);
+        return result;
+    }
+
+    public CompletableFuture<String> verifyIdentityAsync(PersonIdentity personIdentity) {
+        return verifyIdentityAsync(personIdentity, StageRecorder.NONE);
+    }
+
+    public CompletableFuture<String> verifyIdentityAsync(
+            PersonIdentity personIdentity, StageRecorder stageRecorder) {
+        CompletableFuture<IdentityCheckResult> checkResult =
+                checkIdentityAsync(personIdentity, stageRecorder);
+        return detachOnCancel(
+                checkResult.thenApply(IdentityVerificationService::getBody), checkResult);
+    }
+
+    public CompletableFuture<IdentityCheckResult> checkIdentityAsync(
+            PersonIdentity personIdentity, StageRecorder stageRecorder) {
+        if (!resultCache.isEnabled() && requestCoalescer == null) {
+            return invokeGatewayAsync(personIdentity, stageRecorder);
+        }
+        IdentityFingerprint fingerprint = fingerprinter.fingerprint(personIdentity);
+        Optional<IdentityCheckResult> cachedResult = resultCache.get(fingerprint);
+        if (cachedResult.isPresent()) {
+            return CompletableFuture.completedFuture(cachedResult.get());
+        }
+        CompletableFuture<IdentityCheckResult> upstreamResult =
+                requestCoalescer == null
+                        ? invokeGatewayAsync(personIdentity, stageRecorder)
+                        : requestCoalescer.execute(
+                                fingerprint,
+                                () ->
+                                        experianGateway.checkIdentityAsync(
+                                                personIdentity, stageRecorder));
+        CompletableFuture<IdentityCheckResult> result =
+                upstreamResult.handle(
+                        (value, throwable) -> {
+                            if (throwable != null) {
+                                return handleAsyncFailure(throwable);
+                            }
+                            resultCache.put(fingerprint, value);
+                            return value;
+                        });
+        return detachOnCancel(result, upstreamResult);
+    }
+
+    // cancelling the caller's future detaches it from a shared upstream call
+    private static <T> CompletableFuture<T> detachOnCancel(
+            CompletableFuture<T> result, CompletableFuture<?> upstreamResult) {
+        result.whenComplete(
+                (value, throwable) -> {
+                    if (result.isCancelled()) {
+                        upstreamResult.cancel(true);
+                    }
+                });
+        return result;
+    }
+
+    private static String getBody(IdentityCheckResult result) {
+        return result == null ? null : result.getBody();
+    }
+
+    private IdentityCheckResult invokeGateway(
+            PersonIdentity personIdentity, StageRecorder stageRecorder) {
         try {
-            return experianGateway.performIdentityCheck(personIdentity);
+            return experianGateway.checkIdentity(personIdentity, stageRecorder);
         } catch (InterruptedException ie) {
             LOGGER.error("Error occurred when attempting to invoke experian api", ie);
             Thread.currentThread().interrupt();
             return null;
+        } catch (GatewayUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             LOGGER.error("Error occurred when attempting to invoke experian api", e);
             return null;
         }
     }
+
+    private IdentityCheckResult invokeGatewayCoalesced(
+            PersonIdentity personIdentity,
+            IdentityFingerprint fingerprint,
+            StageRecorder stageRecorder) {
+        CompletableFuture<IdentityCheckResult> result =
+                requestCoalescer.execute(
+                        fingerprint,
+                        () ->
+                                CompletableFuture.completedFuture(
+                                        experianGateway.checkIdentity(
+                                                personIdentity, stageRecorder)));
+        try {
+            return result.get();
+        } catch (InterruptedException ie) {
+            result.cancel(true);
+            LOGGER.error("Error occurred when attempting to invoke experian api", ie);
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof GatewayUnavailableException) {
+                throw (GatewayUnavailableException) e.getCause();
+            }
+            LOGGER.error("Error occurred when attempting to invoke experian api", e.getCause());
+            return null;
+        } catch (CancellationException e) {
+            LOGGER.error("Error occurred when attempting to invoke experian api", e);
+            return null;
+        }
+    }
+
+    private CompletableFuture<IdentityCheckResult> invokeGatewayAsync(
+            PersonIdentity personIdentity, StageRecorder stageRecorder) {
+        try {
+            return experianGateway
+                    .checkIdentityAsync(personIdentity, stageRecorder)
+                    .exceptionally(this::handleAsyncFailure);
+        } catch (Exception e) {
+            LOGGER.error("Error occurred when attempting to invoke experian api", e);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    // a gateway rejection reaches the caller, other failures keep the null result
+    private IdentityCheckResult handleAsyncFailure(Throwable throwable) {
+        Throwable cause =
+                throwable instanceof CompletionException && throwable.getCause() != null
+                        ? throwable.getCause()
+                        : throwable;
+        if (cause instanceof GatewayUnavailableException) {
+            throw (GatewayUnavailableException) cause;
+        }
+        LOGGER.error("Error occurred when attempting to invoke experian api", cause);
+        return null;
+    }
+
+    public static final class Builder {
+        private final ExperianGateway experianGateway;
+        private PersonIdentityFingerprinter fingerprinter;
+        private IdentityCheckResultCache resultCache = IdentityCheckResultCache.disabled();
+        private InFlightRequestCoalescer<IdentityFingerprint, IdentityCheckResult> requestCoalescer;
+
+        private Builder(ExperianGateway experianGateway) {
+            this.experianGateway = experianGateway;
+        }
+
+        /** Required with a result cache or request coalescing. */
+        public Builder fingerprinter(PersonIdentityFingerprinter fingerprinter) {
+            this.fingerprinter = fingerprinter;
+            return this;
+        }
+
+        public Builder resultCache(IdentityCheckResultCache resultCache) {
+            this.resultCache = resultCache;
+            return this;
+        }
+
+        public Builder requestCoalescer(
+                InFlightRequestCoalescer<IdentityFingerprint, IdentityCheckResult>
+                        requestCoalescer) {
+            this.requestCoalescer = requestCoalescer;
+            return this;
+        }
+
+        public IdentityVerificationService build() {
+            return new IdentityVerificationService(this);
+        }
+    }
 }
@@ -0,0 +1,125 @@
+package uk.gov.di.ipv.cri.experian.service;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shares one in-flight call between concurrent callers that use the same key. Each caller gets its
+ * own future, so cancelling it only detaches that caller; the shared call is cancelled once every
+ * caller has cancelled. Bookkeeping is a {@link ConcurrentHashMap} with per-call counters, so
+ * callers with different keys never contend on a shared lock.
+ */
+public class InFlightRequestCoalescer<K, V> {
+    private final ConcurrentMap<K, InFlightCall> inFlightCalls = new ConcurrentHashMap<>();
+    private final LongAdder coalescedCount = new LongAdder();
+
+    public CompletableFuture<V> execute(K key, Callable<CompletableFuture<V>> call) {
+        Objects.requireNonNull(key, "key must not be null");
+        Objects.requireNonNull(call, "call must not be null");
+        InFlightCall candidate = new InFlightCall(key);
+        while (true) {
+            InFlightCall existing = inFlightCalls.putIfAbsent(key, candidate);
+            if (existing == null) {
+                CompletableFuture<V> waiter = candidate.newWaiter();
+                candidate.start(call);
+                return waiter;
+            }
+            CompletableFuture<V> waiter = existing.tryJoin();
+            if (waiter != null) {
+                coalescedCount.increment();
+                return waiter;
+            }
+            // every caller of the existing call cancelled, so it must not be joined
+            inFlightCalls.remove(key, existing);
+        }
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    public int getInFlightCount() {
+        return inFlightCalls.size();
+    }
+
+    private final class InFlightCall {
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private final AtomicInteger waiterCount = new AtomicInteger(1);
+
+        private InFlightCall(K key) {
+            this.result.whenComplete((value, throwable) -> inFlightCalls.remove(key, this));
+        }
+
+        private void start(Callable<CompletableFuture<V>> call) {
+            CompletableFuture<V> upstream;
+            try {
+                upstream = call.call();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(e);
+                return;
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            upstream.whenComplete(
+                    (value, throwable) -> {
+                        if (throwable == null) {
+                            result.complete(value);
+                        } else {
+                            result.completeExceptionally(unwrap(throwable));
+                        }
+                    });
+            result.whenComplete(
+                    (value, throwable) -> {
+                        if (result.isCancelled()) {
+                            upstream.cancel(true);
+                        }
+                    });
+        }
+
+        private CompletableFuture<V> tryJoin() {
+            int count;
+            do {
+                count = waiterCount.get();
+                if (count <= 0) {
+                    return null;
+                }
+            } while (!waiterCount.compareAndSet(count, count + 1));
+            return newWaiter();
+        }
+
+        private CompletableFuture<V> newWaiter() {
+            CompletableFuture<V> waiter = new CompletableFuture<>();
+            result.whenComplete(
+                    (value, throwable) -> {
+                        if (throwable == null) {
+                            waiter.complete(value);
+                        } else {
+                            waiter.completeExceptionally(unwrap(throwable));
+                        }
+                    });
+            waiter.whenComplete(
+                    (value, throwable) -> {
+                        if (waiter.isCancelled()
+                                && !result.isDone()
+                                && waiterCount.decrementAndGet() == 0) {
+                            result.cancel(true);
+                        }
+                    });
+            return waiter;
+        }
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause()
+                : throwable;
+    }
+}
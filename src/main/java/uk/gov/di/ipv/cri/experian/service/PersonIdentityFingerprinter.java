@@ -0,0 +1,105 @@
+package uk.gov.di.ipv.cri.experian.service;
+
+import uk.gov.di.ipv.cri.experian.concurrent.ThreadAwarePool;
+import uk.gov.di.ipv.cri.experian.domain.PersonAddress;
+import uk.gov.di.ipv.cri.experian.domain.PersonIdentity;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Derives an {@link IdentityFingerprint} from the canonical form of a {@link PersonIdentity}. The
+ * hash is keyed with a random per-process secret, so fingerprints cannot be reversed by hashing
+ * candidate names and dates of birth.
+ */
+public class PersonIdentityFingerprinter {
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int KEY_LENGTH = 32;
+    private static final int NULL_LENGTH = -1;
+    private static final int MAX_POOLED_MACS = Runtime.getRuntime().availableProcessors() * 2;
+    private final ThreadAwarePool<Mac> macPool;
+
+    public PersonIdentityFingerprinter() throws GeneralSecurityException {
+        byte[] key = new byte[KEY_LENGTH];
+        new SecureRandom().nextBytes(key);
+        SecretKeySpec secretKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+        Mac prototypeMac = Mac.getInstance(HMAC_ALGORITHM);
+        prototypeMac.init(secretKey);
+        this.macPool = new ThreadAwarePool<>(() -> cloneMac(prototypeMac), MAX_POOLED_MACS);
+    }
+
+    public IdentityFingerprint fingerprint(PersonIdentity personIdentity) {
+        Objects.requireNonNull(personIdentity, "The personIdentity must not be null");
+        Mac mac = macPool.acquire();
+        try {
+            mac.reset();
+            update(mac, personIdentity.getFirstName());
+            update(mac, personIdentity.getMiddleNames());
+            update(mac, personIdentity.getSurname());
+            update(mac, personIdentity.getDateOfBirth());
+            List<PersonAddress> addresses = personIdentity.getAddresses();
+            if (addresses == null) {
+                updateLength(mac, NULL_LENGTH);
+            } else {
+                updateLength(mac, addresses.size());
+                for (PersonAddress address : addresses) {
+                    update(mac, address);
+                }
+            }
+            return new IdentityFingerprint(mac.doFinal());
+        } finally {
+            macPool.release(mac);
+        }
+    }
+
+    private static void update(Mac mac, PersonAddress address) {
+        if (address == null) {
+            updateLength(mac, NULL_LENGTH);
+            return;
+        }
+        updateLength(mac, 0);
+        update(mac, address.getHouseNameNumber());
+        update(mac, address.getStreet());
+        update(mac, address.getTownCity());
+        update(mac, address.getPostcode());
+        update(mac, address.getAddressType() == null ? null : address.getAddressType().name());
+        update(mac, address.getDateMovedOut());
+    }
+
+    private static void update(Mac mac, LocalDate date) {
+        update(mac, date == null ? null : date.toString());
+    }
+
+    // every value is length-prefixed so that ("AB", "C") and ("A", "BC") hash differently
+    private static void update(Mac mac, String value) {
+        if (value == null) {
+            updateLength(mac, NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        updateLength(mac, bytes.length);
+        mac.update(bytes);
+    }
+
+    private static void updateLength(Mac mac, int length) {
+        mac.update((byte) (length >>> 24));
+        mac.update((byte) (length >>> 16));
+        mac.update((byte) (length >>> 8));
+        mac.update((byte) length);
+    }
+
+    private static Mac cloneMac(Mac prototypeMac) {
+        try {
+            return (Mac) prototypeMac.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("Unable to clone " + HMAC_ALGORITHM, e);
+        }
+    }
+}
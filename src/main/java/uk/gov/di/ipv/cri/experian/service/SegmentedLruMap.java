@@ -0,0 +1,123 @@
+package uk.gov.di.ipv.cri.experian.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A bounded map split across independently locked segments, so that operations on different keys
+ * rarely contend with each other. A full segment makes room for a new key by evicting its least
+ * recently used entry that {@code evictable} accepts, and refuses the key when there is none.
+ */
+final class SegmentedLruMap<K, V> {
+    private static final int MAX_SEGMENT_COUNT = 16;
+    private static final int MIN_SEGMENT_CAPACITY = 64;
+    private final List<Segment> segments;
+    private final Predicate<? super V> evictable;
+    private final LongAdder evictionCount = new LongAdder();
+
+    /** A map with a {@code maximumSize} of 0 refuses every key. */
+    SegmentedLruMap(int maximumSize, Predicate<? super V> evictable) {
+        Objects.requireNonNull(evictable, "evictable must not be null");
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize must not be negative");
+        }
+        int segmentCount =
+                Math.max(1, Math.min(MAX_SEGMENT_COUNT, maximumSize / MIN_SEGMENT_CAPACITY));
+        int segmentCapacity = (maximumSize + segmentCount - 1) / segmentCount;
+        this.segments = new ArrayList<>(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            this.segments.add(new Segment(segmentCapacity));
+        }
+        this.evictable = evictable;
+    }
+
+    /** Runs {@code action} on the segment holding {@code key} while holding its lock. */
+    <R> R withSegment(K key, Function<Segment, R> action) {
+        Segment segment = segments.get((key.hashCode() & Integer.MAX_VALUE) % segments.size());
+        segment.lock.lock();
+        try {
+            return action.apply(segment);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    void clear() {
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.entries.clear();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    int getSize() {
+        int size = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.entries.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final int capacity;
+
+        private Segment(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /** Returns the value for {@code key}, if any, and marks it as the most recently used. */
+        V get(K key) {
+            return entries.get(key);
+        }
+
+        /** Returns false, and leaves the segment as it was, when there is no room for the key. */
+        boolean put(K key, V value) {
+            if (!entries.containsKey(key) && entries.size() >= capacity && !evictOne()) {
+                return false;
+            }
+            entries.put(key, value);
+            return true;
+        }
+
+        void remove(K key) {
+            entries.remove(key);
+        }
+
+        void remove(K key, V value) {
+            entries.remove(key, value);
+        }
+
+        private boolean evictOne() {
+            Iterator<V> values = entries.values().iterator();
+            while (values.hasNext()) {
+                if (evictable.test(values.next())) {
+                    values.remove();
+                    evictionCount.increment();
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package uk.gov.di.ipv.cri.experian.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.di.ipv.cri.experian.domain.UpstreamStatus;
+import uk.gov.di.ipv.cri.experian.gateway.ExperianGateway;
+
+import java.net.http.HttpResponse;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends a {@code HEAD} request to the CrossCore endpoint at a fixed interval and keeps the outcome
+ * as an {@link UpstreamStatus}, so health checks read the last result instead of calling CrossCore
+ * themselves. The probe is not an identity check, so it says that CrossCore is reachable and
+ * answering, not that it would accept a signed request.
+ *
+ * <p>CrossCore is {@code UP} after any answer below 500, a {@code HEAD} to the endpoint is usually
+ * refused, and {@code DOWN} once {@code failureThreshold} probes in a row failed, got no answer
+ * within the timeout or a 5xx answer. Until the first probe completes it is {@code UNKNOWN}.
+ */
+public class UpstreamProber implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UpstreamProber.class);
+    private final ExperianGateway experianGateway;
+    private final Duration interval;
+    private final Duration timeout;
+    private final int failureThreshold;
+    private final Clock clock;
+    private final LongAdder probeCount = new LongAdder();
+    private final LongAdder probeFailureCount = new LongAdder();
+    private volatile UpstreamStatus status =
+            new UpstreamStatus(UpstreamStatus.UNKNOWN, null, null, null, null, 0);
+    private ScheduledExecutorService scheduler;
+
+    public UpstreamProber(
+            ExperianGateway experianGateway,
+            Duration interval,
+            Duration timeout,
+            int failureThreshold) {
+        this(experianGateway, interval, timeout, failureThreshold, Clock.systemUTC());
+    }
+
+    UpstreamProber(
+            ExperianGateway experianGateway,
+            Duration interval,
+            Duration timeout,
+            int failureThreshold,
+            Clock clock) {
+        Objects.requireNonNull(experianGateway, "experianGateway must not be null");
+        Objects.requireNonNull(interval, "interval must not be null");
+        Objects.requireNonNull(timeout, "timeout must not be null");
+        Objects.requireNonNull(clock, "clock must not be null");
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be at least 1");
+        }
+        this.experianGateway = experianGateway;
+        this.interval = interval;
+        this.timeout = timeout;
+        this.failureThreshold = failureThreshold;
+        this.clock = clock;
+    }
+
+    /** Probes at once and then every interval on a daemon thread. */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler =
+                Executors.newSingleThreadScheduledExecutor(
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "crosscore-prober");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        // waiting for each probe keeps at most one in flight, the timeout bounds the wait
+        scheduler.scheduleWithFixedDelay(
+                () -> probe().join(), 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /** Sends one probe; the returned future completes with the new status and never fails. */
+    public CompletableFuture<UpstreamStatus> probe() {
+        probeCount.increment();
+        long startNanos = System.nanoTime();
+        CompletableFuture<HttpResponse<Void>> response;
+        try {
+            response = experianGateway.sendProbe();
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        return response.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .handle(
+                        (httpResponse, throwable) ->
+                                record(
+                                        httpResponse,
+                                        throwable,
+                                        (System.nanoTime() - startNanos) / 1_000_000));
+    }
+
+    public UpstreamStatus getStatus() {
+        return status;
+    }
+
+    public boolean isUp() {
+        return UpstreamStatus.UP.equals(status.getStatus());
+    }
+
+    public long getProbeCount() {
+        return probeCount.sum();
+    }
+
+    public long getProbeFailureCount() {
+        return probeFailureCount.sum();
+    }
+
+    private synchronized UpstreamStatus record(
+            HttpResponse<Void> httpResponse, Throwable throwable, long latencyMillis) {
+        String checkedAt = clock.instant().toString();
+        UpstreamStatus previous = status;
+        UpstreamStatus current;
+        if (throwable == null && httpResponse.statusCode() < 500) {
+            current =
+                    new UpstreamStatus(
+                            UpstreamStatus.UP,
+                            checkedAt,
+                            httpResponse.statusCode(),
+                            latencyMillis,
+                            null,
+                            0);
+        } else {
+            probeFailureCount.increment();
+            int consecutiveFailures = previous.getConsecutiveFailures() + 1;
+            // a single failure does not take an UP upstream DOWN
+            String currentStatus =
+                    consecutiveFailures >= failureThreshold
+                                    || UpstreamStatus.UNKNOWN.equals(previous.getStatus())
+                            ? UpstreamStatus.DOWN
+                            : previous.getStatus();
+            current =
+                    new UpstreamStatus(
+                            currentStatus,
+                            checkedAt,
+                            throwable == null ? httpResponse.statusCode() : null,
+                            throwable == null ? latencyMillis : null,
+                            throwable == null
+                                    ? "unexpected status code " + httpResponse.statusCode()
+                                    : describe(throwable),
+                            consecutiveFailures);
+        }
+        if (!current.getStatus().equals(previous.getStatus())) {
+            LOGGER.info(
+                    "CrossCore is {} ({})",
+                    current.getStatus(),
+                    current.getError() == null ? "probe succeeded" : current.getError());
+        }
+        status = current;
+        return current;
+    }
+
+    private String describe(Throwable throwable) {
+        Throwable cause =
+                throwable instanceof CompletionException && throwable.getCause() != null
+                        ? throwable.getCause()
+                        : throwable;
+        if (cause instanceof TimeoutException) {
+            return "no response within " + timeout.toMillis() + "ms";
+        }
+        return cause.getMessage() == null
+                ? cause.getClass().getSimpleName()
+                : cause.getClass().getSimpleName() + ": " + cause.getMessage();
+    }
+}
@@ -11,12 +11,25 @@ import java.util.stream.Collectors;
 
 public class InputValidationExecutor {
     private final Validator validator;
+    private final PrecomputedValidator precomputedValidator;
 
     public InputValidationExecutor(Validator validator) {
+        this(validator, null);
+    }
+
+    /** Inputs the {@code precomputedValidator} cannot check are left to {@code validator}. */
+    public InputValidationExecutor(Validator validator, PrecomputedValidator precomputedValidator) {
         this.validator = validator;
+        this.precomputedValidator = precomputedValidator;
     }
 
     public <T> ValidationResult performInputValidation(T input) {
+        if (precomputedValidator != null) {
+            ValidationResult validationResult = precomputedValidator.validate(input);
+            if (validationResult != null) {
+                return validationResult;
+            }
+        }
         Set<ConstraintViolation<T>> violations = this.validator.validate(input);
         List<String> validationErrorMessages =
                 violations.stream()
@@ -0,0 +1,360 @@
+package uk.gov.di.ipv.cri.experian.validation;
+
+import uk.gov.di.ipv.cri.experian.domain.ValidationResult;
+
+import javax.validation.MessageInterpolator;
+import javax.validation.ValidationException;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Past;
+import javax.validation.groups.Default;
+import javax.validation.metadata.BeanDescriptor;
+import javax.validation.metadata.ConstraintDescriptor;
+import javax.validation.metadata.ContainerElementTypeDescriptor;
+import javax.validation.metadata.PropertyDescriptor;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Checks beans against the constraints the {@link Validator} reports for them, read once when it is
+ * created along with the interpolated message of every constraint. A valid bean is checked without
+ * allocating.
+ *
+ * <p>Only the default group, {@code @NotNull}, {@code @NotBlank}, {@code @NotEmpty}, {@code @Past}
+ * on a {@link LocalDate} and {@code @Valid} on fields are supported, and creating it fails for a
+ * bean class with any other constraint.
+ */
+public class PrecomputedValidator {
+    private static final ValidationResult VALID = new ValidationResult(Collections.emptyList());
+    private static final UnsupportedBeanException UNSUPPORTED_BEAN = new UnsupportedBeanException();
+
+    private final Map<Class<?>, BeanPlan> beanPlans = new HashMap<>();
+    private final Clock clock;
+
+    public PrecomputedValidator(ValidatorFactory validatorFactory, Class<?>... beanClasses) {
+        Objects.requireNonNull(validatorFactory, "validatorFactory must not be null");
+        this.clock = validatorFactory.getClockProvider().getClock();
+        Validator validator = validatorFactory.getValidator();
+        MessageInterpolator messageInterpolator = validatorFactory.getMessageInterpolator();
+        for (Class<?> beanClass : beanClasses) {
+            compile(beanClass, validator, messageInterpolator);
+        }
+    }
+
+    public boolean supports(Class<?> beanClass) {
+        return beanPlans.containsKey(beanClass);
+    }
+
+    /**
+     * Returns {@code null} when {@code bean}, or a bean it cascades to, is of a class this
+     * validator was not created for.
+     */
+    public ValidationResult validate(Object bean) {
+        BeanPlan beanPlan = beanPlans.get(bean.getClass());
+        if (beanPlan == null) {
+            return null;
+        }
+        List<String> errors;
+        try {
+            errors = validateBean(bean, beanPlan, null);
+        } catch (UnsupportedBeanException e) {
+            return null;
+        }
+        return errors == null ? VALID : new ValidationResult(errors);
+    }
+
+    private List<String> validateBean(Object bean, BeanPlan beanPlan, List<String> errors) {
+        for (PropertyPlan propertyPlan : beanPlan.properties) {
+            Object value = propertyPlan.read(bean);
+            for (ConstraintPlan constraintPlan : propertyPlan.constraints) {
+                if (!constraintPlan.check.isValid(value, clock)) {
+                    if (errors == null) {
+                        errors = new ArrayList<>();
+                    }
+                    errors.add(constraintPlan.message);
+                }
+            }
+            if (propertyPlan.cascadedPlan != null && value != null) {
+                errors = cascade(value, propertyPlan, errors);
+            }
+        }
+        return errors;
+    }
+
+    // like the Validator, null elements are skipped rather than reported
+    private List<String> cascade(Object value, PropertyPlan propertyPlan, List<String> errors) {
+        if (!propertyPlan.cascadesElements) {
+            return validateCascaded(value, propertyPlan.cascadedPlan, errors);
+        }
+        if (value instanceof List && value instanceof RandomAccess) {
+            List<?> elements = (List<?>) value;
+            for (int i = 0; i < elements.size(); i++) {
+                errors = validateCascaded(elements.get(i), propertyPlan.cascadedPlan, errors);
+            }
+        } else {
+            for (Object element : (Iterable<?>) value) {
+                errors = validateCascaded(element, propertyPlan.cascadedPlan, errors);
+            }
+        }
+        return errors;
+    }
+
+    private List<String> validateCascaded(Object bean, BeanPlan beanPlan, List<String> errors) {
+        if (bean == null) {
+            return errors;
+        }
+        if (bean.getClass() != beanPlan.beanClass) {
+            throw UNSUPPORTED_BEAN;
+        }
+        return validateBean(bean, beanPlan, errors);
+    }
+
+    private BeanPlan compile(
+            Class<?> beanClass, Validator validator, MessageInterpolator messageInterpolator) {
+        BeanPlan beanPlan = beanPlans.get(beanClass);
+        if (beanPlan != null) {
+            return beanPlan;
+        }
+        BeanDescriptor beanDescriptor = validator.getConstraintsForClass(beanClass);
+        if (!beanDescriptor.getConstraintDescriptors().isEmpty()) {
+            throw unsupported(beanClass, "class level constraints");
+        }
+        beanPlan = new BeanPlan(beanClass);
+        // registered before its properties are compiled so that a cycle ends here
+        beanPlans.put(beanClass, beanPlan);
+
+        List<PropertyPlan> propertyPlans = new ArrayList<>();
+        for (Field field : beanClass.getDeclaredFields()) {
+            PropertyDescriptor propertyDescriptor =
+                    beanDescriptor.getConstraintsForProperty(field.getName());
+            if (propertyDescriptor != null) {
+                propertyPlans.add(
+                        compileProperty(
+                                beanClass,
+                                field,
+                                propertyDescriptor,
+                                validator,
+                                messageInterpolator));
+            }
+        }
+        if (propertyPlans.size() != beanDescriptor.getConstrainedProperties().size()) {
+            throw unsupported(beanClass, "constraints on inherited fields or getters");
+        }
+        beanPlan.properties = propertyPlans.toArray(new PropertyPlan[0]);
+        return beanPlan;
+    }
+
+    private PropertyPlan compileProperty(
+            Class<?> beanClass,
+            Field field,
+            PropertyDescriptor propertyDescriptor,
+            Validator validator,
+            MessageInterpolator messageInterpolator) {
+        // @Valid on a collection shows up as its cascaded element type
+        boolean cascadesElements = false;
+        for (ContainerElementTypeDescriptor elementDescriptor :
+                propertyDescriptor.getConstrainedContainerElementTypes()) {
+            if (!elementDescriptor.getConstraintDescriptors().isEmpty()
+                    || !elementDescriptor.getConstrainedContainerElementTypes().isEmpty()
+                    || !Iterable.class.isAssignableFrom(field.getType())) {
+                throw unsupported(beanClass, "container element constraints on " + field);
+            }
+            cascadesElements |= elementDescriptor.isCascaded();
+        }
+        Set<ConstraintDescriptor<?>> constraintDescriptors =
+                propertyDescriptor.getConstraintDescriptors();
+        List<ConstraintPlan> constraintPlans = new ArrayList<>();
+        for (ConstraintDescriptor<?> constraintDescriptor : constraintDescriptors) {
+            Class<? extends Annotation> annotationType =
+                    constraintDescriptor.getAnnotation().annotationType();
+            if (field.getAnnotationsByType(annotationType).length == 0
+                    || !Set.of(Default.class).equals(constraintDescriptor.getGroups())
+                    || !constraintDescriptor.getComposingConstraints().isEmpty()) {
+                throw unsupported(beanClass, annotationType.getSimpleName() + " on " + field);
+            }
+            constraintPlans.add(
+                    new ConstraintPlan(
+                            createCheck(beanClass, field, annotationType),
+                            interpolate(
+                                    beanClass, field, constraintDescriptor, messageInterpolator)));
+        }
+
+        field.setAccessible(true);
+        PropertyPlan propertyPlan =
+                new PropertyPlan(field, constraintPlans.toArray(new ConstraintPlan[0]));
+        if (cascadesElements) {
+            propertyPlan.cascadesElements = true;
+            propertyPlan.cascadedPlan =
+                    compile(elementClass(beanClass, field), validator, messageInterpolator);
+        } else if (propertyDescriptor.isCascaded()) {
+            if (Iterable.class.isAssignableFrom(field.getType())
+                    || Map.class.isAssignableFrom(field.getType())
+                    || field.getType().isArray()
+                    || field.getType().isPrimitive()) {
+                throw unsupported(beanClass, "@Valid on " + field);
+            }
+            propertyPlan.cascadedPlan = compile(field.getType(), validator, messageInterpolator);
+        }
+        return propertyPlan;
+    }
+
+    private static ValueCheck createCheck(
+            Class<?> beanClass, Field field, Class<? extends Annotation> annotationType) {
+        Class<?> type = field.getType();
+        if (annotationType == NotNull.class) {
+            return (value, clock) -> value != null;
+        }
+        if (annotationType == NotBlank.class && CharSequence.class.isAssignableFrom(type)) {
+            return (value, clock) -> value != null && !isBlank((CharSequence) value);
+        }
+        if (annotationType == NotEmpty.class && CharSequence.class.isAssignableFrom(type)) {
+            return (value, clock) -> value != null && ((CharSequence) value).length() > 0;
+        }
+        if (annotationType == NotEmpty.class && Collection.class.isAssignableFrom(type)) {
+            return (value, clock) -> value != null && !((Collection<?>) value).isEmpty();
+        }
+        if (annotationType == NotEmpty.class && Map.class.isAssignableFrom(type)) {
+            return (value, clock) -> value != null && !((Map<?, ?>) value).isEmpty();
+        }
+        if (annotationType == Past.class && type == LocalDate.class) {
+            return (value, clock) ->
+                    value == null || ((LocalDate) value).isBefore(LocalDate.now(clock));
+        }
+        throw unsupported(beanClass, annotationType.getSimpleName() + " on " + field);
+    }
+
+    // the same as trim().isEmpty(), which is how the Validator decides
+    private static boolean isBlank(CharSequence value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String interpolate(
+            Class<?> beanClass,
+            Field field,
+            ConstraintDescriptor<?> constraintDescriptor,
+            MessageInterpolator messageInterpolator) {
+        String messageTemplate = constraintDescriptor.getMessageTemplate();
+        // a message with an expression can depend on the value, so it cannot be cached
+        if (messageTemplate.contains("${")) {
+            throw unsupported(beanClass, "an expression in the message of " + field);
+        }
+        return messageInterpolator.interpolate(
+                messageTemplate, new InterpolationContext(constraintDescriptor));
+    }
+
+    private static Class<?> elementClass(Class<?> beanClass, Field field) {
+        Type genericType = field.getGenericType();
+        if (genericType instanceof ParameterizedType) {
+            Type[] typeArguments = ((ParameterizedType) genericType).getActualTypeArguments();
+            if (typeArguments.length == 1 && typeArguments[0] instanceof Class) {
+                return (Class<?>) typeArguments[0];
+            }
+        }
+        throw unsupported(beanClass, "@Valid on " + field);
+    }
+
+    private static IllegalStateException unsupported(Class<?> beanClass, String what) {
+        return new IllegalStateException(
+                "Cannot precompute the validation of " + beanClass.getName() + ": " + what);
+    }
+
+    private interface ValueCheck {
+        boolean isValid(Object value, Clock clock);
+    }
+
+    private static final class BeanPlan {
+        private final Class<?> beanClass;
+        private PropertyPlan[] properties;
+
+        private BeanPlan(Class<?> beanClass) {
+            this.beanClass = beanClass;
+        }
+    }
+
+    private static final class PropertyPlan {
+        private final Field field;
+        private final ConstraintPlan[] constraints;
+        private BeanPlan cascadedPlan;
+        private boolean cascadesElements;
+
+        private PropertyPlan(Field field, ConstraintPlan[] constraints) {
+            this.field = field;
+            this.constraints = constraints;
+        }
+
+        private Object read(Object bean) {
+            try {
+                return field.get(bean);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Unable to read " + field, e);
+            }
+        }
+    }
+
+    private static final class ConstraintPlan {
+        private final ValueCheck check;
+        private final String message;
+
+        private ConstraintPlan(ValueCheck check, String message) {
+            this.check = check;
+            this.message = message;
+        }
+    }
+
+    private static final class InterpolationContext implements MessageInterpolator.Context {
+        private final ConstraintDescriptor<?> constraintDescriptor;
+
+        private InterpolationContext(ConstraintDescriptor<?> constraintDescriptor) {
+            this.constraintDescriptor = constraintDescriptor;
+        }
+
+        @Override
+        public ConstraintDescriptor<?> getConstraintDescriptor() {
+            return constraintDescriptor;
+        }
+
+        @Override
+        public Object getValidatedValue() {
+            return null;
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> type) {
+            if (type.isInstance(this)) {
+                return type.cast(this);
+            }
+            throw new ValidationException(
+                    "Cannot unwrap an interpolation context to " + type.getName());
+        }
+    }
+
+    private static final class UnsupportedBeanException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private UnsupportedBeanException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package uk.gov.di.ipv.cri.experian.simulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A stand-in for the CrossCore API for load and resilience testing without network access. It
+ * checks the {@code hmac-signature} of every request, echoes its {@code clientReferenceId} in a
+ * CrossCore shaped response and injects latency, 503 errors, connection resets and slowly dripped
+ * response bodies as configured. Responses are scheduled rather than slept on, so a handful of
+ * threads can hold thousands of slow requests.
+ */
+public class CrossCoreSimulator implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CrossCoreSimulator.class);
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String CONTENT_TYPE = "application/json";
+    private final CrossCoreSimulatorConfig config;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ThreadLocal<Mac> macs;
+    private final ScheduledExecutorService scheduler;
+    private final Server server;
+    private final ServerConnector connector;
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder signatureFailureCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final LongAdder resetCount = new LongAdder();
+    private final LongAdder slowDripCount = new LongAdder();
+
+    public CrossCoreSimulator(CrossCoreSimulatorConfig config) {
+        Objects.requireNonNull(config, "config must not be null");
+        this.config = config;
+        SecretKeySpec secretKey =
+                new SecretKeySpec(
+                        config.getHmacKey().getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> createMac(secretKey));
+        this.scheduler =
+                Executors.newScheduledThreadPool(
+                        Math.max(2, Runtime.getRuntime().availableProcessors()));
+        this.server = new Server();
+        this.connector = new ServerConnector(server);
+        this.connector.setPort(config.getPort());
+        this.server.addConnector(connector);
+        this.server.setHandler(new SimulatorHandler());
+    }
+
+    public static void main(String[] args) throws Exception {
+        CrossCoreSimulator simulator =
+                new CrossCoreSimulator(CrossCoreSimulatorConfig.fromEnvironment());
+        simulator.start();
+        LOGGER.info("CrossCore simulator listening on {}", simulator.getEndpointUri());
+        simulator.server.join();
+    }
+
+    public void start() throws Exception {
+        server.start();
+    }
+
+    /** Stops the server; an interrupt while it stops is kept on the calling thread. */
+    @Override
+    public void close() {
+        try {
+            server.stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            throw new IllegalStateException("The CrossCore simulator did not stop", e);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public URI getEndpointUri() {
+        return URI.create("http://localhost:" + connector.getLocalPort() + "/");
+    }
+
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    public long getSignatureFailureCount() {
+        return signatureFailureCount.sum();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    public long getResetCount() {
+        return resetCount.sum();
+    }
+
+    public long getSlowDripCount() {
+        return slowDripCount.sum();
+    }
+
+    private final class SimulatorHandler extends AbstractHandler {
+        @Override
+        public void handle(
+                String target,
+                Request baseRequest,
+                HttpServletRequest request,
+                HttpServletResponse response)
+                throws IOException {
+            baseRequest.setHandled(true);
+            if (!"POST".equals(request.getMethod())) {
+                writeError(response, HttpServletResponse.SC_METHOD_NOT_ALLOWED, "POST only");
+                return;
+            }
+            byte[] requestBody = request.getInputStream().readAllBytes();
+            requestCount.increment();
+            if (!isSignatureValid(requestBody, request.getHeader("hmac-signature"))) {
+                signatureFailureCount.increment();
+                writeError(response, HttpServletResponse.SC_UNAUTHORIZED, "invalid hmac-signature");
+                return;
+            }
+            JsonNode requestHeader;
+            try {
+                requestHeader = objectMapper.readTree(requestBody).path("header");
+            } catch (IOException e) {
+                writeError(response, HttpServletResponse.SC_BAD_REQUEST, "invalid request body");
+                return;
+            }
+
+            Random random = ThreadLocalRandom.current();
+            long latencyNanos = Math.max(0, config.getLatency().sampleNanos(random));
+            double fault = random.nextDouble();
+            EndPoint endPoint = baseRequest.getHttpChannel().getEndPoint();
+            AsyncContext asyncContext = request.startAsync();
+            asyncContext.setTimeout(0);
+            Runnable answer;
+            if (fault < config.getResetRate()) {
+                answer = () -> reset(asyncContext, endPoint);
+            } else if (fault < config.getResetRate() + config.getErrorRate()) {
+                answer = () -> respondWithError(asyncContext);
+            } else {
+                byte[] responseBody = createResponseBody(requestHeader);
+                boolean slowDrip = random.nextDouble() < config.getSlowDripRate();
+                answer = () -> respond(asyncContext, responseBody, slowDrip);
+            }
+            scheduler.schedule(answer, latencyNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void respond(AsyncContext asyncContext, byte[] responseBody, boolean slowDrip) {
+        HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(CONTENT_TYPE);
+        response.setContentLength(responseBody.length);
+        if (slowDrip) {
+            slowDripCount.increment();
+            drip(asyncContext, responseBody, 0);
+            return;
+        }
+        try {
+            response.getOutputStream().write(responseBody);
+        } catch (IOException e) {
+            LOGGER.debug("Client went away before the response was written", e);
+        } finally {
+            asyncContext.complete();
+        }
+    }
+
+    private void drip(AsyncContext asyncContext, byte[] responseBody, int offset) {
+        int length = Math.min(config.getSlowDripChunkBytes(), responseBody.length - offset);
+        try {
+            ServletOutputStream outputStream = asyncContext.getResponse().getOutputStream();
+            outputStream.write(responseBody, offset, length);
+            outputStream.flush();
+        } catch (IOException e) {
+            LOGGER.debug("Client went away during a slow drip response", e);
+            asyncContext.complete();
+            return;
+        }
+        if (offset + length >= responseBody.length) {
+            asyncContext.complete();
+            return;
+        }
+        scheduler.schedule(
+                () -> drip(asyncContext, responseBody, offset + length),
+                config.getSlowDripChunkDelay().toNanos(),
+                TimeUnit.NANOSECONDS);
+    }
+
+    private void respondWithError(AsyncContext asyncContext) {
+        errorCount.increment();
+        try {
+            writeError(
+                    (HttpServletResponse) asyncContext.getResponse(),
+                    HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    "simulated outage");
+        } catch (IOException e) {
+            LOGGER.debug("Client went away before the error was written", e);
+        } finally {
+            asyncContext.complete();
+        }
+    }
+
+    // SO_LINGER 0 makes close() send a TCP RST instead of a FIN, as a crashed peer would
+    private void reset(AsyncContext asyncContext, EndPoint endPoint) {
+        resetCount.increment();
+        try {
+            Object transport = endPoint.getTransport();
+            if (transport instanceof SocketChannel) {
+                ((SocketChannel) transport).socket().setSoLinger(true, 0);
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Could not set SO_LINGER before the reset", e);
+        }
+        endPoint.close();
+        try {
+            asyncContext.complete();
+        } catch (IllegalStateException e) {
+            // the connection is already gone
+        }
+    }
+
+    private void writeError(HttpServletResponse response, int status, String message)
+            throws IOException {
+        ObjectNode error = objectMapper.createObjectNode();
+        error.put("errorCode", status);
+        error.put("errorMessage", message);
+        response.setStatus(status);
+        response.setContentType(CONTENT_TYPE);
+        response.getOutputStream().write(objectMapper.writeValueAsBytes(error));
+    }
+
+    private boolean isSignatureValid(byte[] requestBody, String signature) {
+        if (signature == null) {
+            return false;
+        }
+        byte[] expected = Base64.getEncoder().encode(macs.get().doFinal(requestBody));
+        return MessageDigest.isEqual(expected, signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private byte[] createResponseBody(JsonNode requestHeader) throws IOException {
+        String messageTime = Instant.now().truncatedTo(ChronoUnit.SECONDS).toString();
+        ObjectNode responseBody = objectMapper.createObjectNode();
+        ObjectNode responseHeader = responseBody.putObject("responseHeader");
+        responseHeader.put("requestType", requestHeader.path("requestType").asText());
+        responseHeader.put("clientReferenceId", requestHeader.path("clientReferenceId").asText());
+        responseHeader.put("expRequestId", "SIM-" + UUID.randomUUID());
+        responseHeader.put("messageTime", messageTime);
+        ObjectNode overallResponse = responseHeader.putObject("overallResponse");
+        overallResponse.put("decision", "CONTINUE");
+        overallResponse.put("decisionText", "Continue");
+        overallResponse.putArray("decisionReasons").add("Processing completed successfully");
+        overallResponse.putArray("recommendedNextActions");
+        overallResponse.putArray("spareObjects");
+        responseHeader.put("responseCode", "R0201");
+        responseHeader.put("responseType", "INFO");
+        responseHeader.put("responseMessage", "Workflow Complete.");
+        responseHeader.put("tenantID", requestHeader.path("tenantId").asText());
+
+        ObjectNode clientResponsePayload = responseBody.putObject("clientResponsePayload");
+        ObjectNode orchestrationDecision =
+                clientResponsePayload.putArray("orchestrationDecisions").addObject();
+        orchestrationDecision.put("sequenceId", "1");
+        orchestrationDecision.put("decisionSource", "uk-crpverify");
+        orchestrationDecision.put("decision", "AUTHENTICATED");
+        orchestrationDecision.putArray("decisionReasons").add("Processing completed successfully");
+        orchestrationDecision.put("score", 90);
+        orchestrationDecision.put("decisionText", "Authenticated");
+        orchestrationDecision.put("nextAction", "Continue");
+        orchestrationDecision.put("decisionTime", messageTime);
+        ArrayNode decisionElements = clientResponsePayload.putArray("decisionElements");
+        ObjectNode decisionElement = decisionElements.addObject();
+        decisionElement.put("serviceName", "uk-crpverify");
+        decisionElement.put("applicantId", "APPLICANT_1");
+        decisionElement.put("decision", "AUTHENTICATED");
+        decisionElement.put("score", 90);
+        decisionElement.put("decisionText", "Authenticated");
+        decisionElement.put("decisionReason", "Processing completed successfully");
+        ArrayNode matches = decisionElement.putArray("matches");
+        matches.addObject().put("name", "PMATCH").put("value", "1");
+        matches.addObject().put("name", "AMATCH").put("value", "1");
+        decisionElement.putArray("warningsErrors");
+        return objectMapper.writeValueAsBytes(responseBody);
+    }
+
+    private static Mac createMac(SecretKeySpec secretKey) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(secretKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to initialise " + HMAC_ALGORITHM, e);
+        }
+    }
+}
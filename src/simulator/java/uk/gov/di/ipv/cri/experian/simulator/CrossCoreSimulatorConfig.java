@@ -0,0 +1,107 @@
+package uk.gov.di.ipv.cri.experian.simulator;
+
+import java.time.Duration;
+import java.util.Objects;
+
+public class CrossCoreSimulatorConfig {
+    private static final int DEFAULT_PORT = 5010;
+    private static final String DEFAULT_HMAC_KEY = "crosscore-simulator-key";
+    private static final String DEFAULT_LATENCY = "lognormal:120:0.4";
+    private static final int DEFAULT_SLOW_DRIP_CHUNK_BYTES = 64;
+    private static final long DEFAULT_SLOW_DRIP_CHUNK_DELAY_MILLIS = 50;
+    private final int port;
+    private final String hmacKey;
+    private final LatencyDistribution latency;
+    private final double errorRate;
+    private final double resetRate;
+    private final double slowDripRate;
+    private final int slowDripChunkBytes;
+    private final Duration slowDripChunkDelay;
+
+    /**
+     * @param port the port to listen on, 0 for any free port
+     * @param errorRate the fraction of requests answered with a 503
+     * @param resetRate the fraction of connections reset instead of answered
+     * @param slowDripRate the fraction of responses written in delayed chunks
+     */
+    public CrossCoreSimulatorConfig(
+            int port,
+            String hmacKey,
+            LatencyDistribution latency,
+            double errorRate,
+            double resetRate,
+            double slowDripRate,
+            int slowDripChunkBytes,
+            Duration slowDripChunkDelay) {
+        Objects.requireNonNull(hmacKey, "hmacKey must not be null");
+        Objects.requireNonNull(latency, "latency must not be null");
+        Objects.requireNonNull(slowDripChunkDelay, "slowDripChunkDelay must not be null");
+        if (slowDripChunkBytes < 1) {
+            throw new IllegalArgumentException("slowDripChunkBytes must be at least 1");
+        }
+        this.port = port;
+        this.hmacKey = hmacKey;
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.resetRate = resetRate;
+        this.slowDripRate = slowDripRate;
+        this.slowDripChunkBytes = slowDripChunkBytes;
+        this.slowDripChunkDelay = slowDripChunkDelay;
+    }
+
+    public static CrossCoreSimulatorConfig fromEnvironment() {
+        return new CrossCoreSimulatorConfig(
+                Integer.parseInt(getEnv("CROSSCORE_SIMULATOR_PORT", String.valueOf(DEFAULT_PORT))),
+                getEnv("CROSSCORE_SIMULATOR_HMAC_KEY", DEFAULT_HMAC_KEY),
+                LatencyDistribution.parse(getEnv("CROSSCORE_SIMULATOR_LATENCY", DEFAULT_LATENCY)),
+                Double.parseDouble(getEnv("CROSSCORE_SIMULATOR_ERROR_RATE", "0")),
+                Double.parseDouble(getEnv("CROSSCORE_SIMULATOR_RESET_RATE", "0")),
+                Double.parseDouble(getEnv("CROSSCORE_SIMULATOR_SLOW_DRIP_RATE", "0")),
+                Integer.parseInt(
+                        getEnv(
+                                "CROSSCORE_SIMULATOR_SLOW_DRIP_CHUNK_BYTES",
+                                String.valueOf(DEFAULT_SLOW_DRIP_CHUNK_BYTES))),
+                Duration.ofMillis(
+                        Long.parseLong(
+                                getEnv(
+                                        "CROSSCORE_SIMULATOR_SLOW_DRIP_CHUNK_DELAY_MILLIS",
+                                        String.valueOf(DEFAULT_SLOW_DRIP_CHUNK_DELAY_MILLIS)))));
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getHmacKey() {
+        return hmacKey;
+    }
+
+    public LatencyDistribution getLatency() {
+        return latency;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public double getResetRate() {
+        return resetRate;
+    }
+
+    public double getSlowDripRate() {
+        return slowDripRate;
+    }
+
+    public int getSlowDripChunkBytes() {
+        return slowDripChunkBytes;
+    }
+
+    public Duration getSlowDripChunkDelay() {
+        return slowDripChunkDelay;
+    }
+
+    private static String getEnv(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+}
@@ -0,0 +1,68 @@
+package uk.gov.di.ipv.cri.experian.simulator;
+
+import java.time.Duration;
+import java.util.Random;
+
+/** How long the simulator waits before it starts answering a request. */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    long sampleNanos(Random random);
+
+    static LatencyDistribution fixed(Duration latency) {
+        long latencyNanos = latency.toNanos();
+        return random -> latencyNanos;
+    }
+
+    /** A lognormal distribution, the usual shape of service latencies, with a long right tail. */
+    static LatencyDistribution logNormal(Duration median, double sigma) {
+        double mu = Math.log(median.toNanos());
+        return random -> (long) Math.exp(mu + sigma * random.nextGaussian());
+    }
+
+    /** Mostly {@code fast}, but a {@code slowFraction} of requests take {@code slow}. */
+    static LatencyDistribution bimodal(
+            LatencyDistribution fast, LatencyDistribution slow, double slowFraction) {
+        return random ->
+                random.nextDouble() < slowFraction
+                        ? slow.sampleNanos(random)
+                        : fast.sampleNanos(random);
+    }
+
+    /**
+     * Parses {@code fixed:<millis>}, {@code lognormal:<medianMillis>:<sigma>} or {@code
+     * bimodal:<fastMillis>:<slowMillis>:<slowFraction>}, e.g. {@code bimodal:40:800:0.05}.
+     */
+    static LatencyDistribution parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        try {
+            switch (parts[0]) {
+                case "fixed":
+                    if (parts.length == 2) {
+                        return fixed(Duration.ofMillis(Long.parseLong(parts[1])));
+                    }
+                    break;
+                case "lognormal":
+                    if (parts.length == 3) {
+                        return logNormal(
+                                Duration.ofMillis(Long.parseLong(parts[1])),
+                                Double.parseDouble(parts[2]));
+                    }
+                    break;
+                case "bimodal":
+                    if (parts.length == 4) {
+                        return bimodal(
+                                fixed(Duration.ofMillis(Long.parseLong(parts[1]))),
+                                fixed(Duration.ofMillis(Long.parseLong(parts[2]))),
+                                Double.parseDouble(parts[3]));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid latency distribution: " + spec, e);
+        }
+        throw new IllegalArgumentException("Invalid latency distribution: " + spec);
+    }
+}
@@ -0,0 +1,198 @@
+package uk.gov.di.ipv.cri.experian.simulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import uk.gov.di.ipv.cri.experian.config.ExperianApiConfig;
+import uk.gov.di.ipv.cri.experian.gateway.CircuitBreaker;
+import uk.gov.di.ipv.cri.experian.gateway.CircuitBreakerOpenException;
+import uk.gov.di.ipv.cri.experian.gateway.CrossCoreResponseParser;
+import uk.gov.di.ipv.cri.experian.gateway.ExperianApiRequestMapper;
+import uk.gov.di.ipv.cri.experian.gateway.ExperianGateway;
+import uk.gov.di.ipv.cri.experian.gateway.HmacGenerator;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.gov.di.ipv.cri.experian.util.TestDataCreator.createTestPersonIdentity;
+
+class CrossCoreSimulatorTest {
+    private static final String HMAC_KEY = "simulator-test-key";
+    private static final String TENANT_ID = "tenant-id";
+    private final ObjectMapper objectMapper =
+            new ObjectMapper().registerModule(new JavaTimeModule());
+    private CrossCoreSimulator simulator;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (simulator != null) {
+            simulator.close();
+        }
+    }
+
+    @Test
+    void shouldAnswerASignedRequestWithARealisticResponse() throws Exception {
+        startSimulator(LatencyDistribution.fixed(Duration.ofMillis(5)), 0, 0, 0);
+        ExperianGateway gateway = createGateway(HMAC_KEY, null);
+
+        JsonNode response =
+                objectMapper.readTree(gateway.performIdentityCheck(createTestPersonIdentity()));
+
+        JsonNode responseHeader = response.path("responseHeader");
+        assertFalse(responseHeader.path("clientReferenceId").asText().isEmpty());
+        assertEquals(TENANT_ID, responseHeader.path("tenantID").asText());
+        assertEquals("CONTINUE", responseHeader.path("overallResponse").path("decision").asText());
+        assertEquals(
+                "AUTHENTICATED",
+                response.path("clientResponsePayload")
+                        .path("decisionElements")
+                        .path(0)
+                        .path("decision")
+                        .asText());
+        assertEquals(1, simulator.getRequestCount());
+    }
+
+    @Test
+    void shouldReturnTheDecisionOfTheResponseWithAResponseParser() throws Exception {
+        startSimulator(LatencyDistribution.fixed(Duration.ZERO), 0, 0, 0);
+        ExperianApiConfig experianApiConfig = mock(ExperianApiConfig.class);
+        when(experianApiConfig.getEndpointUri()).thenReturn(simulator.getEndpointUri().toString());
+        ExperianGateway gateway =
+                ExperianGateway.builder(
+                                HttpClient.newHttpClient(),
+                                new ExperianApiRequestMapper(TENANT_ID),
+                                objectMapper,
+                                new HmacGenerator(HMAC_KEY),
+                                experianApiConfig)
+                        .responseParser(new CrossCoreResponseParser(objectMapper.getFactory()))
+                        .build();
+
+        JsonNode response =
+                objectMapper.readTree(gateway.performIdentityCheck(createTestPersonIdentity()));
+
+        assertTrue(response.path("expRequestId").asText().startsWith("SIM-"));
+        assertEquals("CONTINUE", response.path("decision").asText());
+        assertEquals(90, response.path("score").asInt());
+        assertEquals("1", response.path("matches").path("PMATCH").asText());
+        assertFalse(response.has("responseHeader"));
+    }
+
+    @Test
+    void shouldEchoTheClientReferenceIdOfTheRequest() throws Exception {
+        startSimulator(LatencyDistribution.fixed(Duration.ZERO), 0, 0, 0);
+        ExperianGateway gateway = createGateway(HMAC_KEY, null);
+
+        String first =
+                objectMapper
+                        .readTree(gateway.performIdentityCheck(createTestPersonIdentity()))
+                        .path("responseHeader")
+                        .path("clientReferenceId")
+                        .asText();
+        String second =
+                objectMapper
+                        .readTree(gateway.performIdentityCheck(createTestPersonIdentity()))
+                        .path("responseHeader")
+                        .path("clientReferenceId")
+                        .asText();
+
+        assertFalse(first.equals(second));
+    }
+
+    @Test
+    void shouldRejectARequestSignedWithTheWrongKey() throws Exception {
+        startSimulator(LatencyDistribution.fixed(Duration.ZERO), 0, 0, 0);
+        ExperianGateway gateway = createGateway("wrong-key", null);
+
+        JsonNode response =
+                objectMapper.readTree(gateway.performIdentityCheck(createTestPersonIdentity()));
+
+        assertEquals(401, response.path("errorCode").asInt());
+        assertEquals(1, simulator.getSignatureFailureCount());
+    }
+
+    @Test
+    void shouldOpenTheCircuitBreakerWhenEveryCallFails() throws Exception {
+        startSimulator(LatencyDistribution.fixed(Duration.ZERO), 1, 0, 0);
+        CircuitBreaker circuitBreaker =
+                new CircuitBreaker(10, 5, 50, Duration.ofSeconds(5), 80, Duration.ofSeconds(30), 1);
+        ExperianGateway gateway = createGateway(HMAC_KEY, circuitBreaker);
+
+        for (int i = 0; i < 5; i++) {
+            gateway.performIdentityCheck(createTestPersonIdentity());
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertThrows(
+                CircuitBreakerOpenException.class,
+                () -> gateway.performIdentityCheck(createTestPersonIdentity()));
+        assertEquals(5, simulator.getErrorCount());
+    }
+
+    @Test
+    void shouldResetTheConnection() throws Exception {
+        startSimulator(LatencyDistribution.fixed(Duration.ZERO), 0, 1, 0);
+        ExperianGateway gateway = createGateway(HMAC_KEY, null);
+
+        assertThrows(
+                IOException.class, () -> gateway.performIdentityCheck(createTestPersonIdentity()));
+        assertEquals(1, simulator.getResetCount());
+    }
+
+    @Test
+    void shouldDripTheResponseBodyInChunks() throws Exception {
+        startSimulator(LatencyDistribution.fixed(Duration.ZERO), 0, 0, 1);
+        ExperianGateway gateway = createGateway(HMAC_KEY, null);
+
+        long startNanos = System.nanoTime();
+        JsonNode response =
+                objectMapper.readTree(gateway.performIdentityCheck(createTestPersonIdentity()));
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - startNanos).toMillis();
+
+        assertEquals(
+                "CONTINUE",
+                response.path("responseHeader").path("overallResponse").path("decision").asText());
+        assertEquals(1, simulator.getSlowDripCount());
+        // a response of over 1KB in 256 byte chunks 10ms apart
+        assertTrue(elapsedMillis >= 30, "took " + elapsedMillis + "ms");
+    }
+
+    private void startSimulator(
+            LatencyDistribution latency, double errorRate, double resetRate, double slowDripRate)
+            throws Exception {
+        simulator =
+                new CrossCoreSimulator(
+                        new CrossCoreSimulatorConfig(
+                                0,
+                                HMAC_KEY,
+                                latency,
+                                errorRate,
+                                resetRate,
+                                slowDripRate,
+                                256,
+                                Duration.ofMillis(10)));
+        simulator.start();
+    }
+
+    private ExperianGateway createGateway(String hmacKey, CircuitBreaker circuitBreaker)
+            throws Exception {
+        ExperianApiConfig experianApiConfig = mock(ExperianApiConfig.class);
+        when(experianApiConfig.getEndpointUri()).thenReturn(simulator.getEndpointUri().toString());
+        return ExperianGateway.builder(
+                        HttpClient.newHttpClient(),
+                        new ExperianApiRequestMapper(TENANT_ID),
+                        objectMapper,
+                        new HmacGenerator(hmacKey),
+                        experianApiConfig)
+                .circuitBreaker(circuitBreaker)
+                .build();
+    }
+}
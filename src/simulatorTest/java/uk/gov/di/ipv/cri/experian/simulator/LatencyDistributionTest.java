@@ -0,0 +1,57 @@
+package uk.gov.di.ipv.cri.experian.simulator;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyDistributionTest {
+    private static final long MILLIS = Duration.ofMillis(1).toNanos();
+
+    @Test
+    void shouldParseAFixedLatency() {
+        LatencyDistribution latency = LatencyDistribution.parse("fixed:50");
+
+        assertEquals(50 * MILLIS, latency.sampleNanos(new Random(1)));
+    }
+
+    @Test
+    void shouldSampleALogNormalLatencyAroundItsMedian() {
+        long[] samples = sample(LatencyDistribution.parse("lognormal:120:0.4"), 10001);
+
+        long median = samples[samples.length / 2];
+        assertTrue(median > 110 * MILLIS && median < 130 * MILLIS, "median " + median);
+        assertTrue(samples[samples.length - 1] > 2 * median);
+    }
+
+    @Test
+    void shouldSampleTheSlowModeForTheConfiguredFraction() {
+        long[] samples = sample(LatencyDistribution.parse("bimodal:40:800:0.05"), 10000);
+
+        long slow = Arrays.stream(samples).filter(sample -> sample == 800 * MILLIS).count();
+        assertTrue(slow > 400 && slow < 600, "slow samples " + slow);
+        assertEquals(10000 - slow, Arrays.stream(samples).filter(s -> s == 40 * MILLIS).count());
+    }
+
+    @Test
+    void shouldRejectAnInvalidSpecification() {
+        assertThrows(IllegalArgumentException.class, () -> LatencyDistribution.parse("fixed"));
+        assertThrows(IllegalArgumentException.class, () -> LatencyDistribution.parse("gamma:1:2"));
+        assertThrows(IllegalArgumentException.class, () -> LatencyDistribution.parse("fixed:abc"));
+    }
+
+    private static long[] sample(LatencyDistribution latency, int count) {
+        Random random = new Random(42);
+        long[] samples = new long[count];
+        for (int i = 0; i < count; i++) {
+            samples[i] = latency.sampleNanos(random);
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+}
@@ -0,0 +1,47 @@
+package uk.gov.di.ipv.cri.experian.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InstrumentedThreadPoolExecutorTest {
+
+    @Test
+    void shouldQueueRatherThanRejectTasksWhileEveryThreadIsBusy() throws Exception {
+        InstrumentedThreadPoolExecutor executor =
+                new InstrumentedThreadPoolExecutor("test-executor-", 1);
+        try {
+            CountDownLatch blocked = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            executor.execute(
+                    () -> {
+                        blocked.countDown();
+                        awaitQuietly(release);
+                    });
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 100; i++) {
+                executor.execute(() -> {});
+            }
+
+            assertEquals(100, executor.getQueueDepth());
+            assertEquals(1, executor.getActiveCount());
+            release.countDown();
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(101, executor.getCompletedTaskCount());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package uk.gov.di.ipv.cri.experian.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ThreadAwarePoolTest {
+
+    @Test
+    void shouldReuseOneInstancePerPlatformThread() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        ThreadAwarePool<Object> pool = new ThreadAwarePool<>(createCountingFactory(created), 4);
+
+        Object first = pool.acquire();
+        pool.release(first);
+        Object second = pool.acquire();
+        pool.release(second);
+
+        assertSame(first, second);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            assertNotSame(first, executorService.submit(pool::acquire).get());
+        } finally {
+            executorService.shutdownNow();
+        }
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    void shouldShareReleasedInstancesBetweenVirtualThreads() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+        AtomicInteger created = new AtomicInteger();
+        ThreadAwarePool<Object> pool = new ThreadAwarePool<>(createCountingFactory(created), 4);
+
+        ExecutorService executorService = VirtualThreads.newThreadPerTaskExecutor("test-");
+        try {
+            for (int i = 0; i < 100; i++) {
+                executorService
+                        .submit(
+                                () -> {
+                                    assertTrue(VirtualThreads.isVirtual(Thread.currentThread()));
+                                    pool.release(pool.acquire());
+                                })
+                        .get();
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    void shouldRejectVirtualThreadsWhenTheRuntimeHasNone() {
+        assumeFalse(VirtualThreads.isSupported());
+
+        assertFalse(VirtualThreads.isVirtual(Thread.currentThread()));
+        assertThrows(
+                UnsupportedOperationException.class,
+                () -> VirtualThreads.newThreadPerTaskExecutor("test-"));
+    }
+
+    private static Supplier<Object> createCountingFactory(AtomicInteger created) {
+        return () -> {
+            created.incrementAndGet();
+            return new Object();
+        };
+    }
+}
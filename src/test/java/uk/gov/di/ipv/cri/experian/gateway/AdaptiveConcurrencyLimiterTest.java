@@ -0,0 +1,151 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+    private static final Duration LONG_QUEUE_TIMEOUT = Duration.ofMinutes(1);
+
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    @Test
+    void shouldGrantPermitsUpToTheLimitAndQueueTheRest() {
+        AdaptiveConcurrencyLimiter limiter = createLimiter(2, 1, 2, 1, LONG_QUEUE_TIMEOUT);
+
+        AdaptiveConcurrencyLimiter.Permit first = limiter.acquire().join();
+        limiter.acquire().join();
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> queued = limiter.acquire();
+
+        assertFalse(queued.isDone());
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(1, limiter.getQueueDepth());
+
+        first.onIgnore();
+
+        assertTrue(queued.isDone());
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(0, limiter.getQueueDepth());
+    }
+
+    @Test
+    void shouldRejectImmediatelyWhenTheQueueIsFull() {
+        AdaptiveConcurrencyLimiter limiter = createLimiter(1, 1, 1, 1, LONG_QUEUE_TIMEOUT);
+        limiter.acquire().join();
+        limiter.acquire();
+
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> rejected = limiter.acquire();
+
+        ExecutionException exception = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(ConcurrencyLimitExceededException.class, exception.getCause());
+        assertEquals(
+                "concurrency_limit_exceeded",
+                ((GatewayUnavailableException) exception.getCause()).getErrorCode());
+        assertEquals(1, limiter.getRejectedCount());
+        assertEquals(1, limiter.getQueueDepth());
+    }
+
+    @Test
+    void shouldRejectQueuedRequestsWhenTheQueueTimeoutExpires() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = createLimiter(1, 1, 1, 1, Duration.ofMillis(10));
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire().join();
+
+        assertThrows(ConcurrencyLimitExceededException.class, limiter::acquireBlocking);
+        assertEquals(0, limiter.getQueueDepth());
+
+        permit.onIgnore();
+
+        assertEquals(0, limiter.getInFlight());
+        limiter.acquire().get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void shouldReleaseEachPermitOnlyOnce() {
+        AdaptiveConcurrencyLimiter limiter = createLimiter(2, 1, 2, 0, LONG_QUEUE_TIMEOUT);
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire().join();
+        limiter.acquire().join();
+
+        permit.onIgnore();
+        permit.onIgnore();
+        permit.onSuccess();
+
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    @Test
+    void shouldGrowTheLimitWhileRoundTripTimeIsStable() {
+        AdaptiveConcurrencyLimiter limiter = createLimiter(10, 1, 100, 0, LONG_QUEUE_TIMEOUT);
+
+        runFullyLoadedRounds(limiter, 20, 50);
+
+        assertTrue(limiter.getLimit() > 10, "limit was " + limiter.getLimit());
+    }
+
+    @Test
+    void shouldShrinkTheLimitWhenRoundTripTimeIncreases() {
+        AdaptiveConcurrencyLimiter limiter = createLimiter(10, 1, 100, 0, LONG_QUEUE_TIMEOUT);
+        runFullyLoadedRounds(limiter, 20, 50);
+        int limitBeforeSlowdown = limiter.getLimit();
+
+        runFullyLoadedRounds(limiter, 10, 500);
+
+        assertTrue(
+                limiter.getLimit() < limitBeforeSlowdown / 2,
+                "limit went from " + limitBeforeSlowdown + " to " + limiter.getLimit());
+    }
+
+    @Test
+    void shouldBackOffWhenCallsAreDroppedButNotBelowTheMinimum() {
+        AdaptiveConcurrencyLimiter limiter = createLimiter(20, 5, 100, 0, LONG_QUEUE_TIMEOUT);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire().join().onDropped();
+        }
+
+        assertEquals(5, limiter.getLimit());
+    }
+
+    @Test
+    void shouldNotGrowTheLimitWhenItIsLightlyUsed() {
+        AdaptiveConcurrencyLimiter limiter = createLimiter(10, 1, 100, 0, LONG_QUEUE_TIMEOUT);
+
+        for (int i = 0; i < 100; i++) {
+            AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire().join();
+            nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(50));
+            permit.onSuccess();
+        }
+
+        assertEquals(10, limiter.getLimit());
+    }
+
+    private void runFullyLoadedRounds(
+            AdaptiveConcurrencyLimiter limiter, int rounds, long rttMillis) {
+        for (int round = 0; round < rounds; round++) {
+            List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+            CompletableFuture<AdaptiveConcurrencyLimiter.Permit> permit;
+            while ((permit = limiter.acquire()).isDone() && !permit.isCompletedExceptionally()) {
+                permits.add(permit.join());
+            }
+            nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(rttMillis));
+            permits.forEach(AdaptiveConcurrencyLimiter.Permit::onSuccess);
+        }
+    }
+
+    private AdaptiveConcurrencyLimiter createLimiter(
+            int initialLimit, int minLimit, int maxLimit, int maxQueueSize, Duration queueTimeout) {
+        return new AdaptiveConcurrencyLimiter(
+                initialLimit, minLimit, maxLimit, maxQueueSize, queueTimeout, nanoTime::get);
+    }
+}
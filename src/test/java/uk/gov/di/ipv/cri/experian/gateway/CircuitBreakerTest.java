@@ -0,0 +1,155 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+    private static final Duration SLOW_CALL_THRESHOLD = Duration.ofSeconds(1);
+    private static final Duration OPEN_DURATION = Duration.ofSeconds(30);
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final CircuitBreaker circuitBreaker =
+            new CircuitBreaker(10, 4, 50, SLOW_CALL_THRESHOLD, 80, OPEN_DURATION, 2, nanoTime::get);
+
+    @Test
+    void shouldStayClosedUntilTheMinimumNumberOfCallsIsRecorded() {
+        recordFailures(3);
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        recordFailures(1);
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void shouldOpenWhenTheFailureRateReachesTheThreshold() {
+        recordSuccesses(6);
+        recordFailures(4);
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        recordFailures(1);
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void shouldOnlyCountTheMostRecentCallsInTheWindow() {
+        recordSuccesses(6);
+        recordFailures(4);
+        recordSuccesses(6);
+        recordFailures(1);
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void shouldOpenWhenTheSlowCallRateReachesTheThreshold() {
+        for (int i = 0; i < 4; i++) {
+            CircuitBreaker.Permit permit = circuitBreaker.acquirePermission();
+            nanoTime.addAndGet(SLOW_CALL_THRESHOLD.toNanos() + 1);
+            permit.onSuccess();
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void shouldRejectCallsWhileOpen() {
+        recordFailures(4);
+
+        CircuitBreakerOpenException exception =
+                assertThrows(CircuitBreakerOpenException.class, circuitBreaker::acquirePermission);
+        assertEquals("circuit_open", exception.getErrorCode());
+        assertEquals(1, circuitBreaker.getRejectedCount());
+    }
+
+    @Test
+    void shouldCloseWhenTheHalfOpenTrialCallsSucceed() {
+        recordFailures(4);
+        nanoTime.addAndGet(OPEN_DURATION.toNanos());
+
+        CircuitBreaker.Permit firstTrial = circuitBreaker.acquirePermission();
+        CircuitBreaker.Permit secondTrial = circuitBreaker.acquirePermission();
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertThrows(CircuitBreakerOpenException.class, circuitBreaker::acquirePermission);
+
+        firstTrial.onSuccess();
+        secondTrial.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        recordFailures(3);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void shouldReopenWhenTheHalfOpenTrialCallsFail() {
+        recordFailures(4);
+        nanoTime.addAndGet(OPEN_DURATION.toNanos());
+
+        recordSuccesses(1);
+        recordFailures(1);
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertThrows(CircuitBreakerOpenException.class, circuitBreaker::acquirePermission);
+    }
+
+    @Test
+    void shouldFreeTheTrialSlotWhenATrialCallIsIgnored() {
+        recordFailures(4);
+        nanoTime.addAndGet(OPEN_DURATION.toNanos());
+        circuitBreaker.acquirePermission().onIgnore();
+
+        recordSuccesses(2);
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void shouldIgnoreOutcomesOfCallsStartedBeforeTheBreakerOpened() {
+        CircuitBreaker.Permit staleCall = circuitBreaker.acquirePermission();
+        recordFailures(4);
+        nanoTime.addAndGet(OPEN_DURATION.toNanos());
+        CircuitBreaker.Permit trial = circuitBreaker.acquirePermission();
+
+        staleCall.onFailure();
+        trial.onSuccess();
+        recordSuccesses(1);
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void shouldFailFast() {
+        recordFailures(4);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < 10000; i++) {
+            assertThrows(CircuitBreakerOpenException.class, circuitBreaker::acquirePermission);
+        }
+
+        long averageMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) / 10000;
+        assertTrue(averageMicros < 100, "average rejection took " + averageMicros + "us");
+    }
+
+    private void recordSuccesses(int count) {
+        for (int i = 0; i < count; i++) {
+            circuitBreaker.acquirePermission().onSuccess();
+        }
+    }
+
+    private void recordFailures(int count) {
+        for (int i = 0; i < count; i++) {
+            circuitBreaker.acquirePermission().onFailure();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import uk.gov.di.ipv.cri.experian.domain.AddressType;
+import uk.gov.di.ipv.cri.experian.gateway.dto.Address;
+import uk.gov.di.ipv.cri.experian.gateway.dto.Applicant;
+import uk.gov.di.ipv.cri.experian.gateway.dto.Application;
+import uk.gov.di.ipv.cri.experian.gateway.dto.Contact;
+import uk.gov.di.ipv.cri.experian.gateway.dto.CrossCoreApiRequest;
+import uk.gov.di.ipv.cri.experian.gateway.dto.Header;
+import uk.gov.di.ipv.cri.experian.gateway.dto.Name;
+import uk.gov.di.ipv.cri.experian.gateway.dto.Options;
+import uk.gov.di.ipv.cri.experian.gateway.dto.Payload;
+import uk.gov.di.ipv.cri.experian.gateway.dto.Person;
+import uk.gov.di.ipv.cri.experian.gateway.dto.PersonDetails;
+import uk.gov.di.ipv.cri.experian.gateway.dto.ResidentFrom;
+import uk.gov.di.ipv.cri.experian.gateway.dto.ResidentTo;
+import uk.gov.di.ipv.cri.experian.gateway.dto.TimeAtAddress;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static uk.gov.di.ipv.cri.experian.util.TestDataCreator.createTestPersonIdentity;
+
+class CrossCoreApiRequestWriterTest {
+    private final ObjectMapper objectMapper =
+            new ObjectMapper().registerModule(new JavaTimeModule());
+    private final CrossCoreApiRequestWriter requestWriter =
+            new CrossCoreApiRequestWriter(objectMapper.getFactory());
+
+    @Test
+    void shouldMatchObjectMapperForAMappedRequest() throws IOException {
+        CrossCoreApiRequest apiRequest =
+                new ExperianApiRequestMapper("tenant-id")
+                        .mapPersonIdentity(createTestPersonIdentity(AddressType.PREVIOUS));
+
+        assertSameBytes(apiRequest);
+    }
+
+    @Test
+    void shouldMatchObjectMapperForAnEmptyRequest() throws IOException {
+        assertSameBytes(new CrossCoreApiRequest());
+    }
+
+    @Test
+    void shouldMatchObjectMapperForEmptyAndNullNestedObjects() throws IOException {
+        CrossCoreApiRequest apiRequest = new CrossCoreApiRequest();
+        apiRequest.setHeader(new Header());
+        Payload payload = new Payload();
+        payload.setApplication(new Application());
+        Contact contact = new Contact();
+        contact.setPerson(new Person());
+        contact.getPerson().getNames().add(new Name());
+        contact.getPerson().getNames().add(null);
+        contact.getAddresses().add(new Address());
+        payload.getContacts().add(contact);
+        payload.getContacts().add(new Contact());
+        payload.getContacts().get(1).setAddresses(null);
+        apiRequest.setPayload(payload);
+
+        assertSameBytes(apiRequest);
+    }
+
+    @Test
+    void shouldMatchObjectMapperWhenEveryFieldIsSet() throws IOException {
+        assertSameBytes(createFullRequest("value"));
+    }
+
+    @Test
+    void shouldMatchObjectMapperForValuesThatNeedEscaping() throws IOException {
+        assertSameBytes(createFullRequest("O'Brien \"Jr\"\\ \u00e9\u20ac\ud83d\ude00\n\t\u0001</"));
+    }
+
+    private void assertSameBytes(CrossCoreApiRequest apiRequest) throws IOException {
+        byte[] expected = objectMapper.writeValueAsBytes(apiRequest);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        requestWriter.write(outputStream, apiRequest);
+
+        byte[] actual = outputStream.toByteArray();
+        assertEquals(
+                new String(expected, StandardCharsets.UTF_8),
+                new String(actual, StandardCharsets.UTF_8));
+        assertArrayEquals(expected, actual);
+    }
+
+    private static CrossCoreApiRequest createFullRequest(String value) {
+        Options options = new Options();
+        options.setVersion(value);
+        options.setCustomOption1(value);
+        options.setCustomOption2(value);
+        options.setCustomOption3(value);
+        options.setCustomOption4(value);
+        options.setCustomOption5(value);
+        options.setCustomOption6(value);
+        options.setCustomOption7(value);
+        Header header = new Header();
+        header.setTenantId(value);
+        header.setRequestType(value);
+        header.setClientReferenceId(value);
+        header.setExpRequestId(value);
+        header.setMessageTime(value);
+        header.setOptions(options);
+
+        Name name = new Name();
+        name.setId(value);
+        name.setType(value);
+        name.setTitle(value);
+        name.setFirstName(value);
+        name.setMiddleNames(value);
+        name.setSurName(value);
+        PersonDetails personDetails = new PersonDetails();
+        personDetails.setDateOfBirth(value);
+        Person person = new Person();
+        person.setPersonIdentifier(value);
+        person.setPersonDetails(personDetails);
+        person.setNames(List.of(name, name));
+
+        ResidentFrom residentFrom = new ResidentFrom();
+        residentFrom.setFullDateFrom(value);
+        residentFrom.setYearFrom(value);
+        residentFrom.setMonthFrom(value);
+        residentFrom.setDayFrom(value);
+        ResidentTo residentTo = new ResidentTo();
+        residentTo.setFullDateTo(value);
+        residentTo.setYearTo(value);
+        residentTo.setMonthTo(value);
+        residentTo.setDayTo(value);
+        TimeAtAddress timeAtAddress = new TimeAtAddress();
+        timeAtAddress.setValue(-42);
+        timeAtAddress.setUnit(value);
+        Address address = new Address();
+        address.setId(value);
+        address.setAddressIdentifier(value);
+        address.setAddressType(value);
+        address.setSubBuilding(value);
+        address.setBuildingName(value);
+        address.setBuildingNumber(value);
+        address.setStreet(value);
+        address.setLocality(value);
+        address.setPostTown(value);
+        address.setPostal(value);
+        address.setResidentFrom(residentFrom);
+        address.setResidentTo(residentTo);
+        address.setTimeAtAddress(timeAtAddress);
+
+        Contact contact = new Contact();
+        contact.setId(value);
+        contact.setPerson(person);
+        contact.setAddresses(List.of(address, address));
+
+        Applicant applicant = new Applicant();
+        applicant.setId(value);
+        applicant.setContactId(value);
+        applicant.setType(value);
+        applicant.setApplicantType(value);
+        applicant.setConsent(false);
+        Application application = new Application();
+        List<Applicant> applicants = new ArrayList<>();
+        applicants.add(applicant);
+        applicants.add(null);
+        application.setApplicants(applicants);
+
+        Payload payload = new Payload();
+        payload.setContacts(List.of(contact));
+        payload.setApplication(application);
+        CrossCoreApiRequest apiRequest = new CrossCoreApiRequest();
+        apiRequest.setHeader(header);
+        apiRequest.setPayload(payload);
+        return apiRequest;
+    }
+}
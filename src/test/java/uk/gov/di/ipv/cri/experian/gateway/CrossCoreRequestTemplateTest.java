@@ -0,0 +1,140 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.gov.di.ipv.cri.experian.domain.AddressType;
+import uk.gov.di.ipv.cri.experian.domain.PersonAddress;
+import uk.gov.di.ipv.cri.experian.domain.PersonIdentity;
+import uk.gov.di.ipv.cri.experian.gateway.dto.CrossCoreApiRequest;
+import uk.gov.di.ipv.cri.experian.metrics.StageRecorder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static uk.gov.di.ipv.cri.experian.util.TestDataCreator.createTestPersonIdentity;
+
+class CrossCoreRequestTemplateTest {
+    private final ObjectMapper objectMapper =
+            new ObjectMapper().registerModule(new JavaTimeModule());
+    private HmacGenerator hmacGenerator;
+
+    @BeforeEach
+    void setup() throws Exception {
+        hmacGenerator = new HmacGenerator("experian-secret-key");
+    }
+
+    @Test
+    void shouldMatchTheMappedRequestForAPersonWithoutNames() throws IOException {
+        assertMatchesMappedRequest("tenant-id", createTestPersonIdentity(AddressType.CURRENT));
+    }
+
+    @Test
+    void shouldMatchTheMappedRequestForAPersonWithSeveralAddresses() throws IOException {
+        PersonIdentity personIdentity = new PersonIdentity();
+        personIdentity.setFirstName("JON");
+        personIdentity.setMiddleNames("JAMES");
+        personIdentity.setSurname("DOE");
+        personIdentity.setDateOfBirth(LocalDate.of(1970, 1, 1));
+        PersonAddress previousAddress = createAddress(AddressType.PREVIOUS);
+        previousAddress.setHouseNameNumber(null);
+        personIdentity.setAddresses(
+                List.of(
+                        createAddress(AddressType.CURRENT),
+                        previousAddress,
+                        createAddress(AddressType.PREVIOUS)));
+
+        assertMatchesMappedRequest("tenant-id", personIdentity);
+    }
+
+    @Test
+    void shouldMatchTheMappedRequestForValuesThatNeedEscaping() throws IOException {
+        String value = "O'Brien \"Jr\"\\ \u00e9\u20ac\ud83d\ude00\n\t\u0001</";
+        PersonIdentity personIdentity = createTestPersonIdentity(AddressType.CURRENT);
+        personIdentity.setFirstName(value);
+        personIdentity.setSurname(value);
+        personIdentity.getAddresses().get(0).setStreet(value);
+
+        assertMatchesMappedRequest("tenant \"id\"", personIdentity);
+    }
+
+    @Test
+    void shouldMatchTheMappedRequestWithoutATenantId() throws IOException {
+        assertMatchesMappedRequest(null, createTestPersonIdentity(AddressType.PREVIOUS));
+    }
+
+    @Test
+    void shouldRenderANewClientReferenceIdForEveryRequest() throws IOException {
+        CrossCoreRequestTemplate template =
+                new CrossCoreRequestTemplate("tenant-id", hmacGenerator);
+        PersonIdentity personIdentity = createTestPersonIdentity();
+
+        String first = readClientReferenceId(template.render(personIdentity, StageRecorder.NONE));
+        String second = readClientReferenceId(template.render(personIdentity, StageRecorder.NONE));
+
+        assertEquals(36, first.length());
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    void shouldThrowExceptionWhenPersonIdentityIsNull() {
+        CrossCoreRequestTemplate template =
+                new CrossCoreRequestTemplate("tenant-id", hmacGenerator);
+
+        NullPointerException exception =
+                assertThrows(
+                        NullPointerException.class,
+                        () -> template.render(null, StageRecorder.NONE));
+        assertEquals("The personIdentity must not be null", exception.getMessage());
+    }
+
+    private void assertMatchesMappedRequest(String tenantId, PersonIdentity personIdentity)
+            throws IOException {
+        SignedPayload signedPayload =
+                new CrossCoreRequestTemplate(tenantId, hmacGenerator)
+                        .render(personIdentity, StageRecorder.NONE);
+
+        JsonNode renderedHeader = objectMapper.readTree(signedPayload.getBody()).path("header");
+        CrossCoreApiRequest apiRequest =
+                new ExperianApiRequestMapper(tenantId).mapPersonIdentity(personIdentity);
+        apiRequest
+                .getHeader()
+                .setClientReferenceId(renderedHeader.path("clientReferenceId").asText());
+        apiRequest.getHeader().setMessageTime(renderedHeader.path("messageTime").asText());
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new CrossCoreApiRequestWriter(objectMapper.getFactory()).write(expected, apiRequest);
+        assertEquals(
+                new String(objectMapper.writeValueAsBytes(apiRequest), StandardCharsets.UTF_8),
+                new String(signedPayload.getBody(), StandardCharsets.UTF_8));
+        assertEquals(
+                expected.toString(StandardCharsets.UTF_8),
+                new String(signedPayload.getBody(), StandardCharsets.UTF_8));
+        assertEquals(hmacGenerator.generateHmac(signedPayload.getBody()), signedPayload.getHmac());
+    }
+
+    private String readClientReferenceId(SignedPayload signedPayload) throws IOException {
+        return objectMapper
+                .readTree(signedPayload.getBody())
+                .path("header")
+                .path("clientReferenceId")
+                .asText();
+    }
+
+    private static PersonAddress createAddress(AddressType addressType) {
+        PersonAddress address = new PersonAddress();
+        address.setAddressType(addressType);
+        address.setHouseNameNumber("70");
+        address.setStreet("WHITEHALL");
+        address.setTownCity("LONDON");
+        address.setPostcode("SW1A 2AS");
+        return address;
+    }
+}
@@ -0,0 +1,86 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import uk.gov.di.ipv.cri.experian.domain.IdentityCheckDecision;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CrossCoreResponseParserTest {
+    private static final String CROSS_CORE_RESPONSE =
+            "{\"responseHeader\":{\"requestType\":\"Authenticateplus-Standalone\","
+                + "\"clientReferenceId\":\"3a1c\",\"expRequestId\":\"RB000001\","
+                + "\"messageTime\":\"2021-11-01T10:00:00Z\","
+                + "\"overallResponse\":{\"decision\":\"CONTINUE\",\"decisionText\":\"Continue\",\"decisionReasons\":[\"Processing"
+                + " completed\"],\"score\":12,\"recommendedNextActions\":[],\"spareObjects\":[]},"
+                + "\"responseCode\":\"R0201\",\"responseType\":\"INFO\"},"
+                + "\"clientResponsePayload\":{\"orchestrationDecisions\":[{\"sequenceId\":\"1\","
+                + "\"decision\":\"AUTHENTICATED\",\"score\":0}],"
+                + "\"decisionElements\":[{\"serviceName\":\"uk-crpverify\",\"decision\":\"AU01\","
+                + "\"score\":90,\"otherData\":{\"response\":{\"score\":7,\"matches\":[]}},"
+                + "\"rules\":[{\"ruleId\":\"U001\",\"ruleScore\":5}],"
+                + "\"matches\":[{\"name\":\"PMATCH\",\"value\":\"1\"},"
+                + "{\"name\":\"AMATCH\",\"value\":0}]},{\"serviceName\":\"uk-fraud\",\"score\":40,"
+                + "\"matches\":[{\"name\":\"DMATCH\",\"value\":\"1\"}]}]},"
+                + "\"originalRequestData\":{\"contacts\":[{\"person\":{\"names\":[]}}]}}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CrossCoreResponseParser responseParser =
+            new CrossCoreResponseParser(objectMapper.getFactory());
+
+    @Test
+    void shouldReadTheDecisionElementsOfAResponse() throws IOException {
+        IdentityCheckDecision decision = responseParser.parse(CROSS_CORE_RESPONSE);
+
+        assertEquals("RB000001", decision.getExpRequestId());
+        assertEquals("CONTINUE", decision.getDecision());
+        assertEquals(90, decision.getScore());
+        assertEquals(Map.of("PMATCH", "1", "AMATCH", "0", "DMATCH", "1"), decision.getMatches());
+    }
+
+    @Test
+    void shouldReadAResponseFedOneByteAtATime() throws IOException {
+        CrossCoreResponseParser.DecisionReader reader = responseParser.newReader();
+        byte[] bytes = CROSS_CORE_RESPONSE.getBytes(StandardCharsets.UTF_8);
+        for (int offset = 0; offset < bytes.length; offset++) {
+            reader.feed(bytes, offset, 1);
+        }
+        IdentityCheckDecision decision = reader.finish();
+
+        assertEquals("RB000001", decision.getExpRequestId());
+        assertEquals(90, decision.getScore());
+        assertEquals(Map.of("PMATCH", "1", "AMATCH", "0", "DMATCH", "1"), decision.getMatches());
+    }
+
+    @Test
+    void shouldSerialiseOnlyTheElementsThatArePresent() throws IOException {
+        IdentityCheckDecision decision =
+                responseParser.parse(
+                        "{\"responseHeader\":{\"expRequestId\":\"RB000002\","
+                                + "\"overallResponse\":{\"decision\":\"STOP\"}}}");
+
+        assertNull(decision.getScore());
+        assertEquals(
+                "{\"expRequestId\":\"RB000002\",\"decision\":\"STOP\"}",
+                objectMapper.writeValueAsString(decision));
+    }
+
+    @Test
+    void shouldRejectAResponseThatIsNotAJsonObject() {
+        assertThrows(JsonProcessingException.class, () -> responseParser.parse("[]"));
+    }
+
+    @Test
+    void shouldRejectATruncatedResponse() {
+        assertThrows(
+                JsonProcessingException.class,
+                () -> responseParser.parse(CROSS_CORE_RESPONSE.substring(0, 200)));
+    }
+}
@@ -1,6 +1,9 @@
 package uk.gov.di.ipv.cri.experian.gateway;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -8,28 +11,53 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.di.ipv.cri.experian.concurrent.InstrumentedThreadPoolExecutor;
 import uk.gov.di.ipv.cri.experian.config.ExperianApiConfig;
 import uk.gov.di.ipv.cri.experian.domain.AddressType;
+import uk.gov.di.ipv.cri.experian.domain.IdentityCheckDecision;
 import uk.gov.di.ipv.cri.experian.domain.PersonIdentity;
 import uk.gov.di.ipv.cri.experian.gateway.dto.CrossCoreApiRequest;
+import uk.gov.di.ipv.cri.experian.metrics.IdentityCheckMetrics;
+import uk.gov.di.ipv.cri.experian.metrics.PrometheusTextWriter;
+import uk.gov.di.ipv.cri.experian.metrics.StageRecorder;
 
 import javax.net.ssl.SSLSession;
 import javax.servlet.http.HttpServletResponse;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static uk.gov.di.ipv.cri.experian.util.TestDataCreator.createTestPersonIdentity;
 
@@ -59,6 +87,9 @@ class ExperianGatewayTest {
     }
 
     private static final String TEST_API_RESPONSE_BODY = "test-api-response-content";
+    private static final String CROSS_CORE_RESPONSE_BODY =
+            "{\"responseHeader\":{\"expRequestId\":\"RB000001\","
+                    + "\"overallResponse\":{\"decision\":\"CONTINUE\"}}}";
     private ExperianGateway experianGateway;
 
     @Mock private HttpClient mockHttpClient;
@@ -87,8 +118,8 @@ class ExperianGatewayTest {
         PersonIdentity personIdentity = createTestPersonIdentity(AddressType.CURRENT);
         when(mockRequestMapper.mapPersonIdentity(personIdentity)).thenReturn(testApiRequest);
         when(this.mockExperianApiConfig.getEndpointUri()).thenReturn(testEndpointUri);
-        when(this.mockObjectMapper.writeValueAsString(testApiRequest)).thenReturn(testRequestBody);
-        when(this.mockHmacGenerator.generateHmac(testRequestBody)).thenReturn(hmacOfRequestBody);
+        when(this.mockExperianApiConfig.getRequestTimeout()).thenReturn(Duration.ofSeconds(10));
+        mockSerializeAndSign(testApiRequest, testRequestBody, hmacOfRequestBody);
         ArgumentCaptor<HttpRequest> httpRequestCaptor = ArgumentCaptor.forClass(HttpRequest.class);
         when(this.mockHttpClient.send(
                         httpRequestCaptor.capture(), eq(HttpResponse.BodyHandlers.ofString())))
@@ -98,19 +129,355 @@ class ExperianGatewayTest {
 
         assertEquals(TEST_API_RESPONSE_BODY, identityCheckResult);
         verify(mockRequestMapper).mapPersonIdentity(personIdentity);
-        verify(mockObjectMapper).writeValueAsString(testApiRequest);
-        verify(mockHmacGenerator).generateHmac(testRequestBody);
+        verify(mockObjectMapper).writeValue(any(OutputStream.class), eq(testApiRequest));
+        verify(mockHmacGenerator)
+                .generateSignedPayload(
+                        any(HmacGenerator.PayloadWriter.class), any(StageRecorder.class));
         verify(mockExperianApiConfig).getEndpointUri();
         verify(mockHttpClient)
                 .send(any(HttpRequest.class), eq(HttpResponse.BodyHandlers.ofString()));
         assertEquals(testEndpointUri, httpRequestCaptor.getValue().uri().toString());
         assertEquals("POST", httpRequestCaptor.getValue().method());
+        assertEquals(Optional.of(Duration.ofSeconds(10)), httpRequestCaptor.getValue().timeout());
         HttpHeaders capturedHttpRequestHeaders = httpRequestCaptor.getValue().headers();
         assertEquals("application/json", capturedHttpRequestHeaders.firstValue("Accept").get());
         assertEquals(
                 "application/json", capturedHttpRequestHeaders.firstValue("Content-Type").get());
         assertEquals(
                 hmacOfRequestBody, capturedHttpRequestHeaders.firstValue("hmac-signature").get());
+        assertEquals(
+                testRequestBody.length(),
+                httpRequestCaptor.getValue().bodyPublisher().get().contentLength());
+    }
+
+    @Test
+    void shouldInvokeExperianApiAsynchronously() throws Exception {
+        final String testRequestBody = "serialisedCrossCoreApiRequest";
+        final CrossCoreApiRequest testApiRequest = new CrossCoreApiRequest();
+        final String testEndpointUri = "https://test-endpoint";
+        final String hmacOfRequestBody = "hmac-of-request-body";
+        PersonIdentity personIdentity = createTestPersonIdentity(AddressType.CURRENT);
+        when(mockRequestMapper.mapPersonIdentity(personIdentity)).thenReturn(testApiRequest);
+        when(this.mockExperianApiConfig.getEndpointUri()).thenReturn(testEndpointUri);
+        mockSerializeAndSign(testApiRequest, testRequestBody, hmacOfRequestBody);
+        ArgumentCaptor<HttpRequest> httpRequestCaptor = ArgumentCaptor.forClass(HttpRequest.class);
+        when(this.mockHttpClient.sendAsync(
+                        httpRequestCaptor.capture(), eq(HttpResponse.BodyHandlers.ofString())))
+                .thenReturn(CompletableFuture.completedFuture(createMockApiResponse()));
+
+        CompletableFuture<String> identityCheckResult =
+                experianGateway.performIdentityCheckAsync(personIdentity);
+
+        assertEquals(TEST_API_RESPONSE_BODY, identityCheckResult.get());
+        verify(mockHttpClient, never())
+                .send(any(HttpRequest.class), eq(HttpResponse.BodyHandlers.ofString()));
+        assertEquals(testEndpointUri, httpRequestCaptor.getValue().uri().toString());
+        assertEquals("POST", httpRequestCaptor.getValue().method());
+        assertEquals(
+                hmacOfRequestBody,
+                httpRequestCaptor.getValue().headers().firstValue("hmac-signature").get());
+    }
+
+    @Test
+    void shouldRejectWithoutCallingExperianApiWhenTheConcurrencyLimitIsReached()
+            throws IOException, InterruptedException {
+        final CrossCoreApiRequest testApiRequest = new CrossCoreApiRequest();
+        PersonIdentity personIdentity = createTestPersonIdentity(AddressType.CURRENT);
+        when(mockRequestMapper.mapPersonIdentity(personIdentity)).thenReturn(testApiRequest);
+        when(this.mockExperianApiConfig.getEndpointUri()).thenReturn("https://test-endpoint");
+        mockSerializeAndSign(testApiRequest, "serialisedCrossCoreApiRequest", "hmac");
+        AdaptiveConcurrencyLimiter concurrencyLimiter =
+                new AdaptiveConcurrencyLimiter(1, 1, 1, 0, Duration.ofSeconds(1));
+        concurrencyLimiter.acquire().join();
+        ExperianGateway limitedGateway = createGateway(concurrencyLimiter);
+
+        assertThrows(
+                ConcurrencyLimitExceededException.class,
+                () -> limitedGateway.performIdentityCheck(personIdentity));
+        verify(mockHttpClient, never())
+                .send(any(HttpRequest.class), eq(HttpResponse.BodyHandlers.ofString()));
+    }
+
+    @Test
+    void shouldReleaseTheConcurrencyPermitWhenTheCallCompletes() throws Exception {
+        final CrossCoreApiRequest testApiRequest = new CrossCoreApiRequest();
+        PersonIdentity personIdentity = createTestPersonIdentity(AddressType.CURRENT);
+        when(mockRequestMapper.mapPersonIdentity(personIdentity)).thenReturn(testApiRequest);
+        when(this.mockExperianApiConfig.getEndpointUri()).thenReturn("https://test-endpoint");
+        mockSerializeAndSign(testApiRequest, "serialisedCrossCoreApiRequest", "hmac");
+        when(this.mockHttpClient.send(
+                        any(HttpRequest.class), eq(HttpResponse.BodyHandlers.ofString())))
+                .thenReturn(createMockApiResponse())
+                .thenThrow(new IOException("connection reset"));
+        when(this.mockHttpClient.sendAsync(
+                        any(HttpRequest.class), eq(HttpResponse.BodyHandlers.ofString())))
+                .thenReturn(CompletableFuture.completedFuture(createMockApiResponse()));
+        AdaptiveConcurrencyLimiter concurrencyLimiter =
+                new AdaptiveConcurrencyLimiter(1, 1, 1, 0, Duration.ofSeconds(1));
+        ExperianGateway limitedGateway = createGateway(concurrencyLimiter);
+
+        assertEquals(TEST_API_RESPONSE_BODY, limitedGateway.performIdentityCheck(personIdentity));
+        assertEquals(0, concurrencyLimiter.getInFlight());
+        assertThrows(IOException.class, () -> limitedGateway.performIdentityCheck(personIdentity));
+        assertEquals(0, concurrencyLimiter.getInFlight());
+        assertEquals(
+                TEST_API_RESPONSE_BODY,
+                limitedGateway.performIdentityCheckAsync(personIdentity).get());
+        assertEquals(0, concurrencyLimiter.getInFlight());
+    }
+
+    @Test
+    void shouldFailFastWithoutCallingExperianApiWhileTheCircuitBreakerIsOpen() throws Exception {
+        final CrossCoreApiRequest testApiRequest = new CrossCoreApiRequest();
+        PersonIdentity personIdentity = createTestPersonIdentity(AddressType.CURRENT);
+        when(mockRequestMapper.mapPersonIdentity(personIdentity)).thenReturn(testApiRequest);
+        when(this.mockExperianApiConfig.getEndpointUri()).thenReturn("https://test-endpoint");
+        mockSerializeAndSign(testApiRequest, "serialisedCrossCoreApiRequest", "hmac");
+        when(this.mockHttpClient.send(
+                        any(HttpRequest.class), eq(HttpResponse.BodyHandlers.ofString())))
+                .thenThrow(new IOException("connection refused"));
+        CircuitBreaker circuitBreaker =
+                new CircuitBreaker(1, 1, 50, Duration.ofSeconds(1), 100, Duration.ofMinutes(1), 1);
+        ExperianGateway guardedGateway = createGateway(null, circuitBreaker);
+
+        assertThrows(IOException.class, () -> guardedGateway.performIdentityCheck(personIdentity));
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertThrows(
+                CircuitBreakerOpenException.class,
+                () -> guardedGateway.performIdentityCheck(personIdentity));
+        ExecutionException exception =
+                assertThrows(
+                        ExecutionException.class,
+                        () -> guardedGateway.performIdentityCheckAsync(personIdentity).get());
+        assertInstanceOf(CircuitBreakerOpenException.class, exception.getCause());
+        verify(mockHttpClient)
+                .send(any(HttpRequest.class), eq(HttpResponse.BodyHandlers.ofString()));
+        verify(mockHttpClient, never())
+                .sendAsync(any(HttpRequest.class), eq(HttpResponse.BodyHandlers.ofString()));
+    }
+
+    @Test
+    void shouldRefuseCallsBeyondTheLimitAndKeepServingThroughASaturatedHttpClient()
+            throws Exception {
+        final CrossCoreApiRequest testApiRequest = new CrossCoreApiRequest();
+        PersonIdentity personIdentity = createTestPersonIdentity(AddressType.CURRENT);
+        CountDownLatch release = new CountDownLatch(1);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        ExecutorService serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.createContext(
+                "/",
+                exchange -> {
+                    exchange.getRequestBody().readAllBytes();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    byte[] body = TEST_API_RESPONSE_BODY.getBytes(StandardCharsets.UTF_8);
+                    exchange.sendResponseHeaders(HttpServletResponse.SC_OK, body.length);
+                    exchange.getResponseBody().write(body);
+                    exchange.close();
+                });
+        server.start();
+        InstrumentedThreadPoolExecutor clientExecutor =
+                new InstrumentedThreadPoolExecutor("test-client-", 1);
+        try {
+            HttpClient httpClient =
+                    HttpClient.newBuilder()
+                            .version(HttpClient.Version.HTTP_1_1)
+                            .executor(clientExecutor)
+                            .build();
+            when(mockRequestMapper.mapPersonIdentity(personIdentity)).thenReturn(testApiRequest);
+            when(this.mockExperianApiConfig.getEndpointUri())
+                    .thenReturn("http://localhost:" + server.getAddress().getPort() + "/");
+            when(this.mockExperianApiConfig.getRequestTimeout()).thenReturn(Duration.ofSeconds(10));
+            mockSerializeAndSign(testApiRequest, "serialisedCrossCoreApiRequest", "hmac");
+            ExperianGateway limitedGateway =
+                    ExperianGateway.builder(
+                                    httpClient,
+                                    mockRequestMapper,
+                                    mockObjectMapper,
+                                    mockHmacGenerator,
+                                    mockExperianApiConfig)
+                            .maxCallsInFlight(20)
+                            .build();
+
+            List<CompletableFuture<String>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                results.add(limitedGateway.performIdentityCheckAsync(personIdentity));
+            }
+            int refused = 0;
+            for (CompletableFuture<String> result : results) {
+                if (result.isCompletedExceptionally()) {
+                    ExecutionException exception =
+                            assertThrows(ExecutionException.class, result::get);
+                    assertInstanceOf(ConcurrencyLimitExceededException.class, exception.getCause());
+                    refused++;
+                }
+            }
+            assertEquals(180, refused);
+            assertEquals(20, limitedGateway.getCallsInFlight());
+            release.countDown();
+
+            for (CompletableFuture<String> result : results) {
+                if (!result.isCompletedExceptionally()) {
+                    assertEquals(TEST_API_RESPONSE_BODY, result.get(10, TimeUnit.SECONDS));
+                }
+            }
+            assertEquals(
+                    TEST_API_RESPONSE_BODY,
+                    limitedGateway
+                            .performIdentityCheckAsync(personIdentity)
+                            .get(10, TimeUnit.SECONDS));
+            assertEquals(0, limitedGateway.getCallsInFlight());
+            assertEquals(180, limitedGateway.getRejectedCallCount());
+        } finally {
+            release.countDown();
+            server.stop(0);
+            serverExecutor.shutdownNow();
+            clientExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldSendProbesAsHeadRequestsWhileTheCircuitBreakerIsOpen() throws Exception {
+        when(this.mockExperianApiConfig.getEndpointUri()).thenReturn("https://test-endpoint");
+        when(this.mockExperianApiConfig.getRequestTimeout()).thenReturn(Duration.ofSeconds(3));
+        @SuppressWarnings("unchecked")
+        HttpResponse<Void> response = Mockito.mock(HttpResponse.class);
+        ArgumentCaptor<HttpRequest> httpRequestCaptor = ArgumentCaptor.forClass(HttpRequest.class);
+        when(this.mockHttpClient.sendAsync(
+                        httpRequestCaptor.capture(), ExperianGatewayTest.<Void>anyBodyHandler()))
+                .thenReturn(CompletableFuture.completedFuture(response));
+        CircuitBreaker circuitBreaker =
+                new CircuitBreaker(1, 1, 50, Duration.ofSeconds(1), 100, Duration.ofMinutes(1), 1);
+        circuitBreaker.acquirePermission().onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(response, createGateway(null, circuitBreaker).sendProbe().get());
+        HttpRequest probeRequest = httpRequestCaptor.getValue();
+        assertEquals("HEAD", probeRequest.method());
+        assertEquals(URI.create("https://test-endpoint"), probeRequest.uri());
+        assertEquals(Optional.of(Duration.ofSeconds(3)), probeRequest.timeout());
+        assertTrue(probeRequest.headers().firstValue("hmac-signature").isEmpty());
+        verifyNoInteractions(mockRequestMapper);
+    }
+
+    @Test
+    void shouldRecordUpstreamMetrics() throws Exception {
+        final CrossCoreApiRequest testApiRequest = new CrossCoreApiRequest();
+        PersonIdentity personIdentity = createTestPersonIdentity(AddressType.CURRENT);
+        when(mockRequestMapper.mapPersonIdentity(personIdentity)).thenReturn(testApiRequest);
+        when(this.mockExperianApiConfig.getEndpointUri()).thenReturn("https://test-endpoint");
+        mockSerializeAndSign(testApiRequest, "serialisedCrossCoreApiRequest", "hmac");
+        when(this.mockHttpClient.send(
+                        any(HttpRequest.class), eq(HttpResponse.BodyHandlers.ofString())))
+                .thenReturn(createMockApiResponse());
+        IdentityCheckMetrics metrics = new IdentityCheckMetrics();
+        ExperianGateway instrumentedGateway = createGatewayBuilder().metrics(metrics).build();
+
+        instrumentedGateway.performIdentityCheck(personIdentity);
+
+        String output = scrape(metrics);
+        assertTrue(output.contains("experian_api_stage_duration_seconds_count{stage=\"map\"} 1"));
+        assertTrue(
+                output.contains("experian_api_stage_duration_seconds_count{stage=\"upstream\"} 1"));
+        assertTrue(output.contains("experian_api_upstream_responses_total{code=\"200\"} 1"));
+        assertTrue(output.contains("experian_api_upstream_request_bytes_total 29"));
+        assertTrue(
+                output.contains(
+                        "experian_api_upstream_response_bytes_total "
+                                + TEST_API_RESPONSE_BODY.length()));
+    }
+
+    @Test
+    void shouldReturnTheDecisionOfASuccessfulResponseWithAResponseParser() throws Exception {
+        final CrossCoreApiRequest testApiRequest = new CrossCoreApiRequest();
+        PersonIdentity personIdentity = createTestPersonIdentity(AddressType.CURRENT);
+        when(mockRequestMapper.mapPersonIdentity(personIdentity)).thenReturn(testApiRequest);
+        when(this.mockExperianApiConfig.getEndpointUri()).thenReturn("https://test-endpoint");
+        mockSerializeAndSign(testApiRequest, "serialisedCrossCoreApiRequest", "hmac");
+        when(this.mockHttpClient.sendAsync(any(HttpRequest.class), anyBodyHandler()))
+                .thenAnswer(
+                        invocation ->
+                                readThroughBodyHandler(
+                                        invocation.getArgument(1),
+                                        HttpServletResponse.SC_OK,
+                                        CROSS_CORE_RESPONSE_BODY));
+        when(mockObjectMapper.writeValueAsString(any(IdentityCheckDecision.class)))
+                .thenAnswer(
+                        invocation -> {
+                            IdentityCheckDecision decision = invocation.getArgument(0);
+                            return decision.getExpRequestId() + ":" + decision.getDecision();
+                        });
+
+        String identityCheckResult =
+                createGateway(new CrossCoreResponseParser(new JsonFactory()))
+                        .performIdentityCheckAsync(personIdentity)
+                        .get();
+
+        assertEquals("RB000001:CONTINUE", identityCheckResult);
+    }
+
+    @Test
+    void shouldPassAnErrorResponseThroughWithAResponseParser() throws Exception {
+        final CrossCoreApiRequest testApiRequest = new CrossCoreApiRequest();
+        PersonIdentity personIdentity = createTestPersonIdentity(AddressType.CURRENT);
+        when(mockRequestMapper.mapPersonIdentity(personIdentity)).thenReturn(testApiRequest);
+        when(this.mockExperianApiConfig.getEndpointUri()).thenReturn("https://test-endpoint");
+        mockSerializeAndSign(testApiRequest, "serialisedCrossCoreApiRequest", "hmac");
+        when(this.mockHttpClient.send(any(HttpRequest.class), anyBodyHandler()))
+                .thenAnswer(
+                        invocation ->
+                                readThroughBodyHandler(
+                                                invocation.getArgument(1),
+                                                HttpServletResponse.SC_BAD_REQUEST,
+                                                TEST_API_RESPONSE_BODY)
+                                        .join());
+
+        String identityCheckResult =
+                createGateway(new CrossCoreResponseParser(new JsonFactory()))
+                        .performIdentityCheck(personIdentity);
+
+        assertEquals(TEST_API_RESPONSE_BODY, identityCheckResult);
+        verify(mockObjectMapper, never()).writeValueAsString(any());
+    }
+
+    @Test
+    void shouldFailTheCallWhenASuccessfulResponseCannotBeParsed() throws Exception {
+        final CrossCoreApiRequest testApiRequest = new CrossCoreApiRequest();
+        PersonIdentity personIdentity = createTestPersonIdentity(AddressType.CURRENT);
+        when(mockRequestMapper.mapPersonIdentity(personIdentity)).thenReturn(testApiRequest);
+        when(this.mockExperianApiConfig.getEndpointUri()).thenReturn("https://test-endpoint");
+        mockSerializeAndSign(testApiRequest, "serialisedCrossCoreApiRequest", "hmac");
+        when(this.mockHttpClient.sendAsync(any(HttpRequest.class), anyBodyHandler()))
+                .thenAnswer(
+                        invocation ->
+                                readThroughBodyHandler(
+                                        invocation.getArgument(1),
+                                        HttpServletResponse.SC_OK,
+                                        CROSS_CORE_RESPONSE_BODY.substring(0, 40)));
+        CircuitBreaker circuitBreaker =
+                new CircuitBreaker(1, 1, 50, Duration.ofSeconds(1), 100, Duration.ofMinutes(1), 1);
+        IdentityCheckMetrics metrics = new IdentityCheckMetrics();
+        ExperianGateway parsingGateway =
+                createGatewayBuilder()
+                        .circuitBreaker(circuitBreaker)
+                        .metrics(metrics)
+                        .responseParser(new CrossCoreResponseParser(new JsonFactory()))
+                        .build();
+
+        ExecutionException exception =
+                assertThrows(
+                        ExecutionException.class,
+                        () -> parsingGateway.performIdentityCheckAsync(personIdentity).get());
+
+        assertInstanceOf(JsonProcessingException.class, exception.getCause());
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        String output = scrape(metrics);
+        assertTrue(output.contains("experian_api_upstream_errors_total 1"));
+        assertTrue(output.contains("experian_api_upstream_response_bytes_total 40"));
     }
 
     @Test
@@ -160,11 +527,114 @@ class ExperianGatewayTest {
                 });
     }
 
+    private ExperianGateway createGateway(CrossCoreResponseParser responseParser) {
+        return createGatewayBuilder().responseParser(responseParser).build();
+    }
+
+    private ExperianGateway createGateway(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        return createGateway(concurrencyLimiter, null);
+    }
+
+    private ExperianGateway createGateway(
+            AdaptiveConcurrencyLimiter concurrencyLimiter, CircuitBreaker circuitBreaker) {
+        return createGatewayBuilder()
+                .concurrencyLimiter(concurrencyLimiter)
+                .circuitBreaker(circuitBreaker)
+                .build();
+    }
+
+    private ExperianGateway.Builder createGatewayBuilder() {
+        return ExperianGateway.builder(
+                mockHttpClient,
+                mockRequestMapper,
+                mockObjectMapper,
+                mockHmacGenerator,
+                mockExperianApiConfig);
+    }
+
+    private static String scrape(IdentityCheckMetrics metrics) {
+        PrometheusTextWriter writer = new PrometheusTextWriter();
+        metrics.writeTo(writer);
+        return writer.toString();
+    }
+
+    private void mockSerializeAndSign(
+            CrossCoreApiRequest apiRequest, String requestBody, String requestBodyHmac)
+            throws IOException {
+        doAnswer(
+                        invocation -> {
+                            OutputStream outputStream = invocation.getArgument(0);
+                            outputStream.write(requestBody.getBytes(StandardCharsets.UTF_8));
+                            return null;
+                        })
+                .when(mockObjectMapper)
+                .writeValue(any(OutputStream.class), eq(apiRequest));
+        when(mockHmacGenerator.generateSignedPayload(
+                        any(HmacGenerator.PayloadWriter.class), any(StageRecorder.class)))
+                .thenAnswer(
+                        invocation -> {
+                            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                            HmacGenerator.PayloadWriter payloadWriter = invocation.getArgument(0);
+                            payloadWriter.writeTo(outputStream);
+                            return new SignedPayload(outputStream.toByteArray(), requestBodyHmac);
+                        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> HttpResponse.BodyHandler<T> anyBodyHandler() {
+        return any(HttpResponse.BodyHandler.class);
+    }
+
+    // feeds the body to the gateway's body handler in small chunks, as the http client would
+    private CompletableFuture<HttpResponse<String>> readThroughBodyHandler(
+            HttpResponse.BodyHandler<String> bodyHandler, int statusCode, String body) {
+        HttpResponse.BodySubscriber<String> subscriber =
+                bodyHandler.apply(
+                        new HttpResponse.ResponseInfo() {
+                            @Override
+                            public int statusCode() {
+                                return statusCode;
+                            }
+
+                            @Override
+                            public HttpHeaders headers() {
+                                return HttpHeaders.of(Map.of(), (name, value) -> true);
+                            }
+
+                            @Override
+                            public HttpClient.Version version() {
+                                return HttpClient.Version.HTTP_1_1;
+                            }
+                        });
+        subscriber.onSubscribe(
+                new Flow.Subscription() {
+                    @Override
+                    public void request(long n) {}
+
+                    @Override
+                    public void cancel() {}
+                });
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        for (int offset = 0; offset < bytes.length; offset += 16) {
+            subscriber.onNext(
+                    List.of(ByteBuffer.wrap(bytes, offset, Math.min(16, bytes.length - offset))));
+        }
+        subscriber.onComplete();
+        return subscriber
+                .getBody()
+                .thenApply(responseBody -> createMockApiResponse(statusCode, responseBody))
+                .toCompletableFuture();
+    }
+
     private HttpResponse<String> createMockApiResponse() {
+        return createMockApiResponse(HttpServletResponse.SC_OK, TEST_API_RESPONSE_BODY);
+    }
+
+    private HttpResponse<String> createMockApiResponse(int statusCode, String body) {
         return new HttpResponse<>() {
             @Override
             public int statusCode() {
-                return HttpServletResponse.SC_OK;
+                return statusCode;
             }
 
             @Override
@@ -184,7 +654,7 @@ class ExperianGatewayTest {
 
             @Override
             public String body() {
-                return TEST_API_RESPONSE_BODY;
+                return body;
             }
 
             @Override
@@ -0,0 +1,179 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class HedgingRequestSenderTest {
+
+    private static final HttpRequest REQUEST =
+            HttpRequest.newBuilder()
+                    .uri(URI.create("https://test-endpoint"))
+                    .setHeader("hmac-signature", "hmac")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"clientReferenceId\":\"1\"}"))
+                    .build();
+
+    @Mock private HttpClient mockHttpClient;
+
+    @Test
+    void shouldRetryTransientFailuresWithTheSameRequest() throws Exception {
+        HttpResponse<String> response = createResponse(200);
+        ArgumentCaptor<HttpRequest> requestCaptor = ArgumentCaptor.forClass(HttpRequest.class);
+        when(mockHttpClient.sendAsync(
+                        requestCaptor.capture(), eq(HttpResponse.BodyHandlers.ofString())))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("connection reset")))
+                .thenReturn(CompletableFuture.completedFuture(createResponse(503)))
+                .thenReturn(CompletableFuture.completedFuture(response));
+        HedgingRequestSender sender = createSender(false, 3, new RetryBudget(0.1, 10));
+
+        assertSame(response, sender.send(mockHttpClient, REQUEST).get(5, TimeUnit.SECONDS));
+        assertEquals(2, sender.getRetryCount());
+        requestCaptor.getAllValues().forEach(request -> assertSame(REQUEST, request));
+    }
+
+    @Test
+    void shouldNotRetryWhenTheRetryBudgetIsSpent() {
+        when(mockHttpClient.sendAsync(
+                        any(HttpRequest.class), eq(HttpResponse.BodyHandlers.ofString())))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("connection refused")));
+        RetryBudget retryBudget = new RetryBudget(0, 1);
+        HedgingRequestSender sender = createSender(false, 3, retryBudget);
+
+        ExecutionException exception =
+                assertThrows(
+                        ExecutionException.class,
+                        () -> sender.send(mockHttpClient, REQUEST).get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(IOException.class, exception.getCause());
+        assertEquals(1, sender.getRetryCount());
+        assertEquals(1, retryBudget.getExhaustedCount());
+        verify(mockHttpClient, times(2))
+                .sendAsync(any(HttpRequest.class), eq(HttpResponse.BodyHandlers.ofString()));
+    }
+
+    @Test
+    void shouldNotRetryResponsesThatAreNotTransient() throws Exception {
+        HttpResponse<String> response = createResponse(400);
+        when(mockHttpClient.sendAsync(
+                        any(HttpRequest.class), eq(HttpResponse.BodyHandlers.ofString())))
+                .thenReturn(CompletableFuture.completedFuture(response));
+        HedgingRequestSender sender = createSender(false, 3, new RetryBudget(0.1, 10));
+
+        assertSame(response, sender.send(mockHttpClient, REQUEST).get(5, TimeUnit.SECONDS));
+        assertEquals(0, sender.getRetryCount());
+        verify(mockHttpClient)
+                .sendAsync(any(HttpRequest.class), eq(HttpResponse.BodyHandlers.ofString()));
+    }
+
+    @Test
+    void shouldFailTheCallWhenAnAttemptFailsWithANonTransientError() {
+        IllegalArgumentException failure = new IllegalArgumentException("invalid header");
+        when(mockHttpClient.sendAsync(
+                        any(HttpRequest.class), eq(HttpResponse.BodyHandlers.ofString())))
+                .thenReturn(CompletableFuture.failedFuture(failure));
+        LatencyPercentileTracker latencyTracker = new LatencyPercentileTracker(95, 10, 1, 1);
+        HedgingRequestSender sender =
+                new HedgingRequestSender(
+                        false,
+                        Duration.ofMillis(10),
+                        3,
+                        Duration.ZERO,
+                        new RetryBudget(0.1, 10),
+                        latencyTracker);
+
+        ExecutionException exception =
+                assertThrows(
+                        ExecutionException.class,
+                        () -> sender.send(mockHttpClient, REQUEST).get(5, TimeUnit.SECONDS));
+
+        assertSame(failure, exception.getCause());
+        assertEquals(0, sender.getRetryCount());
+        assertEquals(-1, latencyTracker.getPercentileNanos());
+    }
+
+    @Test
+    void shouldHedgeSlowAttemptsAndTakeTheFirstResponse() throws Exception {
+        HttpResponse<String> response = createResponse(200);
+        CompletableFuture<HttpResponse<String>> slowAttempt = new CompletableFuture<>();
+        when(mockHttpClient.sendAsync(eq(REQUEST), eq(HttpResponse.BodyHandlers.ofString())))
+                .thenReturn(slowAttempt)
+                .thenReturn(CompletableFuture.completedFuture(response));
+        LatencyPercentileTracker latencyTracker = new LatencyPercentileTracker(95, 10, 1, 1);
+        latencyTracker.record(TimeUnit.MILLISECONDS.toNanos(20));
+        HedgingRequestSender sender =
+                new HedgingRequestSender(
+                        true,
+                        Duration.ofMillis(10),
+                        2,
+                        Duration.ZERO,
+                        new RetryBudget(0.1, 10),
+                        latencyTracker);
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(20), sender.getHedgeDelayNanos());
+        assertSame(response, sender.send(mockHttpClient, REQUEST).get(5, TimeUnit.SECONDS));
+        assertEquals(1, sender.getHedgeCount());
+        assertTrue(slowAttempt.isCancelled());
+    }
+
+    @Test
+    void shouldNotHedgeUntilTheLatencyPercentileIsKnown() throws Exception {
+        CompletableFuture<HttpResponse<String>> pendingAttempt = new CompletableFuture<>();
+        when(mockHttpClient.sendAsync(
+                        any(HttpRequest.class), eq(HttpResponse.BodyHandlers.ofString())))
+                .thenReturn(pendingAttempt);
+        HedgingRequestSender sender = createSender(true, 2, new RetryBudget(0.1, 10));
+
+        CompletableFuture<HttpResponse<String>> result = sender.send(mockHttpClient, REQUEST);
+        pendingAttempt.complete(createResponse(200));
+
+        assertEquals(200, result.get(5, TimeUnit.SECONDS).statusCode());
+        assertEquals(0, sender.getHedgeDelayNanos());
+        assertEquals(0, sender.getHedgeCount());
+        verify(mockHttpClient, timeout(100).times(1))
+                .sendAsync(any(HttpRequest.class), eq(HttpResponse.BodyHandlers.ofString()));
+    }
+
+    private static HedgingRequestSender createSender(
+            boolean hedgingEnabled, int maxAttempts, RetryBudget retryBudget) {
+        return new HedgingRequestSender(
+                hedgingEnabled,
+                95,
+                Duration.ofMillis(10),
+                maxAttempts,
+                Duration.ofMillis(1),
+                retryBudget);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HttpResponse<String> createResponse(int statusCode) {
+        HttpResponse<String> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(statusCode);
+        return response;
+    }
+}
@@ -2,6 +2,18 @@ package uk.gov.di.ipv.cri.experian.gateway;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import uk.gov.di.ipv.cri.experian.metrics.StageRecorder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -9,6 +21,9 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class HmacGeneratorTest {
 
+    private static final String PAYLOAD = "{json:requestPayload}";
+    private static final String PAYLOAD_HMAC = "2ONMl5QxLBUZjt1grFoiOq2hIYSpaANUPKi9uCAX8B4=";
+
     private HmacGenerator hmacGenerator;
 
     @BeforeEach
@@ -18,13 +33,105 @@ class HmacGeneratorTest {
 
     @Test
     void shouldReturnHMACEncodedBase64String() {
-        assertNotNull(hmacGenerator.generateHmac("{json:requestPayload}"));
+        assertNotNull(hmacGenerator.generateHmac(PAYLOAD));
     }
 
     @Test
     void shouldThrowExceptionWhenPayloadIsNull() {
         NullPointerException exception =
-                assertThrows(NullPointerException.class, () -> hmacGenerator.generateHmac(null));
+                assertThrows(
+                        NullPointerException.class,
+                        () -> hmacGenerator.generateHmac((String) null));
         assertEquals("The input must not be null", exception.getMessage());
     }
+
+    @Test
+    void shouldReturnTheSameHmacForStringBytesAndByteBufferInput() {
+        byte[] payloadBytes = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(PAYLOAD_HMAC, hmacGenerator.generateHmac(PAYLOAD));
+        assertEquals(PAYLOAD_HMAC, hmacGenerator.generateHmac(payloadBytes));
+        assertEquals(PAYLOAD_HMAC, hmacGenerator.generateHmac(ByteBuffer.wrap(payloadBytes)));
+        ByteBuffer directBuffer = ByteBuffer.allocateDirect(payloadBytes.length);
+        directBuffer.put(payloadBytes).flip();
+        assertEquals(PAYLOAD_HMAC, hmacGenerator.generateHmac(directBuffer));
+    }
+
+    @Test
+    void shouldReturnConsistentHmacsWhenCalledConcurrently() throws Exception {
+        final int threadCount = 8;
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Callable<String>> tasks = new ArrayList<>();
+            for (int i = 0; i < threadCount * 100; i++) {
+                tasks.add(() -> hmacGenerator.generateHmac(PAYLOAD));
+            }
+
+            for (Future<String> result : executorService.invokeAll(tasks)) {
+                assertEquals(PAYLOAD_HMAC, result.get());
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldSignThePayloadAsItIsWritten() throws Exception {
+        SignedPayload signedPayload =
+                hmacGenerator.generateSignedPayload(
+                        outputStream ->
+                                outputStream.write(PAYLOAD.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(PAYLOAD, new String(signedPayload.getBody(), StandardCharsets.UTF_8));
+        assertEquals(PAYLOAD_HMAC, signedPayload.getHmac());
+    }
+
+    @Test
+    void shouldNotLeakStateBetweenSignedPayloadsOnTheSameThread() throws Exception {
+        byte[] largePayload = new byte[128 * 1024];
+        Arrays.fill(largePayload, (byte) 'x');
+        assertThrows(
+                IOException.class,
+                () ->
+                        hmacGenerator.generateSignedPayload(
+                                outputStream -> {
+                                    outputStream.write(largePayload);
+                                    throw new IOException("serialisation failed");
+                                }));
+
+        SignedPayload signedPayload =
+                hmacGenerator.generateSignedPayload(
+                        outputStream -> {
+                            for (byte b : PAYLOAD.getBytes(StandardCharsets.UTF_8)) {
+                                outputStream.write(b);
+                            }
+                        });
+
+        assertEquals(PAYLOAD, new String(signedPayload.getBody(), StandardCharsets.UTF_8));
+        assertEquals(PAYLOAD_HMAC, signedPayload.getHmac());
+    }
+
+    @Test
+    void shouldResumeTheHmacAfterAPrecomputedPrefix() throws Exception {
+        HmacGenerator.PayloadPrefix prefix =
+                hmacGenerator.precomputePrefix("{json:".getBytes(StandardCharsets.UTF_8));
+
+        for (int i = 0; i < 2; i++) {
+            SignedPayload signedPayload =
+                    hmacGenerator.generateSignedPayload(
+                            prefix,
+                            outputStream ->
+                                    outputStream.write(
+                                            "requestPayload}".getBytes(StandardCharsets.UTF_8)),
+                            StageRecorder.NONE);
+
+            assertEquals(PAYLOAD, new String(signedPayload.getBody(), StandardCharsets.UTF_8));
+            assertEquals(PAYLOAD_HMAC, signedPayload.getHmac());
+        }
+        SignedPayload unprefixed =
+                hmacGenerator.generateSignedPayload(
+                        outputStream ->
+                                outputStream.write(PAYLOAD.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(PAYLOAD_HMAC, unprefixed.getHmac());
+    }
 }
@@ -0,0 +1,142 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PooledHttpClientTest {
+    private static final HttpRequest WARM_UP_REQUEST =
+            HttpRequest.newBuilder(URI.create("https://test-endpoint"))
+                    .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                    .build();
+    private static final HttpRequest REQUEST =
+            HttpRequest.newBuilder(URI.create("https://test-endpoint"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{}"))
+                    .build();
+
+    @Mock private HttpClient mockFirstClient;
+    @Mock private HttpClient mockSecondClient;
+    private final AtomicLong nanoTime = new AtomicLong();
+    private PooledHttpClient pooledHttpClient;
+
+    @BeforeEach
+    void setUp() {
+        pooledHttpClient =
+                new PooledHttpClient(
+                        List.of(mockFirstClient, mockSecondClient),
+                        WARM_UP_REQUEST,
+                        Duration.ofSeconds(30),
+                        nanoTime::get);
+    }
+
+    @Test
+    void shouldSendToTheConnectionWithFewestStreamsInFlight() throws Exception {
+        CompletableFuture<HttpResponse<String>> firstResponse = new CompletableFuture<>();
+        CompletableFuture<HttpResponse<String>> secondResponse = new CompletableFuture<>();
+        when(mockFirstClient.sendAsync(
+                        eq(REQUEST), eq(HttpResponse.BodyHandlers.ofString()), isNull()))
+                .thenReturn(firstResponse);
+        when(mockSecondClient.sendAsync(
+                        eq(REQUEST), eq(HttpResponse.BodyHandlers.ofString()), isNull()))
+                .thenReturn(secondResponse);
+
+        pooledHttpClient.sendAsync(REQUEST, HttpResponse.BodyHandlers.ofString());
+        pooledHttpClient.sendAsync(REQUEST, HttpResponse.BodyHandlers.ofString());
+        pooledHttpClient.sendAsync(REQUEST, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(3, pooledHttpClient.getStreamsInFlight());
+        assertEquals(2, pooledHttpClient.getMaxStreamsInFlightPerConnection());
+
+        firstResponse.complete(createResponse());
+        secondResponse.complete(createResponse());
+
+        assertEquals(0, pooledHttpClient.getStreamsInFlight());
+        assertEquals(2, pooledHttpClient.getWarmConnections());
+    }
+
+    @Test
+    void shouldReleaseTheConnectionWhenABlockingSendFails() throws Exception {
+        when(mockFirstClient.send(REQUEST, HttpResponse.BodyHandlers.ofString()))
+                .thenThrow(new IOException("connection reset"));
+        HttpResponse<String> response = createResponse();
+        when(mockSecondClient.send(REQUEST, HttpResponse.BodyHandlers.ofString()))
+                .thenReturn(response);
+
+        try {
+            pooledHttpClient.send(REQUEST, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            assertEquals("connection reset", e.getMessage());
+        }
+
+        assertSame(response, pooledHttpClient.send(REQUEST, HttpResponse.BodyHandlers.ofString()));
+        assertEquals(0, pooledHttpClient.getStreamsInFlight());
+        assertEquals(1, pooledHttpClient.getWarmConnections());
+    }
+
+    @Test
+    void shouldWarmEveryConnectionAndCountFailures() throws Exception {
+        when(mockFirstClient.sendAsync(WARM_UP_REQUEST, HttpResponse.BodyHandlers.discarding()))
+                .thenReturn(CompletableFuture.completedFuture(createWarmUpResponse()));
+        when(mockSecondClient.sendAsync(WARM_UP_REQUEST, HttpResponse.BodyHandlers.discarding()))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("connection refused")));
+
+        pooledHttpClient.warmUp().get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, pooledHttpClient.getWarmUpCount());
+        assertEquals(1, pooledHttpClient.getWarmUpFailureCount());
+        assertEquals(1, pooledHttpClient.getWarmConnections());
+        assertEquals(0, pooledHttpClient.getStreamsInFlight());
+    }
+
+    @Test
+    void shouldOnlyWarmConnectionsIdleForTheKeepWarmInterval() {
+        when(mockFirstClient.sendAsync(REQUEST, HttpResponse.BodyHandlers.ofString(), null))
+                .thenReturn(CompletableFuture.completedFuture(createResponse()));
+        when(mockSecondClient.sendAsync(WARM_UP_REQUEST, HttpResponse.BodyHandlers.discarding()))
+                .thenReturn(CompletableFuture.completedFuture(createWarmUpResponse()));
+
+        nanoTime.set(TimeUnit.SECONDS.toNanos(20));
+        pooledHttpClient.sendAsync(REQUEST, HttpResponse.BodyHandlers.ofString());
+        nanoTime.set(TimeUnit.SECONDS.toNanos(30));
+        pooledHttpClient.keepWarm();
+
+        verify(mockFirstClient, never())
+                .sendAsync(WARM_UP_REQUEST, HttpResponse.BodyHandlers.discarding());
+        verify(mockSecondClient).sendAsync(WARM_UP_REQUEST, HttpResponse.BodyHandlers.discarding());
+        assertEquals(1, pooledHttpClient.getWarmUpCount());
+        assertEquals(2, pooledHttpClient.getWarmConnections());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HttpResponse<String> createResponse() {
+        return mock(HttpResponse.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HttpResponse<Void> createWarmUpResponse() {
+        return mock(HttpResponse.class);
+    }
+}
@@ -0,0 +1,154 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReloadableSslContextTest {
+    private static final String PASSWORD = "changeit";
+    private static final TrustManager[] TRUST_ALL = {new TrustAllManager()};
+
+    private final AtomicReference<byte[]> keyStoreBytes = new AtomicReference<>();
+    private ExecutorService serverExecutor;
+    private SSLServerSocket serverSocket;
+    private ReloadableSslContext reloadableSslContext;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        keyStoreBytes.set(readResource("first.p12"));
+        reloadableSslContext =
+                new ReloadableSslContext(
+                        keyStoreBytes::get, PASSWORD, 10, Duration.ofMinutes(5), TRUST_ALL);
+
+        KeyManagerFactory keyManagerFactory =
+                KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        KeyStore serverKeyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream inputStream = getClass().getResourceAsStream("/tls/second.p12")) {
+            serverKeyStore.load(inputStream, PASSWORD.toCharArray());
+        }
+        keyManagerFactory.init(serverKeyStore, PASSWORD.toCharArray());
+        SSLContext serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(keyManagerFactory.getKeyManagers(), TRUST_ALL, null);
+        serverSocket =
+                (SSLServerSocket)
+                        serverContext
+                                .getServerSocketFactory()
+                                .createServerSocket(0, 10, InetAddress.getLoopbackAddress());
+        serverSocket.setNeedClientAuth(true);
+        serverExecutor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        reloadableSslContext.close();
+        serverSocket.close();
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void shouldResumeCachedSessionsWithoutAFullHandshake() throws Exception {
+        assertEquals("CN=experian-api-test-first", connect());
+        assertEquals("CN=experian-api-test-first", connect());
+        assertEquals("CN=experian-api-test-first", connect());
+
+        assertEquals(1, reloadableSslContext.getFullHandshakeCount());
+        assertTrue(reloadableSslContext.getCachedSessionCount() > 0);
+    }
+
+    @Test
+    void shouldUseAChangedKeyStoreAfterAReload() throws Exception {
+        assertEquals("CN=experian-api-test-first", connect());
+        assertFalse(reloadableSslContext.reload());
+
+        keyStoreBytes.set(readResource("second.p12"));
+
+        assertTrue(reloadableSslContext.reload());
+        assertEquals(1, reloadableSslContext.getReloadCount());
+        assertEquals("CN=experian-api-test-second", connect());
+        assertEquals(2, reloadableSslContext.getFullHandshakeCount());
+    }
+
+    @Test
+    void shouldKeepTheCurrentKeyStoreWhenAReloadFails() throws Exception {
+        keyStoreBytes.set(new byte[] {1, 2, 3});
+
+        assertThrows(IOException.class, () -> reloadableSslContext.reload());
+        assertEquals("CN=experian-api-test-first", connect());
+        assertEquals(0, reloadableSslContext.getReloadCount());
+    }
+
+    // returns the subject of the client certificate the server saw
+    private String connect() throws Exception {
+        Future<String> peer =
+                serverExecutor.submit(
+                        () -> {
+                            try (SSLSocket socket = (SSLSocket) serverSocket.accept()) {
+                                socket.getInputStream().read();
+                                socket.getOutputStream().write(1);
+                                socket.getOutputStream().flush();
+                                return ((X509Certificate)
+                                                socket.getSession().getPeerCertificates()[0])
+                                        .getSubjectX500Principal()
+                                        .getName();
+                            }
+                        });
+        try (SSLSocket socket =
+                (SSLSocket)
+                        reloadableSslContext
+                                .getSslContext()
+                                .getSocketFactory()
+                                .createSocket(
+                                        serverSocket.getInetAddress(),
+                                        serverSocket.getLocalPort())) {
+            socket.getOutputStream().write(1);
+            socket.getOutputStream().flush();
+            // reading lets the client take in the session ticket sent after the handshake
+            assertEquals(1, socket.getInputStream().read());
+        }
+        return peer.get(5, TimeUnit.SECONDS);
+    }
+
+    private static byte[] readResource(String name) throws IOException {
+        try (InputStream inputStream =
+                ReloadableSslContextTest.class.getResourceAsStream("/tls/" + name)) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    private static class TrustAllManager implements X509TrustManager {
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) {}
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) {}
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+        }
+    }
+}
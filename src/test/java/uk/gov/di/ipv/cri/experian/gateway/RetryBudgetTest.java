@@ -0,0 +1,47 @@
+package uk.gov.di.ipv.cri.experian.gateway;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryBudgetTest {
+
+    @Test
+    void shouldStartFullAndRefuseWithdrawalsOnceSpent() {
+        RetryBudget retryBudget = new RetryBudget(0.1, 2);
+
+        assertTrue(retryBudget.tryWithdraw());
+        assertTrue(retryBudget.tryWithdraw());
+        assertFalse(retryBudget.tryWithdraw());
+        assertEquals(1, retryBudget.getExhaustedCount());
+    }
+
+    @Test
+    void shouldAllowOneExtraAttemptPerRatioOfFirstAttempts() {
+        RetryBudget retryBudget = new RetryBudget(0.1, 2);
+        retryBudget.tryWithdraw();
+        retryBudget.tryWithdraw();
+
+        for (int i = 0; i < 9; i++) {
+            retryBudget.deposit();
+        }
+        assertFalse(retryBudget.tryWithdraw());
+        retryBudget.deposit();
+        assertTrue(retryBudget.tryWithdraw());
+    }
+
+    @Test
+    void shouldNotSaveUpMoreThanTheMaximumTokens() {
+        RetryBudget retryBudget = new RetryBudget(0.5, 1);
+
+        for (int i = 0; i < 100; i++) {
+            retryBudget.deposit();
+        }
+
+        assertEquals(1.0, retryBudget.getBalance());
+        assertTrue(retryBudget.tryWithdraw());
+        assertFalse(retryBudget.tryWithdraw());
+    }
+}
@@ -0,0 +1,62 @@
+package uk.gov.di.ipv.cri.experian.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdentityCheckMetricsTest {
+
+    @Test
+    void shouldExposeRecordedMetricsInThePrometheusTextFormat() {
+        IdentityCheckMetrics metrics = new IdentityCheckMetrics();
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        metricsRegistry.register(metrics);
+        metricsRegistry.registerGauge("experian_api_test_gauge", "A test gauge.", () -> 2.5);
+
+        metrics.requestStarted(120);
+        metrics.recordStage(Stage.UPSTREAM, TimeUnit.MILLISECONDS.toNanos(40));
+        metrics.recordUpstreamRequest(300);
+        metrics.recordUpstreamResponse(200, "{\"name\":\"Zo\u00eb\"}");
+        metrics.recordUpstreamResponse(503, null);
+        String output = metricsRegistry.scrape();
+
+        assertTrue(output.contains("# TYPE experian_api_stage_duration_seconds histogram\n"));
+        assertTrue(
+                output.contains(
+                        "experian_api_stage_duration_seconds_bucket{stage=\"upstream\",le=\"+Inf\"}"
+                            + " 1\n"));
+        assertTrue(
+                output.contains("experian_api_stage_duration_seconds_count{stage=\"parse\"} 0\n"));
+        assertTrue(output.contains("experian_api_upstream_responses_total{code=\"200\"} 1\n"));
+        assertTrue(output.contains("experian_api_upstream_responses_total{code=\"503\"} 1\n"));
+        assertTrue(output.contains("experian_api_request_bytes_total 120\n"));
+        assertTrue(output.contains("experian_api_upstream_request_bytes_total 300\n"));
+        assertTrue(output.contains("experian_api_upstream_response_bytes_total 15\n"));
+        assertTrue(output.contains("experian_api_requests_in_flight 1\n"));
+        assertTrue(output.contains("experian_api_test_gauge 2.5\n"));
+    }
+
+    @Test
+    void shouldCountRequestsInFlight() {
+        IdentityCheckMetrics metrics = new IdentityCheckMetrics();
+
+        metrics.requestStarted(0);
+        metrics.requestStarted(0);
+        metrics.requestFinished();
+
+        assertEquals(1, metrics.getInFlightRequests());
+    }
+
+    @Test
+    void shouldCountUtf8BytesWithoutEncoding() {
+        String value = "a\u00e9\u20ac\ud83d\ude00";
+
+        assertEquals(
+                value.getBytes(StandardCharsets.UTF_8).length,
+                IdentityCheckMetrics.utf8Length(value));
+    }
+}
@@ -0,0 +1,34 @@
+package uk.gov.di.ipv.cri.experian.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServerTimingsTest {
+
+    @Test
+    void shouldRenderRecordedStagesInMilliseconds() {
+        ServerTimings serverTimings = new ServerTimings();
+
+        serverTimings.recordStage(Stage.UPSTREAM, 152_345_678);
+        serverTimings.recordStage(Stage.PARSE, 214_000);
+        serverTimings.recordStage(Stage.SIGN, 5_000);
+        serverTimings.recordStage(Stage.SIGN, 4_000);
+
+        assertEquals(
+                "parse;dur=0.214, sign;dur=0.009, upstream;dur=152.345",
+                serverTimings.toHeaderValue());
+    }
+
+    @Test
+    void shouldOnlyBeEnabledByAnExplicitRequestHeader() {
+        assertTrue(ServerTimings.isRequested("true"));
+        assertTrue(ServerTimings.isRequested(" TRUE "));
+        assertTrue(ServerTimings.isRequested("1"));
+        assertFalse(ServerTimings.isRequested(null));
+        assertFalse(ServerTimings.isRequested("false"));
+        assertFalse(ServerTimings.isRequested(""));
+    }
+}
@@ -0,0 +1,66 @@
+package uk.gov.di.ipv.cri.experian.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StripedHistogramTest {
+
+    @Test
+    void shouldPlaceValuesInLogLinearBuckets() {
+        StripedHistogram histogram = new StripedHistogram(4, 8, 1);
+
+        assertEquals(8, histogram.getBucketCount());
+        assertEquals(0, histogram.bucketIndex(0));
+        assertEquals(0, histogram.bucketIndex(23));
+        assertEquals(1, histogram.bucketIndex(24));
+        assertEquals(2, histogram.bucketIndex(32));
+        assertEquals(7, histogram.bucketIndex(255));
+        assertEquals(8, histogram.bucketIndex(256));
+        assertEquals(24, histogram.getBucketUpperBound(0));
+        assertEquals(32, histogram.getBucketUpperBound(1));
+        assertEquals(256, histogram.getBucketUpperBound(7));
+    }
+
+    @Test
+    void shouldKeepEveryValueBelowItsBucketUpperBound() {
+        StripedHistogram histogram = new StripedHistogram(10, 30, 2);
+
+        for (long value = 1024; value < (1L << 30); value = value * 3 / 2 + 7) {
+            int index = histogram.bucketIndex(value);
+            assertTrue(value < histogram.getBucketUpperBound(index));
+            if (index > 0) {
+                assertTrue(value >= histogram.getBucketUpperBound(index - 1));
+            }
+        }
+    }
+
+    @Test
+    void shouldSumCountsRecordedConcurrently() throws Exception {
+        StripedHistogram histogram = new StripedHistogram(4, 20, 2);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            for (int thread = 0; thread < 8; thread++) {
+                executorService.execute(
+                        () -> {
+                            for (int i = 0; i < 1000; i++) {
+                                histogram.record(100);
+                            }
+                        });
+            }
+        } finally {
+            executorService.shutdown();
+            assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+        StripedHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(8000, snapshot.getTotalCount());
+        assertEquals(8000, snapshot.getCount(histogram.bucketIndex(100)));
+        assertEquals(800000, snapshot.getSum());
+    }
+}
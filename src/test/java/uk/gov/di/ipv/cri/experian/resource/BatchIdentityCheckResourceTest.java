@@ -0,0 +1,272 @@
+package uk.gov.di.ipv.cri.experian.resource;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import spark.Request;
+import spark.Response;
+import uk.gov.di.ipv.cri.experian.domain.PersonIdentity;
+import uk.gov.di.ipv.cri.experian.domain.ValidationResult;
+import uk.gov.di.ipv.cri.experian.service.IdentityVerificationService;
+import uk.gov.di.ipv.cri.experian.validation.InputValidationExecutor;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BatchIdentityCheckResourceTest {
+    private static final String VALID_LINE =
+            "{\"firstName\":\"JON\",\"surname\":\"DOE\",\"dateOfBirth\":\"1970-01-01\"}";
+    private static final String INVALID_LINE = "{\"firstName\":\"JON\"}";
+
+    @Mock private InputValidationExecutor inputValidationExecutor;
+    @Mock private IdentityVerificationService mockIdentityVerificationService;
+    @Mock private HttpServletResponse mockServletResponse;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ByteArrayOutputStream responseBody = new ByteArrayOutputStream();
+    private ScheduledExecutorService scheduler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        objectMapper.registerModule(new JavaTimeModule());
+        when(mockServletResponse.getOutputStream())
+                .thenReturn(new CapturingServletOutputStream(responseBody));
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void shouldStreamOneResultLinePerInputLineTaggedWithItsLineNumber() throws Exception {
+        givenValidationRejectsIdentitiesWithoutASurname();
+        when(mockIdentityVerificationService.verifyIdentityAsync(any(PersonIdentity.class)))
+                .thenReturn(CompletableFuture.completedFuture("{\n  \"decision\": \"ACCEPT\"\n}"));
+        String requestBody =
+                VALID_LINE + "\r\n" + "\n" + INVALID_LINE + "\n" + "not json\n" + VALID_LINE;
+
+        List<JsonNode> results = handle(createResource(4), requestBody);
+
+        verify(mockServletResponse).setStatus(HttpServletResponse.SC_OK);
+        verify(mockServletResponse).setContentType("application/x-ndjson");
+        assertEquals(4, results.size());
+        assertResult(results.get(0), 1, HttpServletResponse.SC_CREATED);
+        assertEquals("ACCEPT", results.get(0).get("result").get("decision").asText());
+        assertResult(results.get(1), 3, HttpServletResponse.SC_BAD_REQUEST);
+        assertEquals("surname must not be null", results.get(1).get("errors").get(0).asText());
+        assertResult(results.get(2), 4, HttpServletResponse.SC_BAD_REQUEST);
+        assertResult(results.get(3), 5, HttpServletResponse.SC_CREATED);
+    }
+
+    @Test
+    void shouldReturnBadGatewayResultWhenTheIdentityCheckFails() throws Exception {
+        givenValidationRejectsIdentitiesWithoutASurname();
+        when(mockIdentityVerificationService.verifyIdentityAsync(any(PersonIdentity.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        List<JsonNode> results = handle(createResource(1), VALID_LINE + "\n");
+
+        assertEquals(1, results.size());
+        assertResult(results.get(0), 1, HttpServletResponse.SC_BAD_GATEWAY);
+        assertFalse(results.get(0).has("result"));
+    }
+
+    @Test
+    void shouldRejectOversizedLinesAndContinueWithTheNextLine() throws Exception {
+        givenValidationRejectsIdentitiesWithoutASurname();
+        when(mockIdentityVerificationService.verifyIdentityAsync(any(PersonIdentity.class)))
+                .thenReturn(CompletableFuture.completedFuture("{}"));
+        String oversizedLine = "x".repeat(64 * 1024 + 1);
+
+        List<JsonNode> results =
+                handle(createResource(1), oversizedLine + "\n" + VALID_LINE + "\n");
+
+        assertEquals(2, results.size());
+        assertResult(results.get(0), 1, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+        assertResult(results.get(1), 2, HttpServletResponse.SC_CREATED);
+    }
+
+    @Test
+    void shouldNotExceedTheMaximumParallelism() throws Exception {
+        final int maxParallelism = 2;
+        final int lineCount = 10;
+        givenValidationRejectsIdentitiesWithoutASurname();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(mockIdentityVerificationService.verifyIdentityAsync(any(PersonIdentity.class)))
+                .thenAnswer(
+                        invocation -> {
+                            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                            CompletableFuture<String> result = new CompletableFuture<>();
+                            scheduler.schedule(
+                                    () -> {
+                                        inFlight.decrementAndGet();
+                                        result.complete("{}");
+                                    },
+                                    5,
+                                    TimeUnit.MILLISECONDS);
+                            return result;
+                        });
+
+        List<JsonNode> results =
+                handle(
+                        createResource(maxParallelism),
+                        String.join("\n", Collections.nCopies(lineCount, VALID_LINE)));
+
+        assertEquals(lineCount, results.size());
+        assertTrue(maxInFlight.get() <= maxParallelism);
+        Set<Long> lineNumbers = new HashSet<>();
+        for (JsonNode result : results) {
+            assertEquals(HttpServletResponse.SC_CREATED, result.get("status").asInt());
+            lineNumbers.add(result.get("line").asLong());
+        }
+        assertEquals(lineCount, lineNumbers.size());
+    }
+
+    @Test
+    void shouldNotCallTheIdentityCheckForAnEmptyBatch() throws Exception {
+        List<JsonNode> results = handle(createResource(1), "");
+
+        assertTrue(results.isEmpty());
+        verify(mockIdentityVerificationService, never()).verifyIdentityAsync(any());
+    }
+
+    private BatchIdentityCheckResource createResource(int maxParallelism) {
+        return new BatchIdentityCheckResource(
+                mockIdentityVerificationService,
+                objectMapper,
+                inputValidationExecutor,
+                maxParallelism);
+    }
+
+    private void givenValidationRejectsIdentitiesWithoutASurname() {
+        when(inputValidationExecutor.performInputValidation(any(PersonIdentity.class)))
+                .thenAnswer(
+                        invocation -> {
+                            PersonIdentity personIdentity = invocation.getArgument(0);
+                            return personIdentity.getSurname() == null
+                                    ? new ValidationResult(List.of("surname must not be null"))
+                                    : new ValidationResult(Collections.emptyList());
+                        });
+    }
+
+    private List<JsonNode> handle(BatchIdentityCheckResource resource, String requestBody)
+            throws Exception {
+        Request mockRequest = Mockito.mock(Request.class);
+        Response mockResponse = Mockito.mock(Response.class);
+        HttpServletRequest mockServletRequest = Mockito.mock(HttpServletRequest.class);
+        when(mockRequest.raw()).thenReturn(mockServletRequest);
+        when(mockServletRequest.getInputStream())
+                .thenReturn(
+                        new ByteArrayServletInputStream(
+                                requestBody.getBytes(StandardCharsets.UTF_8)));
+        when(mockResponse.raw()).thenReturn(mockServletResponse);
+
+        resource.performBatchIdentityCheckRoute.handle(mockRequest, mockResponse);
+
+        List<JsonNode> results = new ArrayList<>();
+        for (String line : responseBody.toString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isEmpty()) {
+                results.add(objectMapper.readTree(line));
+            }
+        }
+        return results;
+    }
+
+    private static void assertResult(JsonNode result, long line, int status) {
+        assertEquals(line, result.get("line").asLong());
+        assertEquals(status, result.get("status").asInt());
+    }
+
+    private static class ByteArrayServletInputStream extends ServletInputStream {
+        private final ByteArrayInputStream inputStream;
+
+        private ByteArrayServletInputStream(byte[] body) {
+            this.inputStream = new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public int read() {
+            return inputStream.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            return inputStream.read(b, off, len);
+        }
+
+        @Override
+        public boolean isFinished() {
+            return inputStream.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class CapturingServletOutputStream extends ServletOutputStream {
+        private final ByteArrayOutputStream outputStream;
+
+        private CapturingServletOutputStream(ByteArrayOutputStream outputStream) {
+            this.outputStream = outputStream;
+        }
+
+        @Override
+        public void write(int b) {
+            outputStream.write(b);
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
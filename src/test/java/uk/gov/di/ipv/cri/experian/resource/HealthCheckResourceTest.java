@@ -0,0 +1,70 @@
+package uk.gov.di.ipv.cri.experian.resource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import spark.Request;
+import spark.Response;
+import uk.gov.di.ipv.cri.experian.domain.UpstreamStatus;
+import uk.gov.di.ipv.cri.experian.service.UpstreamProber;
+
+import javax.servlet.http.HttpServletResponse;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class HealthCheckResourceTest {
+    private static final UpstreamStatus UP =
+            new UpstreamStatus(UpstreamStatus.UP, "2021-12-01T10:15:30Z", 200, 42L, null, 0);
+    private static final UpstreamStatus DOWN =
+            new UpstreamStatus(
+                    UpstreamStatus.DOWN,
+                    "2021-12-01T10:15:45Z",
+                    null,
+                    null,
+                    "IOException: connection refused",
+                    2);
+
+    @Mock private UpstreamProber mockUpstreamProber;
+    @Mock private ObjectMapper mockObjectMapper;
+    @Mock private Request mockRequest;
+
+    @Test
+    void shouldAnswerFromTheLastProbeResult() throws Exception {
+        when(mockUpstreamProber.getStatus()).thenReturn(UP, UP, DOWN);
+        when(mockObjectMapper.writeValueAsString(UP)).thenReturn("up-status");
+        when(mockObjectMapper.writeValueAsString(DOWN)).thenReturn("down-status");
+        HealthCheckResource healthCheckResource =
+                new HealthCheckResource(mockUpstreamProber, mockObjectMapper);
+        Response upResponse = mock(Response.class);
+        Response readyResponse = mock(Response.class);
+        Response downResponse = mock(Response.class);
+
+        healthCheckResource.getDeepHealth.handle(mockRequest, upResponse);
+        healthCheckResource.getReadiness.handle(mockRequest, readyResponse);
+        healthCheckResource.getDeepHealth.handle(mockRequest, downResponse);
+
+        verify(upResponse).status(HttpServletResponse.SC_OK);
+        verify(upResponse).body("up-status");
+        verify(readyResponse).status(HttpServletResponse.SC_OK);
+        verify(readyResponse).body("{\"status\":\"UP\"}");
+        verify(downResponse).status(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        verify(downResponse).body("down-status");
+        verify(mockObjectMapper, times(1)).writeValueAsString(UP);
+    }
+
+    @Test
+    void shouldReportDisabledWithoutAProber() throws Exception {
+        Response mockResponse = mock(Response.class);
+
+        new HealthCheckResource().getReadiness.handle(mockRequest, mockResponse);
+
+        verify(mockResponse).status(HttpServletResponse.SC_OK);
+        verify(mockResponse).body("{\"status\":\"DISABLED\"}");
+    }
+}
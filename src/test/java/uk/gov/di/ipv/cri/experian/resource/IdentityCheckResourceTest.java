@@ -1,26 +1,49 @@
 package uk.gov.di.ipv.cri.experian.resource;
 
+import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import spark.Request;
 import spark.Response;
+import uk.gov.di.ipv.cri.experian.domain.ErrorResponse;
+import uk.gov.di.ipv.cri.experian.domain.IdentityCheckResult;
 import uk.gov.di.ipv.cri.experian.domain.PersonIdentity;
 import uk.gov.di.ipv.cri.experian.domain.ValidationResult;
+import uk.gov.di.ipv.cri.experian.gateway.ConcurrencyLimitExceededException;
+import uk.gov.di.ipv.cri.experian.metrics.ServerTimings;
+import uk.gov.di.ipv.cri.experian.metrics.Stage;
+import uk.gov.di.ipv.cri.experian.metrics.StageRecorder;
+import uk.gov.di.ipv.cri.experian.service.IdempotencyStore;
 import uk.gov.di.ipv.cri.experian.service.IdentityVerificationService;
+import uk.gov.di.ipv.cri.experian.service.PersonIdentityFingerprinter;
 import uk.gov.di.ipv.cri.experian.validation.InputValidationExecutor;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.gov.di.ipv.cri.experian.util.TestDataCreator.createTestPersonIdentity;
@@ -31,48 +54,85 @@ class IdentityCheckResourceTest {
     @Mock private ObjectMapper mockObjectMapper;
     @Mock private InputValidationExecutor inputValidationExecutor;
     @Mock private IdentityVerificationService mockIdentityVerificationService;
+    @Mock private PersonIdentityReader mockPersonIdentityReader;
+    @Mock private Request mockRequest;
 
     private IdentityCheckResource identityCheckResource;
 
     @BeforeEach
     void setUp() {
-        this.identityCheckResource =
-                new IdentityCheckResource(
-                        mockIdentityVerificationService, mockObjectMapper, inputValidationExecutor);
+        this.identityCheckResource = createResourceBuilder().build();
     }
 
     @Test
     void shouldPerformIdentityCheckWhenValidInputProvided() throws Exception {
-        final String requestBody = "request-body";
         PersonIdentity testPersonIdentity = createTestPersonIdentity();
         final String identityVerificationResult = "identity-verification-result";
-        when(mockObjectMapper.readValue(requestBody, PersonIdentity.class))
-                .thenReturn(testPersonIdentity);
+        when(mockPersonIdentityReader.read(mockRequest)).thenReturn(testPersonIdentity);
         when(mockIdentityVerificationService.verifyIdentity(testPersonIdentity))
                 .thenReturn(identityVerificationResult);
         Response mockResponse = Mockito.mock(Response.class);
-        Request mockRequest = Mockito.mock(Request.class);
-        when(mockRequest.body()).thenReturn(requestBody);
         when(inputValidationExecutor.performInputValidation(testPersonIdentity))
                 .thenReturn(new ValidationResult(Collections.emptyList()));
 
         identityCheckResource.performIdentityCheckRoute.handle(mockRequest, mockResponse);
 
-        verify(mockObjectMapper).readValue(requestBody, PersonIdentity.class);
+        verify(mockPersonIdentityReader).read(mockRequest);
         verify(mockIdentityVerificationService).verifyIdentity(testPersonIdentity);
         verify(mockResponse).status(HttpServletResponse.SC_CREATED);
         verify(mockResponse).header("Content-Type", "application/json");
         verify(mockResponse).body(identityVerificationResult);
     }
 
+    @Test
+    void shouldAddServerTimingHeaderWhenRequested() throws Exception {
+        PersonIdentity testPersonIdentity = createTestPersonIdentity();
+        when(mockPersonIdentityReader.read(mockRequest)).thenReturn(testPersonIdentity);
+        when(inputValidationExecutor.performInputValidation(testPersonIdentity))
+                .thenReturn(new ValidationResult(Collections.emptyList()));
+        when(mockIdentityVerificationService.verifyIdentity(
+                        eq(testPersonIdentity), any(ServerTimings.class)))
+                .thenAnswer(
+                        invocation -> {
+                            ServerTimings serverTimings = invocation.getArgument(1);
+                            serverTimings.recordStage(Stage.UPSTREAM, 2_000_000);
+                            return "identity-verification-result";
+                        });
+        Response mockResponse = Mockito.mock(Response.class);
+        when(mockRequest.headers(ServerTimings.REQUEST_HEADER)).thenReturn("true");
+        ArgumentCaptor<String> serverTimingCaptor = ArgumentCaptor.forClass(String.class);
+
+        identityCheckResource.performIdentityCheckRoute.handle(mockRequest, mockResponse);
+
+        verify(mockResponse).header(eq("Server-Timing"), serverTimingCaptor.capture());
+        String serverTiming = serverTimingCaptor.getValue();
+        assertTrue(serverTiming.startsWith("parse;dur="));
+        assertTrue(serverTiming.contains(", validate;dur="));
+        assertTrue(serverTiming.endsWith(", upstream;dur=2.000"));
+        verify(mockIdentityVerificationService, never()).verifyIdentity(testPersonIdentity);
+    }
+
+    @Test
+    void shouldNotAddServerTimingHeaderUnlessRequested() throws Exception {
+        PersonIdentity testPersonIdentity = createTestPersonIdentity();
+        when(mockPersonIdentityReader.read(mockRequest)).thenReturn(testPersonIdentity);
+        when(inputValidationExecutor.performInputValidation(testPersonIdentity))
+                .thenReturn(new ValidationResult(Collections.emptyList()));
+        when(mockIdentityVerificationService.verifyIdentity(testPersonIdentity))
+                .thenReturn("identity-verification-result");
+        Response mockResponse = Mockito.mock(Response.class);
+
+        identityCheckResource.performIdentityCheckRoute.handle(mockRequest, mockResponse);
+
+        verify(mockResponse, never()).header(eq("Server-Timing"), any(String.class));
+    }
+
     @Test
     void shouldReturn400ResponseWhenInvalidInputProvided() throws Exception {
-        final String requestBody = "request-body";
         final String errorMessage = "firstname must not be null or empty";
         final String mockResponseBody = "{\"errors\":[\"" + errorMessage + "\"]}";
         PersonIdentity testPersonIdentity = createTestPersonIdentity();
-        when(mockObjectMapper.readValue(requestBody, PersonIdentity.class))
-                .thenReturn(testPersonIdentity);
+        when(mockPersonIdentityReader.read(mockRequest)).thenReturn(testPersonIdentity);
         when(mockObjectMapper.writeValueAsString(any(ValidationResult.class)))
                 .thenReturn(mockResponseBody);
 
@@ -80,15 +140,252 @@ class IdentityCheckResourceTest {
                 .thenReturn(new ValidationResult(List.of("firstname must not be null or empty")));
 
         Response mockResponse = Mockito.mock(Response.class);
-        Request mockRequest = Mockito.mock(Request.class);
-        when(mockRequest.body()).thenReturn(requestBody);
 
         identityCheckResource.performIdentityCheckRoute.handle(mockRequest, mockResponse);
 
-        verify(mockObjectMapper).readValue(requestBody, PersonIdentity.class);
+        verify(mockPersonIdentityReader).read(mockRequest);
         verify(mockIdentityVerificationService, never()).verifyIdentity(testPersonIdentity);
         verify(mockResponse).status(HttpServletResponse.SC_BAD_REQUEST);
         verify(mockResponse).header("Content-Type", "application/json");
         verify(mockResponse).body(mockResponseBody);
     }
+
+    @Test
+    void shouldReturn503ResponseWhenTheGatewayRejectsTheCheck() throws Exception {
+        final String errorResponseBody = "{\"errorCode\":\"concurrency_limit_exceeded\"}";
+        PersonIdentity testPersonIdentity = createTestPersonIdentity();
+        when(mockPersonIdentityReader.read(mockRequest)).thenReturn(testPersonIdentity);
+        when(inputValidationExecutor.performInputValidation(testPersonIdentity))
+                .thenReturn(new ValidationResult(Collections.emptyList()));
+        when(mockIdentityVerificationService.verifyIdentity(testPersonIdentity))
+                .thenThrow(new ConcurrencyLimitExceededException());
+        ArgumentCaptor<ErrorResponse> errorResponseCaptor =
+                ArgumentCaptor.forClass(ErrorResponse.class);
+        when(mockObjectMapper.writeValueAsString(errorResponseCaptor.capture()))
+                .thenReturn(errorResponseBody);
+        Response mockResponse = Mockito.mock(Response.class);
+
+        identityCheckResource.performIdentityCheckRoute.handle(mockRequest, mockResponse);
+
+        verify(mockResponse).status(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        verify(mockResponse).body(errorResponseBody);
+        assertEquals("concurrency_limit_exceeded", errorResponseCaptor.getValue().getErrorCode());
+    }
+
+    @Test
+    void shouldReplayTheStoredResultForARepeatedIdempotencyKey() throws Exception {
+        IdentityCheckResource idempotentResource = createIdempotentResource();
+        PersonIdentity testPersonIdentity = createTestPersonIdentity();
+        when(mockRequest.headers(IdentityCheckResource.IDEMPOTENCY_KEY_HEADER)).thenReturn("key-1");
+        when(mockRequest.headers(ServerTimings.REQUEST_HEADER)).thenReturn(null);
+        when(mockPersonIdentityReader.read(mockRequest)).thenReturn(testPersonIdentity);
+        when(inputValidationExecutor.performInputValidation(testPersonIdentity))
+                .thenReturn(new ValidationResult(Collections.emptyList()));
+        when(mockIdentityVerificationService.checkIdentity(testPersonIdentity, StageRecorder.NONE))
+                .thenReturn(new IdentityCheckResult(200, "identity-verification-result"));
+        Response firstResponse = Mockito.mock(Response.class);
+        Response repeatedResponse = Mockito.mock(Response.class);
+
+        idempotentResource.performIdentityCheckRoute.handle(mockRequest, firstResponse);
+        idempotentResource.performIdentityCheckRoute.handle(mockRequest, repeatedResponse);
+
+        verify(mockIdentityVerificationService, times(1))
+                .checkIdentity(testPersonIdentity, StageRecorder.NONE);
+        verify(firstResponse, never())
+                .header(IdentityCheckResource.IDEMPOTENT_REPLAYED_HEADER, "true");
+        verify(repeatedResponse).header(IdentityCheckResource.IDEMPOTENT_REPLAYED_HEADER, "true");
+        verify(repeatedResponse).status(HttpServletResponse.SC_CREATED);
+        verify(repeatedResponse).body("identity-verification-result");
+    }
+
+    @Test
+    void shouldReturn422ResponseWhenAnIdempotencyKeyIsReusedForAnotherBody() throws Exception {
+        IdentityCheckResource idempotentResource = createIdempotentResource();
+        PersonIdentity firstPersonIdentity = createTestPersonIdentity();
+        PersonIdentity secondPersonIdentity = createTestPersonIdentity();
+        secondPersonIdentity.setFirstName("ANOTHER");
+        when(mockRequest.headers(IdentityCheckResource.IDEMPOTENCY_KEY_HEADER)).thenReturn("key-1");
+        when(mockRequest.headers(ServerTimings.REQUEST_HEADER)).thenReturn(null);
+        when(mockPersonIdentityReader.read(mockRequest))
+                .thenReturn(firstPersonIdentity, secondPersonIdentity);
+        when(inputValidationExecutor.performInputValidation(any(PersonIdentity.class)))
+                .thenReturn(new ValidationResult(Collections.emptyList()));
+        when(mockIdentityVerificationService.checkIdentity(firstPersonIdentity, StageRecorder.NONE))
+                .thenReturn(new IdentityCheckResult(200, "identity-verification-result"));
+        ArgumentCaptor<ErrorResponse> errorResponseCaptor =
+                ArgumentCaptor.forClass(ErrorResponse.class);
+        when(mockObjectMapper.writeValueAsString(errorResponseCaptor.capture()))
+                .thenReturn("{\"errorCode\":\"idempotency_key_mismatch\"}");
+        Response mockResponse = Mockito.mock(Response.class);
+
+        idempotentResource.performIdentityCheckRoute.handle(
+                mockRequest, Mockito.mock(Response.class));
+        idempotentResource.performIdentityCheckRoute.handle(mockRequest, mockResponse);
+
+        verify(mockIdentityVerificationService, never())
+                .checkIdentity(secondPersonIdentity, StageRecorder.NONE);
+        verify(mockResponse).status(422);
+        assertEquals("idempotency_key_mismatch", errorResponseCaptor.getValue().getErrorCode());
+    }
+
+    @Test
+    void shouldCompleteAsyncIdentityCheckWhenValidInputProvided() throws Exception {
+        PersonIdentity testPersonIdentity = createTestPersonIdentity();
+        final String identityVerificationResult = "identity-verification-result";
+        when(mockPersonIdentityReader.read(mockRequest)).thenReturn(testPersonIdentity);
+        when(inputValidationExecutor.performInputValidation(testPersonIdentity))
+                .thenReturn(new ValidationResult(Collections.emptyList()));
+        CompletableFuture<String> pendingResult = new CompletableFuture<>();
+        when(mockIdentityVerificationService.verifyIdentityAsync(testPersonIdentity))
+                .thenReturn(pendingResult);
+        HttpServletRequest mockServletRequest = Mockito.mock(HttpServletRequest.class);
+        AsyncContext mockAsyncContext = Mockito.mock(AsyncContext.class);
+        HttpServletResponse mockServletResponse = Mockito.mock(HttpServletResponse.class);
+        ServletOutputStream mockOutputStream = Mockito.mock(ServletOutputStream.class);
+        when(mockRequest.raw()).thenReturn(mockServletRequest);
+        when(mockServletRequest.startAsync()).thenReturn(mockAsyncContext);
+        when(mockAsyncContext.getResponse()).thenReturn(mockServletResponse);
+        when(mockServletResponse.getOutputStream()).thenReturn(mockOutputStream);
+
+        identityCheckResource.performIdentityCheckAsyncRoute.handle(
+                mockRequest, Mockito.mock(Response.class));
+
+        verify(mockAsyncContext, never()).complete();
+
+        pendingResult.complete(identityVerificationResult);
+
+        ArgumentCaptor<Runnable> writeCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(mockAsyncContext).start(writeCaptor.capture());
+        verify(mockServletResponse, never()).getOutputStream();
+        verify(mockAsyncContext, never()).complete();
+        writeCaptor.getValue().run();
+
+        verify(mockServletResponse).setStatus(HttpServletResponse.SC_CREATED);
+        verify(mockServletResponse).setHeader("Content-Type", "application/json");
+        verify(mockOutputStream).write(identityVerificationResult.getBytes(StandardCharsets.UTF_8));
+        verify(mockAsyncContext).complete();
+    }
+
+    @Test
+    void shouldCancelAnAsyncIdentityCheckThatOutlivesTheAsyncTimeout() throws Exception {
+        PersonIdentity testPersonIdentity = createTestPersonIdentity();
+        when(mockPersonIdentityReader.read(mockRequest)).thenReturn(testPersonIdentity);
+        when(inputValidationExecutor.performInputValidation(testPersonIdentity))
+                .thenReturn(new ValidationResult(Collections.emptyList()));
+        CompletableFuture<String> pendingResult = new CompletableFuture<>();
+        when(mockIdentityVerificationService.verifyIdentityAsync(testPersonIdentity))
+                .thenReturn(pendingResult);
+        when(mockObjectMapper.writeValueAsString(any(ErrorResponse.class))).thenReturn("{}");
+        HttpServletRequest mockServletRequest = Mockito.mock(HttpServletRequest.class);
+        AsyncContext mockAsyncContext = Mockito.mock(AsyncContext.class);
+        HttpServletResponse mockServletResponse = Mockito.mock(HttpServletResponse.class);
+        when(mockRequest.raw()).thenReturn(mockServletRequest);
+        when(mockServletRequest.startAsync()).thenReturn(mockAsyncContext);
+        when(mockAsyncContext.getResponse()).thenReturn(mockServletResponse);
+        when(mockServletResponse.getOutputStream())
+                .thenReturn(Mockito.mock(ServletOutputStream.class));
+        doAnswer(
+                        invocation -> {
+                            invocation.<Runnable>getArgument(0).run();
+                            return null;
+                        })
+                .when(mockAsyncContext)
+                .start(any(Runnable.class));
+        IdentityCheckResource timingOutResource =
+                createResourceBuilder().asyncTimeout(Duration.ofSeconds(5)).build();
+
+        timingOutResource.performIdentityCheckAsyncRoute.handle(
+                mockRequest, Mockito.mock(Response.class));
+
+        verify(mockAsyncContext).setTimeout(5000);
+        ArgumentCaptor<AsyncListener> listenerCaptor = ArgumentCaptor.forClass(AsyncListener.class);
+        verify(mockAsyncContext).addListener(listenerCaptor.capture());
+        listenerCaptor.getValue().onTimeout(new AsyncEvent(mockAsyncContext));
+
+        assertTrue(pendingResult.isCancelled());
+        verify(mockServletResponse).setStatus(HttpServletResponse.SC_GATEWAY_TIMEOUT);
+        verify(mockAsyncContext).complete();
+    }
+
+    @Test
+    void shouldReturn400ResponseWithoutSuspendingWhenInvalidInputProvided() throws Exception {
+        final String mockResponseBody = "{\"errors\":[\"firstname must not be null or empty\"]}";
+        PersonIdentity testPersonIdentity = createTestPersonIdentity();
+        when(mockPersonIdentityReader.read(mockRequest)).thenReturn(testPersonIdentity);
+        when(mockObjectMapper.writeValueAsString(any(ValidationResult.class)))
+                .thenReturn(mockResponseBody);
+        when(inputValidationExecutor.performInputValidation(testPersonIdentity))
+                .thenReturn(new ValidationResult(List.of("firstname must not be null or empty")));
+        Response mockResponse = Mockito.mock(Response.class);
+
+        identityCheckResource.performIdentityCheckAsyncRoute.handle(mockRequest, mockResponse);
+
+        verify(mockRequest, never()).raw();
+        verify(mockIdentityVerificationService, never()).verifyIdentityAsync(testPersonIdentity);
+        verify(mockResponse).status(HttpServletResponse.SC_BAD_REQUEST);
+        verify(mockResponse).body(mockResponseBody);
+    }
+
+    @Test
+    void shouldReturn413ResponseWhenTheBodyIsTooLarge() throws Exception {
+        final String errorResponseBody = "{\"errorCode\":\"request_too_large\"}";
+        when(mockPersonIdentityReader.read(mockRequest))
+                .thenThrow(new RequestBodyTooLargeException("request body exceeds 10 bytes"));
+        ArgumentCaptor<ErrorResponse> errorResponseCaptor =
+                ArgumentCaptor.forClass(ErrorResponse.class);
+        when(mockObjectMapper.writeValueAsString(errorResponseCaptor.capture()))
+                .thenReturn(errorResponseBody);
+        Response mockResponse = Mockito.mock(Response.class);
+
+        identityCheckResource.performIdentityCheckRoute.handle(mockRequest, mockResponse);
+
+        verify(mockResponse).body(errorResponseBody);
+        verify(mockResponse).status(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+        assertEquals("request_too_large", errorResponseCaptor.getValue().getErrorCode());
+        assertEquals("request body exceeds 10 bytes", errorResponseCaptor.getValue().getMessage());
+        verify(inputValidationExecutor, never()).performInputValidation(any());
+    }
+
+    @Test
+    void shouldReturn400ResponseWhenTheBodyIsMalformed() throws Exception {
+        when(mockPersonIdentityReader.read(mockRequest))
+                .thenThrow(new JsonParseException(null, "Unexpected end-of-input"));
+        ArgumentCaptor<ErrorResponse> errorResponseCaptor =
+                ArgumentCaptor.forClass(ErrorResponse.class);
+        when(mockObjectMapper.writeValueAsString(errorResponseCaptor.capture())).thenReturn("{}");
+        Response mockResponse = Mockito.mock(Response.class);
+
+        identityCheckResource.performIdentityCheckRoute.handle(mockRequest, mockResponse);
+
+        verify(mockResponse).status(HttpServletResponse.SC_BAD_REQUEST);
+        assertEquals("invalid_request_body", errorResponseCaptor.getValue().getErrorCode());
+        verify(inputValidationExecutor, never()).performInputValidation(any());
+    }
+
+    @Test
+    void shouldReturn413ResponseWithoutSuspendingWhenTheBodyIsTooLarge() throws Exception {
+        when(mockPersonIdentityReader.read(mockRequest))
+                .thenThrow(new RequestBodyTooLargeException("more than 20 addresses"));
+        when(mockObjectMapper.writeValueAsString(any(ErrorResponse.class))).thenReturn("{}");
+        Response mockResponse = Mockito.mock(Response.class);
+
+        identityCheckResource.performIdentityCheckAsyncRoute.handle(mockRequest, mockResponse);
+
+        verify(mockRequest, never()).raw();
+        verify(mockResponse).status(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+    }
+
+    private IdentityCheckResource createIdempotentResource() throws Exception {
+        return createResourceBuilder()
+                .idempotencyStore(
+                        new IdempotencyStore(
+                                new PersonIdentityFingerprinter(), 10, Duration.ofHours(1)))
+                .build();
+    }
+
+    private IdentityCheckResource.Builder createResourceBuilder() {
+        return IdentityCheckResource.builder(
+                        mockIdentityVerificationService, mockObjectMapper, inputValidationExecutor)
+                .personIdentityReader(mockPersonIdentityReader);
+    }
 }
@@ -0,0 +1,189 @@
+package uk.gov.di.ipv.cri.experian.resource;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import spark.Request;
+import uk.gov.di.ipv.cri.experian.domain.AddressType;
+import uk.gov.di.ipv.cri.experian.domain.PersonIdentity;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PersonIdentityReaderTest {
+    private static final String ADDRESS =
+            "{\"houseNameNumber\":\"70\",\"street\":\"WHITEHALL\",\"townCity\":\"LONDON\","
+                    + "\"postcode\":\"SW1A 2AS\",\"addressType\":\"CURRENT\"}";
+    private static final String PERSON_IDENTITY =
+            "{\"firstName\":\"JON\",\"surname\":\"DOE\",\"dateOfBirth\":\"1970-01-01\","
+                    + "\"addresses\":["
+                    + ADDRESS
+                    + "]}";
+
+    private final PersonIdentityReader personIdentityReader =
+            new PersonIdentityReader(
+                    new ObjectMapper().registerModule(new JavaTimeModule()), 1024, 2, 20);
+
+    @Mock private Request mockRequest;
+    @Mock private HttpServletRequest mockServletRequest;
+
+    @Test
+    void shouldReadAPersonIdentity() throws Exception {
+        givenBody(PERSON_IDENTITY);
+
+        PersonIdentity personIdentity = personIdentityReader.read(mockRequest);
+
+        assertEquals("JON", personIdentity.getFirstName());
+        assertEquals("DOE", personIdentity.getSurname());
+        assertEquals(LocalDate.of(1970, 1, 1), personIdentity.getDateOfBirth());
+        assertEquals(AddressType.CURRENT, personIdentity.getAddresses().get(0).getAddressType());
+    }
+
+    @Test
+    void shouldRejectADeclaredContentLengthOverTheLimitWithoutReadingTheBody() throws Exception {
+        when(mockRequest.raw()).thenReturn(mockServletRequest);
+        when(mockServletRequest.getContentLengthLong()).thenReturn(1025L);
+
+        RequestBodyTooLargeException exception =
+                assertThrows(
+                        RequestBodyTooLargeException.class,
+                        () -> personIdentityReader.read(mockRequest));
+
+        assertEquals("request body exceeds 1024 bytes", exception.getMessage());
+        verify(mockServletRequest, never()).getInputStream();
+    }
+
+    @Test
+    void shouldStopReadingABodyOverTheLimit() throws Exception {
+        CountingServletInputStream inputStream =
+                new CountingServletInputStream(
+                        ("{\"firstName\":\"JON\",\"surname\":\"DOE\",\"ignored\":["
+                                        + "1,".repeat(1_000_000)
+                                        + "1]}")
+                                .getBytes(StandardCharsets.UTF_8));
+        when(mockRequest.raw()).thenReturn(mockServletRequest);
+        when(mockServletRequest.getContentLengthLong()).thenReturn(-1L);
+        when(mockServletRequest.getInputStream()).thenReturn(inputStream);
+
+        assertThrows(
+                RequestBodyTooLargeException.class, () -> personIdentityReader.read(mockRequest));
+
+        assertTrue(inputStream.bytesRead <= 1025, "read " + inputStream.bytesRead + " bytes");
+    }
+
+    @Test
+    void shouldRejectTooManyAddresses() throws Exception {
+        givenBody(
+                "{\"firstName\":\"JON\",\"addresses\":["
+                        + ADDRESS
+                        + ","
+                        + ADDRESS
+                        + ","
+                        + ADDRESS
+                        + "]}");
+
+        RequestBodyTooLargeException exception =
+                assertThrows(
+                        RequestBodyTooLargeException.class,
+                        () -> personIdentityReader.read(mockRequest));
+
+        assertEquals("more than 2 addresses", exception.getMessage());
+    }
+
+    @Test
+    void shouldRejectAStringOverTheLimit() throws Exception {
+        givenBody("{\"firstName\":\"" + "J".repeat(21) + "\"}");
+
+        RequestBodyTooLargeException exception =
+                assertThrows(
+                        RequestBodyTooLargeException.class,
+                        () -> personIdentityReader.read(mockRequest));
+
+        assertEquals("string exceeds 20 characters", exception.getMessage());
+    }
+
+    @Test
+    void shouldRejectMalformedJson() throws Exception {
+        givenBody("{\"firstName\":\"JON\",");
+
+        assertThrows(JsonProcessingException.class, () -> personIdentityReader.read(mockRequest));
+    }
+
+    @Test
+    void shouldRejectAnEmptyBody() throws Exception {
+        givenBody("");
+
+        assertThrows(JsonProcessingException.class, () -> personIdentityReader.read(mockRequest));
+    }
+
+    @Test
+    void shouldRejectANullBody() throws Exception {
+        givenBody("null");
+
+        assertThrows(JsonProcessingException.class, () -> personIdentityReader.read(mockRequest));
+    }
+
+    private void givenBody(String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        when(mockRequest.raw()).thenReturn(mockServletRequest);
+        when(mockServletRequest.getContentLengthLong()).thenReturn((long) bytes.length);
+        when(mockServletRequest.getInputStream()).thenReturn(new CountingServletInputStream(bytes));
+    }
+
+    private static class CountingServletInputStream extends ServletInputStream {
+        private final byte[] body;
+        private int bytesRead;
+
+        private CountingServletInputStream(byte[] body) {
+            this.body = body;
+        }
+
+        @Override
+        public int read() {
+            return bytesRead < body.length ? body[bytesRead++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (bytesRead == body.length) {
+                return -1;
+            }
+            int read = Math.min(len, body.length - bytesRead);
+            System.arraycopy(body, bytesRead, b, off, read);
+            bytesRead += read;
+            return read;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return bytesRead == body.length;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package uk.gov.di.ipv.cri.experian.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.gov.di.ipv.cri.experian.domain.IdentityCheckResult;
+import uk.gov.di.ipv.cri.experian.domain.PersonIdentity;
+import uk.gov.di.ipv.cri.experian.gateway.CircuitBreakerOpenException;
+import uk.gov.di.ipv.cri.experian.service.IdempotencyStore.IdempotentCall;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static uk.gov.di.ipv.cri.experian.util.TestDataCreator.createTestPersonIdentity;
+
+class IdempotencyStoreTest {
+    private static final Duration TTL = Duration.ofHours(24);
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private IdempotencyStore idempotencyStore;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        idempotencyStore =
+                new IdempotencyStore(new PersonIdentityFingerprinter(), 10, TTL, nanoTime::get);
+    }
+
+    @Test
+    void shouldJoinAnInProgressCallAndReplayItsResultUntilItExpires() throws Exception {
+        IdempotentCall owner = idempotencyStore.begin("key-1", createPersonIdentity("JON"));
+        IdempotentCall joined = idempotencyStore.begin("key-1", createPersonIdentity("JON"));
+        CompletableFuture<IdentityCheckResult> joinedResult = joined.getResult();
+
+        assertTrue(owner.isOwner());
+        assertFalse(joined.isOwner());
+        assertFalse(joinedResult.isDone());
+
+        nanoTime.addAndGet(Duration.ofHours(1).toNanos());
+        IdentityCheckResult result = new IdentityCheckResult(200, "result");
+        owner.complete(result);
+        assertSame(result, joinedResult.get());
+
+        nanoTime.addAndGet(TTL.toNanos() - 1);
+        IdempotentCall replayed = idempotencyStore.begin("key-1", createPersonIdentity("JON"));
+        assertFalse(replayed.isOwner());
+        assertSame(result, replayed.await(Duration.ZERO));
+
+        nanoTime.incrementAndGet();
+        assertTrue(idempotencyStore.begin("key-1", createPersonIdentity("JON")).isOwner());
+
+        assertEquals(1, idempotencyStore.getJoinCount());
+        assertEquals(1, idempotencyStore.getReplayCount());
+        assertEquals(1, idempotencyStore.getExpiryCount());
+    }
+
+    @Test
+    void shouldNotExpireACallThatIsStillInProgressPastTheTimeToLive() throws Exception {
+        IdempotentCall owner = idempotencyStore.begin("key-1", createPersonIdentity("JON"));
+
+        nanoTime.addAndGet(TTL.toNanos() + 1);
+        IdempotentCall joined = idempotencyStore.begin("key-1", createPersonIdentity("JON"));
+
+        assertTrue(owner.isOwner());
+        assertFalse(joined.isOwner());
+        assertEquals(1, idempotencyStore.getJoinCount());
+        assertEquals(0, idempotencyStore.getExpiryCount());
+        IdentityCheckResult result = result("result");
+        owner.complete(result);
+        assertSame(result, joined.await(Duration.ZERO));
+    }
+
+    @Test
+    void shouldRejectAKeyReusedForAnotherPayload() {
+        idempotencyStore.begin("key-1", createPersonIdentity("JON")).complete(result("result"));
+
+        assertThrows(
+                IdempotencyKeyMismatchException.class,
+                () -> idempotencyStore.begin("key-1", createPersonIdentity("JANE")));
+        assertTrue(idempotencyStore.begin("key-2", createPersonIdentity("JANE")).isOwner());
+        assertEquals(1, idempotencyStore.getMismatchCount());
+    }
+
+    @Test
+    void shouldForgetAFailedCallSoThatItCanBeRetried() throws Exception {
+        IdempotentCall owner = idempotencyStore.begin("key-1", createPersonIdentity("JON"));
+        IdempotentCall joined = idempotencyStore.begin("key-1", createPersonIdentity("JON"));
+
+        owner.fail(new CircuitBreakerOpenException());
+
+        assertThrows(CircuitBreakerOpenException.class, () -> joined.await(Duration.ZERO));
+        assertEquals(0, idempotencyStore.getSize());
+        IdempotentCall retried = idempotencyStore.begin("key-1", createPersonIdentity("JON"));
+        assertTrue(retried.isOwner());
+
+        retried.complete(null);
+        assertEquals(0, idempotencyStore.getSize());
+    }
+
+    @Test
+    void shouldForgetAnErrorResponseSoThatItCanBeRetried() throws Exception {
+        IdentityCheckResult errorResponse = new IdentityCheckResult(503, "unavailable");
+        IdempotentCall owner = idempotencyStore.begin("key-1", createPersonIdentity("JON"));
+        IdempotentCall joined = idempotencyStore.begin("key-1", createPersonIdentity("JON"));
+
+        owner.complete(errorResponse);
+
+        assertSame(errorResponse, joined.await(Duration.ZERO));
+        assertEquals(0, idempotencyStore.getSize());
+        assertTrue(idempotencyStore.begin("key-1", createPersonIdentity("JON")).isOwner());
+    }
+
+    @Test
+    void shouldStopWaitingForAnInProgressCallAfterTheTimeout() {
+        idempotencyStore.begin("key-1", createPersonIdentity("JON"));
+        IdempotentCall joined = idempotencyStore.begin("key-1", createPersonIdentity("JON"));
+
+        assertThrows(TimeoutException.class, () -> joined.await(Duration.ofMillis(10)));
+    }
+
+    @Test
+    void shouldEvictTheLeastRecentlyUsedKeyWhenFull() throws Exception {
+        IdempotencyStore smallStore =
+                new IdempotencyStore(new PersonIdentityFingerprinter(), 2, TTL, nanoTime::get);
+        smallStore.begin("first", createPersonIdentity("JON")).complete(result("first-result"));
+        smallStore.begin("second", createPersonIdentity("JON")).complete(result("second-result"));
+        smallStore.begin("first", createPersonIdentity("JON"));
+        smallStore.begin("third", createPersonIdentity("JON")).complete(result("third-result"));
+
+        assertEquals(1, smallStore.getEvictionCount());
+        assertFalse(smallStore.begin("first", createPersonIdentity("JON")).isOwner());
+        assertTrue(smallStore.begin("second", createPersonIdentity("JON")).isOwner());
+    }
+
+    @Test
+    void shouldNeverEvictAnInProgressCallAndRefuseNewKeysWhenFullOfThem() throws Exception {
+        IdempotencyStore smallStore =
+                new IdempotencyStore(new PersonIdentityFingerprinter(), 2, TTL, nanoTime::get);
+        IdempotentCall first = smallStore.begin("first", createPersonIdentity("JON"));
+        smallStore.begin("second", createPersonIdentity("JON")).complete(result("second-result"));
+        smallStore.begin("third", createPersonIdentity("JON"));
+
+        assertEquals(1, smallStore.getEvictionCount());
+        assertFalse(smallStore.begin("first", createPersonIdentity("JON")).isOwner());
+        assertThrows(
+                IdempotencyStoreFullException.class,
+                () -> smallStore.begin("fourth", createPersonIdentity("JON")));
+        assertEquals(1, smallStore.getRejectionCount());
+
+        first.complete(result("first-result"));
+        assertTrue(smallStore.begin("fourth", createPersonIdentity("JON")).isOwner());
+    }
+
+    @Test
+    void shouldOnlyAcceptPrintableAsciiKeysOfBoundedLength() {
+        assertTrue(IdempotencyStore.isValidKey("8e03978e-40d5-43e8-bc93-6894a57f9324"));
+        assertFalse(IdempotencyStore.isValidKey(""));
+        assertFalse(IdempotencyStore.isValidKey("two words"));
+        assertFalse(IdempotencyStore.isValidKey("\u00e9t\u00e9"));
+        assertFalse(IdempotencyStore.isValidKey("k".repeat(IdempotencyStore.MAX_KEY_LENGTH + 1)));
+    }
+
+    private static IdentityCheckResult result(String body) {
+        return new IdentityCheckResult(201, body);
+    }
+
+    private static PersonIdentity createPersonIdentity(String firstName) {
+        PersonIdentity personIdentity = createTestPersonIdentity();
+        personIdentity.setFirstName(firstName);
+        personIdentity.setSurname("DOE");
+        return personIdentity;
+    }
+}
@@ -0,0 +1,119 @@
+package uk.gov.di.ipv.cri.experian.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.gov.di.ipv.cri.experian.domain.IdentityCheckResult;
+import uk.gov.di.ipv.cri.experian.domain.PersonIdentity;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static uk.gov.di.ipv.cri.experian.util.TestDataCreator.createTestPersonIdentity;
+
+class IdentityCheckResultCacheTest {
+    private static final Duration TTL = Duration.ofMinutes(5);
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private PersonIdentityFingerprinter fingerprinter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        fingerprinter = new PersonIdentityFingerprinter();
+    }
+
+    @Test
+    void shouldReturnCachedResultUntilItExpires() {
+        IdentityCheckResultCache cache = createCache(10);
+        IdentityFingerprint fingerprint = fingerprint("JON");
+
+        assertEquals(Optional.empty(), getBody(cache, fingerprint));
+        cache.put(fingerprint, result("result"));
+        nanoTime.addAndGet(TTL.toNanos() - 1);
+        assertEquals(Optional.of("result"), getBody(cache, fingerprint));
+        nanoTime.incrementAndGet();
+        assertEquals(Optional.empty(), getBody(cache, fingerprint));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1, cache.getExpiryCount());
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    void shouldEvictTheLeastRecentlyUsedEntryWhenFull() {
+        IdentityCheckResultCache cache = createCache(2);
+        IdentityFingerprint first = fingerprint("FIRST");
+        IdentityFingerprint second = fingerprint("SECOND");
+        IdentityFingerprint third = fingerprint("THIRD");
+
+        cache.put(first, result("first-result"));
+        cache.put(second, result("second-result"));
+        cache.get(first);
+        cache.put(third, result("third-result"));
+
+        assertEquals(Optional.of("first-result"), getBody(cache, first));
+        assertEquals(Optional.empty(), getBody(cache, second));
+        assertEquals(Optional.of("third-result"), getBody(cache, third));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.getSize());
+    }
+
+    @Test
+    void shouldNotCacheResultsRejectedByThePredicate() {
+        IdentityCheckResultCache cache = createCache(10);
+        IdentityFingerprint fingerprint = fingerprint("JON");
+
+        cache.put(fingerprint, new IdentityCheckResult(500, "error"));
+        cache.put(fingerprint("JANE"), null);
+
+        assertEquals(Optional.empty(), getBody(cache, fingerprint));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    void shouldNeverCacheWhenDisabled() {
+        IdentityCheckResultCache cache = IdentityCheckResultCache.disabled();
+        IdentityFingerprint fingerprint = fingerprint("JON");
+
+        cache.put(fingerprint, result("result"));
+
+        assertFalse(cache.isEnabled());
+        assertEquals(Optional.empty(), getBody(cache, fingerprint));
+    }
+
+    @Test
+    void shouldRemoveAllEntriesWhenInvalidated() {
+        IdentityCheckResultCache cache = createCache(10);
+        cache.put(fingerprint("FIRST"), result("first-result"));
+        cache.put(fingerprint("SECOND"), result("second-result"));
+
+        cache.invalidateAll();
+
+        assertTrue(cache.isEnabled());
+        assertEquals(0, cache.getSize());
+    }
+
+    private IdentityCheckResultCache createCache(int maximumSize) {
+        return new IdentityCheckResultCache(
+                maximumSize, TTL, IdentityCheckResult::isSuccessful, nanoTime::get);
+    }
+
+    private IdentityFingerprint fingerprint(String firstName) {
+        PersonIdentity personIdentity = createTestPersonIdentity();
+        personIdentity.setFirstName(firstName);
+        return fingerprinter.fingerprint(personIdentity);
+    }
+
+    private static IdentityCheckResult result(String body) {
+        return new IdentityCheckResult(200, body);
+    }
+
+    private static Optional<String> getBody(
+            IdentityCheckResultCache cache, IdentityFingerprint fingerprint) {
+        return cache.get(fingerprint).map(IdentityCheckResult::getBody);
+    }
+}
@@ -5,13 +5,29 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.di.ipv.cri.experian.domain.IdentityCheckResult;
 import uk.gov.di.ipv.cri.experian.domain.PersonIdentity;
+import uk.gov.di.ipv.cri.experian.gateway.ConcurrencyLimitExceededException;
 import uk.gov.di.ipv.cri.experian.gateway.ExperianGateway;
+import uk.gov.di.ipv.cri.experian.metrics.StageRecorder;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.gov.di.ipv.cri.experian.util.TestDataCreator.createTestPersonIdentity;
@@ -31,23 +47,172 @@ class IdentityVerificationServiceTest {
     void shouldInvokeTheCrossCoreGateway() throws IOException, InterruptedException {
         final String identityCheckResult = "identity-check-response";
         PersonIdentity testPersonIdentity = createTestPersonIdentity();
-        when(this.mockExperianGateway.performIdentityCheck(testPersonIdentity))
-                .thenReturn(identityCheckResult);
+        when(this.mockExperianGateway.checkIdentity(testPersonIdentity, StageRecorder.NONE))
+                .thenReturn(new IdentityCheckResult(200, identityCheckResult));
 
         String result = this.identityVerificationService.verifyIdentity(testPersonIdentity);
 
-        verify(mockExperianGateway).performIdentityCheck(testPersonIdentity);
+        verify(mockExperianGateway).checkIdentity(testPersonIdentity, StageRecorder.NONE);
         assertEquals(identityCheckResult, result);
     }
 
     @Test
     void shouldReturnNullWhenAnExceptionOccurs() throws IOException, InterruptedException {
         PersonIdentity testPersonIdentity = createTestPersonIdentity();
-        when(this.mockExperianGateway.performIdentityCheck(testPersonIdentity))
+        when(this.mockExperianGateway.checkIdentity(testPersonIdentity, StageRecorder.NONE))
                 .thenThrow(new IOException());
 
         String result = this.identityVerificationService.verifyIdentity(testPersonIdentity);
 
         assertNull(result);
     }
+
+    @Test
+    void shouldPropagateGatewayRejections() throws Exception {
+        PersonIdentity testPersonIdentity = createTestPersonIdentity();
+        when(this.mockExperianGateway.checkIdentity(testPersonIdentity, StageRecorder.NONE))
+                .thenThrow(new ConcurrencyLimitExceededException());
+        when(this.mockExperianGateway.checkIdentityAsync(testPersonIdentity, StageRecorder.NONE))
+                .thenReturn(
+                        CompletableFuture.failedFuture(new ConcurrencyLimitExceededException()));
+
+        assertThrows(
+                ConcurrencyLimitExceededException.class,
+                () -> this.identityVerificationService.verifyIdentity(testPersonIdentity));
+        ExecutionException exception =
+                assertThrows(
+                        ExecutionException.class,
+                        () ->
+                                this.identityVerificationService
+                                        .verifyIdentityAsync(testPersonIdentity)
+                                        .get());
+        assertInstanceOf(ConcurrencyLimitExceededException.class, exception.getCause());
+    }
+
+    @Test
+    void shouldInvokeTheCrossCoreGatewayAsynchronously() throws Exception {
+        final String identityCheckResult = "identity-check-response";
+        PersonIdentity testPersonIdentity = createTestPersonIdentity();
+        when(this.mockExperianGateway.checkIdentityAsync(testPersonIdentity, StageRecorder.NONE))
+                .thenReturn(
+                        CompletableFuture.completedFuture(
+                                new IdentityCheckResult(200, identityCheckResult)));
+
+        String result =
+                this.identityVerificationService.verifyIdentityAsync(testPersonIdentity).get();
+
+        verify(mockExperianGateway).checkIdentityAsync(testPersonIdentity, StageRecorder.NONE);
+        assertEquals(identityCheckResult, result);
+    }
+
+    @Test
+    void shouldCompleteWithNullWhenTheAsyncCallFails() throws Exception {
+        PersonIdentity testPersonIdentity = createTestPersonIdentity();
+        when(this.mockExperianGateway.checkIdentityAsync(testPersonIdentity, StageRecorder.NONE))
+                .thenReturn(CompletableFuture.failedFuture(new IOException()));
+
+        String result =
+                this.identityVerificationService.verifyIdentityAsync(testPersonIdentity).get();
+
+        assertNull(result);
+    }
+
+    @Test
+    void shouldReturnCachedResultWithoutInvokingTheGatewayAgain() throws Exception {
+        final String identityCheckResult = "identity-check-response";
+        IdentityVerificationService cachingService = createCachingService();
+        when(this.mockExperianGateway.checkIdentity(
+                        any(PersonIdentity.class), eq(StageRecorder.NONE)))
+                .thenReturn(new IdentityCheckResult(200, identityCheckResult));
+
+        String firstResult = cachingService.verifyIdentity(createTestPersonIdentity());
+        String secondResult = cachingService.verifyIdentity(createTestPersonIdentity());
+        String asyncResult = cachingService.verifyIdentityAsync(createTestPersonIdentity()).get();
+
+        assertEquals(identityCheckResult, firstResult);
+        assertEquals(identityCheckResult, secondResult);
+        assertEquals(identityCheckResult, asyncResult);
+        verify(mockExperianGateway, times(1))
+                .checkIdentity(any(PersonIdentity.class), eq(StageRecorder.NONE));
+    }
+
+    @Test
+    void shouldNotCacheFailedIdentityChecks() throws Exception {
+        IdentityVerificationService cachingService = createCachingService();
+        when(this.mockExperianGateway.checkIdentity(
+                        any(PersonIdentity.class), eq(StageRecorder.NONE)))
+                .thenThrow(new IOException())
+                .thenReturn(new IdentityCheckResult(200, "identity-check-response"));
+
+        assertNull(cachingService.verifyIdentity(createTestPersonIdentity()));
+        assertEquals(
+                "identity-check-response",
+                cachingService.verifyIdentity(createTestPersonIdentity()));
+        verify(mockExperianGateway, times(2))
+                .checkIdentity(any(PersonIdentity.class), eq(StageRecorder.NONE));
+    }
+
+    @Test
+    void shouldNotCacheCrossCoreErrorResponses() throws Exception {
+        final String errorBody = "{\"errors\":[{\"code\":\"internal_error\"}]}";
+        IdentityVerificationService cachingService = createCachingService();
+        when(this.mockExperianGateway.checkIdentity(
+                        any(PersonIdentity.class), eq(StageRecorder.NONE)))
+                .thenReturn(new IdentityCheckResult(500, errorBody))
+                .thenReturn(new IdentityCheckResult(200, "identity-check-response"));
+
+        assertEquals(errorBody, cachingService.verifyIdentity(createTestPersonIdentity()));
+        assertEquals(
+                "identity-check-response",
+                cachingService.verifyIdentity(createTestPersonIdentity()));
+        verify(mockExperianGateway, times(2))
+                .checkIdentity(any(PersonIdentity.class), eq(StageRecorder.NONE));
+    }
+
+    private IdentityVerificationService createCachingService() throws Exception {
+        return IdentityVerificationService.builder(mockExperianGateway)
+                .fingerprinter(new PersonIdentityFingerprinter())
+                .resultCache(
+                        new IdentityCheckResultCache(
+                                10, Duration.ofMinutes(5), IdentityCheckResult::isSuccessful))
+                .build();
+    }
+
+    @Test
+    void shouldShareOneGatewayCallBetweenIdenticalConcurrentChecks() throws Exception {
+        CountDownLatch gatewayCalled = new CountDownLatch(1);
+        CountDownLatch releaseGateway = new CountDownLatch(1);
+        IdentityVerificationService coalescingService =
+                IdentityVerificationService.builder(mockExperianGateway)
+                        .fingerprinter(new PersonIdentityFingerprinter())
+                        .requestCoalescer(new InFlightRequestCoalescer<>())
+                        .build();
+        when(this.mockExperianGateway.checkIdentity(
+                        any(PersonIdentity.class), eq(StageRecorder.NONE)))
+                .thenAnswer(
+                        invocation -> {
+                            gatewayCalled.countDown();
+                            releaseGateway.await();
+                            return new IdentityCheckResult(200, "identity-check-response");
+                        });
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first =
+                    executorService.submit(
+                            () -> coalescingService.verifyIdentity(createTestPersonIdentity()));
+            gatewayCalled.await();
+            CompletableFuture<String> second =
+                    coalescingService.verifyIdentityAsync(createTestPersonIdentity());
+
+            releaseGateway.countDown();
+
+            assertEquals("identity-check-response", first.get());
+            assertEquals("identity-check-response", second.get());
+            verify(mockExperianGateway, times(1))
+                    .checkIdentity(any(PersonIdentity.class), eq(StageRecorder.NONE));
+            verify(mockExperianGateway, never()).checkIdentityAsync(any(), any());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
 }
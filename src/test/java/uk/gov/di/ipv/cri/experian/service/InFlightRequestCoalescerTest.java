@@ -0,0 +1,112 @@
+package uk.gov.di.ipv.cri.experian.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InFlightRequestCoalescerTest {
+    private final InFlightRequestCoalescer<String, String> coalescer =
+            new InFlightRequestCoalescer<>();
+    private final AtomicInteger callCount = new AtomicInteger();
+
+    @Test
+    void shouldShareOneCallBetweenConcurrentCallersWithTheSameKey() throws Exception {
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+
+        CompletableFuture<String> first = coalescer.execute("key", countingCall(upstream));
+        CompletableFuture<String> second = coalescer.execute("key", countingCall(upstream));
+        upstream.complete("result");
+
+        assertEquals("result", first.get());
+        assertEquals("result", second.get());
+        assertEquals(1, callCount.get());
+        assertEquals(1, coalescer.getCoalescedCount());
+        assertEquals(0, coalescer.getInFlightCount());
+    }
+
+    @Test
+    void shouldNotShareCallsBetweenDifferentKeys() {
+        coalescer.execute("first", countingCall(new CompletableFuture<>()));
+        coalescer.execute("second", countingCall(new CompletableFuture<>()));
+
+        assertEquals(2, callCount.get());
+        assertEquals(2, coalescer.getInFlightCount());
+    }
+
+    @Test
+    void shouldStartANewCallOnceThePreviousOneHasCompleted() throws Exception {
+        coalescer.execute("key", countingCall(CompletableFuture.completedFuture("first"))).get();
+
+        String result =
+                coalescer
+                        .execute("key", countingCall(CompletableFuture.completedFuture("second")))
+                        .get();
+
+        assertEquals("second", result);
+        assertEquals(2, callCount.get());
+    }
+
+    @Test
+    void shouldPropagateFailuresToEveryCaller() {
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        CompletableFuture<String> first = coalescer.execute("key", countingCall(upstream));
+        CompletableFuture<String> second = coalescer.execute("key", countingCall(upstream));
+
+        upstream.completeExceptionally(new IOException("upstream failed"));
+
+        assertInstanceOf(
+                IOException.class, assertThrows(ExecutionException.class, first::get).getCause());
+        assertInstanceOf(
+                IOException.class, assertThrows(ExecutionException.class, second::get).getCause());
+        assertEquals(0, coalescer.getInFlightCount());
+    }
+
+    @Test
+    void shouldPropagateExceptionsThrownWhenStartingTheCall() {
+        CompletableFuture<String> result =
+                coalescer.execute(
+                        "key",
+                        () -> {
+                            throw new IOException("could not serialise request");
+                        });
+
+        assertInstanceOf(
+                IOException.class, assertThrows(ExecutionException.class, result::get).getCause());
+    }
+
+    @Test
+    void shouldOnlyCancelTheUpstreamCallOnceEveryCallerHasCancelled() throws Exception {
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        CompletableFuture<String> first = coalescer.execute("key", countingCall(upstream));
+        CompletableFuture<String> second = coalescer.execute("key", countingCall(upstream));
+
+        first.cancel(true);
+        assertFalse(upstream.isCancelled());
+
+        second.cancel(true);
+        assertTrue(upstream.isCancelled());
+        assertEquals(0, coalescer.getInFlightCount());
+
+        CompletableFuture<String> third =
+                coalescer.execute("key", countingCall(CompletableFuture.completedFuture("new")));
+        assertEquals("new", third.get());
+        assertEquals(2, callCount.get());
+    }
+
+    private Callable<CompletableFuture<String>> countingCall(CompletableFuture<String> upstream) {
+        return () -> {
+            callCount.incrementAndGet();
+            return upstream;
+        };
+    }
+}
@@ -0,0 +1,68 @@
+package uk.gov.di.ipv.cri.experian.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.gov.di.ipv.cri.experian.domain.AddressType;
+import uk.gov.di.ipv.cri.experian.domain.PersonIdentity;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static uk.gov.di.ipv.cri.experian.util.TestDataCreator.createTestPersonIdentity;
+
+class PersonIdentityFingerprinterTest {
+    private PersonIdentityFingerprinter fingerprinter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        fingerprinter = new PersonIdentityFingerprinter();
+    }
+
+    @Test
+    void shouldReturnEqualFingerprintsForEqualIdentities() {
+        assertEquals(
+                fingerprinter.fingerprint(createTestPersonIdentity()),
+                fingerprinter.fingerprint(createTestPersonIdentity()));
+    }
+
+    @Test
+    void shouldReturnDifferentFingerprintsWhenAnyIdentityDetailDiffers() {
+        IdentityFingerprint original = fingerprinter.fingerprint(createTestPersonIdentity());
+
+        PersonIdentity differentDateOfBirth = createTestPersonIdentity();
+        differentDateOfBirth.setDateOfBirth(LocalDate.of(1976, 12, 27));
+        PersonIdentity differentAddressType = createTestPersonIdentity(AddressType.PREVIOUS);
+        PersonIdentity differentPostcode = createTestPersonIdentity();
+        differentPostcode.getAddresses().get(0).setPostcode("Postcode2");
+
+        assertNotEquals(original, fingerprinter.fingerprint(differentDateOfBirth));
+        assertNotEquals(original, fingerprinter.fingerprint(differentAddressType));
+        assertNotEquals(original, fingerprinter.fingerprint(differentPostcode));
+    }
+
+    @Test
+    void shouldDistinguishFieldBoundaries() {
+        PersonIdentity first = createTestPersonIdentity();
+        first.setFirstName("AB");
+        first.setSurname("C");
+        PersonIdentity second = createTestPersonIdentity();
+        second.setFirstName("A");
+        second.setSurname("BC");
+        PersonIdentity emptyMiddleNames = createTestPersonIdentity();
+        emptyMiddleNames.setMiddleNames("");
+
+        assertNotEquals(fingerprinter.fingerprint(first), fingerprinter.fingerprint(second));
+        assertNotEquals(
+                fingerprinter.fingerprint(createTestPersonIdentity()),
+                fingerprinter.fingerprint(emptyMiddleNames));
+    }
+
+    @Test
+    void shouldThrowExceptionWhenPersonIdentityIsNull() {
+        NullPointerException exception =
+                assertThrows(NullPointerException.class, () -> fingerprinter.fingerprint(null));
+        assertEquals("The personIdentity must not be null", exception.getMessage());
+    }
+}
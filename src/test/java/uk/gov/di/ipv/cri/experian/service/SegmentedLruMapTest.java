@@ -0,0 +1,57 @@
+package uk.gov.di.ipv.cri.experian.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentedLruMapTest {
+
+    @Test
+    void shouldEvictTheLeastRecentlyUsedEvictableEntryWhenFull() {
+        SegmentedLruMap<String, String> map =
+                new SegmentedLruMap<>(3, value -> !value.startsWith("pinned"));
+        put(map, "first", "pinned-first");
+        put(map, "second", "second");
+        put(map, "third", "third");
+        get(map, "second");
+
+        assertTrue(put(map, "fourth", "fourth"));
+
+        assertEquals("pinned-first", get(map, "first"));
+        assertEquals("second", get(map, "second"));
+        assertNull(get(map, "third"));
+        assertEquals(1, map.getEvictionCount());
+        assertEquals(3, map.getSize());
+    }
+
+    @Test
+    void shouldRefuseANewKeyWhenNothingCanBeEvicted() {
+        SegmentedLruMap<String, String> map = new SegmentedLruMap<>(1, value -> false);
+
+        assertTrue(put(map, "first", "first"));
+        assertTrue(put(map, "first", "replaced"));
+        assertFalse(put(map, "second", "second"));
+
+        assertEquals("replaced", get(map, "first"));
+        assertEquals(0, map.getEvictionCount());
+    }
+
+    @Test
+    void shouldHoldNothingWithAMaximumSizeOfZero() {
+        SegmentedLruMap<String, String> map = new SegmentedLruMap<>(0, value -> true);
+
+        assertFalse(put(map, "first", "first"));
+        assertEquals(0, map.getSize());
+    }
+
+    private static boolean put(SegmentedLruMap<String, String> map, String key, String value) {
+        return map.withSegment(key, segment -> segment.put(key, value));
+    }
+
+    private static String get(SegmentedLruMap<String, String> map, String key) {
+        return map.withSegment(key, segment -> segment.get(key));
+    }
+}
@@ -0,0 +1,107 @@
+package uk.gov.di.ipv.cri.experian.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.di.ipv.cri.experian.domain.UpstreamStatus;
+import uk.gov.di.ipv.cri.experian.gateway.ExperianGateway;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UpstreamProberTest {
+    private static final Instant NOW = Instant.parse("2021-12-01T10:15:30Z");
+
+    @Mock private ExperianGateway mockExperianGateway;
+    private UpstreamProber upstreamProber;
+
+    @BeforeEach
+    void setUp() {
+        upstreamProber =
+                new UpstreamProber(
+                        mockExperianGateway,
+                        Duration.ofSeconds(15),
+                        Duration.ofMillis(100),
+                        2,
+                        Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    void shouldBeUnknownUntilTheFirstProbe() {
+        assertEquals(UpstreamStatus.UNKNOWN, upstreamProber.getStatus().getStatus());
+        assertFalse(upstreamProber.isUp());
+    }
+
+    @Test
+    void shouldBeUpAfterAProbeThatCrossCoreRefused() throws Exception {
+        HttpResponse<Void> response = createResponse(405);
+        when(mockExperianGateway.sendProbe())
+                .thenReturn(CompletableFuture.completedFuture(response));
+
+        UpstreamStatus status = upstreamProber.probe().get(5, TimeUnit.SECONDS);
+
+        assertTrue(upstreamProber.isUp());
+        assertEquals(UpstreamStatus.UP, status.getStatus());
+        assertEquals(NOW.toString(), status.getCheckedAt());
+        assertEquals(405, status.getStatusCode());
+        assertTrue(status.getLatencyMillis() >= 0);
+        assertNull(status.getError());
+        assertEquals(1, upstreamProber.getProbeCount());
+        assertEquals(0, upstreamProber.getProbeFailureCount());
+    }
+
+    @Test
+    void shouldGoDownAfterTheFailureThreshold() throws Exception {
+        HttpResponse<Void> okResponse = createResponse(200);
+        HttpResponse<Void> unavailableResponse = createResponse(503);
+        when(mockExperianGateway.sendProbe())
+                .thenReturn(CompletableFuture.completedFuture(okResponse))
+                .thenReturn(CompletableFuture.completedFuture(unavailableResponse))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("connection refused")));
+
+        upstreamProber.probe().get(5, TimeUnit.SECONDS);
+        UpstreamStatus firstFailure = upstreamProber.probe().get(5, TimeUnit.SECONDS);
+        UpstreamStatus secondFailure = upstreamProber.probe().get(5, TimeUnit.SECONDS);
+
+        assertEquals(UpstreamStatus.UP, firstFailure.getStatus());
+        assertEquals("unexpected status code 503", firstFailure.getError());
+        assertEquals(UpstreamStatus.DOWN, secondFailure.getStatus());
+        assertEquals("IOException: connection refused", secondFailure.getError());
+        assertEquals(2, secondFailure.getConsecutiveFailures());
+        assertEquals(2, upstreamProber.getProbeFailureCount());
+    }
+
+    @Test
+    void shouldBeDownWhenTheFirstProbeTimesOut() throws Exception {
+        when(mockExperianGateway.sendProbe()).thenReturn(new CompletableFuture<>());
+
+        UpstreamStatus status = upstreamProber.probe().get(5, TimeUnit.SECONDS);
+
+        assertEquals(UpstreamStatus.DOWN, status.getStatus());
+        assertEquals("no response within 100ms", status.getError());
+        assertNull(status.getStatusCode());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HttpResponse<Void> createResponse(int statusCode) {
+        HttpResponse<Void> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(statusCode);
+        return response;
+    }
+}
@@ -0,0 +1,149 @@
+package uk.gov.di.ipv.cri.experian.validation;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.gov.di.ipv.cri.experian.domain.PersonAddress;
+import uk.gov.di.ipv.cri.experian.domain.PersonIdentity;
+import uk.gov.di.ipv.cri.experian.domain.ValidationResult;
+import uk.gov.di.ipv.cri.experian.util.TestDataCreator;
+
+import javax.validation.Validation;
+import javax.validation.ValidatorFactory;
+import javax.validation.constraints.Size;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrecomputedValidatorTest {
+    private ValidatorFactory validatorFactory;
+    private InputValidationExecutor validatorExecutor;
+    private PrecomputedValidator precomputedValidator;
+
+    @BeforeEach
+    void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validatorExecutor = new InputValidationExecutor(validatorFactory.getValidator());
+        precomputedValidator = new PrecomputedValidator(validatorFactory, PersonIdentity.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Test
+    void shouldAcceptAValidPersonIdentity() {
+        ValidationResult validationResult =
+                precomputedValidator.validate(createValidPersonIdentity());
+
+        assertTrue(validationResult.isValid());
+        assertEquals(0, validationResult.getErrors().size());
+    }
+
+    @Test
+    void shouldReportTheSameMessagesAsTheValidator() {
+        assertSameMessages(personIdentity -> personIdentity.setFirstName(null));
+        assertSameMessages(personIdentity -> personIdentity.setFirstName(" \t"));
+        assertSameMessages(personIdentity -> personIdentity.setSurname(""));
+        assertSameMessages(personIdentity -> personIdentity.setDateOfBirth(null));
+        assertSameMessages(
+                personIdentity -> personIdentity.setDateOfBirth(LocalDate.now().plusDays(1)));
+        assertSameMessages(personIdentity -> personIdentity.setDateOfBirth(LocalDate.now()));
+        assertSameMessages(personIdentity -> personIdentity.setAddresses(null));
+        assertSameMessages(personIdentity -> personIdentity.setAddresses(List.of()));
+        assertSameMessages(
+                personIdentity ->
+                        personIdentity.setAddresses(Arrays.asList(null, createBlankAddress())));
+        assertSameMessages(
+                personIdentity -> {
+                    personIdentity.setFirstName(null);
+                    personIdentity.setSurname(null);
+                    personIdentity.setAddresses(
+                            new ArrayList<>(List.of(createBlankAddress(), createBlankAddress())));
+                });
+    }
+
+    @Test
+    void shouldLeaveABeanOfAnotherClassToTheValidator() {
+        assertFalse(precomputedValidator.supports(Object.class));
+        assertNull(precomputedValidator.validate(new Object()));
+    }
+
+    @Test
+    void shouldLeaveACascadedSubclassToTheValidator() {
+        PersonIdentity personIdentity = createValidPersonIdentity();
+        personIdentity.setAddresses(List.of(new PersonAddress() {}));
+
+        assertNull(precomputedValidator.validate(personIdentity));
+    }
+
+    @Test
+    void shouldRejectAClassWithAnUnsupportedConstraint() {
+        assertThrows(
+                IllegalStateException.class,
+                () -> new PrecomputedValidator(validatorFactory, SizedBean.class));
+    }
+
+    @Test
+    void shouldBeUsedByTheInputValidationExecutor() {
+        InputValidationExecutor inputValidationExecutor =
+                new InputValidationExecutor(validatorFactory.getValidator(), precomputedValidator);
+        PersonIdentity personIdentity = createValidPersonIdentity();
+        personIdentity.setSurname(null);
+
+        assertEquals(
+                List.of("surname must not be null or empty"),
+                inputValidationExecutor.performInputValidation(personIdentity).getErrors());
+        assertTrue(
+                inputValidationExecutor
+                        .performInputValidation(createValidPersonIdentity())
+                        .isValid());
+    }
+
+    private void assertSameMessages(Consumer<PersonIdentity> change) {
+        PersonIdentity personIdentity = createValidPersonIdentity();
+        change.accept(personIdentity);
+
+        List<String> expected =
+                new ArrayList<>(
+                        validatorExecutor.performInputValidation(personIdentity).getErrors());
+        List<String> actual =
+                new ArrayList<>(precomputedValidator.validate(personIdentity).getErrors());
+        Collections.sort(expected);
+        Collections.sort(actual);
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, actual);
+    }
+
+    private static PersonIdentity createValidPersonIdentity() {
+        PersonIdentity personIdentity = TestDataCreator.createTestPersonIdentity();
+        personIdentity.setFirstName("Jon");
+        personIdentity.setSurname("Doe");
+        return personIdentity;
+    }
+
+    private static PersonAddress createBlankAddress() {
+        PersonAddress address = new PersonAddress();
+        address.setStreet(" ");
+        address.setPostcode("");
+        address.setAddressType(null);
+        return address;
+    }
+
+    private static class SizedBean {
+        @Size(max = 3)
+        private String value;
+    }
+}